@@ -1173,7 +1173,9 @@ public abstract class UIComponentBase extends UIComponent
         super.markInitialState();
         
         // Enable copyFullInitialState behavior when delta is written into this component.
-        ((_DeltaStateHelper)getStateHelper()).setCopyFullInitialState(true);
+        _DeltaStateHelper stateHelper = (_DeltaStateHelper) getStateHelper();
+        stateHelper.setCopyFullInitialState(true);
+        stateHelper.useCompactStateIfEnabled(getFacesContext());
         
         if (_facesListeners != null)
         {
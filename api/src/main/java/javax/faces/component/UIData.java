@@ -166,9 +166,10 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
     // Holds for each row the states of the child components of this UIData.
     // Note that only "partial" component state is saved: the component fields
     // that are expected to vary between rows.
-    private Map<String, Object> _rowStates = new HashMap<>();
-    private Map<String, Map<String, Object>> _rowDeltaStates = new HashMap<>();
-    private Map<String, Map<String, Object>> _rowTransientStates = new HashMap<>();
+    // The rows are looked up by the client id of this component and the row index, see _getRowStatesClientId.
+    private _RowStateTable<Object> _rowStates = new _RowStateTable<>();
+    private _RowStateTable<Map<String, Object>> _rowDeltaStates = new _RowStateTable<>();
+    private _RowStateTable<Map<String, Object>> _rowTransientStates = new _RowStateTable<>();
 
     /**
      * Handle case where this table is nested inside another table. See method getDataModel for more details.
@@ -572,7 +573,7 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
                 Collection<Object[]> savedRowState = saveDescendantComponentStates(this, false, false);
                 if (savedRowState != null)
                 {
-                    _rowStates.put(getContainerClientId(facesContext), savedRowState);
+                    _rowStates.put(_getRowStatesClientId(facesContext), _rowIndex, savedRowState);
                 }
             }
         }
@@ -621,7 +622,7 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
         }
         else
         {
-            Object rowState = _rowStates.get(getContainerClientId(facesContext));
+            Object rowState = _rowStates.get(_getRowStatesClientId(facesContext), _rowIndex);
             if (rowState == null)
             {
                 // We haven't been positioned on this row before, so just
@@ -669,11 +670,11 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
                                                                        getChildren().iterator(), false);
             if (sm != null && !sm.isEmpty())
             {
-                _rowDeltaStates.put(getContainerClientId(facesContext), sm);
+                _rowDeltaStates.put(_getRowStatesClientId(facesContext), _rowIndex, sm);
             }
             if (_rowIndex != -1)
             {
-                _rowTransientStates.put(getContainerClientId(facesContext),
+                _rowTransientStates.put(_getRowStatesClientId(facesContext), _rowIndex,
                         saveTransientDescendantComponentStates(facesContext, null, getChildren().iterator(), false));
             }
         }
@@ -709,7 +710,7 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
 
         if (_initialDescendantFullComponentState != null)
         {
-            Map<String, Object> rowState = _rowDeltaStates.get(getContainerClientId(facesContext));
+            Map<String, Object> rowState = _rowDeltaStates.get(_getRowStatesClientId(facesContext), _rowIndex);
             if (rowState == null)
             {
                 //Restore as original
@@ -728,7 +729,7 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
             }
             else
             {
-                rowState = _rowTransientStates.get(getContainerClientId(facesContext));
+                rowState = _rowTransientStates.get(_getRowStatesClientId(facesContext), _rowIndex);
                 if (rowState == null)
                 {
                     restoreTransientDescendantComponentStates(facesContext, getChildren().iterator(), null, false);
@@ -1346,7 +1347,7 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
         }
         else
         {
-            _rowDeltaStates = (Map<String, Map<String, Object> >) restoredRowStates;
+            _rowDeltaStates = _restoreRowStateTable(context, restoredRowStates);
         }
 
         if (values.length > 2)
@@ -1361,7 +1362,7 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
             }
             else
             {
-                _rowStates = (Map<String, Object>) rs;
+                _rowStates = _restoreRowStateTable(context, rs);
             }
         }
         if (values.length > 3)
@@ -1376,11 +1377,25 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
             }
             else
             {
-                _rowTransientStates = (Map<String, Map<String, Object> >) rs;
+                _rowTransientStates = _restoreRowStateTable(context, rs);
             }
         }
     }
 
+    /**
+     * A state saved by an older version, from the client or a serialized session, holds a map keyed by the
+     * container client id of each row.
+     */
+    @SuppressWarnings("unchecked")
+    private static <V> _RowStateTable<V> _restoreRowStateTable(FacesContext context, Object restored)
+    {
+        if (restored instanceof _RowStateTable)
+        {
+            return (_RowStateTable<V>) restored;
+        }
+        return _RowStateTable.fromMap((Map<String, V>) restored, context.getNamingContainerSeparatorChar());
+    }
+
     @Override
     public Object saveState(FacesContext context)
     {
@@ -1476,6 +1491,16 @@ public class UIData extends UIComponentBase implements NamingContainer, UniqueId
         super.setValueExpression(name, binding);
     }
 
+    /**
+     * Return the client id of this component without the row index, used together with the row index to
+     * look up the saved states of the rows. It is cached by UIComponentBase, so unlike getContainerClientId()
+     * no String is built each time the row index changes.
+     */
+    private String _getRowStatesClientId(FacesContext context)
+    {
+        return super.getContainerClientId(context);
+    }
+
     @Override
     public String getContainerClientId(FacesContext context)
     {
@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package javax.faces.component;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Open addressed map used by _DeltaStateHelper to hold the state of a component.
+ * 
+ * <p>Keys and values are stored one after the other in a single array, using linear probing, so there
+ * is no entry object per property like in a HashMap. Components usually hold only a few properties,
+ * so the lookup is as fast as in a HashMap, and the memory used per component is much smaller.
+ * Null values are allowed, null keys are not.</p>
+ * 
+ * <p>Removed keys are replaced by a marker, so the entries can be removed while iterating. The
+ * markers are dropped when the array is resized or the map is cleared.</p>
+ */
+class _CompactStateMap<K, V> extends AbstractMap<K, V>
+{
+    private static final Object REMOVED = new Object();
+
+    private static final int MIN_CAPACITY = 4;
+
+    // key at 2 * slot, value at 2 * slot + 1
+    private Object[] _table;
+    private int _size;
+    // number of slots holding a key or a REMOVED marker
+    private int _used;
+    private Set<Map.Entry<K, V>> _entrySet;
+
+    _CompactStateMap()
+    {
+        this(MIN_CAPACITY);
+    }
+
+    _CompactStateMap(int expectedSize)
+    {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4)
+        {
+            capacity <<= 1;
+        }
+        _table = new Object[capacity * 2];
+    }
+
+    private static int hash(Object key)
+    {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(Object key)
+    {
+        if (key == null)
+        {
+            return -1;
+        }
+        Object[] table = _table;
+        int mask = (table.length >> 1) - 1;
+        int slot = hash(key) & mask;
+        while (true)
+        {
+            Object k = table[slot << 1];
+            if (k == null)
+            {
+                return -1;
+            }
+            if (k == key || (k != REMOVED && k.equals(key)))
+            {
+                return slot << 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return _size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return _size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key)
+    {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) _table[index + 1];
+    }
+
+    @Override
+    public V put(K key, V value)
+    {
+        if (key == null)
+        {
+            throw new NullPointerException("key");
+        }
+        int index = indexOf(key);
+        if (index >= 0)
+        {
+            V oldValue = (V) _table[index + 1];
+            _table[index + 1] = value;
+            return oldValue;
+        }
+
+        int capacity = _table.length >> 1;
+        if ((_used + 1) * 4 > capacity * 3)
+        {
+            // grow only if the map is really full, otherwise just drop the REMOVED markers
+            resize((_size + 1) * 2 > capacity ? capacity << 1 : capacity);
+        }
+
+        Object[] table = _table;
+        int mask = (table.length >> 1) - 1;
+        int slot = hash(key) & mask;
+        while (table[slot << 1] != null && table[slot << 1] != REMOVED)
+        {
+            slot = (slot + 1) & mask;
+        }
+        if (table[slot << 1] == null)
+        {
+            _used++;
+        }
+        table[slot << 1] = key;
+        table[(slot << 1) + 1] = value;
+        _size++;
+        return null;
+    }
+
+    @Override
+    public V remove(Object key)
+    {
+        int index = indexOf(key);
+        if (index < 0)
+        {
+            return null;
+        }
+        V oldValue = (V) _table[index + 1];
+        removeAt(index);
+        return oldValue;
+    }
+
+    private void removeAt(int index)
+    {
+        _table[index] = REMOVED;
+        _table[index + 1] = null;
+        _size--;
+    }
+
+    @Override
+    public void clear()
+    {
+        Arrays.fill(_table, null);
+        _size = 0;
+        _used = 0;
+    }
+
+    private void resize(int capacity)
+    {
+        Object[] oldTable = _table;
+        Object[] table = new Object[capacity * 2];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldTable.length; i += 2)
+        {
+            Object key = oldTable[i];
+            if (key != null && key != REMOVED)
+            {
+                int slot = hash(key) & mask;
+                while (table[slot << 1] != null)
+                {
+                    slot = (slot + 1) & mask;
+                }
+                table[slot << 1] = key;
+                table[(slot << 1) + 1] = oldTable[i + 1];
+            }
+        }
+        _table = table;
+        _used = _size;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        if (_entrySet == null)
+        {
+            _entrySet = new EntrySet();
+        }
+        return _entrySet;
+    }
+
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>>
+    {
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator()
+        {
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size()
+        {
+            return _size;
+        }
+
+        @Override
+        public void clear()
+        {
+            _CompactStateMap.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Map.Entry<K, V>>
+    {
+        private final Object[] _iteratedTable = _table;
+        private int _next = -2;
+        private int _current = -1;
+
+        private EntryIterator()
+        {
+            advance();
+        }
+
+        private void advance()
+        {
+            do
+            {
+                _next += 2;
+            }
+            while (_next < _iteratedTable.length
+                    && (_iteratedTable[_next] == null || _iteratedTable[_next] == REMOVED));
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return _next < _iteratedTable.length;
+        }
+
+        @Override
+        public Map.Entry<K, V> next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            _current = _next;
+            advance();
+            return new Entry(_current);
+        }
+
+        @Override
+        public void remove()
+        {
+            if (_current < 0 || _iteratedTable[_current] == REMOVED)
+            {
+                throw new IllegalStateException();
+            }
+            if (_iteratedTable == _table)
+            {
+                removeAt(_current);
+            }
+            else
+            {
+                // the map was resized after the iteration started
+                _CompactStateMap.this.remove(_iteratedTable[_current]);
+            }
+            _current = -1;
+        }
+    }
+
+    private class Entry implements Map.Entry<K, V>
+    {
+        private final K _key;
+        private final int _index;
+
+        private Entry(int index)
+        {
+            _key = (K) _table[index];
+            _index = index;
+        }
+
+        @Override
+        public K getKey()
+        {
+            return _key;
+        }
+
+        @Override
+        public V getValue()
+        {
+            return _table[_index] == _key ? (V) _table[_index + 1] : get(_key);
+        }
+
+        @Override
+        public V setValue(V value)
+        {
+            return put(_key, value);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Map.Entry))
+            {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            Object value = getValue();
+            return _key.equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+        }
+
+        @Override
+        public int hashCode()
+        {
+            Object value = getValue();
+            return _key.hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString()
+        {
+            return _key + "=" + getValue();
+        }
+    }
+}
@@ -32,8 +32,10 @@ import javax.faces.FacesException;
 import javax.faces.application.Resource;
 import javax.faces.context.FacesContext;
 import org.apache.myfaces.core.api.shared.lang.LambdaPropertyDescriptor;
+import org.apache.myfaces.core.api.shared.lang.PropertyAccessorTable;
 import org.apache.myfaces.core.api.shared.lang.PropertyDescriptorUtils;
 import org.apache.myfaces.core.api.shared.lang.PropertyDescriptorWrapper;
+import org.apache.myfaces.core.api.shared.lang.PropertySlotMap;
 
 /**
  * <p>
@@ -55,7 +57,7 @@ import org.apache.myfaces.core.api.shared.lang.PropertyDescriptorWrapper;
  * in the associated Map.
  * </p>
  */
-class _ComponentAttributesMap implements Map<String, Object>, Serializable
+class _ComponentAttributesMap implements Map<String, Object>, Serializable, PropertySlotMap
 {
     private static final long serialVersionUID = -9106832179394257866L;
 
@@ -87,6 +89,9 @@ class _ComponentAttributesMap implements Map<String, Object>, Serializable
     // it can always be recreated when needed.
     private transient Map<String, ? extends PropertyDescriptorWrapper> _propertyDescriptorMap = null;
 
+    // The same javabean properties, indexed by PropertyAccessorTable slot. Don't serialize it either.
+    private transient PropertyAccessorTable _propertyAccessorTable = null;
+
     private boolean _isCompositeComponent;
     private boolean _isCompositeComponentSet;
     
@@ -442,6 +447,29 @@ class _ComponentAttributesMap implements Map<String, Object>, Serializable
         return value;
     }
 
+    /**
+     * Same as get(name), but the javabean property is found through its PropertyAccessorTable slot.
+     *
+     * @param slot the slot of name, see PropertyAccessorTable#getSlot(String)
+     * @param name the name of the property or attribute
+     */
+    @Override
+    public Object get(int slot, String name)
+    {
+        if (_propertyAccessorTable == null)
+        {
+            _propertyAccessorTable = PropertyAccessorTable.getCachedPropertyAccessorTable(
+                    _component.getFacesContext().getExternalContext(),
+                    _component.getClass());
+        }
+        PropertyDescriptorWrapper propertyDescriptor = _propertyAccessorTable.get(slot);
+        if (propertyDescriptor != null)
+        {
+            return getComponentProperty(propertyDescriptor);
+        }
+        return get(name);
+    }
+
     /**
      * Remove the attribute with the specified name. An attempt to
      * remove an entry whose name is that of a <i>property</i> on
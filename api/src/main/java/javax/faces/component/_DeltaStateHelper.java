@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.el.ValueExpression;
 import javax.faces.context.FacesContext;
@@ -135,6 +136,15 @@ import javax.faces.context.FacesContext;
  */
 class _DeltaStateHelper implements StateHelper, TransientStateHelper, TransientStateHolder
 {
+    /**
+     * FacesContext attribute holding the set of component families whose state is kept in
+     * _CompactStateMap instances. It is set by the implementation from the
+     * org.apache.myfaces.COMPACT_STATE_FAMILIES param, only if the param is set.
+     */
+    private static final String COMPACT_STATE_FAMILIES_KEY = "org.apache.myfaces.COMPACT_STATE_FAMILIES";
+
+    private static final String ALL_FAMILIES = "*";
+
 
     /**
      * We need to hold a component instance because:
@@ -175,17 +185,82 @@ class _DeltaStateHelper implements StateHelper, TransientStateHelper, TransientS
      */
     private boolean _copyFullInitialState;
 
+    /**
+     * Indicates if the state maps are _CompactStateMap instances instead of HashMap.
+     */
+    private boolean _compact;
+
     public _DeltaStateHelper(UIComponent component)
+    {
+        this(component, false);
+    }
+
+    public _DeltaStateHelper(UIComponent component, boolean compact)
     {
         super();
         this._component = component;
-        _fullState = new HashMap<Serializable, Object>();
+        this._compact = compact;
+        _fullState = _createStateMap();
         _deltas = null;
         _transientState = null;
         _initialFullState = null;
         _copyFullInitialState = false;
     }
 
+    private Map<Serializable, Object> _createStateMap()
+    {
+        return _compact ? new _CompactStateMap<Serializable, Object>() : new HashMap<Serializable, Object>();
+    }
+
+    private Map<Serializable, Object> _createStateMap(int initialSize)
+    {
+        return _compact
+                ? new _CompactStateMap<Serializable, Object>(initialSize)
+                : new HashMap<Serializable, Object>(initialSize);
+    }
+
+    /**
+     * Move the state into compact maps if the family of the component is configured to use them.
+     * It is called when the initial state is marked, and not when the helper is created, because
+     * getFamily() must not be called before the constructor of the component is done.
+     */
+    void useCompactStateIfEnabled(FacesContext facesContext)
+    {
+        if (_compact || facesContext == null)
+        {
+            return;
+        }
+        Set<String> families = (Set<String>) facesContext.getAttributes().get(COMPACT_STATE_FAMILIES_KEY);
+        if (families == null)
+        {
+            return;
+        }
+        if (!families.contains(ALL_FAMILIES))
+        {
+            String family = _component.getFamily();
+            if (family == null || !families.contains(family))
+            {
+                return;
+            }
+        }
+
+        _compact = true;
+        _fullState = _toStateMap(_fullState);
+        _initialFullState = _toStateMap(_initialFullState);
+        _deltas = _toStateMap(_deltas);
+    }
+
+    private Map<Serializable, Object> _toStateMap(Map<Serializable, Object> map)
+    {
+        if (map == null)
+        {
+            return null;
+        }
+        Map<Serializable, Object> stateMap = _createStateMap(map.size());
+        stateMap.putAll(map);
+        return stateMap;
+    }
+
     /**
      * Used to create delta map on demand
      * 
@@ -200,7 +275,7 @@ class _DeltaStateHelper implements StateHelper, TransientStateHelper, TransientS
                 if (_initialState == null)
                 {
                     // Copy it directly
-                    _initialFullState = new HashMap<Serializable, Object>();
+                    _initialFullState = _createStateMap();
                     copyMap(_component.getFacesContext(), _fullState, _initialFullState);
                 }
                 else
@@ -222,14 +297,14 @@ class _DeltaStateHelper implements StateHelper, TransientStateHelper, TransientS
                         // contains some key already defined in initialState, this key must be
                         // overriden. It is better to do in that way, because it is possible
                         // to skip resetState() if the view cannot be recycled.
-                        _initialFullState = new HashMap<Serializable, Object>();
+                        _initialFullState = _createStateMap();
                         copyMap(_component.getFacesContext(), _fullState, _initialFullState);
                     }
                 }
             }
             if (_deltas == null)
             {
-                _deltas = new HashMap<Serializable, Object>(2);
+                _deltas = _createStateMap(2);
             }
             return true;
         }
@@ -237,6 +312,11 @@ class _DeltaStateHelper implements StateHelper, TransientStateHelper, TransientS
         return false;
     }
     
+    boolean isCompact()
+    {
+        return _compact;
+    }
+
     void setCopyFullInitialState(boolean value)
     {
         _copyFullInitialState = value;
@@ -630,6 +710,30 @@ class _DeltaStateHelper implements StateHelper, TransientStateHelper, TransientS
                 }
             }
         }
+        if (_initialFullState != null && _deltas != null && !_deltas.isEmpty()
+            && isInitialStateMarked())
+        {
+            // The same check against the full state copied when the first delta was
+            // written. This is the baseline the view is restored to (from the ViewPool
+            // or building the view again), so a property that was changed and then set
+            // back to its baseline value does not need to be saved. Only immutable values
+            // are compared, because mutable ones could be changed without a put() call.
+            for (Iterator<Map.Entry<Serializable, Object>> it = _deltas.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry<Serializable, Object> delta = it.next();
+                Serializable key = delta.getKey();
+                Object deltaValue = delta.getValue();
+                if (_isInitialStateKey(key) || !_isImmutableValue(deltaValue))
+                {
+                    continue;
+                }
+                Object baselineValue = _initialFullState.get(key);
+                if (deltaValue == null ? baselineValue == null : deltaValue.equals(baselineValue))
+                {
+                    it.remove();
+                }
+            }
+        }
         if (serializableMap == null || serializableMap.isEmpty())
         {
             return null;
@@ -667,6 +771,28 @@ class _DeltaStateHelper implements StateHelper, TransientStateHelper, TransientS
         return retArr;
     }
 
+    private boolean _isInitialStateKey(Serializable key)
+    {
+        if (_initialState != null)
+        {
+            for (int i = 0; i < _initialState.length; i+=2)
+            {
+                if (key.equals(_initialState[i]))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean _isImmutableValue(Object value)
+    {
+        return value == null || value instanceof String || value instanceof Boolean
+                || value instanceof Integer || value instanceof Long || value instanceof Character
+                || value instanceof Enum;
+    }
+
     @Override
     public void restoreState(FacesContext context, Object state)
     {
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package javax.faces.component;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Holds the state saved by UIData for each row.
+ * 
+ * <p>The states are kept in an array indexed by the row index, so UIData does not need to build the
+ * container client id of the row each time the row index changes. If the UIData is nested into another
+ * iterating component, its own client id changes with the row of the parent, so there is one array for
+ * each client id of the UIData, without the row index.</p>
+ * 
+ * <p>Rows far away from the ones already stored are kept in a map, so a table visited on its first row
+ * and on a row near the end does not allocate an array for all the rows in between.</p>
+ */
+class _RowStateTable<V> implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private final Map<String, Rows<V>> _rowsByClientId = new HashMap<>(2, 1f);
+
+    // last entry of _rowsByClientId used, the client id of a UIData only changes when it is nested
+    private transient String _lastClientId;
+    private transient Rows<V> _lastRows;
+
+    /**
+     * Converts the map UIData saved before its states were kept in this table, keyed by the container
+     * client id of each row, that is the client id of the UIData followed by the row index.
+     */
+    static <V> _RowStateTable<V> fromMap(Map<String, V> map, char separatorChar)
+    {
+        _RowStateTable<V> table = new _RowStateTable<>();
+        for (Map.Entry<String, V> entry : map.entrySet())
+        {
+            String key = entry.getKey();
+            int separator = key.lastIndexOf(separatorChar);
+            int rowIndex = separator < 0 ? -1 : parseRowIndex(key, separator + 1);
+            if (rowIndex == -1)
+            {
+                table.put(key, -1, entry.getValue());
+            }
+            else
+            {
+                table.put(key.substring(0, separator), rowIndex, entry.getValue());
+            }
+        }
+        return table;
+    }
+
+    // ids can not start with a digit, so a last segment with digits only is the row index
+    private static int parseRowIndex(String key, int start)
+    {
+        if (start == key.length() || key.length() - start > 9)
+        {
+            return -1;
+        }
+        int rowIndex = 0;
+        for (int i = start; i < key.length(); i++)
+        {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9')
+            {
+                return -1;
+            }
+            rowIndex = rowIndex * 10 + (c - '0');
+        }
+        return rowIndex;
+    }
+
+    V get(String clientId, int rowIndex)
+    {
+        Rows<V> rows = getRows(clientId, false);
+        return rows == null ? null : rows.get(rowIndex);
+    }
+
+    void put(String clientId, int rowIndex, V state)
+    {
+        getRows(clientId, true).put(rowIndex, state);
+    }
+
+    boolean isEmpty()
+    {
+        return _rowsByClientId.isEmpty();
+    }
+
+    void clear()
+    {
+        _rowsByClientId.clear();
+        _lastClientId = null;
+        _lastRows = null;
+    }
+
+    private Rows<V> getRows(String clientId, boolean create)
+    {
+        if (_lastRows != null && (clientId == _lastClientId || clientId.equals(_lastClientId)))
+        {
+            return _lastRows;
+        }
+        Rows<V> rows = _rowsByClientId.get(clientId);
+        if (rows == null)
+        {
+            if (!create)
+            {
+                return null;
+            }
+            rows = new Rows<>();
+            _rowsByClientId.put(clientId, rows);
+        }
+        _lastClientId = clientId;
+        _lastRows = rows;
+        return rows;
+    }
+
+    private static final class Rows<V> implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        // state for row index -1
+        private V _noRowState;
+        // row index of _states[0]
+        private int _offset;
+        private Object[] _states;
+        private Map<Integer, V> _farStates;
+
+        @SuppressWarnings("unchecked")
+        V get(int rowIndex)
+        {
+            if (rowIndex == -1)
+            {
+                return _noRowState;
+            }
+            if (_states != null)
+            {
+                int i = rowIndex - _offset;
+                if (i >= 0 && i < _states.length)
+                {
+                    return (V) _states[i];
+                }
+            }
+            return _farStates == null ? null : _farStates.get(rowIndex);
+        }
+
+        void put(int rowIndex, V state)
+        {
+            if (rowIndex == -1)
+            {
+                _noRowState = state;
+                return;
+            }
+            if (_states == null)
+            {
+                _offset = rowIndex;
+                _states = new Object[MIN_CAPACITY];
+            }
+            int i = rowIndex - _offset;
+            if (i < 0 || i >= _states.length)
+            {
+                int from = Math.min(_offset, rowIndex);
+                int to = Math.max(_offset + _states.length, rowIndex + 1);
+                if (to - from > 2 * _states.length)
+                {
+                    if (_farStates == null)
+                    {
+                        _farStates = new HashMap<>();
+                    }
+                    _farStates.put(rowIndex, state);
+                    return;
+                }
+                grow(rowIndex < _offset, to - from);
+                i = rowIndex - _offset;
+            }
+            _states[i] = state;
+        }
+
+        private void grow(boolean down, int minLength)
+        {
+            Object[] states = new Object[Math.max(minLength, 2 * _states.length)];
+            int offset = down ? Math.max(0, _offset + _states.length - states.length) : _offset;
+            System.arraycopy(_states, 0, states, _offset - offset, _states.length);
+            _states = states;
+            _offset = offset;
+
+            if (_farStates != null)
+            {
+                for (Iterator<Map.Entry<Integer, V>> it = _farStates.entrySet().iterator(); it.hasNext();)
+                {
+                    Map.Entry<Integer, V> entry = it.next();
+                    int i = entry.getKey() - _offset;
+                    if (i >= 0 && i < _states.length)
+                    {
+                        _states[i] = entry.getValue();
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+}
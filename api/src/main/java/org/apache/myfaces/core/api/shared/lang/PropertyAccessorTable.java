@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.core.api.shared.lang;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.faces.context.ExternalContext;
+
+/**
+ * Table of the readable properties of a class, indexed by a slot number instead of by the name of the
+ * property.
+ * 
+ * <p>Slots are global: {@link #getSlot(String)} gives every property name a number once, so callers
+ * that read the same properties over and over (like the renderers) can keep the slot in a constant and
+ * get the PropertyDescriptorWrapper of the property with an array access, without hashing the name.</p>
+ */
+public final class PropertyAccessorTable
+{
+    private static final String CACHE_KEY = PropertyAccessorTable.class.getName() + ".CACHE";
+
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+    private static volatile String[] slotNames = new String[0];
+
+    private final Map<String, ? extends PropertyDescriptorWrapper> propertyDescriptors;
+    private volatile PropertyDescriptorWrapper[] accessors;
+
+    private PropertyAccessorTable(Map<String, ? extends PropertyDescriptorWrapper> propertyDescriptors)
+    {
+        this.propertyDescriptors = propertyDescriptors;
+        this.accessors = fill(new PropertyDescriptorWrapper[0], slotNames);
+    }
+
+    /**
+     * Returns the slot of the given property name, assigning a new one if the name does not have one yet.
+     */
+    public static int getSlot(String name)
+    {
+        Integer slot = SLOTS.get(name);
+        if (slot == null)
+        {
+            synchronized (SLOTS)
+            {
+                slot = SLOTS.get(name);
+                if (slot == null)
+                {
+                    String[] names = Arrays.copyOf(slotNames, slotNames.length + 1);
+                    slot = names.length - 1;
+                    names[slot] = name;
+                    slotNames = names;
+                    SLOTS.put(name, slot);
+                }
+            }
+        }
+        return slot;
+    }
+
+    public static PropertyAccessorTable getCachedPropertyAccessorTable(ExternalContext ec, Class<?> target)
+    {
+        Map<String, PropertyAccessorTable> cache =
+                (Map<String, PropertyAccessorTable>) ec.getApplicationMap().get(CACHE_KEY);
+        if (cache == null)
+        {
+            cache = new ConcurrentHashMap<>(1000);
+            ec.getApplicationMap().put(CACHE_KEY, cache);
+        }
+
+        PropertyAccessorTable table = cache.get(target.getName());
+        if (table == null)
+        {
+            table = new PropertyAccessorTable(PropertyDescriptorUtils.getCachedPropertyDescriptors(ec, target));
+            cache.put(target.getName(), table);
+        }
+        return table;
+    }
+
+    /**
+     * Returns the descriptor of the property in the given slot, or null if the class has no readable
+     * property with that name.
+     */
+    public PropertyDescriptorWrapper get(int slot)
+    {
+        PropertyDescriptorWrapper[] localAccessors = accessors;
+        if (slot >= localAccessors.length)
+        {
+            localAccessors = grow();
+        }
+        return localAccessors[slot];
+    }
+
+    private synchronized PropertyDescriptorWrapper[] grow()
+    {
+        String[] names = slotNames;
+        if (accessors.length < names.length)
+        {
+            accessors = fill(accessors, names);
+        }
+        return accessors;
+    }
+
+    private PropertyDescriptorWrapper[] fill(PropertyDescriptorWrapper[] current, String[] names)
+    {
+        PropertyDescriptorWrapper[] next = Arrays.copyOf(current, names.length);
+        for (int i = current.length; i < names.length; i++)
+        {
+            PropertyDescriptorWrapper descriptor = propertyDescriptors.get(names[i]);
+            if (descriptor != null && descriptor.getReadMethod() != null)
+            {
+                next[i] = descriptor;
+            }
+        }
+        return next;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.el.ValueExpression;
+
+import org.apache.myfaces.view.facelets.el.CompiledValueExpression;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluation of simple value expressions by the EL implementation, compared to the same expressions
+ * once CompiledValueExpression has compiled them. Both resolve the root identifier through the same
+ * ELResolver chain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompiledValueExpressionBenchmark
+{
+    @Param({ "#{bean.child.name}", "#{bean.name}", "#{not empty bean.list}", "#{bean.child == null}" })
+    public String expression;
+
+    private MockFacesEnvironment environment;
+    private ELContext elContext;
+    private ValueExpression interpreted;
+    private ValueExpression compiled;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        environment = new MockFacesEnvironment();
+        environment.setUp();
+        environment.setRequestAttribute("bean", new Bean("root", new Bean("child", null)));
+
+        elContext = environment.getFacesContext().getELContext();
+        ExpressionFactory expressionFactory = new org.apache.el.ExpressionFactoryImpl();
+        interpreted = expressionFactory.createValueExpression(elContext, expression, Object.class);
+        compiled = CompiledValueExpression.wrap(elContext, interpreted, 1);
+        if (!(compiled instanceof CompiledValueExpression))
+        {
+            throw new IllegalStateException(expression + " is not compiled");
+        }
+        // the first evaluation compiles the expression
+        compiled.getValue(elContext);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        environment.tearDown();
+    }
+
+    @Benchmark
+    public Object interpreted()
+    {
+        return interpreted.getValue(elContext);
+    }
+
+    @Benchmark
+    public Object compiled()
+    {
+        return compiled.getValue(elContext);
+    }
+
+    public static class Bean
+    {
+        private final String name;
+        private final Bean child;
+        private final List<String> list = Arrays.asList("a", "b");
+
+        public Bean(String name, Bean child)
+        {
+            this.name = name;
+            this.child = child;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+
+        public Bean getChild()
+        {
+            return child;
+        }
+
+        public List<String> getList()
+        {
+            return list;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.myfaces.renderkit.html.util.HTMLEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Escaping of the attribute values and texts of a form heavy page, the way HtmlResponseWriterImpl does
+ * it for a UTF-8 response. Run with -prof gc to check that clean values are written without allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HTMLEncoderBenchmark
+{
+    // client ids, style classes, labels and values of the rows of a form
+    private static final String[] CLEAN = {
+        "form:customers:12:firstName", "ui-inputfield ui-inputtext ui-widget ui-state-default ui-corner-all",
+        "First name", "John", "form:customers:12:lastName", "Smith", "text", "Please enter the street",
+        "form:customers:12:street", "221B Baker Street", "off", "javascript:void(0)", "Save the changes",
+        "form:customers:12:zip", "NW1 6XE", "London", "form:customers:12:country", "United Kingdom",
+        "ui-button ui-widget ui-state-default ui-corner-all ui-button-text-only", "Cancel"
+    };
+
+    // the same values, where some of them need to be escaped
+    private static final String[] MIXED = {
+        "form:customers:12:firstName", "ui-inputfield ui-inputtext ui-widget ui-state-default ui-corner-all",
+        "First name", "John", "form:customers:12:lastName", "Smith & Sons", "text", "Please enter the \"street\"",
+        "form:customers:12:street", "221B Baker Street", "off", "javascript:void(0)", "Save <b>all</b> changes",
+        "form:customers:12:zip", "NW1 6XE", "London", "form:customers:12:country", "O'Neill's Pub",
+        "ui-button ui-widget ui-state-default ui-corner-all ui-button-text-only", "a < b && b > c"
+    };
+
+    @Param({ "clean", "mixed" })
+    public String input;
+
+    private String[] values;
+    private char[][] chars;
+    private CountingWriter writer;
+
+    @Setup
+    public void setUp()
+    {
+        values = "clean".equals(input) ? CLEAN : MIXED;
+        chars = new char[values.length][];
+        for (int i = 0; i < values.length; i++)
+        {
+            chars[i] = values[i].toCharArray();
+        }
+        writer = new CountingWriter();
+    }
+
+    @Benchmark
+    public int encodeToWriter() throws IOException
+    {
+        CountingWriter w = writer;
+        w.count = 0;
+        for (String value : values)
+        {
+            HTMLEncoder.encode(w, value, false, false, false);
+        }
+        return w.count;
+    }
+
+    @Benchmark
+    public void encodeToString(Blackhole blackhole)
+    {
+        for (String value : values)
+        {
+            blackhole.consume(HTMLEncoder.encode(value, false, false, false));
+        }
+    }
+
+    @Benchmark
+    public int encodeCharsToWriter() throws IOException
+    {
+        CountingWriter w = writer;
+        w.count = 0;
+        // like HtmlResponseWriterImpl.writeText(char[], int, int)
+        for (char[] value : chars)
+        {
+            HTMLEncoder.encode(value, 0, value.length, false, false, false, w);
+        }
+        return w.count;
+    }
+
+    /**
+     * Writer that only counts the chars, so the benchmark measures the encoder and not a buffer.
+     */
+    private static final class CountingWriter extends Writer
+    {
+        private int count;
+
+        @Override
+        public void write(int c)
+        {
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len)
+        {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len)
+        {
+            count += len;
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+
+        @Override
+        public void close()
+        {
+        }
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.benchmark;
+
+import javax.faces.context.FacesContext;
+
+import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
+
+/**
+ * The mock servlet and JSF objects of the unit tests, for the benchmarks that need a current
+ * FacesContext. It is set up on the thread that calls {@link #setUp()}, so the states holding it
+ * must use Scope.Thread.
+ */
+class MockFacesEnvironment extends AbstractJsfTestCase
+{
+    FacesContext getFacesContext()
+    {
+        return facesContext;
+    }
+
+    void setRequestAttribute(String name, Object value)
+    {
+        externalContext.getRequestMap().put(name, value);
+    }
+}
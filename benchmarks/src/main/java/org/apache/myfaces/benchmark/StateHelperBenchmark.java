@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.faces.component.UIComponent;
+import javax.faces.component.html.HtmlInputText;
+import javax.faces.component.html.HtmlMessage;
+import javax.faces.component.html.HtmlOutputLabel;
+import javax.faces.component.html.HtmlOutputText;
+import javax.faces.component.html.HtmlPanelGroup;
+
+import org.apache.myfaces.config.MyfacesConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Memory of the StateHelper maps of a form with 10000 components, built and marked for partial state
+ * saving like a Facelets view, with HashMap instances or with the compact maps of
+ * org.apache.myfaces.COMPACT_STATE_FAMILIES. Run with -prof gc and compare gc.alloc.rate.norm, the bytes
+ * allocated to build one tree, which are all kept by the tree except for a few iterators.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateHelperBenchmark
+{
+    // a row has a panel group, a label, an input text, a message and an output text
+    private static final int ROWS = 2000;
+
+    @Param({ "false", "true" })
+    public boolean compact;
+
+    private MockFacesEnvironment environment;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        environment = new MockFacesEnvironment();
+        environment.setUp();
+        if (compact)
+        {
+            environment.getFacesContext().getAttributes().put(MyfacesConfig.COMPACT_STATE_FAMILIES,
+                    Collections.singleton("*"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        environment.tearDown();
+    }
+
+    @Benchmark
+    public UIComponent buildMarkedTree()
+    {
+        HtmlPanelGroup form = new HtmlPanelGroup();
+        List<UIComponent> components = new ArrayList<>(ROWS * 5);
+        for (int i = 0; i < ROWS; i++)
+        {
+            HtmlPanelGroup row = new HtmlPanelGroup();
+            row.setId("row" + i);
+            row.setStyleClass("form-row");
+            form.getChildren().add(row);
+            components.add(row);
+
+            HtmlOutputLabel label = new HtmlOutputLabel();
+            label.setId("label" + i);
+            label.setFor("input" + i);
+            label.setValue("Field " + i);
+            row.getChildren().add(label);
+            components.add(label);
+
+            HtmlInputText input = new HtmlInputText();
+            input.setId("input" + i);
+            input.setRequired(true);
+            input.setMaxlength(40);
+            input.setStyleClass("form-input");
+            row.getChildren().add(input);
+            components.add(input);
+
+            HtmlMessage message = new HtmlMessage();
+            message.setId("message" + i);
+            message.setFor("input" + i);
+            row.getChildren().add(message);
+            components.add(message);
+
+            HtmlOutputText output = new HtmlOutputText();
+            output.setId("output" + i);
+            output.setValue("Help text of the field " + i);
+            output.setEscape(false);
+            row.getChildren().add(output);
+            components.add(output);
+        }
+
+        for (int i = 0; i < components.size(); i++)
+        {
+            components.get(i).markInitialState();
+        }
+
+        // the delta state of a postback
+        for (int i = 2; i < components.size(); i += 5)
+        {
+            ((HtmlInputText) components.get(i)).setValue("submitted " + i);
+        }
+        return form;
+    }
+}
@@ -276,7 +276,16 @@ public class ApplicationImpl extends Application
             CompositeELResolver celr;
             if (_myfacesConfig.isSupportJSP())
             {
-                celr = new FacesCompositeELResolver(Scope.Faces);
+                FacesCompositeELResolver facesCelr = new FacesCompositeELResolver(Scope.Faces);
+                facesCelr.setResolverCacheEnabled(_myfacesConfig.isElResolverCacheEnabled());
+                celr = facesCelr;
+            }
+            else if (_myfacesConfig.isElResolverCacheEnabled())
+            {
+                org.apache.myfaces.el.resolver.CompositeELResolver cachingCelr
+                        = new org.apache.myfaces.el.resolver.CompositeELResolver();
+                cachingCelr.setResolverCacheEnabled(true);
+                celr = cachingCelr;
             }
             else
             {
@@ -23,6 +23,7 @@ import org.apache.myfaces.resource.ResourceHandlerCache;
 import org.apache.myfaces.resource.ResourceHandlerCache.ResourceValue;
 import org.apache.myfaces.resource.ResourceHandlerSupport;
 import org.apache.myfaces.resource.ResourceImpl;
+import org.apache.myfaces.resource.ResourceIndex;
 import org.apache.myfaces.resource.ResourceLoader;
 import org.apache.myfaces.resource.ResourceMeta;
 import org.apache.myfaces.resource.ResourceValidationUtils;
@@ -40,6 +41,16 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -63,9 +74,11 @@ import javax.faces.view.ViewDeclarationLanguage;
 import org.apache.myfaces.config.MyfacesConfig;
 import org.apache.myfaces.core.api.shared.LocaleUtils;
 import org.apache.myfaces.util.SharedStringBuilder;
+import org.apache.myfaces.resource.BundleResource;
 import org.apache.myfaces.resource.ContractResource;
 import org.apache.myfaces.resource.ContractResourceLoader;
 import org.apache.myfaces.resource.ResourceCachedInfo;
+import org.apache.myfaces.resource.ResourceContent;
 import org.apache.myfaces.util.lang.Assert;
 import org.apache.myfaces.util.lang.SkipMatchIterator;
 
@@ -82,6 +95,14 @@ public class ResourceHandlerImpl extends ResourceHandler
 
     private static final Logger log = Logger.getLogger(ResourceHandlerImpl.class.getName());
 
+    /**
+     * Request attributes of the Tomcat sendfile support.
+     */
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
     public static final Pattern LIBRARY_VERSION_CHECKER = Pattern.compile("\\p{Digit}+(_\\p{Digit}*)*");
     public static final Pattern RESOURCE_VERSION_CHECKER = Pattern.compile("\\p{Digit}+(_\\p{Digit}*)*\\..*");    
     
@@ -271,6 +292,11 @@ public class ResourceHandlerImpl extends ResourceHandler
     protected ResourceMeta deriveResourceMeta(ContractResourceLoader resourceLoader,
             String resourceName, String libraryName, String localePrefix, String contractName)
     {
+        if (!mayExist(resourceLoader, contractName, localePrefix, libraryName, resourceName))
+        {
+            return null;
+        }
+
         String resourceVersion = null;
         String libraryVersion = null;
         ResourceMeta resourceId = null;
@@ -371,6 +397,11 @@ public class ResourceHandlerImpl extends ResourceHandler
     protected ResourceMeta deriveResourceMeta(ResourceLoader resourceLoader,
             String resourceName, String libraryName, String localePrefix)
     {
+        if (!mayExist(resourceLoader, null, localePrefix, libraryName, resourceName))
+        {
+            return null;
+        }
+
         String resourceVersion = null;
         String libraryVersion = null;
         ResourceMeta resourceId = null;
@@ -544,7 +575,11 @@ public class ResourceHandlerImpl extends ResourceHandler
         }
 
         Resource resource = null;
-        if (libraryName != null)
+        if (BundleResource.LIBRARY_NAME.equals(libraryName))
+        {
+            resource = createBundleResource(facesContext, resourceName);
+        }
+        else if (libraryName != null)
         {
             resource = facesContext.getApplication().getResourceHandler().createResource(resourceName, libraryName);
         }
@@ -561,6 +596,19 @@ public class ResourceHandlerImpl extends ResourceHandler
 
         if (!resource.userAgentNeedsUpdate(facesContext))
         {
+            String eTag = getETag(facesContext, resource);
+            if (eTag != null)
+            {
+                String matchingETag = ResourceContent.getMatchingETag(
+                        extContext.getRequestHeaderMap().get("If-None-Match"), eTag);
+                httpServletResponse.setHeader("ETag", matchingETag == null ? eTag : matchingETag);
+            }
+            // the same Vary as the response with the content (RFC 7232, section 4.1)
+            ResourceContent content = getResourceContent(resource);
+            if (content != null && content.getGzipBytes() != null)
+            {
+                httpServletResponse.setHeader("Vary", "Accept-Encoding");
+            }
             httpServletResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
             return;
         }
@@ -580,6 +628,40 @@ public class ResourceHandlerImpl extends ResourceHandler
         //serve up the bytes (taken from trinidad ResourceServlet)
         try
         {
+            ResourceContent content = getResourceContent(resource);
+            Path file = content == null ? getResourceFile(resource) : null;
+
+            if (isRangeSupported(resource))
+            {
+                httpServletResponse.setHeader("Accept-Ranges", "bytes");
+                String range = getRange(facesContext, headers);
+                if (range != null)
+                {
+                    long length = content != null ? content.getBytes().length
+                            : file != null ? Files.size(file) : getContentLength(resource);
+                    long[] bounds = parseRange(range, length);
+                    if (bounds != null)
+                    {
+                        writeRange(facesContext, httpServletResponse, resource, content, file, bounds, length);
+                        return;
+                    }
+                }
+            }
+
+            if (content != null)
+            {
+                writeResourceContent(facesContext, httpServletResponse, resource, content);
+                return;
+            }
+
+            if (file != null)
+            {
+                long length = Files.size(file);
+                setContentLength(httpServletResponse, length);
+                writeFile(facesContext, httpServletResponse, file, 0, length);
+                return;
+            }
+
             InputStream in = resource.getInputStream();
             OutputStream out = httpServletResponse.getOutputStream();
             byte[] buffer = new byte[this.getResourceBufferSize()];
@@ -628,6 +710,359 @@ public class ResourceHandlerImpl extends ResourceHandler
         }
     }
 
+    /**
+     * Bundles are only served when bundling is enabled.
+     * 
+     * @return the bundle or null if it does not exist
+     */
+    private Resource createBundleResource(FacesContext facesContext, String resourceName)
+    {
+        if (!BundleResource.isEnabled(facesContext))
+        {
+            return null;
+        }
+
+        try
+        {
+            return BundleResource.create(facesContext, resourceName);
+        }
+        catch (IOException e)
+        {
+            if (log.isLoggable(Level.WARNING))
+            {
+                log.log(Level.WARNING, "Error trying to build resource bundle " + resourceName + ": "
+                        + e.getMessage(), e);
+            }
+            return null;
+        }
+    }
+
+    private static String getETag(FacesContext facesContext, Resource resource)
+    {
+        if (resource instanceof BundleResource)
+        {
+            return ((BundleResource) resource).getETag();
+        }
+        if (resource instanceof ResourceImpl)
+        {
+            return ((ResourceImpl) resource).getETag(facesContext);
+        }
+        return null;
+    }
+
+    /**
+     * Get the bytes of the resource from the resource content cache, reading them the first time.
+     * 
+     * @return the content or null if the resource must be streamed
+     */
+    private ResourceContent getResourceContent(Resource resource) throws IOException
+    {
+        if (resource instanceof BundleResource)
+        {
+            return ((BundleResource) resource).getContent();
+        }
+
+        ResourceHandlerCache cache = getResourceLoaderCache();
+        if (!cache.isResourceContentCacheEnabled() || resource.getClass() != ResourceImpl.class
+                || !((ResourceImpl) resource).isContentStatic())
+        {
+            return null;
+        }
+
+        URL url = resource.getURL();
+        if (url == null)
+        {
+            return null;
+        }
+
+        ResourceContent content = cache.getResourceContent(url);
+        if (content == null)
+        {
+            try (InputStream in = resource.getInputStream())
+            {
+                content = ResourceContent.read(in, resource.getContentType(), cache.getResourceContentMaxSize());
+            }
+            cache.putResourceContent(url, content);
+        }
+        return content == ResourceContent.TOO_LARGE ? null : content;
+    }
+
+    /**
+     * The ETag is only sent when the resource has one, so a client never revalidates with an ETag that
+     * {@link Resource#userAgentNeedsUpdate(FacesContext)} does not check.
+     */
+    private void writeResourceContent(FacesContext facesContext, HttpServletResponse httpServletResponse,
+            Resource resource, ResourceContent content) throws IOException
+    {
+        byte[] bytes = content.getBytes();
+        String eTag = getETag(facesContext, resource);
+        if (content.getGzipBytes() != null)
+        {
+            httpServletResponse.setHeader("Vary", "Accept-Encoding");
+            if (ResourceContent.isGzipAccepted(
+                    facesContext.getExternalContext().getRequestHeaderMap().get("Accept-Encoding")))
+            {
+                bytes = content.getGzipBytes();
+                eTag = eTag == null ? null : ResourceContent.getGzipETag(eTag);
+                httpServletResponse.setHeader("Content-Encoding", "gzip");
+            }
+        }
+        if (eTag != null)
+        {
+            httpServletResponse.setHeader("ETag", eTag);
+        }
+        httpServletResponse.setContentLength(bytes.length);
+
+        OutputStream out = httpServletResponse.getOutputStream();
+        try
+        {
+            out.write(bytes);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Byte ranges are only served for resources whose content is the same for every request.
+     */
+    private static boolean isRangeSupported(Resource resource)
+    {
+        return resource.getClass() == ResourceImpl.class && ((ResourceImpl) resource).isContentStatic();
+    }
+
+    /**
+     * @return the Range header, or null if there is none or the If-Range condition does not match
+     */
+    private static String getRange(FacesContext facesContext, Map<String, String> responseHeaders)
+    {
+        Map<String, String> requestHeaders = facesContext.getExternalContext().getRequestHeaderMap();
+        String range = requestHeaders.get("Range");
+        if (range == null)
+        {
+            return null;
+        }
+
+        String ifRange = requestHeaders.get("If-Range");
+        if (ifRange != null && !ifRange.equals(responseHeaders.get("ETag"))
+                && !ifRange.equals(responseHeaders.get("Last-Modified")))
+        {
+            return null;
+        }
+        return range;
+    }
+
+    private static long getContentLength(Resource resource) throws IOException
+    {
+        URL url = resource.getURL();
+        if (url == null)
+        {
+            return -1;
+        }
+
+        URLConnection connection = url.openConnection();
+        try
+        {
+            return connection.getContentLengthLong();
+        }
+        finally
+        {
+            connection.getInputStream().close();
+        }
+    }
+
+    /**
+     * Parse a Range header with a single byte range. Several ranges are not supported, in that case
+     * the whole content is sent, as allowed by RFC 7233.
+     * 
+     * @return the first and last byte positions, an empty array if the range cannot be satisfied, or
+     *         null if the header must be ignored
+     */
+    static long[] parseRange(String range, long length)
+    {
+        if (length < 0 || !range.startsWith("bytes=") || range.indexOf(',') >= 0)
+        {
+            return null;
+        }
+
+        String spec = range.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0)
+        {
+            return null;
+        }
+
+        try
+        {
+            long first;
+            long last;
+            if (dash == 0)
+            {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0)
+                {
+                    return new long[0];
+                }
+                first = Math.max(0, length - suffix);
+                last = length - 1;
+            }
+            else
+            {
+                first = Long.parseLong(spec.substring(0, dash));
+                last = dash == spec.length() - 1 ? length - 1
+                        : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+                if (last < first)
+                {
+                    return first >= length ? new long[0] : null;
+                }
+            }
+            return first < length ? new long[] { first, last } : new long[0];
+        }
+        catch (NumberFormatException e)
+        {
+            return null;
+        }
+    }
+
+    private void writeRange(FacesContext facesContext, HttpServletResponse httpServletResponse,
+            Resource resource, ResourceContent content, Path file, long[] bounds, long length) throws IOException
+    {
+        if (bounds.length == 0)
+        {
+            httpServletResponse.setHeader("Content-Range", "bytes */" + length);
+            httpServletResponse.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        long first = bounds[0];
+        long count = bounds[1] - first + 1;
+        httpServletResponse.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        httpServletResponse.setHeader("Content-Range", "bytes " + first + '-' + bounds[1] + '/' + length);
+        setContentLength(httpServletResponse, count);
+
+        if (file != null)
+        {
+            writeFile(facesContext, httpServletResponse, file, first, count);
+            return;
+        }
+
+        OutputStream out = httpServletResponse.getOutputStream();
+        try
+        {
+            if (content != null)
+            {
+                out.write(content.getBytes(), (int) first, (int) count);
+                return;
+            }
+
+            try (InputStream in = resource.getInputStream())
+            {
+                long skipped = 0;
+                while (skipped < first)
+                {
+                    long n = in.skip(first - skipped);
+                    if (n <= 0)
+                    {
+                        throw new IOException("Unexpected end of resource " + resource.getResourceName());
+                    }
+                    skipped += n;
+                }
+
+                byte[] buffer = new byte[this.getResourceBufferSize()];
+                while (count > 0)
+                {
+                    int n = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+                    if (n < 0)
+                    {
+                        throw new IOException("Unexpected end of resource " + resource.getResourceName());
+                    }
+                    out.write(buffer, 0, n);
+                    count -= n;
+                }
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static void setContentLength(HttpServletResponse httpServletResponse, long length)
+    {
+        if (length <= Integer.MAX_VALUE)
+        {
+            httpServletResponse.setContentLength((int) length);
+        }
+        else
+        {
+            httpServletResponse.setHeader("Content-Length", Long.toString(length));
+        }
+    }
+
+    /**
+     * @return the file of a static resource located in the file system, like the ones of an exploded
+     *         war or the copies made by TempDirFileCacheResourceLoader, or null
+     */
+    private static Path getResourceFile(Resource resource)
+    {
+        if (!isRangeSupported(resource))
+        {
+            return null;
+        }
+
+        URL url = resource.getURL();
+        if (url == null || !"file".equals(url.getProtocol()))
+        {
+            return null;
+        }
+
+        try
+        {
+            Path file = Paths.get(url.toURI());
+            return Files.isRegularFile(file) ? file : null;
+        }
+        catch (URISyntaxException | IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Send a region of the file without copying it through the heap. If the container supports
+     * sendfile (Tomcat), it is asked to send the file itself. Otherwise the bytes are transferred
+     * from a FileChannel to the response.
+     */
+    private void writeFile(FacesContext facesContext, HttpServletResponse httpServletResponse, Path file,
+            long first, long count) throws IOException
+    {
+        Map<String, Object> requestMap = facesContext.getExternalContext().getRequestMap();
+        if (Boolean.TRUE.equals(requestMap.get(SENDFILE_SUPPORT_ATTRIBUTE)) && !httpServletResponse.isCommitted())
+        {
+            requestMap.put(SENDFILE_FILENAME_ATTRIBUTE, file.toAbsolutePath().toString());
+            requestMap.put(SENDFILE_START_ATTRIBUTE, first);
+            requestMap.put(SENDFILE_END_ATTRIBUTE, first + count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                OutputStream out = httpServletResponse.getOutputStream())
+        {
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = first;
+            long end = first + count;
+            while (position < end)
+            {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0)
+                {
+                    throw new IOException("Unexpected end of file " + file);
+                }
+                position += transferred;
+            }
+        }
+    }
+
     private static boolean isConnectionAbort(IOException e)
     {
         return e.getClass().getCanonicalName().equals("org.apache.catalina.connector.ClientAbortException")
@@ -900,6 +1335,23 @@ public class ResourceHandlerImpl extends ResourceHandler
         return _resourceHandlerSupport;
     }
 
+    /**
+     * Ask the resource index, if enabled, whether the loader can contain the resource.
+     */
+    private boolean mayExist(ResourceLoader resourceLoader, String contractName, String localePrefix,
+            String libraryName, String resourceName)
+    {
+        ResourceIndex index = getResourceLoaderCache().getResourceIndex();
+        return index == null || index.mayExist(FacesContext.getCurrentInstance(), resourceLoader, contractName,
+                localePrefix, libraryName, resourceName);
+    }
+
+    private boolean mayExist(FacesContext context, ResourceLoader resourceLoader, String path)
+    {
+        ResourceIndex index = getResourceLoaderCache().getResourceIndex();
+        return index == null || index.mayExist(context, resourceLoader, path);
+    }
+
     private ResourceHandlerCache getResourceLoaderCache()
     {
         if (_resourceHandlerCache == null)
@@ -1107,6 +1559,11 @@ public class ResourceHandlerImpl extends ResourceHandler
     protected ResourceMeta deriveResourceMeta(FacesContext context, ResourceLoader resourceLoader,
             String resourceId)
     {
+        if (!mayExist(context, resourceLoader, resourceId))
+        {
+            return null;
+        }
+
         ResourceMeta resourceMeta = null;
         String token = null;
         String localePrefix = null;
@@ -1274,6 +1731,11 @@ public class ResourceHandlerImpl extends ResourceHandler
     protected ResourceMeta deriveResourceMeta(FacesContext context, ContractResourceLoader resourceLoader,
             String resourceId, String contractName)
     {
+        if (!mayExist(context, resourceLoader, contractName + '/' + resourceId))
+        {
+            return null;
+        }
+
         ResourceMeta resourceMeta = null;
         String token = null;
         String localePrefix = null;
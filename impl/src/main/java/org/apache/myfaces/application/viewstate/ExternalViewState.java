@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.application.viewstate;
+
+import java.io.Serializable;
+import javax.faces.context.FacesContext;
+import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.spi.ViewStateStore;
+
+/**
+ * Reference kept into the session in place of a serialized view, when the bytes are
+ * kept by a {@link ViewStateStore}.
+ */
+class ExternalViewState implements Serializable
+{
+    private static final long serialVersionUID = 2094651702858374829L;
+
+    private final String key;
+
+    public ExternalViewState(String key)
+    {
+        this.key = key;
+    }
+
+    public String getKey()
+    {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == null || getClass() != obj.getClass())
+        {
+            return false;
+        }
+        return key.equals(((ExternalViewState) obj).key);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return key.hashCode();
+    }
+
+    /**
+     * Remove the referenced state from the store, because the view was discarded from the session.
+     */
+    public void discard(FacesContext context)
+    {
+        ViewStateStore store = getViewStateStore(context);
+        if (store != null)
+        {
+            store.remove(context, key);
+        }
+    }
+
+    static ViewStateStore getViewStateStore(FacesContext context)
+    {
+        return (ViewStateStore) context.getExternalContext().getApplicationMap()
+                .get(MyfacesConfig.VIEW_STATE_STORE);
+    }
+}
@@ -19,10 +19,12 @@
 package org.apache.myfaces.application.viewstate;
 
 import java.io.Serializable;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import javax.faces.context.FacesContext;
 import org.apache.myfaces.config.MyfacesConfig;
@@ -30,7 +32,12 @@ import org.apache.myfaces.spi.ViewScopeProvider;
 import org.apache.myfaces.util.lang.LRULinkedHashMap;
 
 /**
- *
+ * Holds the serialized views of a session.
+ * 
+ * The state is kept into a ConcurrentHashMap, so get() can be called without holding the lock
+ * of the collection while another request over the same session (multiple tabs or ajax requests)
+ * is storing a view. The bookkeeping required to discard old views (discard queue, precedence and
+ * view scope counters) is done while holding the lock of the collection.
  */
 class SerializedViewCollection implements Serializable
 {
@@ -38,10 +45,24 @@ class SerializedViewCollection implements Serializable
 
     private static final Object[] EMPTY_STATES = new Object[]{null, null};
 
-    private static final long serialVersionUID = -3734849062185115847L;
+    private static final long serialVersionUID = -3734849062185115848L;
 
-    private final List<SerializedViewKey> _keys = new ArrayList<>(MyfacesConfig.NUMBER_OF_VIEWS_IN_SESSION_DEFAULT);
-    private final Map<SerializedViewKey, Object> _serializedViews = new HashMap<>();
+    /**
+     * ConcurrentHashMap does not allow null values, so a zero state is stored using this marker.
+     * An enum is used to keep the identity after the session is serialized.
+     */
+    private enum ZeroState
+    {
+        INSTANCE
+    }
+
+    /**
+     * Discard queue, the oldest key goes first. A LinkedHashSet is used, so move a key to
+     * the end of the queue is O(1) instead of scanning a list. Always accessed holding the lock.
+     */
+    private final LinkedHashSet<SerializedViewKey> _keys =
+            new LinkedHashSet<>(MyfacesConfig.NUMBER_OF_VIEWS_IN_SESSION_DEFAULT);
+    private final Map<SerializedViewKey, Object> _serializedViews = new ConcurrentHashMap<>();
 
     /**
      * The viewScopeIds can be shared between multiple entries of the same
@@ -57,6 +78,12 @@ class SerializedViewCollection implements Serializable
     private final Map<SerializedViewKey, SerializedViewKey> _precedence = new HashMap<>();
     private Map<String, SerializedViewKey> _lastWindowKeys = null;
 
+    /**
+     * Identifies this collection into the org.apache.myfaces.spi.ViewStateStore. It does not change
+     * when the session id changes, so the stored views are not lost.
+     */
+    private volatile String _id = null;
+
     public void put(FacesContext context, Object state, SerializedViewKey key, SerializedViewKey previousRestoredKey)
     {
         put(context, state, key, previousRestoredKey, null, null);
@@ -75,20 +102,21 @@ class SerializedViewCollection implements Serializable
             ((Object[])state)[0] == null &&
             ((Object[])state)[1] == null)
         {
-            // The generated state can be considered zero, set it as null
+            // The generated state can be considered zero, store the marker
             // into the map.
-            state = null;
+            state = ZeroState.INSTANCE;
         }
 
-        if (_serializedViews.containsKey(key))
+        Object oldState = _serializedViews.replace(key, state);
+        if (oldState != null)
         {
-            // Update the state, the viewScopeId does not change.
-            _serializedViews.put(key, state);
-            // Make sure the view is at the end of the discard queue
-            while (_keys.remove(key))
+            if (!oldState.equals(state))
             {
-                // do nothing
+                discardState(context, oldState);
             }
+            // Update the state, the viewScopeId does not change.
+            // Make sure the view is at the end of the discard queue
+            _keys.remove(key);
             _keys.add(key);
             return;
         }
@@ -131,10 +159,7 @@ class SerializedViewCollection implements Serializable
             _viewScopeIdCounts.put(viewScopeId, vscount);
         }
 
-        while (_keys.remove(key))
-        {
-            // do nothing
-        }
+        _keys.remove(key);
         _keys.add(key);
 
         if (previousRestoredKey != null && maxCount != null && maxCount > 0)
@@ -156,12 +181,9 @@ class SerializedViewCollection implements Serializable
                 // put on that map.
                 do
                 {
-                    while (_keys.remove(keyToRemove))
-                    {
-                        // do nothing
-                    }
+                    _keys.remove(keyToRemove);
 
-                    _serializedViews.remove(keyToRemove);
+                    discardState(context, _serializedViews.remove(keyToRemove));
                     
                     if (viewScopeProvider != null && _viewScopeIds != null)
                     {
@@ -188,9 +210,11 @@ class SerializedViewCollection implements Serializable
             }
         }
         int views = getNumberOfViewsInSession(context);
-        while (_keys.size() > views)
+        Iterator<SerializedViewKey> it = _keys.iterator();
+        while (_keys.size() > views && it.hasNext())
         {
-            key = _keys.remove(0);
+            key = it.next();
+            it.remove();
             if (maxCount != null && maxCount > 0)
             {
                 SerializedViewKey keyToRemove = (SerializedViewKey) key;
@@ -204,7 +228,7 @@ class SerializedViewCollection implements Serializable
                 while (keyToRemove != null);
             }
 
-            _serializedViews.remove(key);
+            discardState(context, _serializedViews.remove(key));
             
             if (viewScopeProvider != null && _viewScopeIds != null)
             {
@@ -227,6 +251,31 @@ class SerializedViewCollection implements Serializable
         }
     }
 
+    public String getId()
+    {
+        String id = _id;
+        if (id == null)
+        {
+            synchronized (this)
+            {
+                if (_id == null)
+                {
+                    _id = UUID.randomUUID().toString();
+                }
+                id = _id;
+            }
+        }
+        return id;
+    }
+
+    private void discardState(FacesContext context, Object state)
+    {
+        if (state instanceof ExternalViewState)
+        {
+            ((ExternalViewState) state).discard(context);
+        }
+    }
+
     protected Integer getNumberOfSequentialViewsInSession(FacesContext context)
     {
         return MyfacesConfig.getCurrentInstance(context).getNumberOfSequentialViewsInSession();
@@ -261,7 +310,7 @@ class SerializedViewCollection implements Serializable
         _lastWindowKeys.put(id, key);
     }
 
-    public SerializedViewKey getLastWindowKey(FacesContext context, String id)
+    public synchronized SerializedViewKey getLastWindowKey(FacesContext context, String id)
     {
         if (_lastWindowKeys != null)
         {
@@ -273,12 +322,9 @@ class SerializedViewCollection implements Serializable
     public Object get(SerializedViewKey key)
     {
         Object value = _serializedViews.get(key);
-        if (value == null)
+        if (value == ZeroState.INSTANCE)
         {
-            if (_serializedViews.containsKey(key))
-            {
-                return EMPTY_STATES;
-            }
+            return EMPTY_STATES;
         }
         else if (value instanceof Object[] &&
             ((Object[])value).length == 2 &&
@@ -25,12 +25,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.security.AccessController;
 import java.security.PrivilegedActionException;
-import java.security.PrivilegedExceptionAction;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -44,9 +40,11 @@ import javax.faces.lifecycle.ClientWindow;
 
 import org.apache.myfaces.config.MyfacesConfig;
 import org.apache.myfaces.renderkit.RendererUtils;
-import org.apache.myfaces.util.MyFacesObjectInputStream;
+import org.apache.myfaces.spi.SerialFactory;
 import org.apache.myfaces.spi.ViewScopeProvider;
 import org.apache.myfaces.spi.ViewScopeProviderFactory;
+import org.apache.myfaces.spi.ViewStateStore;
+import org.apache.myfaces.spi.impl.DefaultSerialFactory;
 import org.apache.myfaces.view.ViewScopeProxyMap;
 
 class StateCacheServerSide extends StateCache<Object, Object>
@@ -70,6 +68,8 @@ class StateCacheServerSide extends StateCache<Object, Object>
     public static final int UNCOMPRESSED_FLAG = 0;
     public static final int COMPRESSED_FLAG = 1;
 
+    private static final SerialFactory DEFAULT_SERIAL_FACTORY = new DefaultSerialFactory();
+
     private final boolean useFlashScopePurgeViewsInSession;
     private final int numberOfSequentialViewsInSession;
     private final boolean serializeStateInSession;
@@ -78,6 +78,7 @@ class StateCacheServerSide extends StateCache<Object, Object>
     private final SessionViewStorageFactory sessionViewStorageFactory;
     private final CsrfSessionTokenFactory csrfSessionTokenFactory;
     private final StateTokenProcessor stateTokenProcessor;
+    private final ViewStateStore viewStateStore;
     
     public StateCacheServerSide()
     {
@@ -86,7 +87,9 @@ class StateCacheServerSide extends StateCache<Object, Object>
         
         useFlashScopePurgeViewsInSession = config.isUseFlashScopePurgeViewsInSession();
         numberOfSequentialViewsInSession = config.getNumberOfSequentialViewsInSession();
-        serializeStateInSession = config.isSerializeStateInSession();
+        viewStateStore = ExternalViewState.getViewStateStore(facesContext);
+        // The store always receives the serialized bytes
+        serializeStateInSession = config.isSerializeStateInSession() || viewStateStore != null;
         compressStateInSession = config.isCompressStateInSession();
         
         String randomMode = config.getRandomKeyInViewStateSessionToken();
@@ -191,17 +194,26 @@ class StateCacheServerSide extends StateCache<Object, Object>
             }
 
         }
+        Object state = serializeView(context, serializedView);
+        if (viewStateStore != null && state instanceof byte[])
+        {
+            // Keep only a reference into the session, the bytes go to the store
+            String storeKey = getViewStateStoreKey(context, viewCollection, context.getViewRoot().getViewId(),
+                    getNextViewSequence(context));
+            viewStateStore.put(context, storeKey, (byte[]) state);
+            state = new ExternalViewState(storeKey);
+        }
         if (viewScopeProxyMap != null)
         {
             ViewScopeProviderFactory factory = ViewScopeProviderFactory.getViewScopeHandlerFactory(
                 context.getExternalContext());
             ViewScopeProvider handler = factory.getViewScopeHandler(context.getExternalContext());
-            viewCollection.put(context, serializeView(context, serializedView), nextKey, key,
+            viewCollection.put(context, state, nextKey, key,
                     handler, viewScopeProxyMap.getViewScopeId());
         }
         else
         {
-            viewCollection.put(context, serializeView(context, serializedView), nextKey, key);
+            viewCollection.put(context, state, nextKey, key);
         }
 
         ClientWindow clientWindow = context.getExternalContext().getClientWindow();
@@ -234,6 +246,12 @@ class StateCacheServerSide extends StateCache<Object, Object>
                 {
                     Object state = viewCollection.get(
                             sessionViewStorageFactory.createSerializedViewKey(context, viewId, sequence));
+                    if (state instanceof ExternalViewState)
+                    {
+                        // null if the store discarded the view, so it is handled as an expired view
+                        state = viewStateStore == null ? null
+                                : viewStateStore.get(context, ((ExternalViewState) state).getKey());
+                    }
                     if (state != null)
                     {
                         serializedView = deserializeView(state);
@@ -271,6 +289,13 @@ class StateCacheServerSide extends StateCache<Object, Object>
         return serializedView;
     }
 
+    protected String getViewStateStoreKey(FacesContext context, SerializedViewCollection viewCollection,
+            String viewId, Object sequence)
+    {
+        return viewCollection.getId() + '/' + (viewId == null ? 0 : viewId.hashCode()) + '/'
+                + sessionViewStorageFactory.getKeyFactory().encode(sequence);
+    }
+
     protected Object getNextViewSequence(FacesContext context)
     {
         Object sequence = context.getAttributes().get(RendererUtils.SEQUENCE_PARAM);
@@ -347,12 +372,8 @@ class StateCacheServerSide extends StateCache<Object, Object>
                     os.write(UNCOMPRESSED_FLAG);
                 }
 
-                try (ObjectOutputStream out = new ObjectOutputStream(os))
-                {
-                    out.writeObject(serializedView);
-                }
-                
-                baos.close();
+                getSerialFactory(context).writeObject(serializedView, os);
+                os.close();
 
                 if (log.isLoggable(Level.FINEST))
                 {
@@ -402,29 +423,13 @@ class StateCacheServerSide extends StateCache<Object, Object>
                     is = new GZIPInputStream(is);
                 }
 
-                ObjectInputStream ois = null;
                 try
                 {
-                    final ObjectInputStream in = new MyFacesObjectInputStream(is);
-                    ois = in;
-                    Object object = null;
-                    if (System.getSecurityManager() != null) 
-                    {
-                        object = AccessController.doPrivileged((PrivilegedExceptionAction) () -> in.readObject());
-                    }
-                    else
-                    {
-                        object = in.readObject();
-                    }
-                    return object;
+                    return getSerialFactory(FacesContext.getCurrentInstance()).readObject(is);
                 }
                 finally
                 {
-                    if (ois != null)
-                    {
-                        ois.close();
-                        ois = null;
-                    }
+                    is.close();
                 }
             }
             catch (PrivilegedActionException | IOException | ClassNotFoundException e) 
@@ -455,6 +460,22 @@ class StateCacheServerSide extends StateCache<Object, Object>
         }
     }
     
+    /**
+     * The SerialFactory configured with org.apache.myfaces.SERIAL_FACTORY, so the state stored in session
+     * uses the same encoding as the client side state.
+     */
+    protected SerialFactory getSerialFactory(FacesContext context)
+    {
+        SerialFactory serialFactory = context == null
+                ? null
+                : (SerialFactory) context.getExternalContext().getApplicationMap().get(StateUtils.SERIAL_FACTORY);
+        if (serialFactory == null)
+        {
+            serialFactory = DEFAULT_SERIAL_FACTORY;
+        }
+        return serialFactory;
+    }
+
     //------------------------------------- METHOD FROM StateCache ------------------------------------------------
 
     @Override
@@ -21,19 +21,38 @@ package org.apache.myfaces.application.viewstate;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivilegedActionException;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.Mac;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 import javax.faces.FacesException;
@@ -43,6 +62,8 @@ import javax.servlet.ServletContext;
 
 import org.apache.myfaces.buildtools.maven2.plugin.builder.annotation.JSFWebConfigParam;
 import org.apache.myfaces.util.lang.Assert;
+import org.apache.myfaces.util.lang.FastByteArrayInputStream;
+import org.apache.myfaces.util.lang.FastByteArrayOutputStream;
 import org.apache.myfaces.spi.SerialFactory;
 
 /**
@@ -66,6 +87,9 @@ import org.apache.myfaces.spi.SerialFactory;
  * <i>org.apache.myfaces.ALGORITHM.IV</i> parameter</li>
  * <li>The default MAC algorithm can be overridden using the
  * <i>org.apache.myfaces.MAC_ALGORITHM</i> parameter</li>
+ * <li>If the mode is GCM (for example AES with GCM/NoPadding), the cipher
+ * authenticates the state itself, so no MAC is added and a random
+ * initialization vector is generated for every state.</li>
  * </ul>
  *
  * <p>The secret is interpretted as base 64 encoded.  In other
@@ -131,7 +155,9 @@ public final class StateUtils
     public static final String INIT_ALGORITHM_IV = INIT_ALGORITHM + ".IV";
     
     /**
-     * Defines the default mode and padding used for the encryption algorithm
+     * Defines the default mode and padding used for the encryption algorithm. If a GCM mode is used
+     * (for example "GCM/NoPadding" with AES), encryption and integrity are done in one pass and the
+     * MAC algorithm is not used.
      */
     @JSFWebConfigParam(name="org.apache.myfaces.ALGORITHM.PARAMETERS",since="1.1",
             defaultValue="ECB/PKCS5Padding",group="state")
@@ -175,6 +201,42 @@ public final class StateUtils
      */
     @JSFWebConfigParam(name="org.apache.myfaces.MAC_SECRET.CACHE",group="state")
     public static final String INIT_MAC_SECRET_KEY_CACHE = "org.apache.myfaces.MAC_SECRET.CACHE";
+
+    /**
+     * gzip header written by construct(...): deflate method, no flags, no mtime, unknown OS.
+     */
+    private static final byte[] GZIP_HEADER = new byte[] {
+        (byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private static final int MAX_POOLED_BUFFER_SIZE = 512 * 1024;
+
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_LENGTH = 128;
+
+    /**
+     * Application map keys of the Cipher and Mac pools. Creating these instances through the JCA
+     * factories is expensive, so they are reused across requests. A Cipher is initialized every time
+     * it is taken from the pool, a Mac is reset by doFinal and keeps its key.
+     */
+    private static final String CIPHER_POOL = StateUtils.class.getName() + ".CIPHER_POOL";
+    private static final String MAC_POOL = StateUtils.class.getName() + ".MAC_POOL";
+
+    private static final SecureRandom IV_RANDOM = new SecureRandom();
+
+    /**
+     * Max number of instances kept by each pool. The pools only need to cover the requests saving or
+     * restoring the state at the same time, the instances created over this limit during a burst
+     * of requests are discarded.
+     */
+    private static final int MAX_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * Pools reused across requests, so the native zlib structures and the serialization
+     * buffers are not created on every request.
+     */
+    private static final Queue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(MAX_POOL_SIZE);
+    private static final Queue<Inflater> INFLATERS = new ArrayBlockingQueue<>(MAX_POOL_SIZE);
+    private static final Queue<FastByteArrayOutputStream> BUFFERS = new ArrayBlockingQueue<>(MAX_POOL_SIZE);
     
     /** Utility class, do not instatiate */
     private StateUtils()
@@ -200,12 +262,25 @@ public final class StateUtils
     
     public static Cipher createCipher(ExternalContext externalContext, int mode) throws Exception
     {
-        SecretKey secretKey = (SecretKey) getSecret(externalContext);
         String algorithm = findAlgorithm(externalContext);
         String algorithmParams = findAlgorithmParams(externalContext);
-        byte[] iv = findInitializationVector(externalContext);
 
         Cipher cipher = Cipher.getInstance(algorithm + '/' + algorithmParams);
+        initCipher(cipher, externalContext, mode);
+
+        if (log.isLoggable(Level.FINE))
+        {
+            log.fine("de/encrypting with " + algorithm + '/' + algorithmParams);
+        }
+
+        return cipher;
+    }
+
+    private static void initCipher(Cipher cipher, ExternalContext externalContext, int mode) throws Exception
+    {
+        SecretKey secretKey = (SecretKey) getSecret(externalContext);
+        byte[] iv = findInitializationVector(externalContext);
+
         if (iv != null)
         {
             IvParameterSpec ivSpec = new IvParameterSpec(iv);
@@ -215,15 +290,62 @@ public final class StateUtils
         {
             cipher.init(mode, secretKey);
         }
+    }
 
-        if (log.isLoggable(Level.FINE))
+    /**
+     * Take a Cipher from the pool, initialized for the given mode. In GCM mode it is not initialized,
+     * because every state needs its own initialization vector.
+     */
+    private static Cipher borrowCipher(ExternalContext externalContext, int mode, boolean aead) throws Exception
+    {
+        Cipher cipher = StateUtils.<Cipher>getPool(externalContext, CIPHER_POOL).poll();
+        if (cipher == null)
         {
-            log.fine("de/encrypting with " + algorithm + '/' + algorithmParams);
+            if (!aead)
+            {
+                return createCipher(externalContext, mode);
+            }
+            cipher = Cipher.getInstance(findAlgorithm(externalContext) + '/' + findAlgorithmParams(externalContext));
+        }
+        else if (!aead)
+        {
+            initCipher(cipher, externalContext, mode);
         }
-
         return cipher;
     }
-    
+
+    private static Mac borrowMac(ExternalContext externalContext) throws Exception
+    {
+        Mac mac = StateUtils.<Mac>getPool(externalContext, MAC_POOL).poll();
+        return mac == null ? createMac(externalContext) : mac;
+    }
+
+    private static void release(ExternalContext externalContext, Cipher cipher, Mac mac)
+    {
+        if (cipher != null)
+        {
+            getPool(externalContext, CIPHER_POOL).offer(cipher);
+        }
+        if (mac != null)
+        {
+            // discard any partial data if the operation failed
+            mac.reset();
+            getPool(externalContext, MAC_POOL).offer(mac);
+        }
+    }
+
+    private static <T> Queue<T> getPool(ExternalContext externalContext, String key)
+    {
+        return (Queue<T>) externalContext.getApplicationMap().computeIfAbsent(key,
+                k -> new ArrayBlockingQueue<T>(MAX_POOL_SIZE));
+    }
+
+    private static boolean isAead(ExternalContext externalContext)
+    {
+        String algorithmParams = externalContext.getInitParameter(INIT_ALGORITHM_PARAM);
+        return algorithmParams != null && algorithmParams.startsWith("GCM");
+    }
+
     public static Mac createMac(ExternalContext externalContext) throws Exception
     {
         SecretKey macSecretKey = (SecretKey) getMacSecret(externalContext);
@@ -251,30 +373,100 @@ public final class StateUtils
 
     /**
      * This fires during the Render Response phase, saving state.
+     * 
+     * The object is serialized (and compressed) in a single pass into a pooled buffer, then
+     * encrypted and encoded from that buffer, so no intermediate copy is created per step.
      */
     public static final String construct(Object object, ExternalContext ctx)
     {
-        byte[] bytes = getAsByteArray(object, ctx);
-        if (enableCompression(ctx))
+        SerialFactory serialFactory = (SerialFactory) ctx.getApplicationMap().get(SERIAL_FACTORY);
+        Assert.notNull(serialFactory, "serialFactory");
+
+        FastByteArrayOutputStream buffer = BUFFERS.poll();
+        if (buffer == null)
         {
-            bytes = compress(bytes);
+            buffer = new FastByteArrayOutputStream(8192);
         }
-        if (isSecure(ctx))
+        try
         {
-            bytes = encrypt(bytes, ctx);
+            if (enableCompression(ctx))
+            {
+                writeCompressed(object, serialFactory, buffer);
+            }
+            else
+            {
+                serialFactory.writeObject(object, buffer);
+            }
+
+            byte[] bytes = buffer.getByteArray();
+            int length = buffer.getSize();
+            if (isSecure(ctx))
+            {
+                bytes = encrypt(bytes, 0, length, ctx);
+                length = bytes.length;
+            }
+
+            ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(bytes, 0, length));
+            return new String(encoded.array(), 0, encoded.limit(), StandardCharsets.ISO_8859_1);
+        }
+        catch (IOException e)
+        {
+            throw new FacesException(e);
+        }
+        finally
+        {
+            // the buffer holds the serialized state before it is encrypted, do not leave it in the pool
+            Arrays.fill(buffer.getByteArray(), 0, buffer.getSize(), (byte) 0);
+            buffer.reset();
+            if (buffer.getByteArray().length <= MAX_POOLED_BUFFER_SIZE)
+            {
+                BUFFERS.offer(buffer);
+            }
         }
-        bytes = encode(bytes);
+    }
 
+    /**
+     * Writes the object using the gzip format, so it can be read with {@link #decompress(byte[])},
+     * but deflating with a pooled Deflater while the object is serialized.
+     */
+    private static void writeCompressed(Object object, SerialFactory serialFactory, OutputStream out)
+            throws IOException
+    {
+        Deflater deflater = DEFLATERS.poll();
+        if (deflater == null)
+        {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
         try
         {
-            return new String(bytes, ZIP_CHARSET);
+            out.write(GZIP_HEADER);
+
+            CRC32 crc = new CRC32();
+            DeflaterOutputStream dos = new DeflaterOutputStream(out, deflater, 4096);
+            serialFactory.writeObject(object, new CheckedOutputStream(dos, crc));
+            dos.finish();
+
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, (int) deflater.getBytesRead());
         }
-        catch (UnsupportedEncodingException e)
+        finally
         {
-            throw new FacesException(e);
+            deflater.reset();
+            if (!DEFLATERS.offer(deflater))
+            {
+                deflater.end();
+            }
         }
     }
 
+    private static void writeIntLE(OutputStream out, int value) throws IOException
+    {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
     /**
      * Performs serialization with the serialization provider created by the 
      * SerialFactory.  
@@ -300,20 +492,43 @@ public final class StateUtils
     }
 
     public static byte[] encrypt(byte[] insecure, ExternalContext externalContext)
+    {
+        return encrypt(insecure, 0, insecure.length, externalContext);
+    }
+
+    public static byte[] encrypt(byte[] insecure, int offset, int length, ExternalContext externalContext)
     {
         Assert.notNull(externalContext, "externalContext");
 
         testConfiguration(externalContext);
 
+        boolean aead = isAead(externalContext);
+        Mac mac = null;
+        Cipher cipher = null;
         try
         {
-            Mac mac = createMac(externalContext);
-            Cipher cipher = createCipher(externalContext, Cipher.ENCRYPT_MODE);
+            cipher = borrowCipher(externalContext, Cipher.ENCRYPT_MODE, aead);
+
+            if (aead)
+            {
+                // The authentication tag is appended by the cipher, the iv goes first
+                byte[] iv = new byte[GCM_IV_LENGTH];
+                IV_RANDOM.nextBytes(iv);
+                cipher.init(Cipher.ENCRYPT_MODE, getSecret(externalContext),
+                        new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+
+                byte[] secure = new byte[GCM_IV_LENGTH + cipher.getOutputSize(length)];
+                System.arraycopy(iv, 0, secure, 0, GCM_IV_LENGTH);
+                cipher.doFinal(insecure, offset, length, secure, GCM_IV_LENGTH);
+                return secure;
+            }
+
+            mac = borrowMac(externalContext);
 
             //EtM (Encrypt-then-MAC) Composition Approach
             int macLenght = mac.getMacLength();
-            byte[] secure = new byte[cipher.getOutputSize(insecure.length) + macLenght];
-            int secureCount = cipher.doFinal(insecure, 0, insecure.length, secure);
+            byte[] secure = new byte[cipher.getOutputSize(length) + macLenght];
+            int secureCount = cipher.doFinal(insecure, offset, length, secure);
             mac.update(secure, 0, secureCount);
             mac.doFinal(secure, secureCount);
                         
@@ -323,6 +538,10 @@ public final class StateUtils
         {
             throw new FacesException(e);
         }
+        finally
+        {
+            release(externalContext, cipher, mac);
+        }
     }
 
     public static final byte[] compress(byte[] bytes)
@@ -355,10 +574,13 @@ public final class StateUtils
 
     /**
      * This fires during the Restore View phase, restoring state.
+     * 
+     * The decoded bytes are decrypted in place and deserialized (and decompressed) in a single
+     * pass, so no intermediate copy is created per step.
      */
     public static final Object reconstruct(String string, ExternalContext ctx)
     {
-        byte[] bytes;
+        byte[] bytes = null;
         try
         {
             if (log.isLoggable(Level.FINE))
@@ -366,18 +588,22 @@ public final class StateUtils
                 log.fine("Processing state : " + string);
             }
 
+            SerialFactory serialFactory = (SerialFactory) ctx.getApplicationMap().get(SERIAL_FACTORY);
+            Assert.notNull(serialFactory, "serialFactory");
+
             bytes = string.getBytes(ZIP_CHARSET);
             bytes = decode(bytes);
+            int length = bytes.length;
             if (isSecure(ctx))
             {
-                bytes = decrypt(bytes, ctx);
+                length = decryptInPlace(bytes, ctx);
             }
             if (enableCompression(ctx))
             {
-                bytes = decompress(bytes);
+                return readCompressed(bytes, length, serialFactory);
             }
 
-            return getAsObject(bytes, ctx);
+            return serialFactory.readObject(new FastByteArrayInputStream(bytes, length));
         }
         catch (Throwable e)
         {
@@ -387,6 +613,68 @@ public final class StateUtils
             }
             return null;
         }
+        finally
+        {
+            if (bytes != null)
+            {
+                // clear the decrypted state
+                Arrays.fill(bytes, (byte) 0);
+            }
+        }
+    }
+
+    private static Object readCompressed(byte[] bytes, int length, SerialFactory serialFactory)
+            throws IOException, PrivilegedActionException, ClassNotFoundException
+    {
+        if (length < GZIP_HEADER.length || bytes[0] != GZIP_HEADER[0] || bytes[1] != GZIP_HEADER[1]
+                || bytes[2] != GZIP_HEADER[2] || bytes[3] != 0)
+        {
+            // Not written by construct(...), let GZIPInputStream parse the header
+            return serialFactory.readObject(new GZIPInputStream(new FastByteArrayInputStream(bytes, length)));
+        }
+
+        Inflater inflater = INFLATERS.poll();
+        if (inflater == null)
+        {
+            inflater = new Inflater(true);
+        }
+        try
+        {
+            InputStream is = new FastByteArrayInputStream(bytes, length);
+            is.skip(GZIP_HEADER.length);
+            CRC32 crc = new CRC32();
+            CheckedInputStream cis = new CheckedInputStream(new InflaterInputStream(is, inflater, 4096), crc);
+            Object object = serialFactory.readObject(cis);
+
+            // consume what the deserialization did not read, so the crc covers all the inflated bytes
+            byte[] skipBuffer = new byte[256];
+            while (cis.read(skipBuffer) != -1)
+            {
+                // nothing to do
+            }
+            int trailer = GZIP_HEADER.length + (int) inflater.getBytesRead();
+            if (!inflater.finished() || length < trailer + 8
+                    || readIntLE(bytes, trailer) != (int) crc.getValue()
+                    || readIntLE(bytes, trailer + 4) != (int) inflater.getBytesWritten())
+            {
+                throw new ZipException("Corrupt GZIP trailer");
+            }
+            return object;
+        }
+        finally
+        {
+            inflater.reset();
+            if (!INFLATERS.offer(inflater))
+            {
+                inflater.end();
+            }
+        }
+    }
+
+    private static int readIntLE(byte[] bytes, int offset)
+    {
+        return (bytes[offset] & 0xff) | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16 | (bytes[offset + 3] & 0xff) << 24;
     }
 
     public static final byte[] decode(byte[] bytes)
@@ -430,42 +718,125 @@ public final class StateUtils
 
         testConfiguration(externalContext);
 
+        boolean aead = isAead(externalContext);
+        Mac mac = null;
+        Cipher cipher = null;
         try
         {
-            Mac mac = createMac(externalContext);
-            Cipher cipher = createCipher(externalContext, Cipher.DECRYPT_MODE);
-
-            //EtM (Encrypt-then-MAC) Composition Approach
-            int macLenght = mac.getMacLength();
-            mac.update(secure, 0, secure.length - macLenght);
-            byte[] signedDigestHash = mac.doFinal();
+            cipher = borrowCipher(externalContext, Cipher.DECRYPT_MODE, aead);
 
-            boolean isMacEqual = true;
-            for (int i = 0; i < signedDigestHash.length; i++)
+            if (aead)
             {
-                if (signedDigestHash[i] != secure[secure.length - macLenght + i])
-                {
-                    isMacEqual = false;
-                    // MYFACES-2934 Must compare *ALL* bytes of the hash, 
-                    // otherwise a side-channel timing attack is theorically possible
-                    // but with a very very low probability, because the
-                    // comparison time is too small to be measured compared to
-                    // the overall request time and in real life applications,
-                    // there are too many uncertainties involved.
-                    //break;
-                }
+                initAeadDecrypt(cipher, secure, externalContext);
+                return cipher.doFinal(secure, GCM_IV_LENGTH, secure.length - GCM_IV_LENGTH);
             }
-            if (!isMacEqual)
+
+            mac = borrowMac(externalContext);
+            int macLenght = checkMac(mac, secure);
+
+            return cipher.doFinal(secure, 0, secure.length - macLenght);
+        }
+        catch (AEADBadTagException e)
+        {
+            throw new FacesException(new ViewExpiredException());
+        }
+        catch (Exception e)
+        {
+            throw new FacesException(e);
+        }
+        finally
+        {
+            release(externalContext, cipher, mac);
+        }
+    }
+
+    /**
+     * Like {@link #decrypt(byte[], ExternalContext)}, but the plain bytes are written over the
+     * secure ones, starting at 0.
+     * 
+     * @return the number of plain bytes
+     */
+    private static int decryptInPlace(byte[] secure, ExternalContext externalContext)
+    {
+        Assert.notNull(externalContext, "externalContext");
+
+        testConfiguration(externalContext);
+
+        boolean aead = isAead(externalContext);
+        Mac mac = null;
+        Cipher cipher = null;
+        try
+        {
+            cipher = borrowCipher(externalContext, Cipher.DECRYPT_MODE, aead);
+
+            // Cipher.doFinal is copy-safe, so input and output can share the same array
+            if (aead)
             {
-                throw new ViewExpiredException();
+                initAeadDecrypt(cipher, secure, externalContext);
+                return cipher.doFinal(secure, GCM_IV_LENGTH, secure.length - GCM_IV_LENGTH, secure, 0);
             }
-            
-            return cipher.doFinal(secure, 0, secure.length - macLenght);
+
+            mac = borrowMac(externalContext);
+            int macLenght = checkMac(mac, secure);
+
+            return cipher.doFinal(secure, 0, secure.length - macLenght, secure, 0);
+        }
+        catch (AEADBadTagException e)
+        {
+            throw new FacesException(new ViewExpiredException());
         }
         catch (Exception e)
         {
             throw new FacesException(e);
         }
+        finally
+        {
+            release(externalContext, cipher, mac);
+        }
+    }
+
+    private static void initAeadDecrypt(Cipher cipher, byte[] secure, ExternalContext externalContext)
+            throws Exception
+    {
+        if (secure.length < GCM_IV_LENGTH + GCM_TAG_LENGTH / 8)
+        {
+            throw new ViewExpiredException();
+        }
+        cipher.init(Cipher.DECRYPT_MODE, getSecret(externalContext),
+                new GCMParameterSpec(GCM_TAG_LENGTH, secure, 0, GCM_IV_LENGTH));
+    }
+
+    /**
+     * Verifies the mac appended at the end of the secure bytes (EtM composition approach).
+     * 
+     * @return the mac length
+     */
+    private static int checkMac(Mac mac, byte[] secure)
+    {
+        int macLenght = mac.getMacLength();
+        mac.update(secure, 0, secure.length - macLenght);
+        byte[] signedDigestHash = mac.doFinal();
+
+        boolean isMacEqual = true;
+        for (int i = 0; i < signedDigestHash.length; i++)
+        {
+            if (signedDigestHash[i] != secure[secure.length - macLenght + i])
+            {
+                isMacEqual = false;
+                // MYFACES-2934 Must compare *ALL* bytes of the hash, 
+                // otherwise a side-channel timing attack is theorically possible
+                // but with a very very low probability, because the
+                // comparison time is too small to be measured compared to
+                // the overall request time and in real life applications,
+                // there are too many uncertainties involved.
+                //break;
+            }
+        }
+        if (!isMacEqual)
+        {
+            throw new ViewExpiredException();
+        }
+        return macLenght;
     }
 
     /**
@@ -129,6 +129,7 @@ import org.apache.myfaces.lifecycle.LifecycleImpl;
 import org.apache.myfaces.renderkit.LazyRenderKit;
 import org.apache.myfaces.spi.impl.DefaultSerialFactory;
 import org.apache.myfaces.spi.SerialFactory;
+import org.apache.myfaces.spi.ViewStateStore;
 import org.apache.myfaces.spi.FacesConfigurationMerger;
 import org.apache.myfaces.spi.FacesConfigurationMergerFactory;
 import org.apache.myfaces.spi.InjectionProvider;
@@ -502,6 +503,7 @@ public class FacesConfigurator
         configureRuntimeConfig();
         configureLifecycle();
         handleSerialFactory();
+        handleViewStateStore();
         configureFlowHandler();
 
         configureProtectedViews();
@@ -1240,6 +1242,40 @@ public class FacesConfigurator
         _externalContext.getApplicationMap().put(StateUtils.SERIAL_FACTORY, serialFactory);
     }
 
+    private void handleViewStateStore()
+    {
+        String viewStateStoreClass = _externalContext.getInitParameter(MyfacesConfig.VIEW_STATE_STORE);
+        if (viewStateStoreClass == null)
+        {
+            _externalContext.getApplicationMap().remove(MyfacesConfig.VIEW_STATE_STORE);
+            return;
+        }
+
+        ViewStateStore viewStateStore = null;
+        try
+        {
+            viewStateStore = (ViewStateStore) ClassUtils.newInstance(viewStateStoreClass);
+        }
+        catch (ClassCastException e)
+        {
+            log.log(Level.SEVERE, "Make sure '" + viewStateStoreClass + "' extends the correct class", e);
+        }
+        catch (Exception e)
+        {
+            log.log(Level.SEVERE, "", e);
+        }
+
+        if (viewStateStore == null)
+        {
+            log.severe("Keeping serialized views into the session");
+            _externalContext.getApplicationMap().remove(MyfacesConfig.VIEW_STATE_STORE);
+            return;
+        }
+
+        log.fine("View state store : " + viewStateStore.getClass());
+        _externalContext.getApplicationMap().put(MyfacesConfig.VIEW_STATE_STORE, viewStateStore);
+    }
+
     private void configureFlowHandler()
     {
         FacesContext facesContext = getFacesContext();
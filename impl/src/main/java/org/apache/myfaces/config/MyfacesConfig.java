@@ -18,7 +18,10 @@
  */
 package org.apache.myfaces.config;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.ResourceBundle;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.faces.application.ProjectStage;
@@ -818,6 +821,179 @@ public class MyfacesConfig
     public static final String RESOURCE_BUNDLE_CONTROL = 
             "org.apache.myfaces.RESOURCE_BUNDLE_CONTROL";
     
+    /**
+     * Class name of a org.apache.myfaces.spi.ViewStateStore implementation, used to keep the serialized
+     * views outside the session when server side state saving is used. The session only keeps a small
+     * reference to each view, so its size does not grow with org.apache.myfaces.NUMBER_OF_VIEWS_IN_SESSION.
+     * 
+     * <p>MyFaces provides org.apache.myfaces.spi.impl.OffHeapViewStateStore, which keeps the state into
+     * direct ByteBuffers. By default no store is used and the views are kept into the session.</p>
+     */
+    @JSFWebConfigParam(since="2.3-next", group="state", tags="performance")
+    public static final String VIEW_STATE_STORE = "org.apache.myfaces.VIEW_STATE_STORE";
+
+    /**
+     * Time in milliseconds a view is kept by the org.apache.myfaces.spi.ViewStateStore since it
+     * was accessed for the last time. By default 30 minutes.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="1800000", group="state", tags="performance")
+    public static final String VIEW_STATE_STORE_TTL = "org.apache.myfaces.VIEW_STATE_STORE_TTL";
+    private static final long VIEW_STATE_STORE_TTL_DEFAULT = 30L * 60L * 1000L;
+
+    /**
+     * Max amount of bytes kept by the org.apache.myfaces.spi.ViewStateStore. When it is exceeded, the least
+     * recently used views are discarded first. By default 64MB.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="67108864", group="state", tags="performance")
+    public static final String VIEW_STATE_STORE_MAX_SIZE = "org.apache.myfaces.VIEW_STATE_STORE_MAX_SIZE";
+    private static final long VIEW_STATE_STORE_MAX_SIZE_DEFAULT = 64L * 1024L * 1024L;
+    
+    /**
+     * Path of a web application resource created with
+     * org.apache.myfaces.view.facelets.compiler.PrecompiledFacelets at build time. The facelets found
+     * in that file are compiled from the recorded parser events instead of parsing the xml source.
+     * If the source is newer or its size changed, it is parsed again. By default no file is used.
+     */
+    @JSFWebConfigParam(since="2.3-next", group="viewhandler", tags="performance")
+    public static final String PRECOMPILED_FACELETS = "org.apache.myfaces.PRECOMPILED_FACELETS";
+    
+    /**
+     * Use a java.nio.file.WatchService to detect changes of facelets and resources located in the
+     * file system. Those entries are evicted from the facelet and resource caches when the file
+     * changes, instead of checking the modification time each time javax.faces.FACELETS_REFRESH_PERIOD
+     * elapses. Sources that are not plain files, for example inside jars, are still checked as before.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="viewhandler", tags="performance")
+    public static final String WATCH_FILE_CHANGES = "org.apache.myfaces.WATCH_FILE_CHANGES";
+    
+    /**
+     * Keep the bytes of the resources served by the default ResourceHandler in memory, together with
+     * an ETag and a gzip compressed variant for text resources. Only used when
+     * org.apache.myfaces.RESOURCE_HANDLER_CACHE_ENABLED is true and the ProjectStage is Production.
+     * Resources whose content can contain EL expressions are not cached.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="resources", tags="performance")
+    public static final String RESOURCE_CONTENT_CACHE_ENABLED = "org.apache.myfaces.RESOURCE_CONTENT_CACHE_ENABLED";
+    
+    /**
+     * Resources bigger than this size in bytes are not kept in memory by the resource content cache.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="524288", classType="java.lang.Integer",
+            group="resources", tags="performance")
+    public static final String RESOURCE_CONTENT_CACHE_MAX_RESOURCE_SIZE
+            = "org.apache.myfaces.RESOURCE_CONTENT_CACHE_MAX_RESOURCE_SIZE";
+    
+    /**
+     * Add a hash of the content to the urls of the resources served by the default ResourceHandler,
+     * as the "h" parameter. Requests with the current hash are answered with
+     * "Cache-Control: public, max-age=31536000, immutable", so browsers never revalidate them. Only
+     * used in Production, for resources whose content does not contain EL expressions.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="resources", tags="performance")
+    public static final String RESOURCE_FINGERPRINTING = "org.apache.myfaces.RESOURCE_FINGERPRINTING";
+    
+    /**
+     * Render consecutive h:outputScript and h:outputStylesheet components targeted at head as a
+     * single bundle resource, served by the default ResourceHandler with an ETag, a gzip compressed
+     * variant and a hash of its content in the url. Only used in Production. Resources of a
+     * contract, localized resources and scripts containing EL expressions are not bundled; EL
+     * expressions in stylesheets are evaluated once, when the bundle is built. Components with other
+     * attributes than name, library and target are not bundled either. A bundle is only served when
+     * the hash of its content matches the "h" parameter of the request.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="resources", tags="performance")
+    public static final String RESOURCE_BUNDLING = "org.apache.myfaces.RESOURCE_BUNDLING";
+    
+    /**
+     * Index the paths of the resources found by the default resource loaders (the web application,
+     * META-INF/resources, META-INF/flows and the contracts of both), so lookups of resources that do
+     * not exist are answered without asking the ServletContext or every jar of the ClassLoader. The
+     * index is built once and only rebuilt in Development, when a resource is not found, at most
+     * once every two seconds. Jars are found through the directory of the loader or their
+     * META-INF/MANIFEST.MF, so a jar with neither of them is not seen.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="resources", tags="performance")
+    public static final String RESOURCE_INDEX_ENABLED = "org.apache.myfaces.RESOURCE_INDEX_ENABLED";
+    
+    /**
+     * Parse the resources that can contain EL expressions, like css files, only once into a template
+     * of literal bytes and expressions, instead of filtering their bytes on every request. When all
+     * the expressions of a resource are #{resource[...]} lookups, the evaluated content is cached too,
+     * per locale, contract and FacesServlet mapping. Only used in Production.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="resources", tags="performance")
+    public static final String RESOURCE_TEMPLATE_CACHE_ENABLED = "org.apache.myfaces.RESOURCE_TEMPLATE_CACHE_ENABLED";
+    
+    /**
+     * Encode the rendered markup of a Facelets view straight into a pooled UTF-8 byte buffer that is
+     * written to the response OutputStream, instead of going through the servlet Writer and its
+     * CharsetEncoder. Only used when the response character encoding is UTF-8. Code that writes to
+     * the response during Render Response must use FacesContext.getResponseWriter(), because the
+     * servlet Writer cannot be obtained once the OutputStream is in use.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="render", tags="performance")
+    public static final String RESPONSE_WRITER_DIRECT_UTF8 = "org.apache.myfaces.RESPONSE_WRITER_DIRECT_UTF8";
+    
+    /**
+     * Merge the static markup of a facelet, like consecutive plain html elements, their literal attributes
+     * and text, into blocks that are rendered once per response writer configuration and then written with
+     * a single call. It is only used with the default html ResponseWriter outside of ajax requests, any
+     * other ResponseWriter gets the usual startElement/writeAttribute/endElement calls.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="viewhandler", tags="performance")
+    public static final String PRERENDER_STATIC_MARKUP = "org.apache.myfaces.PRERENDER_STATIC_MARKUP";
+    
+    /**
+     * Remember for each class of base object and property name which ELResolver of the faces chain resolved
+     * the value, and ask that one first the next time. If it does not resolve the value, the whole chain is
+     * used as usual. Only properties of non null base objects are remembered, so it requires that the
+     * custom ELResolvers decide if they resolve a property of a bean by the class of the bean and the name
+     * of the property.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="EL", tags="performance")
+    public static final String EL_RESOLVER_CACHE_ENABLED = "org.apache.myfaces.EL_RESOLVER_CACHE_ENABLED";
+    
+    /**
+     * Compile simple value expressions in facelets attributes like #{bean.property.nested},
+     * #{empty bean.list} or #{bean.value == null} into a chain of MethodHandles that call the getters of
+     * the beans directly, instead of evaluating them through the EL implementation and the ELResolver chain.
+     * Only the root identifier is resolved through the ELResolver. Expressions are compiled after they
+     * were evaluated the number of times given in org.apache.myfaces.EL_COMPILATION_THRESHOLD, and they
+     * are not compiled if there are custom ELResolvers registered in faces-config.xml or by the application.
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="false", expectedValues="true,false",
+            group="EL", tags="performance")
+    public static final String EL_COMPILATION_ENABLED = "org.apache.myfaces.EL_COMPILATION_ENABLED";
+
+    /**
+     * The number of evaluations of a value expression before it is compiled.
+     * 
+     * <p>See org.apache.myfaces.EL_COMPILATION_ENABLED for details.</p>
+     */
+    @JSFWebConfigParam(since="2.3-next", defaultValue="100", classType="java.lang.Integer",
+            group="EL", tags="performance")
+    public static final String EL_COMPILATION_THRESHOLD = "org.apache.myfaces.EL_COMPILATION_THRESHOLD";
+    private static final int EL_COMPILATION_THRESHOLD_DEFAULT = 100;
+    
+    /**
+     * Comma separated list of the component families whose state is kept in compact open addressed maps
+     * instead of HashMap instances, or * for all components. It reduces the memory used by the state of the
+     * components with partial state saving, where each component keeps its initial and its delta state. The
+     * maps are replaced when the initial state of the component is marked, so components of views using full
+     * state saving keep HashMap instances. The saved state is the same in both cases.
+     */
+    @JSFWebConfigParam(since="2.3-next", group="state", tags="performance")
+    public static final String COMPACT_STATE_FAMILIES = "org.apache.myfaces.COMPACT_STATE_FAMILIES";
+
     // we need it, applicationImpl not ready probably
     private ProjectStage projectStage = ProjectStage.Production;
     private boolean strictJsf2AllowSlashLibraryName;
@@ -899,6 +1075,22 @@ public class MyfacesConfig
     private boolean alwaysForceSessionCreation = ALWAYS_FORCE_SESSION_CREATION_DEFAULT;
     private ResourceBundle.Control resourceBundleControl;
     private boolean automaticExtensionlessMapping = AUTOMATIC_EXTENSIONLESS_MAPPING_DEFAULT;
+    private long viewStateStoreTtl = VIEW_STATE_STORE_TTL_DEFAULT;
+    private long viewStateStoreMaxSize = VIEW_STATE_STORE_MAX_SIZE_DEFAULT;
+    private String precompiledFacelets;
+    private boolean watchFileChanges = false;
+    private boolean resourceContentCacheEnabled = false;
+    private int resourceContentCacheMaxResourceSize = 524288;
+    private boolean resourceFingerprinting = false;
+    private boolean resourceBundling = false;
+    private boolean resourceIndexEnabled = false;
+    private boolean resourceTemplateCacheEnabled = false;
+    private boolean responseWriterDirectUtf8 = false;
+    private boolean prerenderStaticMarkup = false;
+    private boolean elResolverCacheEnabled = false;
+    private boolean elCompilationEnabled = false;
+    private int elCompilationThreshold = EL_COMPILATION_THRESHOLD_DEFAULT;
+    private Set<String> compactStateFamilies = null;
     
     private static final boolean MYFACES_IMPL_AVAILABLE;
     private static final boolean RI_IMPL_AVAILABLE;
@@ -1333,6 +1525,49 @@ public class MyfacesConfig
         cfg.automaticExtensionlessMapping = getBoolean(extCtx, AUTOMATIC_EXTENSIONLESS_MAPPING,
                 AUTOMATIC_EXTENSIONLESS_MAPPING_DEFAULT);
 
+        cfg.viewStateStoreTtl = getLong(extCtx, VIEW_STATE_STORE_TTL,
+                VIEW_STATE_STORE_TTL_DEFAULT);
+
+        cfg.viewStateStoreMaxSize = getLong(extCtx, VIEW_STATE_STORE_MAX_SIZE,
+                VIEW_STATE_STORE_MAX_SIZE_DEFAULT);
+
+        cfg.precompiledFacelets = getString(extCtx, PRECOMPILED_FACELETS, null);
+
+        cfg.watchFileChanges = getBoolean(extCtx, WATCH_FILE_CHANGES, false);
+
+        cfg.resourceContentCacheEnabled = getBoolean(extCtx, RESOURCE_CONTENT_CACHE_ENABLED, false);
+        cfg.resourceContentCacheMaxResourceSize = getInt(extCtx, RESOURCE_CONTENT_CACHE_MAX_RESOURCE_SIZE,
+                524288);
+
+        cfg.resourceFingerprinting = getBoolean(extCtx, RESOURCE_FINGERPRINTING, false);
+
+        cfg.resourceBundling = getBoolean(extCtx, RESOURCE_BUNDLING, false);
+
+        cfg.resourceIndexEnabled = getBoolean(extCtx, RESOURCE_INDEX_ENABLED, false);
+
+        cfg.resourceTemplateCacheEnabled = getBoolean(extCtx, RESOURCE_TEMPLATE_CACHE_ENABLED, false);
+
+        cfg.responseWriterDirectUtf8 = getBoolean(extCtx, RESPONSE_WRITER_DIRECT_UTF8, false);
+
+        cfg.prerenderStaticMarkup = getBoolean(extCtx, PRERENDER_STATIC_MARKUP, false);
+
+        cfg.elResolverCacheEnabled = getBoolean(extCtx, EL_RESOLVER_CACHE_ENABLED, false);
+
+        cfg.elCompilationEnabled = getBoolean(extCtx, EL_COMPILATION_ENABLED, false);
+        cfg.elCompilationThreshold = getInt(extCtx, EL_COMPILATION_THRESHOLD, EL_COMPILATION_THRESHOLD_DEFAULT);
+
+        String[] compactStateFamilies = StringUtils.splitShortString(
+                getString(extCtx, COMPACT_STATE_FAMILIES, null), ',');
+        if (compactStateFamilies.length > 0)
+        {
+            cfg.compactStateFamilies = new HashSet<>(compactStateFamilies.length);
+            for (String family : compactStateFamilies)
+            {
+                cfg.compactStateFamilies.add(family.trim());
+            }
+            cfg.compactStateFamilies = Collections.unmodifiableSet(cfg.compactStateFamilies);
+        }
+
         return cfg;
     }
 
@@ -1808,5 +2043,85 @@ public class MyfacesConfig
         return automaticExtensionlessMapping;
     }
 
+    public long getViewStateStoreTtl()
+    {
+        return viewStateStoreTtl;
+    }
+
+    public long getViewStateStoreMaxSize()
+    {
+        return viewStateStoreMaxSize;
+    }
+
+    public String getPrecompiledFacelets()
+    {
+        return precompiledFacelets;
+    }
+
+    public boolean isWatchFileChanges()
+    {
+        return watchFileChanges;
+    }
+
+    public boolean isResourceContentCacheEnabled()
+    {
+        return resourceContentCacheEnabled;
+    }
+
+    public int getResourceContentCacheMaxResourceSize()
+    {
+        return resourceContentCacheMaxResourceSize;
+    }
+
+    public boolean isResourceFingerprinting()
+    {
+        return resourceFingerprinting;
+    }
+
+    public boolean isResourceBundling()
+    {
+        return resourceBundling;
+    }
+
+    public boolean isResourceIndexEnabled()
+    {
+        return resourceIndexEnabled;
+    }
+
+    public boolean isResourceTemplateCacheEnabled()
+    {
+        return resourceTemplateCacheEnabled;
+    }
+
+    public boolean isResponseWriterDirectUtf8()
+    {
+        return responseWriterDirectUtf8;
+    }
+
+    public boolean isPrerenderStaticMarkup()
+    {
+        return prerenderStaticMarkup;
+    }
+
+    public boolean isElResolverCacheEnabled()
+    {
+        return elResolverCacheEnabled;
+    }
+
+    public boolean isElCompilationEnabled()
+    {
+        return elCompilationEnabled;
+    }
+
+    public int getElCompilationThreshold()
+    {
+        return elCompilationThreshold;
+    }
+
+    public Set<String> getCompactStateFamilies()
+    {
+        return compactStateFamilies;
+    }
+
 }
 
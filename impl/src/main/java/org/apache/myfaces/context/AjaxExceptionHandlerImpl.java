@@ -38,6 +38,7 @@ import javax.faces.event.AbortProcessingException;
 import javax.faces.event.ExceptionQueuedEvent;
 import javax.faces.event.ExceptionQueuedEventContext;
 import javax.faces.event.SystemEvent;
+import org.apache.myfaces.renderkit.html.util.DirectUtf8Writer;
 import org.apache.myfaces.util.lang.Assert;
 
 /**
@@ -252,6 +253,8 @@ public class AjaxExceptionHandlerImpl extends ExceptionHandler
                         try
                         {
                             partialWriter.endDocument();
+                            // the view was rendered already, nothing else writes the pending bytes
+                            DirectUtf8Writer.release(facesContext);
                             facesContext.responseComplete();
                         }
                         catch (IOException e1)
@@ -19,6 +19,7 @@
 package org.apache.myfaces.context;
 
 import java.lang.reflect.Field;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,6 +35,7 @@ import javax.faces.context.PartialViewContextFactory;
 import javax.faces.lifecycle.Lifecycle;
 import javax.faces.render.RenderKitFactory;
 
+import org.apache.myfaces.config.MyfacesConfig;
 import org.apache.myfaces.context.servlet.FacesContextImpl;
 import org.apache.myfaces.util.lang.Assert;
 import org.apache.myfaces.util.lang.ClassUtils;
@@ -157,6 +159,14 @@ public class FacesContextFactoryImpl extends FacesContextFactory implements Rele
             _applicationFactory, _renderKitFactory, _partialViewContextFactory);
         facesContext.setExceptionHandler(_exceptionHandlerFactory.getExceptionHandler());
 
+        // read by _DeltaStateHelper.useCompactStateIfEnabled to choose the maps of a component StateHelper
+        Set<String> compactStateFamilies = MyfacesConfig.getCurrentInstance(externalContext)
+                .getCompactStateFamilies();
+        if (compactStateFamilies != null)
+        {
+            facesContext.getAttributes().put(MyfacesConfig.COMPACT_STATE_FAMILIES, compactStateFamilies);
+        }
+
         return facesContext;
     }
 
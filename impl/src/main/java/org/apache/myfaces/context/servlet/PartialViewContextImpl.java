@@ -55,6 +55,7 @@ import org.apache.myfaces.application.viewstate.StateTokenProcessor;
 import org.apache.myfaces.context.PartialResponseWriterImpl;
 import org.apache.myfaces.context.RequestViewContext;
 import org.apache.myfaces.renderkit.html.HtmlResponseStateManager;
+import org.apache.myfaces.renderkit.html.util.DirectUtf8Writer;
 import org.apache.myfaces.renderkit.html.util.JSFAttr;
 import org.apache.myfaces.renderkit.html.util.ResourceUtils;
 import org.apache.myfaces.util.lang.StringUtils;
@@ -338,8 +339,9 @@ public class PartialViewContextImpl extends PartialViewContext
                                 = (RenderKitFactory) FactoryFinder.getFactory(FactoryFinder.RENDER_KIT_FACTORY);
                         renderKit = rkf.getRenderKit(_facesContext, renderKitId);
                     }
+                    // the DirectUtf8Writer of the view holds the OutputStream if the view was rendered
                     responseWriter = renderKit.createResponseWriter(
-                            _facesContext.getExternalContext().getResponseOutputWriter(), "text/xml",
+                            DirectUtf8Writer.getResponseOutputWriter(_facesContext), "text/xml",
                             _facesContext.getExternalContext().getRequestCharacterEncoding());
                 }
                 catch (IOException e)
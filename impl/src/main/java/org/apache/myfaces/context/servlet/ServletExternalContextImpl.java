@@ -59,6 +59,7 @@ import javax.servlet.http.HttpSession;
 import org.apache.myfaces.config.MyfacesConfig;
 
 import org.apache.myfaces.context.flash.FlashImpl;
+import org.apache.myfaces.renderkit.html.util.DirectUtf8Writer;
 import org.apache.myfaces.util.lang.Assert;
 import org.apache.myfaces.util.lang.EnumerationIterator;
 import org.apache.myfaces.util.ExternalSpecifications;
@@ -594,6 +595,7 @@ public final class ServletExternalContextImpl extends ServletExternalContextImpl
             writer.startDocument();
             writer.redirect(url);
             writer.endDocument();
+            DirectUtf8Writer.release(facesContext);
             facesContext.responseComplete();
         }
         else if (_servletResponse instanceof HttpServletResponse)
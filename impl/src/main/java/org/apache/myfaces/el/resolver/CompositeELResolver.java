@@ -24,17 +24,107 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.el.ELContext;
 import javax.el.ELResolver;
 
+import org.apache.myfaces.util.lang.ConcurrentLRUCache;
+
 /**
  * @author Mathias Broekelmann (latest modification by $Author$)
  * @version $Revision$ $Date$
  */
 public class CompositeELResolver extends javax.el.CompositeELResolver
 {
+    /**
+     * Max number of properties remembered per class, map keys can be anything.
+     */
+    private static final int MAX_CACHED_PROPERTIES = 256;
+
+    /**
+     * Max number of classes remembered, the least recently used ones are dropped first.
+     */
+    private static final int MAX_CACHED_CLASSES = 512;
+
     private Collection<ELResolver> _elResolvers;
+    
+    private volatile ELResolver[] _elResolversArray = new ELResolver[0];
+    
+    /**
+     * The resolver that resolved the value the last time, by class of the base and property name.
+     * Owned by this instance rather than by the classes, so JDK classes like HashMap do not keep
+     * the resolvers, and with them the classloader of the application, after it is undeployed.
+     */
+    private volatile ConcurrentLRUCache<Class<?>, ConcurrentHashMap<String, ELResolver>> _resolverCache;
+
+    /**
+     * Enable to ask first for a property of a non null base the resolver that resolved it the
+     * last time for the same class, instead of going through the whole chain.
+     */
+    public void setResolverCacheEnabled(boolean resolverCacheEnabled)
+    {
+        if (resolverCacheEnabled)
+        {
+            _resolverCache = new ConcurrentLRUCache<>((MAX_CACHED_CLASSES * 4 + 3) / 3, MAX_CACHED_CLASSES);
+        }
+        else
+        {
+            _resolverCache = null;
+        }
+    }
+
+    @Override
+    public Object getValue(final ELContext context, final Object base, final Object property)
+    {
+        ConcurrentLRUCache<Class<?>, ConcurrentHashMap<String, ELResolver>> resolverCache = _resolverCache;
+        if (resolverCache == null || base == null || !(property instanceof String))
+        {
+            return super.getValue(context, base, property);
+        }
+
+        ConcurrentHashMap<String, ELResolver> resolvers = resolverCache.get(base.getClass());
+        if (resolvers == null)
+        {
+            // a map lost to a concurrent put only costs a lookup through the whole chain
+            resolvers = new ConcurrentHashMap<>();
+            resolverCache.put(base.getClass(), resolvers);
+        }
+        ELResolver cached = resolvers.get(property);
+        if (cached != null)
+        {
+            context.setPropertyResolved(false);
+            Object value = cached.getValue(context, base, property);
+            if (context.isPropertyResolved())
+            {
+                return value;
+            }
+        }
+
+        context.setPropertyResolved(false);
+        for (ELResolver resolver : _elResolversArray)
+        {
+            if (resolver == cached)
+            {
+                // already asked
+                continue;
+            }
+            Object value = resolver.getValue(context, base, property);
+            if (context.isPropertyResolved())
+            {
+                if (cached != null || resolvers.size() < MAX_CACHED_PROPERTIES)
+                {
+                    resolvers.put((String) property, resolver);
+                }
+                return value;
+            }
+        }
+        if (cached != null)
+        {
+            resolvers.remove(property);
+        }
+        return null;
+    }
 
     @Override
     public Iterator<FeatureDescriptor> getFeatureDescriptors(final ELContext context, final Object base)
@@ -62,6 +152,12 @@ public class CompositeELResolver extends javax.el.CompositeELResolver
         }
 
         _elResolvers.add(elResolver);
+        _elResolversArray = _elResolvers.toArray(new ELResolver[_elResolvers.size()]);
+        if (_resolverCache != null)
+        {
+            // the winners may change with the new resolver
+            setResolverCacheEnabled(true);
+        }
     }
 
     private static class CompositeIterator implements Iterator<FeatureDescriptor>
@@ -65,6 +65,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.myfaces.buildtools.maven2.plugin.builder.annotation.JSFWebConfigParam;
 import org.apache.myfaces.lifecycle.ViewNotFoundException;
 import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.renderkit.html.util.DirectUtf8Writer;
 import org.apache.myfaces.util.lang.ClassUtils;
 import org.apache.myfaces.application.viewstate.StateUtils;
 import org.apache.myfaces.component.visit.MyFacesVisitHints;
@@ -453,8 +454,10 @@ public final class ErrorPageWriter
         {
             // We need the real one, because the one returned from FacesContext.getResponseWriter()
             // is configured with the encoding of the view.
-            Writer writer = facesContext.getExternalContext().getResponseOutputWriter();
+            Writer writer = DirectUtf8Writer.getResponseOutputWriter(facesContext);
             debugHtml(writer, facesContext, facesContext.getViewRoot(), components, exs);
+            // the view was rendered already, nothing else writes the pending bytes of a DirectUtf8Writer
+            DirectUtf8Writer.release(facesContext);
         }
         catch(IOException ioe)
         {
@@ -19,8 +19,13 @@
 package org.apache.myfaces.renderkit.html;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
 import javax.faces.component.UIComponent;
 import javax.faces.component.UIViewRoot;
 import javax.faces.context.FacesContext;
@@ -31,6 +36,9 @@ import org.apache.myfaces.buildtools.maven2.plugin.builder.annotation.JSFRendere
 import org.apache.myfaces.config.MyfacesConfig;
 import org.apache.myfaces.renderkit.html.util.HTML;
 import org.apache.myfaces.renderkit.html.util.HtmlRendererUtils;
+import org.apache.myfaces.renderkit.html.util.JSFAttr;
+import org.apache.myfaces.renderkit.html.util.ResourceUtils;
+import org.apache.myfaces.resource.BundleResource;
 
 /**
  * Renderer used by h:head component
@@ -47,6 +55,10 @@ public class HtmlHeadRenderer extends Renderer
     private final static String[] HEAD_PASSTHROUGH_ATTRIBUTES = { HTML.DIR_ATTR,
             HTML.LANG_ATTR, PROFILE_ATTR};
 
+    // Attributes of script and link elements that can be set with an EL expression
+    private final static String[] HTML_ATTRIBUTES = { "media", "nonce", "integrity", "crossorigin", "defer",
+            "async", "charset", "title", "referrerpolicy" };
+
     private MyfacesConfig myfacesConfig;
     
     public HtmlHeadRenderer()
@@ -75,10 +87,17 @@ public class HtmlHeadRenderer extends Renderer
         UIViewRoot root = facesContext.getViewRoot();
 
         List<UIComponent> componentResources = root.getComponentResources(facesContext, "head");
-        for (int i = 0, childCount = componentResources.size(); i < childCount; i++)
+        if (BundleResource.isEnabled(facesContext))
         {
-            UIComponent child = componentResources.get(i);
-            child.encodeAll(facesContext);
+            encodeBundledResources(facesContext, componentResources);
+        }
+        else
+        {
+            for (int i = 0, childCount = componentResources.size(); i < childCount; i++)
+            {
+                UIComponent child = componentResources.get(i);
+                child.encodeAll(facesContext);
+            }
         }
         
         writer.endElement(HTML.HEAD_ELEM);
@@ -88,4 +107,203 @@ public class HtmlHeadRenderer extends Renderer
             writer.flush();
         }
     }
+
+    /**
+     * Consecutive scripts or stylesheets that can be bundled are rendered as a single element pointing
+     * to a {@link BundleResource}. Everything else is encoded as usual, so the order of the resources
+     * is kept.
+     */
+    private void encodeBundledResources(FacesContext facesContext, List<UIComponent> componentResources)
+            throws IOException
+    {
+        ResourceHandler resourceHandler = facesContext.getApplication().getResourceHandler();
+        List<UIComponent> components = new ArrayList<>();
+        List<Resource> resources = new ArrayList<>();
+        String bundleName = null;
+
+        for (int i = 0, childCount = componentResources.size(); i < childCount; i++)
+        {
+            UIComponent child = componentResources.get(i);
+            String childBundleName = getBundleName(child);
+            Resource resource = null;
+            if (childBundleName != null)
+            {
+                Map<String, Object> attributes = child.getAttributes();
+                String resourceName = (String) attributes.get(JSFAttr.NAME_ATTR);
+                String libraryName = (String) attributes.get(JSFAttr.LIBRARY_ATTR);
+                if (isRendered(facesContext, childBundleName, libraryName, resourceName))
+                {
+                    continue;
+                }
+                resource = libraryName == null ? resourceHandler.createResource(resourceName)
+                        : resourceHandler.createResource(resourceName, libraryName);
+                if (!BundleResource.isBundleable(resource,
+                        facesContext.getExternalContext().getMimeType(childBundleName)))
+                {
+                    childBundleName = null;
+                }
+            }
+
+            if (childBundleName == null || !childBundleName.equals(bundleName))
+            {
+                encodeBundle(facesContext, bundleName, components, resources);
+                bundleName = childBundleName;
+            }
+
+            if (childBundleName == null)
+            {
+                child.encodeAll(facesContext);
+            }
+            else if (!contains(resources, resource))
+            {
+                if (resources.size() == BundleResource.MAX_RESOURCES)
+                {
+                    encodeBundle(facesContext, bundleName, components, resources);
+                }
+                components.add(child);
+                resources.add(resource);
+            }
+        }
+        encodeBundle(facesContext, bundleName, components, resources);
+    }
+
+    /**
+     * The bundle element is written with the src or href attribute only, so components with any other
+     * attribute, a pass through attribute or an explicit id are rendered on their own.
+     */
+    private static String getBundleName(UIComponent component)
+    {
+        if (!component.isRendered() || component.getChildCount() > 0 || !hasBundleableAttributes(component))
+        {
+            return null;
+        }
+
+        String resourceName = (String) component.getAttributes().get(JSFAttr.NAME_ATTR);
+        if (resourceName == null || resourceName.isEmpty() || resourceName.indexOf('?') >= 0)
+        {
+            return null;
+        }
+
+        String rendererType = component.getRendererType();
+        if (ResourceUtils.DEFAULT_SCRIPT_RENDERER_TYPE.equals(rendererType))
+        {
+            return BundleResource.SCRIPT_BUNDLE_NAME;
+        }
+        if (ResourceUtils.DEFAULT_STYLESHEET_RENDERER_TYPE.equals(rendererType))
+        {
+            return BundleResource.STYLESHEET_BUNDLE_NAME;
+        }
+        return null;
+    }
+
+    private static boolean hasBundleableAttributes(UIComponent component)
+    {
+        String id = component.getId();
+        if (id != null && !id.startsWith(UIViewRoot.UNIQUE_ID_PREFIX))
+        {
+            return false;
+        }
+
+        Map<String, Object> passThroughAttributes = component.getPassThroughAttributes(false);
+        if (passThroughAttributes != null && !passThroughAttributes.isEmpty())
+        {
+            return false;
+        }
+
+        // attributes set by the implementation have qualified names, like oam.vf.MARK_ID
+        for (String name : component.getAttributes().keySet())
+        {
+            if (name.indexOf('.') < 0 && !JSFAttr.NAME_ATTR.equals(name) && !JSFAttr.LIBRARY_ATTR.equals(name)
+                    && !JSFAttr.TARGET_ATTR.equals(name))
+            {
+                return false;
+            }
+        }
+        for (int i = 0; i < HTML_ATTRIBUTES.length; i++)
+        {
+            if (component.getValueExpression(HTML_ATTRIBUTES[i]) != null)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRendered(FacesContext facesContext, String bundleName, String libraryName,
+            String resourceName)
+    {
+        return BundleResource.SCRIPT_BUNDLE_NAME.equals(bundleName)
+                ? ResourceUtils.isRenderedScript(facesContext, libraryName, resourceName)
+                : ResourceUtils.isRenderedStylesheet(facesContext, libraryName, resourceName);
+    }
+
+    private static boolean contains(List<Resource> resources, Resource resource)
+    {
+        for (int i = 0; i < resources.size(); i++)
+        {
+            Resource r = resources.get(i);
+            if (r.getResourceName().equals(resource.getResourceName())
+                    && Objects.equals(r.getLibraryName(), resource.getLibraryName()))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write the collected resources and clear the lists. A single resource is encoded by its own renderer.
+     */
+    private void encodeBundle(FacesContext facesContext, String bundleName, List<UIComponent> components,
+            List<Resource> resources) throws IOException
+    {
+        if (components.size() == 1)
+        {
+            components.get(0).encodeAll(facesContext);
+        }
+        else if (components.size() > 1)
+        {
+            boolean script = BundleResource.SCRIPT_BUNDLE_NAME.equals(bundleName);
+            for (int i = 0; i < components.size(); i++)
+            {
+                Map<String, Object> attributes = components.get(i).getAttributes();
+                Resource resource = resources.get(i);
+                if (script)
+                {
+                    ResourceUtils.markScriptAsRendered(facesContext, (String) attributes.get(JSFAttr.LIBRARY_ATTR),
+                            (String) attributes.get(JSFAttr.NAME_ATTR));
+                    ResourceUtils.markScriptAsRendered(facesContext, resource.getLibraryName(),
+                            resource.getResourceName());
+                }
+                else
+                {
+                    ResourceUtils.markStylesheetAsRendered(facesContext,
+                            (String) attributes.get(JSFAttr.LIBRARY_ATTR), (String) attributes.get(JSFAttr.NAME_ATTR));
+                    ResourceUtils.markStylesheetAsRendered(facesContext, resource.getLibraryName(),
+                            resource.getResourceName());
+                }
+            }
+
+            BundleResource bundle = BundleResource.create(facesContext, bundleName, resources);
+            String path = facesContext.getExternalContext().encodeResourceURL(bundle.getRequestPath());
+            ResponseWriter writer = facesContext.getResponseWriter();
+            if (script)
+            {
+                writer.startElement(HTML.SCRIPT_ELEM, null);
+                writer.writeAttribute(HTML.SCRIPT_TYPE_ATTR, HTML.SCRIPT_TYPE_TEXT_JAVASCRIPT, null);
+                writer.writeURIAttribute(HTML.SRC_ATTR, path, null);
+                writer.endElement(HTML.SCRIPT_ELEM);
+            }
+            else
+            {
+                writer.startElement(HTML.LINK_ELEM, null);
+                writer.writeAttribute(HTML.REL_ATTR, HTML.STYLESHEET_VALUE, null);
+                writer.writeAttribute(HTML.TYPE_ATTR, bundle.getContentType(), null);
+                writer.writeURIAttribute(HTML.HREF_ATTR, path, null);
+                writer.endElement(HTML.LINK_ELEM);
+            }
+        }
+        components.clear();
+        resources.clear();
+    }
 }
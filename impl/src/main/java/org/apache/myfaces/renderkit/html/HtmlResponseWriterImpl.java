@@ -860,6 +860,42 @@ public class HtmlResponseWriterImpl extends ResponseWriter
         _currentWriter.write("-->");
     }
 
+    /**
+     * The markup written by this writer for plain elements, attributes and text only depends on the
+     * returned value, so markup rendered once with a writer of the same profile can be written again
+     * with {@link #writePrerenderedMarkup(char[], boolean)}.
+     */
+    public int getMarkupProfile()
+    {
+        return (_useStraightXml ? 2 : 0) | (_isUTF8 ? 1 : 0);
+    }
+
+    /**
+     * Prerendered markup can't be written inside script or style elements, because their content is
+     * not escaped and can be buffered to wrap it later.
+     */
+    public boolean isPrerenderedMarkupAllowed()
+    {
+        return !_isInsideScript && !_isStyle;
+    }
+
+    /**
+     * Write markup rendered before by a writer with the same markup profile, starting with no open
+     * start tag and leaving all the elements it started closed.
+     * 
+     * @param markup the rendered markup
+     * @param elements if the markup contains elements, so the started element must be reset
+     */
+    public void writePrerenderedMarkup(char[] markup, boolean elements) throws IOException
+    {
+        closeStartTagIfNecessary();
+        _currentWriter.write(markup, 0, markup.length);
+        if (elements)
+        {
+            resetStartedElement();
+        }
+    }
+
     @Override
     public void writeText(Object value, String componentPropertyName) throws IOException
     {
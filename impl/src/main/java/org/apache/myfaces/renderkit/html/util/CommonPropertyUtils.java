@@ -24,8 +24,47 @@ import javax.faces.component.UIComponent;
 import javax.faces.component.UIViewRoot;
 import javax.faces.context.ResponseWriter;
 
+import org.apache.myfaces.core.api.shared.lang.PropertyAccessorTable;
+
 public final class CommonPropertyUtils
 {
+    private static final int ACCESSKEY_SLOT = PropertyAccessorTable.getSlot(HTML.ACCESSKEY_ATTR);
+    private static final int ALIGN_SLOT = PropertyAccessorTable.getSlot(HTML.ALIGN_ATTR);
+    private static final int ALT_SLOT = PropertyAccessorTable.getSlot(HTML.ALT_ATTR);
+    private static final int CHARSET_SLOT = PropertyAccessorTable.getSlot(HTML.CHARSET_ATTR);
+    private static final int CHECKED_SLOT = PropertyAccessorTable.getSlot(HTML.CHECKED_ATTR);
+    private static final int COORDS_SLOT = PropertyAccessorTable.getSlot(HTML.COORDS_ATTR);
+    private static final int DIR_SLOT = PropertyAccessorTable.getSlot(HTML.DIR_ATTR);
+    private static final int HREFLANG_SLOT = PropertyAccessorTable.getSlot(HTML.HREFLANG_ATTR);
+    private static final int LANG_SLOT = PropertyAccessorTable.getSlot(HTML.LANG_ATTR);
+    private static final int MAXLENGTH_SLOT = PropertyAccessorTable.getSlot(HTML.MAXLENGTH_ATTR);
+    private static final int ONBLUR_SLOT = PropertyAccessorTable.getSlot(HTML.ONBLUR_ATTR);
+    private static final int ONCHANGE_SLOT = PropertyAccessorTable.getSlot(HTML.ONCHANGE_ATTR);
+    private static final int ONCLICK_SLOT = PropertyAccessorTable.getSlot(HTML.ONCLICK_ATTR);
+    private static final int ONDBLCLICK_SLOT = PropertyAccessorTable.getSlot(HTML.ONDBLCLICK_ATTR);
+    private static final int ONFOCUS_SLOT = PropertyAccessorTable.getSlot(HTML.ONFOCUS_ATTR);
+    private static final int ONKEYDOWN_SLOT = PropertyAccessorTable.getSlot(HTML.ONKEYDOWN_ATTR);
+    private static final int ONKEYPRESS_SLOT = PropertyAccessorTable.getSlot(HTML.ONKEYPRESS_ATTR);
+    private static final int ONKEYUP_SLOT = PropertyAccessorTable.getSlot(HTML.ONKEYUP_ATTR);
+    private static final int ONMOUSEDOWN_SLOT = PropertyAccessorTable.getSlot(HTML.ONMOUSEDOWN_ATTR);
+    private static final int ONMOUSEMOVE_SLOT = PropertyAccessorTable.getSlot(HTML.ONMOUSEMOVE_ATTR);
+    private static final int ONMOUSEOUT_SLOT = PropertyAccessorTable.getSlot(HTML.ONMOUSEOUT_ATTR);
+    private static final int ONMOUSEOVER_SLOT = PropertyAccessorTable.getSlot(HTML.ONMOUSEOVER_ATTR);
+    private static final int ONMOUSEUP_SLOT = PropertyAccessorTable.getSlot(HTML.ONMOUSEUP_ATTR);
+    private static final int ONSELECT_SLOT = PropertyAccessorTable.getSlot(HTML.ONSELECT_ATTR);
+    private static final int READONLY_SLOT = PropertyAccessorTable.getSlot(HTML.READONLY_ATTR);
+    private static final int REL_SLOT = PropertyAccessorTable.getSlot(HTML.REL_ATTR);
+    private static final int REV_SLOT = PropertyAccessorTable.getSlot(HTML.REV_ATTR);
+    private static final int ROLE_SLOT = PropertyAccessorTable.getSlot(HTML.ROLE_ATTR);
+    private static final int SHAPE_SLOT = PropertyAccessorTable.getSlot(HTML.SHAPE_ATTR);
+    private static final int SIZE_SLOT = PropertyAccessorTable.getSlot(HTML.SIZE_ATTR);
+    private static final int STYLE_SLOT = PropertyAccessorTable.getSlot(HTML.STYLE_ATTR);
+    private static final int STYLE_CLASS_SLOT = PropertyAccessorTable.getSlot(HTML.STYLE_CLASS_ATTR);
+    private static final int TABINDEX_SLOT = PropertyAccessorTable.getSlot(HTML.TABINDEX_ATTR);
+    private static final int TARGET_SLOT = PropertyAccessorTable.getSlot(HTML.TARGET_ATTR);
+    private static final int TITLE_SLOT = PropertyAccessorTable.getSlot(HTML.TITLE_ATTR);
+    private static final int TYPE_SLOT = PropertyAccessorTable.getSlot(HTML.TYPE_ATTR);
+
     public static long getCommonPropertiesMarked(UIComponent component)
     {
         Long commonProperties = (Long) component.getAttributes().get(CommonPropertyConstants.COMMON_PROPERTIES_MARKED);
@@ -56,22 +95,22 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.DIR_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.DIR_ATTR, HTML.DIR_ATTR);
+                    DIR_SLOT, HTML.DIR_ATTR, HTML.DIR_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.LANG_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.LANG_ATTR, HTML.LANG_ATTR);
+                    LANG_SLOT, HTML.LANG_ATTR, HTML.LANG_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.TITLE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.TITLE_ATTR, HTML.TITLE_ATTR);
+                    TITLE_SLOT, HTML.TITLE_ATTR, HTML.TITLE_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ROLE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ROLE_ATTR, HTML.ROLE_ATTR);
+                    ROLE_SLOT, HTML.ROLE_ATTR, HTML.ROLE_ATTR);
         }
     }
     
@@ -87,17 +126,17 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.DIR_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.DIR_ATTR, HTML.DIR_ATTR);
+                    DIR_SLOT, HTML.DIR_ATTR, HTML.DIR_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.LANG_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.LANG_ATTR, HTML.LANG_ATTR);
+                    LANG_SLOT, HTML.LANG_ATTR, HTML.LANG_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ROLE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ROLE_ATTR, HTML.ROLE_ATTR);
+                    ROLE_SLOT, HTML.ROLE_ATTR, HTML.ROLE_ATTR);
         }
     }
 
@@ -113,12 +152,12 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.STYLE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.STYLE_ATTR, HTML.STYLE_ATTR);
+                    STYLE_SLOT, HTML.STYLE_ATTR, HTML.STYLE_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.STYLECLASS_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.STYLE_CLASS_ATTR, HTML.CLASS_ATTR);
+                    STYLE_CLASS_SLOT, HTML.STYLE_CLASS_ATTR, HTML.CLASS_ATTR);
         }
     }
     
@@ -134,7 +173,7 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.STYLECLASS_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.STYLE_CLASS_ATTR, HTML.CLASS_ATTR);
+                    STYLE_CLASS_SLOT, HTML.STYLE_CLASS_ATTR, HTML.CLASS_ATTR);
         }
     }
 
@@ -150,7 +189,7 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ONCLICK_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONCLICK_ATTR, HTML.ONCLICK_ATTR);
+                    ONCLICK_SLOT, HTML.ONCLICK_ATTR, HTML.ONCLICK_ATTR);
         }
         renderEventPropertiesWithoutOnclick(writer, commonPropertiesMarked, component);
     }
@@ -167,47 +206,47 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ONDBLCLICK_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONDBLCLICK_ATTR, HTML.ONDBLCLICK_ATTR);
+                    ONDBLCLICK_SLOT, HTML.ONDBLCLICK_ATTR, HTML.ONDBLCLICK_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONMOUSEDOWN_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONMOUSEDOWN_ATTR, HTML.ONMOUSEDOWN_ATTR);
+                    ONMOUSEDOWN_SLOT, HTML.ONMOUSEDOWN_ATTR, HTML.ONMOUSEDOWN_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONMOUSEUP_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONMOUSEUP_ATTR, HTML.ONMOUSEUP_ATTR);
+                    ONMOUSEUP_SLOT, HTML.ONMOUSEUP_ATTR, HTML.ONMOUSEUP_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONMOUSEOVER_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONMOUSEOVER_ATTR, HTML.ONMOUSEOVER_ATTR);
+                    ONMOUSEOVER_SLOT, HTML.ONMOUSEOVER_ATTR, HTML.ONMOUSEOVER_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONMOUSEMOVE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONMOUSEMOVE_ATTR, HTML.ONMOUSEMOVE_ATTR);
+                    ONMOUSEMOVE_SLOT, HTML.ONMOUSEMOVE_ATTR, HTML.ONMOUSEMOVE_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONMOUSEOUT_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONMOUSEOUT_ATTR, HTML.ONMOUSEOUT_ATTR);
+                    ONMOUSEOUT_SLOT, HTML.ONMOUSEOUT_ATTR, HTML.ONMOUSEOUT_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONKEYPRESS_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONKEYPRESS_ATTR, HTML.ONKEYPRESS_ATTR);
+                    ONKEYPRESS_SLOT, HTML.ONKEYPRESS_ATTR, HTML.ONKEYPRESS_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONKEYDOWN_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONKEYDOWN_ATTR, HTML.ONKEYDOWN_ATTR);
+                    ONKEYDOWN_SLOT, HTML.ONKEYDOWN_ATTR, HTML.ONKEYDOWN_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONKEYUP_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONKEYUP_ATTR, HTML.ONKEYUP_ATTR);
+                    ONKEYUP_SLOT, HTML.ONKEYUP_ATTR, HTML.ONKEYUP_ATTR);
         }
     }
     
@@ -224,12 +263,12 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ONCHANGE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONCHANGE_ATTR, HTML.ONCHANGE_ATTR);
+                    ONCHANGE_SLOT, HTML.ONCHANGE_ATTR, HTML.ONCHANGE_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONSELECT_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONSELECT_ATTR, HTML.ONSELECT_ATTR);
+                    ONSELECT_SLOT, HTML.ONSELECT_ATTR, HTML.ONSELECT_ATTR);
         }
     }
     
@@ -245,12 +284,12 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ONFOCUS_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONFOCUS_ATTR, HTML.ONFOCUS_ATTR);
+                    ONFOCUS_SLOT, HTML.ONFOCUS_ATTR, HTML.ONFOCUS_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONBLUR_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONBLUR_ATTR, HTML.ONBLUR_ATTR);
+                    ONBLUR_SLOT, HTML.ONBLUR_ATTR, HTML.ONBLUR_ATTR);
         }
     }
     
@@ -265,12 +304,12 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ONFOCUS_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONFOCUS_ATTR, HTML.ONFOCUS_ATTR);
+                    ONFOCUS_SLOT, HTML.ONFOCUS_ATTR, HTML.ONFOCUS_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONBLUR_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONBLUR_ATTR, HTML.ONBLUR_ATTR);
+                    ONBLUR_SLOT, HTML.ONBLUR_ATTR, HTML.ONBLUR_ATTR);
         }
     }
     
@@ -285,17 +324,17 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ONFOCUS_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONFOCUS_ATTR, HTML.ONFOCUS_ATTR);
+                    ONFOCUS_SLOT, HTML.ONFOCUS_ATTR, HTML.ONFOCUS_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONBLUR_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONBLUR_ATTR, HTML.ONBLUR_ATTR);
+                    ONBLUR_SLOT, HTML.ONBLUR_ATTR, HTML.ONBLUR_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ONSELECT_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONSELECT_ATTR, HTML.ONSELECT_ATTR);
+                    ONSELECT_SLOT, HTML.ONSELECT_ATTR, HTML.ONSELECT_ATTR);
         }
     }
     
@@ -310,7 +349,7 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ONCHANGE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ONCHANGE_ATTR, HTML.ONCHANGE_ATTR);
+                    ONCHANGE_SLOT, HTML.ONCHANGE_ATTR, HTML.ONCHANGE_ATTR);
         }
     }
     
@@ -326,12 +365,12 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ACCESSKEY_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ACCESSKEY_ATTR, HTML.ACCESSKEY_ATTR);
+                    ACCESSKEY_SLOT, HTML.ACCESSKEY_ATTR, HTML.ACCESSKEY_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.TABINDEX_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.TABINDEX_ATTR, HTML.TABINDEX_ATTR);
+                    TABINDEX_SLOT, HTML.TABINDEX_ATTR, HTML.TABINDEX_ATTR);
         }
     }
 
@@ -347,12 +386,12 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ALIGN_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ALIGN_ATTR, HTML.ALIGN_ATTR);
+                    ALIGN_SLOT, HTML.ALIGN_ATTR, HTML.ALIGN_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ALT_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ALT_ATTR, HTML.ALT_ATTR);
+                    ALT_SLOT, HTML.ALT_ATTR, HTML.ALT_ATTR);
         }
     }
 
@@ -367,32 +406,32 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ALIGN_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLAttribute(writer, component,
-                    HTML.ALIGN_ATTR, HTML.ALIGN_ATTR);
+                    ALIGN_SLOT, HTML.ALIGN_ATTR, HTML.ALIGN_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.ALT_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ALT_ATTR, HTML.ALT_ATTR);
+                    ALT_SLOT, HTML.ALT_ATTR, HTML.ALT_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.CHECKED_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLAttribute(writer, component,
-                    HTML.CHECKED_ATTR, HTML.CHECKED_ATTR);
+                    CHECKED_SLOT, HTML.CHECKED_ATTR, HTML.CHECKED_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.MAXLENGTH_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLAttribute(writer, component,
-                    HTML.MAXLENGTH_ATTR, HTML.MAXLENGTH_ATTR);
+                    MAXLENGTH_SLOT, HTML.MAXLENGTH_ATTR, HTML.MAXLENGTH_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.READONLY_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLAttribute(writer, component,
-                    HTML.READONLY_ATTR, HTML.READONLY_ATTR);
+                    READONLY_SLOT, HTML.READONLY_ATTR, HTML.READONLY_ATTR);
         }
         if ((commonPropertiesMarked & CommonPropertyConstants.SIZE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLAttribute(writer, component,
-                    HTML.SIZE_ATTR, HTML.SIZE_ATTR);
+                    SIZE_SLOT, HTML.SIZE_ATTR, HTML.SIZE_ATTR);
         }        
     }
     
@@ -408,42 +447,42 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.CHARSET_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.CHARSET_ATTR, HTML.CHARSET_ATTR);
+                    CHARSET_SLOT, HTML.CHARSET_ATTR, HTML.CHARSET_ATTR);
         }        
         if ((commonPropertiesMarked & CommonPropertyConstants.COORDS_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.COORDS_ATTR, HTML.COORDS_ATTR);
+                    COORDS_SLOT, HTML.COORDS_ATTR, HTML.COORDS_ATTR);
         }        
         if ((commonPropertiesMarked & CommonPropertyConstants.HREFLANG_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.HREFLANG_ATTR, HTML.HREFLANG_ATTR);
+                    HREFLANG_SLOT, HTML.HREFLANG_ATTR, HTML.HREFLANG_ATTR);
         }        
         if ((commonPropertiesMarked & CommonPropertyConstants.REL_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.REL_ATTR, HTML.REL_ATTR);
+                    REL_SLOT, HTML.REL_ATTR, HTML.REL_ATTR);
         }        
         if ((commonPropertiesMarked & CommonPropertyConstants.REV_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.REV_ATTR, HTML.REV_ATTR);
+                    REV_SLOT, HTML.REV_ATTR, HTML.REV_ATTR);
         }        
         if ((commonPropertiesMarked & CommonPropertyConstants.SHAPE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.SHAPE_ATTR, HTML.SHAPE_ATTR);
+                    SHAPE_SLOT, HTML.SHAPE_ATTR, HTML.SHAPE_ATTR);
         }        
         if ((commonPropertiesMarked & CommonPropertyConstants.TARGET_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.TARGET_ATTR, HTML.TARGET_ATTR);
+                    TARGET_SLOT, HTML.TARGET_ATTR, HTML.TARGET_ATTR);
         }        
         if ((commonPropertiesMarked & CommonPropertyConstants.TYPE_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.TYPE_ATTR, HTML.TYPE_ATTR);
+                    TYPE_SLOT, HTML.TYPE_ATTR, HTML.TYPE_ATTR);
         }        
     }
 
@@ -652,7 +691,7 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ACCESSKEY_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ACCESSKEY_ATTR, HTML.ACCESSKEY_ATTR);
+                    ACCESSKEY_SLOT, HTML.ACCESSKEY_ATTR, HTML.ACCESSKEY_ATTR);
         }
     }
 
@@ -680,7 +719,7 @@ public final class CommonPropertyUtils
         if ((commonPropertiesMarked & CommonPropertyConstants.ACCESSKEY_PROP) != 0)
         {
             HtmlRendererUtils.renderHTMLStringAttribute(writer, component,
-                    HTML.ACCESSKEY_ATTR, HTML.ACCESSKEY_ATTR);
+                    ACCESSKEY_SLOT, HTML.ACCESSKEY_ATTR, HTML.ACCESSKEY_ATTR);
         }
         renderCommonPassthroughPropertiesWithoutEvents(writer, commonPropertiesMarked, component);
     }
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.renderkit.html.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import org.apache.myfaces.config.MyfacesConfig;
+
+/**
+ * Writer that encodes the characters as UTF-8 straight into a byte buffer, which is written to the
+ * response OutputStream when full. It avoids the CharsetEncoder and the intermediate char buffer of
+ * the servlet Writer. The byte buffers are taken from a small shared pool and given back when the
+ * rendering is done, see {@link #release(FacesContext)}.
+ * 
+ * Unpaired surrogates are written as '?', like the JDK UTF-8 encoder does.
+ */
+public final class DirectUtf8Writer extends Writer
+{
+    private static final String CURRENT_WRITER_KEY = DirectUtf8Writer.class.getName() + ".CURRENT_WRITER";
+    
+    private static final String UTF8 = "UTF-8";
+
+    private static final int BUFFER_SIZE = 8192;
+    
+    private static final Queue<byte[]> BUFFER_POOL = new ArrayBlockingQueue<>(64);
+
+    private final OutputStream _out;
+    private byte[] _buffer;
+    private int _count;
+    private char _highSurrogate;
+
+    public DirectUtf8Writer(OutputStream out)
+    {
+        _out = out;
+    }
+
+    /**
+     * Return the Writer used to send the rendered view to the client. If the direct UTF-8 mode is
+     * enabled and the given encoding is UTF-8, a DirectUtf8Writer over the response OutputStream is
+     * created and kept for the rest of the request, otherwise the servlet Writer is returned.
+     */
+    public static Writer getResponseOutputWriter(FacesContext facesContext, String characterEncoding)
+            throws IOException
+    {
+        Writer writer = (Writer) facesContext.getAttributes().get(CURRENT_WRITER_KEY);
+        if (writer != null)
+        {
+            return writer;
+        }
+        
+        ExternalContext externalContext = facesContext.getExternalContext();
+        if (UTF8.equalsIgnoreCase(characterEncoding)
+                && MyfacesConfig.getCurrentInstance(facesContext).isResponseWriterDirectUtf8())
+        {
+            writer = new DirectUtf8Writer(externalContext.getResponseOutputStream());
+            facesContext.getAttributes().put(CURRENT_WRITER_KEY, writer);
+            return writer;
+        }
+        return externalContext.getResponseOutputWriter();
+    }
+
+    /**
+     * Return the DirectUtf8Writer of the current request if there is one, otherwise the servlet Writer.
+     * Once the response OutputStream is used, the servlet Writer cannot be obtained anymore.
+     */
+    public static Writer getResponseOutputWriter(FacesContext facesContext) throws IOException
+    {
+        Writer writer = (Writer) facesContext.getAttributes().get(CURRENT_WRITER_KEY);
+        if (writer != null)
+        {
+            return writer;
+        }
+        return facesContext.getExternalContext().getResponseOutputWriter();
+    }
+
+    /**
+     * Write the pending bytes of the DirectUtf8Writer of the current request, if any, and give its
+     * buffer back to the pool. The writer can still be used later, it just takes a new buffer.
+     */
+    public static void release(FacesContext facesContext) throws IOException
+    {
+        DirectUtf8Writer writer = (DirectUtf8Writer) facesContext.getAttributes().get(CURRENT_WRITER_KEY);
+        if (writer != null)
+        {
+            writer.releaseBuffer();
+        }
+    }
+
+    private byte[] getBuffer()
+    {
+        if (_buffer == null)
+        {
+            _buffer = BUFFER_POOL.poll();
+            if (_buffer == null)
+            {
+                _buffer = new byte[BUFFER_SIZE];
+            }
+            _count = 0;
+        }
+        return _buffer;
+    }
+
+    private void releaseBuffer() throws IOException
+    {
+        if (_buffer != null)
+        {
+            flushBuffer();
+            BUFFER_POOL.offer(_buffer);
+            _buffer = null;
+        }
+    }
+
+    private void flushBuffer() throws IOException
+    {
+        if (_count > 0)
+        {
+            _out.write(_buffer, 0, _count);
+            _count = 0;
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException
+    {
+        byte[] buffer = getBuffer();
+        if (c < 0x80 && _highSurrogate == 0)
+        {
+            if (_count == buffer.length)
+            {
+                flushBuffer();
+            }
+            buffer[_count++] = (byte) c;
+        }
+        else
+        {
+            writeChar((char) c);
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException
+    {
+        byte[] buffer = getBuffer();
+        int end = off + len;
+        for (int i = off; i < end; i++)
+        {
+            char c = cbuf[i];
+            if (c < 0x80 && _highSurrogate == 0)
+            {
+                if (_count == buffer.length)
+                {
+                    flushBuffer();
+                }
+                buffer[_count++] = (byte) c;
+            }
+            else
+            {
+                writeChar(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException
+    {
+        byte[] buffer = getBuffer();
+        int end = off + len;
+        for (int i = off; i < end; i++)
+        {
+            char c = str.charAt(i);
+            if (c < 0x80 && _highSurrogate == 0)
+            {
+                if (_count == buffer.length)
+                {
+                    flushBuffer();
+                }
+                buffer[_count++] = (byte) c;
+            }
+            else
+            {
+                writeChar(c);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str) throws IOException
+    {
+        write(str, 0, str.length());
+    }
+
+    private void writeChar(char c) throws IOException
+    {
+        byte[] buffer = getBuffer();
+        if (_count + 4 > buffer.length)
+        {
+            flushBuffer();
+        }
+        
+        if (_highSurrogate != 0)
+        {
+            char high = _highSurrogate;
+            _highSurrogate = 0;
+            if (Character.isLowSurrogate(c))
+            {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[_count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[_count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[_count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[_count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            buffer[_count++] = '?';
+            if (_count + 3 > buffer.length)
+            {
+                flushBuffer();
+            }
+        }
+        
+        if (c < 0x80)
+        {
+            buffer[_count++] = (byte) c;
+        }
+        else if (c < 0x800)
+        {
+            buffer[_count++] = (byte) (0xC0 | (c >> 6));
+            buffer[_count++] = (byte) (0x80 | (c & 0x3F));
+        }
+        else if (Character.isHighSurrogate(c))
+        {
+            _highSurrogate = c;
+        }
+        else if (Character.isLowSurrogate(c))
+        {
+            buffer[_count++] = '?';
+        }
+        else
+        {
+            buffer[_count++] = (byte) (0xE0 | (c >> 12));
+            buffer[_count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[_count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        if (_buffer != null)
+        {
+            flushBuffer();
+        }
+        _out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (_highSurrogate != 0)
+        {
+            _highSurrogate = 0;
+            write('?');
+        }
+        releaseBuffer();
+        _out.close();
+    }
+}
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import org.apache.myfaces.util.lang.FastByteArrayOutputStream;
+import org.apache.myfaces.util.lang.FastWriter;
 
 /**
  * Converts Strings so that they can be used within HTML-Code.
@@ -69,102 +70,25 @@ public abstract class HTMLEncoder
             return "";
         }
 
-        StringBuilder sb = null;    //create later on demand
-        String app;
-        char c = ' ';
-        char prevC;
         int length = string.length();
-        for (int i = 0; i < length; ++i)
+        int i = indexOfEncoded(string, 0, 0, length, encodeNewline, encodeSubsequentBlanksToNbsp, encodeNonLatin);
+        if (i < 0)
         {
-            app = null;
-            prevC = c;
-            c = string.charAt(i);
-            
-            // All characters before letters
-            if ((int)c < 0x41)
-            {
-                switch (c)
-                {
-                    case '"': app = "&quot;"; break;    //"
-                    case '&': app = "&amp;"; break;     //&
-                    case '<': app = "&lt;"; break;      //<
-                    case '>': app = "&gt;"; break;      //>
-                    case ' ':
-                        if (encodeSubsequentBlanksToNbsp && prevC == ' ')
-                        {
-                            //Space at beginning or after another space
-                            app = "&#160;";
-                        }
-                        break;
-                    case '\n':
-                        if (encodeNewline)
-                        {
-                            app = "<br/>";
-                        }
-                        break;
-                    default:
-                        break;
-                }
-                // http://www.w3.org/MarkUp/html3/specialchars.html
-                // From C0 extension U+0000-U+001F only U+0009, U+000A and
-                // U+000D are valid control characters
-                if (c <= 0x1F && c != 0x09 && c != 0x0A && c != 0x0D)
-                {
-                    // Ignore escape character
-                    app = "";
-                }
-            }
-            else if (encodeNonLatin && (int)c > 0x80)
-            {
-                 switch(c)
-                 {
-                    //german umlauts
-                    case '\u00E4' : app = "&auml;";  break;
-                    case '\u00C4' : app = "&Auml;";  break;
-                    case '\u00F6' : app = "&ouml;";  break;
-                    case '\u00D6' : app = "&Ouml;";  break;
-                    case '\u00FC' : app = "&uuml;";  break;
-                    case '\u00DC' : app = "&Uuml;";  break;
-                    case '\u00DF' : app = "&szlig;"; break;
-
-                    //misc
-                    //case 0x80: app = "&euro;"; break;  sometimes euro symbol is ascii 128, should we suport it?
-                    case '\u20AC': app = "&euro;";  break;
-                    case '\u00AB': app = "&laquo;"; break;
-                    case '\u00BB': app = "&raquo;"; break;
-                    case '\u00A0': app = "&#160;"; break;
-
-                    default :
-                        //encode all non basic latin characters
-                        app = "&#" + ((int)c) + ';';
-                    break;
-                }
-            }
-            if (app != null)
-            {
-                if (sb == null)
-                {
-                    sb = new StringBuilder(string.substring(0, i));
-                }
-                sb.append(app);
-            }
-            else
-            {
-                if (sb != null)
-                {
-                    sb.append(c);
-                }
-            }
+            return string;
         }
 
-        if (sb == null)
+        FastWriter writer = new FastWriter(length + 16);
+        try
         {
-            return string;
+            writer.write(string, 0, i);
+            encode(writer, string, 0, i, length, encodeNewline, encodeSubsequentBlanksToNbsp, encodeNonLatin);
         }
-        else
+        catch (IOException e)
         {
-            return sb.toString();
+            // FastWriter does not throw IOException
+            throw new IllegalStateException(e);
         }
+        return writer.toString();
     }
     
     /**
@@ -202,100 +126,90 @@ public abstract class HTMLEncoder
             return;
         }
 
-        int start = 0;
-        String app;
-        char c = ' ';
-        char prevC;
         int length = string.length();
-        for (int i = 0; i < length; ++i)
+        int i = indexOfEncoded(string, 0, 0, length, encodeNewline, encodeSubsequentBlanksToNbsp, encodeNonLatin);
+        if (i < 0)
         {
-            app = null;
-            prevC = c;
-            c = string.charAt(i);
-            
-            // All characters before letters
-            if ((int)c < 0x41)
+            writer.write(string);
+            return;
+        }
+        if (i > 0)
+        {
+            writer.write(string, 0, i);
+        }
+        encode(writer, string, 0, i, length, encodeNewline, encodeSubsequentBlanksToNbsp, encodeNonLatin);
+    }
+
+    /**
+     * Encodes string[from..end) knowing that the char at from must be encoded. The chars before
+     * from starting at offset are already written.
+     */
+    private static void encode(Writer writer, String string, int offset, int from, int end,
+                               boolean encodeNewline,
+                               boolean encodeSubsequentBlanksToNbsp,
+                               boolean encodeNonLatin) throws IOException
+    {
+        int i = from;
+        while (i >= 0)
+        {
+            writeEncoded(writer, string.charAt(i), encodeNonLatin);
+            int start = i + 1;
+            i = indexOfEncoded(string, offset, start, end,
+                    encodeNewline, encodeSubsequentBlanksToNbsp, encodeNonLatin);
+            int runEnd = i < 0 ? end : i;
+            if (start < runEnd)
+            {
+                writer.write(string, start, runEnd - start);
+            }
+        }
+    }
+
+    /**
+     * Scans string[from..end) for the first char that must be encoded, so the chars before it
+     * can be written as one run. The chars are classified through a lookup table for the ascii
+     * range below letters, everything else can only be encoded as a non latin char.
+     * 
+     * @param offset the start of the text, a blank there counts as a subsequent blank
+     * @return the index of the char or -1 if there is nothing to encode
+     */
+    private static int indexOfEncoded(String string, int offset, int from, int end,
+                                      boolean encodeNewline,
+                                      boolean encodeSubsequentBlanksToNbsp,
+                                      boolean encodeNonLatin)
+    {
+        for (int i = from; i < end; i++)
+        {
+            char c = string.charAt(i);
+            if (c < 0x41)
             {
-                switch (c)
+                switch (CHAR_TYPES[c])
                 {
-                    case '"': app = "&quot;"; break;    //"
-                    case '&': app = "&amp;"; break;     //&
-                    case '<': app = "&lt;"; break;      //<
-                    case '>': app = "&gt;"; break;      //>
-                    case ' ':
-                        if (encodeSubsequentBlanksToNbsp &&
-                                prevC == ' ')
+                    case CHAR_ENCODED:
+                        return i;
+                    case CHAR_BLANK:
+                        if (encodeSubsequentBlanksToNbsp && (i == offset || string.charAt(i - 1) == ' '))
                         {
-                            //Space at beginning or after another space
-                            app = "&#160;";
+                            return i;
                         }
                         break;
-                    case '\n':
+                    case CHAR_NEWLINE:
                         if (encodeNewline)
                         {
-                            app = "<br/>";
+                            return i;
                         }
                         break;
                     default:
                         break;
                 }
-                // http://www.w3.org/MarkUp/html3/specialchars.html
-                // From C0 extension U+0000-U+001F only U+0009, U+000A and
-                // U+000D are valid control characters
-                if (c <= 0x1F && c != 0x09 && c != 0x0A && c != 0x0D)
-                {
-                    // Ignore escape character
-                    app = "";
-                }
             }
-            else if (encodeNonLatin && (int)c > 0x80)
+            else if (encodeNonLatin && c > 0x80)
             {
-                 switch(c)
-                 {
-                    //german umlauts
-                    case '\u00E4' : app = "&auml;";  break;
-                    case '\u00C4' : app = "&Auml;";  break;
-                    case '\u00F6' : app = "&ouml;";  break;
-                    case '\u00D6' : app = "&Ouml;";  break;
-                    case '\u00FC' : app = "&uuml;";  break;
-                    case '\u00DC' : app = "&Uuml;";  break;
-                    case '\u00DF' : app = "&szlig;"; break;
-
-                    //misc
-                    //case 0x80: app = "&euro;"; break;  sometimes euro symbol is ascii 128, should we suport it?
-                    case '\u20AC': app = "&euro;";  break;
-                    case '\u00AB': app = "&laquo;"; break;
-                    case '\u00BB': app = "&raquo;"; break;
-                    case '\u00A0': app = "&#160;"; break;
-
-                    default :
-                        //encode all non basic latin characters
-                        app = "&#" + ((int)c) + ';';
-                    break;
-                }
+                return i;
             }
-            if (app != null)
-            {
-                if (start < i)
-                {
-                    writer.write(string, start, i-start);
-                }
-                start = i+1;
-                writer.write(app);
-            }
-        }
-
-        if (start == 0)
-        {
-            writer.write(string);
-        }
-        else if (start < length)
-        {
-            writer.write(string,start,length-start);
         }
+        return -1;
     }
 
-
     /**
      * Variant of {@link #encode} where encodeNewline is false and encodeNbsp is true.
      */
@@ -341,98 +255,156 @@ public abstract class HTMLEncoder
         }
         offset = Math.max(0, offset);
         int realLength = Math.min(length, string.length - offset);
+        int end = offset + realLength;
 
-        String app;
-        char c = ' ';
-        char prevC;
         int start = offset;
-        
-        for (int i = offset; i < offset + realLength; ++i)
+        int i = indexOfEncoded(string, offset, offset, end,
+                encodeNewline, encodeSubsequentBlanksToNbsp, encodeNonLatin);
+        while (i >= 0)
         {
-            app = null;
-            prevC = c;
-            c = string[i];
+            if (start < i)
+            {
+                writer.write(string, start, i - start);
+            }
+            writeEncoded(writer, string[i], encodeNonLatin);
+            start = i + 1;
+            i = indexOfEncoded(string, offset, start, end,
+                    encodeNewline, encodeSubsequentBlanksToNbsp, encodeNonLatin);
+        }
+        if (start < end)
+        {
+            writer.write(string, start, end - start);
+        }
+    }
 
-            // All characters before letters
-            if ((int)c < 0x41)
+    /**
+     * char[] variant of {@link #indexOfEncoded(String, int, int, int, boolean, boolean, boolean)}.
+     */
+    private static int indexOfEncoded(char[] string, int offset, int from, int end,
+                                      boolean encodeNewline,
+                                      boolean encodeSubsequentBlanksToNbsp,
+                                      boolean encodeNonLatin)
+    {
+        for (int i = from; i < end; i++)
+        {
+            char c = string[i];
+            if (c < 0x41)
             {
-                switch (c)
+                switch (CHAR_TYPES[c])
                 {
-                    case '"': app = "&quot;"; break;    //"
-                    case '&': app = "&amp;"; break;     //&
-                    case '<': app = "&lt;"; break;      //<
-                    case '>': app = "&gt;"; break;      //>
-                    case ' ':
-                        if (encodeSubsequentBlanksToNbsp &&
-                                prevC == ' ')
+                    case CHAR_ENCODED:
+                        return i;
+                    case CHAR_BLANK:
+                        if (encodeSubsequentBlanksToNbsp && (i == offset || string[i - 1] == ' '))
                         {
-                            //Space at beginning or after another space
-                            app = "&#160;";
+                            return i;
                         }
                         break;
-                    case '\n':
+                    case CHAR_NEWLINE:
                         if (encodeNewline)
                         {
-                            app = "<br/>";
+                            return i;
                         }
                         break;
                     default:
                         break;
                 }
-                // http://www.w3.org/MarkUp/html3/specialchars.html
-                // From C0 extension U+0000-U+001F only U+0009, U+000A and
-                // U+000D are valid control characters
-                if (c <= 0x1F && c != 0x09 && c != 0x0A && c != 0x0D)
-                {
-                    // Ignore escape character
-                    app = "";
-                }
             }
-            else if (encodeNonLatin && (int)c > 0x80)
+            else if (encodeNonLatin && c > 0x80)
             {
-                 switch(c)
-                 {
-                    //german umlauts
-                    case '\u00E4' : app = "&auml;";  break;
-                    case '\u00C4' : app = "&Auml;";  break;
-                    case '\u00F6' : app = "&ouml;";  break;
-                    case '\u00D6' : app = "&Ouml;";  break;
-                    case '\u00FC' : app = "&uuml;";  break;
-                    case '\u00DC' : app = "&Uuml;";  break;
-                    case '\u00DF' : app = "&szlig;"; break;
-
-                    //misc
-                    //case 0x80: app = "&euro;"; break;  sometimes euro symbol is ascii 128, should we suport it?
-                    case '\u20AC': app = "&euro;";  break;
-                    case '\u00AB': app = "&laquo;"; break;
-                    case '\u00BB': app = "&raquo;"; break;
-                    case '\u00A0': app = "&#160;"; break;
-
-                    default :
-                        //encode all non basic latin characters
-                        app = "&#" + ((int)c) + ';';
-                    break;
-                }
+                return i;
             }
-            if (app != null)
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the replacement of a char found by indexOfEncoded.
+     */
+    private static void writeEncoded(Writer writer, char c, boolean encodeNonLatin) throws IOException
+    {
+        if (c < 0x41)
+        {
+            switch (c)
             {
-                if (start < i)
-                {
-                    writer.write(string, start, i-start);
-                }
-                start = i+1;
-                writer.write(app);
+                case '"': writer.write("&quot;"); break;    //"
+                case '&': writer.write("&amp;"); break;     //&
+                case '<': writer.write("&lt;"); break;      //<
+                case '>': writer.write("&gt;"); break;      //>
+                case ' ': writer.write("&#160;"); break;
+                case '\n': writer.write("<br/>"); break;
+                default:
+                    // http://www.w3.org/MarkUp/html3/specialchars.html
+                    // From C0 extension U+0000-U+001F only U+0009, U+000A and
+                    // U+000D are valid control characters, ignore the others
+                    break;
             }
+            return;
         }
 
-        if (start == offset)
+        switch(c)
         {
-            writer.write(string, offset, realLength);
+            //german umlauts
+            case '\u00E4' : writer.write("&auml;");  break;
+            case '\u00C4' : writer.write("&Auml;");  break;
+            case '\u00F6' : writer.write("&ouml;");  break;
+            case '\u00D6' : writer.write("&Ouml;");  break;
+            case '\u00FC' : writer.write("&uuml;");  break;
+            case '\u00DC' : writer.write("&Uuml;");  break;
+            case '\u00DF' : writer.write("&szlig;"); break;
+
+            //misc
+            //case 0x80: app = "&euro;"; break;  sometimes euro symbol is ascii 128, should we suport it?
+            case '\u20AC': writer.write("&euro;");  break;
+            case '\u00AB': writer.write("&laquo;"); break;
+            case '\u00BB': writer.write("&raquo;"); break;
+            case '\u00A0': writer.write("&#160;"); break;
+
+            default :
+                //encode all non basic latin characters, without building a String for the number
+                writer.write("&#");
+                int divisor = 10000;
+                while (divisor > c)
+                {
+                    divisor /= 10;
+                }
+                int value = c;
+                while (divisor > 0)
+                {
+                    writer.write('0' + value / divisor);
+                    value %= divisor;
+                    divisor /= 10;
+                }
+                writer.write(';');
+                break;
         }
-        else if (start < offset+realLength)
+    }
+    
+    private static final byte CHAR_PLAIN = 0;
+    private static final byte CHAR_ENCODED = 1;
+    private static final byte CHAR_BLANK = 2;
+    private static final byte CHAR_NEWLINE = 3;
+    
+    /**
+     * How the chars below 0x41 (letters) are encoded.
+     */
+    private static final byte[] CHAR_TYPES = new byte[0x41];
+
+    static
+    {
+        for (int c = 0; c <= 0x1F; c++)
         {
-            writer.write(string,start,offset+realLength-start);
+            // control chars are dropped
+            CHAR_TYPES[c] = CHAR_ENCODED;
         }
+        CHAR_TYPES['\t'] = CHAR_PLAIN;
+        CHAR_TYPES['\r'] = CHAR_PLAIN;
+        CHAR_TYPES['\n'] = CHAR_NEWLINE;
+        CHAR_TYPES[' '] = CHAR_BLANK;
+        CHAR_TYPES['"'] = CHAR_ENCODED;
+        CHAR_TYPES['&'] = CHAR_ENCODED;
+        CHAR_TYPES['<'] = CHAR_ENCODED;
+        CHAR_TYPES['>'] = CHAR_ENCODED;
     }
     
     private static final String HEX_CHARSET = "0123456789ABCDEF";
@@ -62,6 +62,7 @@ import org.apache.myfaces.renderkit.ClientBehaviorEvents;
 import org.apache.myfaces.renderkit.RendererUtils;
 import org.apache.myfaces.component.visit.MyFacesVisitHints;
 import org.apache.myfaces.core.api.shared.ComponentUtils;
+import org.apache.myfaces.core.api.shared.lang.PropertySlotMap;
 
 public final class HtmlRendererUtils
 {
@@ -683,6 +684,36 @@ public final class HtmlRendererUtils
                 value);
     }
 
+    /**
+     * Same as renderHTMLAttribute(writer, component, componentProperty, htmlAttrName), but the
+     * component property is read through its PropertyAccessorTable slot.
+     * 
+     * @return true, if the attribute was written
+     * @throws java.io.IOException
+     */
+    public static boolean renderHTMLAttribute(ResponseWriter writer,
+            UIComponent component, int slot, String componentProperty, String htmlAttrName)
+            throws IOException
+    {
+        Object value = getAttribute(component, slot, componentProperty);
+        return renderHTMLAttribute(writer, componentProperty, htmlAttrName,
+                value);
+    }
+
+    /**
+     * Returns component.getAttributes().get(name), looking up the javabean property of the component
+     * through the given PropertyAccessorTable slot when the attributes map supports it.
+     */
+    public static Object getAttribute(UIComponent component, int slot, String name)
+    {
+        Map<String, Object> attributes = component.getAttributes();
+        if (attributes instanceof PropertySlotMap)
+        {
+            return ((PropertySlotMap) attributes).get(slot, name);
+        }
+        return attributes.get(name);
+    }
+
     /**
      * @return true, if an attribute was written
      * @throws java.io.IOException
@@ -864,6 +895,23 @@ public final class HtmlRendererUtils
         return false;
     }
 
+    /**
+     * Same as renderHTMLStringAttribute(writer, component, componentProperty, htmlAttrName), but
+     * the component property is read through its PropertyAccessorTable slot.
+     */
+    public static boolean renderHTMLStringAttribute(ResponseWriter writer,
+            UIComponent component, int slot, String componentProperty, String htmlAttrName)
+            throws IOException
+    {
+        String value = (String) getAttribute(component, slot, componentProperty);
+        if (value != null && !value.isEmpty())
+        {
+            writer.writeAttribute(htmlAttrName, value, componentProperty);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * Renders a html string type attribute. If the value retrieved from the component 
      * property is "" or null, the attribute is not rendered.
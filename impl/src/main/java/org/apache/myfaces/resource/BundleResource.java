@@ -0,0 +1,426 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.faces.application.ProjectStage;
+import javax.faces.application.Resource;
+import javax.faces.application.ResourceHandler;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import org.apache.myfaces.application.FacesServletMapping;
+import org.apache.myfaces.application.FacesServletMappingUtils;
+import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.util.lang.ConcurrentLRUCache;
+
+/**
+ * Concatenation of several resources of the same content type, so a view can load all of them with
+ * a single request. The bundled resources are listed in the request path and a hash of the content
+ * makes the url change whenever one of them changes. A request is only answered when that hash matches
+ * the content of the requested resources, so any node of a cluster serves the bundles rendered by
+ * another one, and a bundle built for a url that was not rendered is not cached.
+ * 
+ * @see MyfacesConfig#RESOURCE_BUNDLING
+ */
+public class BundleResource extends Resource
+{
+    public static final String LIBRARY_NAME = "myfaces.bundle";
+    public static final String SCRIPT_BUNDLE_NAME = "bundle.js";
+    public static final String STYLESHEET_BUNDLE_NAME = "bundle.css";
+
+    /**
+     * The max number of resources in a bundle. Longer runs of resources are split into several bundles.
+     */
+    public static final int MAX_RESOURCES = 64;
+
+    private static final String RESOURCE_PARAM = "r";
+    private static final String CACHE_KEY = BundleResource.class.getName() + ".CACHE";
+
+    private static final byte[] SCRIPT_SEPARATOR = "\n;\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STYLESHEET_SEPARATOR = "\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final List<String> _resourceIds;
+    private final ResourceContent _content;
+    private String _requestPath;
+
+    private BundleResource(String resourceName, String contentType, List<String> resourceIds,
+            ResourceContent content)
+    {
+        setResourceName(resourceName);
+        setLibraryName(LIBRARY_NAME);
+        setContentType(contentType);
+        _resourceIds = resourceIds;
+        _content = content;
+    }
+
+    public static boolean isEnabled(FacesContext facesContext)
+    {
+        return MyfacesConfig.getCurrentInstance(facesContext).isResourceBundling()
+                && facesContext.isProjectStage(ProjectStage.Production);
+    }
+
+    /**
+     * Only resources of the default implementation that are found the same way on every request can be
+     * bundled. Scripts must not contain EL expressions, and stylesheets must be at the root of their
+     * library, so relative urls inside them resolve to the same location from the url of the bundle.
+     */
+    public static boolean isBundleable(Resource resource, String contentType)
+    {
+        if (resource == null || resource.getClass() != ResourceImpl.class
+                || contentType == null || !contentType.equals(resource.getContentType()))
+        {
+            return false;
+        }
+
+        ResourceImpl resourceImpl = (ResourceImpl) resource;
+        if (resourceImpl.isContractResource() || resourceImpl.getResourceMeta().getLocalePrefix() != null)
+        {
+            return false;
+        }
+        if (isStylesheet(contentType))
+        {
+            return resource.getResourceName().indexOf('/') < 0;
+        }
+        return resourceImpl.isContentStatic();
+    }
+
+    /**
+     * Create the bundle of the given resources, which must all pass {@link #isBundleable(Resource, String)}
+     * for the content type of the bundle.
+     * 
+     * @param resourceName {@link #SCRIPT_BUNDLE_NAME} or {@link #STYLESHEET_BUNDLE_NAME}
+     * @param resources at most {@link #MAX_RESOURCES} distinct resources
+     */
+    public static BundleResource create(FacesContext facesContext, String resourceName, List<Resource> resources)
+            throws IOException
+    {
+        if (resources.size() > MAX_RESOURCES)
+        {
+            throw new IllegalArgumentException("A bundle can not contain more than " + MAX_RESOURCES
+                    + " resources");
+        }
+
+        List<String> resourceIds = new ArrayList<>(resources.size());
+        for (int i = 0; i < resources.size(); i++)
+        {
+            Resource resource = resources.get(i);
+            resourceIds.add(resource.getLibraryName() == null ? resource.getResourceName()
+                    : resource.getLibraryName() + ':' + resource.getResourceName());
+        }
+
+        return create(facesContext, resourceName, resourceIds, resources, null);
+    }
+
+    /**
+     * Create the bundle requested by the current resource request.
+     * 
+     * @return the bundle or null if the request does not describe a bundle with the requested hash
+     */
+    public static BundleResource create(FacesContext facesContext, String resourceName) throws IOException
+    {
+        if (!SCRIPT_BUNDLE_NAME.equals(resourceName) && !STYLESHEET_BUNDLE_NAME.equals(resourceName))
+        {
+            return null;
+        }
+
+        ExternalContext externalContext = facesContext.getExternalContext();
+        String fingerprint = externalContext.getRequestParameterMap().get(ResourceImpl.FINGERPRINT_PARAM);
+        String[] resourceIds = externalContext.getRequestParameterValuesMap().get(RESOURCE_PARAM);
+        if (fingerprint == null || resourceIds == null || resourceIds.length == 0
+                || resourceIds.length > MAX_RESOURCES)
+        {
+            return null;
+        }
+
+        // the rendered bundles never contain the same resource twice
+        List<String> resourceIdList = Arrays.asList(resourceIds);
+        if (new HashSet<>(resourceIdList).size() != resourceIds.length)
+        {
+            return null;
+        }
+
+        String contentType = externalContext.getMimeType(resourceName);
+        boolean allowSlash = MyfacesConfig.getCurrentInstance(facesContext).isStrictJsf2AllowSlashLibraryName();
+        ResourceHandler resourceHandler = facesContext.getApplication().getResourceHandler();
+
+        List<Resource> resources = new ArrayList<>(resourceIds.length);
+        for (String resourceId : resourceIds)
+        {
+            int index = resourceId.indexOf(':');
+            String libraryName = index < 0 ? null : resourceId.substring(0, index);
+            String name = resourceId.substring(index + 1);
+            if (!ResourceValidationUtils.isValidResourceName(name) || (libraryName != null
+                    && !ResourceValidationUtils.isValidLibraryName(libraryName, allowSlash)))
+            {
+                return null;
+            }
+
+            Resource resource = libraryName == null ? resourceHandler.createResource(name)
+                    : resourceHandler.createResource(name, libraryName);
+            if (!isBundleable(resource, contentType))
+            {
+                return null;
+            }
+            resources.add(resource);
+        }
+        return create(facesContext, resourceName, resourceIdList, resources, fingerprint);
+    }
+
+    /**
+     * @param fingerprint the hash the content must match, null when the bundle is rendered
+     */
+    private static BundleResource create(FacesContext facesContext, String resourceName, List<String> resourceIds,
+            List<Resource> resources, String fingerprint) throws IOException
+    {
+        ExternalContext externalContext = facesContext.getExternalContext();
+        String contentType = externalContext.getMimeType(resourceName);
+
+        Cache cache = getCache(facesContext);
+        String key = getKey(resourceName, resourceIds);
+        ResourceContent content = cache.contents.get(key);
+        boolean built = content == null;
+        if (built)
+        {
+            content = concatenate(resources, contentType);
+        }
+        if (fingerprint != null && !fingerprint.equals(getFingerprint(content)))
+        {
+            // not cached, so requests for made up urls can not evict the bundles of the application
+            return null;
+        }
+        if (built)
+        {
+            cache.contents.put(key, content);
+            cache.watch(externalContext, resources);
+        }
+        return new BundleResource(resourceName, contentType, resourceIds, content);
+    }
+
+    private static String getFingerprint(ResourceContent content)
+    {
+        return content.getETag().substring(1, 17);
+    }
+
+    private static String getKey(String resourceName, List<String> resourceIds)
+    {
+        StringBuilder key = new StringBuilder(resourceName);
+        for (int i = 0; i < resourceIds.size(); i++)
+        {
+            key.append('|').append(resourceIds.get(i));
+        }
+        return key.toString();
+    }
+
+    public ResourceContent getContent()
+    {
+        return _content;
+    }
+
+    public String getETag()
+    {
+        return _content.getETag();
+    }
+
+    public String getFingerprint()
+    {
+        return getFingerprint(_content);
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException
+    {
+        return new ByteArrayInputStream(_content.getBytes());
+    }
+
+    @Override
+    public String getRequestPath()
+    {
+        if (_requestPath == null)
+        {
+            FacesContext context = FacesContext.getCurrentInstance();
+            FacesServletMapping mapping = FacesServletMappingUtils.getCurrentRequestFacesServletMapping(context);
+            if (mapping.isExactMapping())
+            {
+                mapping = FacesServletMappingUtils.getGenericPrefixOrSuffixMapping(context);
+            }
+
+            StringBuilder path = new StringBuilder();
+            if (mapping.isExtensionMapping())
+            {
+                path.append(ResourceHandler.RESOURCE_IDENTIFIER).append('/').append(getResourceName())
+                        .append(mapping.getExtension());
+            }
+            else
+            {
+                if (mapping.getPrefix() != null)
+                {
+                    path.append(mapping.getPrefix());
+                }
+                path.append(ResourceHandler.RESOURCE_IDENTIFIER).append('/').append(getResourceName());
+            }
+
+            path.append("?ln=").append(LIBRARY_NAME);
+            try
+            {
+                for (int i = 0; i < _resourceIds.size(); i++)
+                {
+                    path.append('&').append(RESOURCE_PARAM).append('=')
+                            .append(URLEncoder.encode(_resourceIds.get(i), "UTF-8"));
+                }
+            }
+            catch (UnsupportedEncodingException e)
+            {
+                throw new IllegalStateException(e);
+            }
+            path.append('&').append(ResourceImpl.FINGERPRINT_PARAM).append('=').append(getFingerprint());
+
+            _requestPath = context.getApplication().getViewHandler().getResourceURL(context, path.toString());
+        }
+        return _requestPath;
+    }
+
+    @Override
+    public Map<String, String> getResponseHeaders()
+    {
+        FacesContext facesContext = FacesContext.getCurrentInstance();
+        if (!facesContext.getApplication().getResourceHandler().isResourceRequest(facesContext))
+        {
+            return Collections.emptyMap();
+        }
+
+        // only served for a request with the hash of the content, so the url never describes other content
+        Map<String, String> headers = new HashMap<>(4, 1f);
+        headers.put("ETag", getETag());
+        headers.put("Cache-Control", "public, max-age=" + ResourceImpl.IMMUTABLE_MAX_AGE + ", immutable");
+        headers.put("Expires", ResourceLoaderUtils.formatDateHeader(
+                System.currentTimeMillis() + ResourceImpl.IMMUTABLE_MAX_AGE * 1000L));
+        return headers;
+    }
+
+    @Override
+    public URL getURL()
+    {
+        return null;
+    }
+
+    @Override
+    public boolean userAgentNeedsUpdate(FacesContext context)
+    {
+        return !ResourceContent.matchesETag(
+                context.getExternalContext().getRequestHeaderMap().get("If-None-Match"), getETag());
+    }
+
+    private static boolean isStylesheet(String contentType)
+    {
+        return "text/css".equals(contentType);
+    }
+
+    private static ResourceContent concatenate(List<Resource> resources, String contentType) throws IOException
+    {
+        byte[] separator = isStylesheet(contentType) ? STYLESHEET_SEPARATOR : SCRIPT_SEPARATOR;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        for (int i = 0; i < resources.size(); i++)
+        {
+            if (i > 0)
+            {
+                out.write(separator);
+            }
+            try (InputStream in = resources.get(i).getInputStream())
+            {
+                if (in == null)
+                {
+                    throw new IOException("Resource " + resources.get(i).getResourceName() + " has no content");
+                }
+                int length;
+                while ((length = in.read(buffer)) >= 0)
+                {
+                    out.write(buffer, 0, length);
+                }
+            }
+        }
+        return new ResourceContent(out.toByteArray(), contentType);
+    }
+
+    private static Cache getCache(FacesContext facesContext)
+    {
+        Map<String, Object> applicationMap = facesContext.getExternalContext().getApplicationMap();
+        Cache cache = (Cache) applicationMap.get(CACHE_KEY);
+        if (cache == null)
+        {
+            cache = new Cache(MyfacesConfig.getCurrentInstance(facesContext).getResourceHandlerCacheSize());
+            applicationMap.put(CACHE_KEY, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * The content of the bundles built so far. The contents are cleared when the file of a bundled
+     * resource changes.
+     */
+    private static class Cache
+    {
+        private final ConcurrentLRUCache<String, ResourceContent> contents;
+        private final Set<String> watchedUrls = ConcurrentHashMap.newKeySet();
+
+        Cache(int maxSize)
+        {
+            contents = new ConcurrentLRUCache<>((maxSize * 4 + 3) / 3, maxSize);
+        }
+
+        /**
+         * Watch each resource once, whatever the number of bundles it is part of. Changes are rare enough
+         * to rebuild every bundle on the next request.
+         */
+        void watch(ExternalContext externalContext, List<Resource> resources)
+        {
+            FileChangeWatcher watcher = FileChangeWatcher.getInstance(externalContext);
+            if (watcher == null)
+            {
+                return;
+            }
+            for (int i = 0; i < resources.size(); i++)
+            {
+                URL url = resources.get(i).getURL();
+                if (url != null && watchedUrls.add(url.toExternalForm()))
+                {
+                    watcher.watch(url, contents::clear);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.faces.context.ExternalContext;
+
+import org.apache.myfaces.config.MyfacesConfig;
+
+/**
+ * Notifies listeners when files in the file system change, so caches can evict their entries only
+ * when the source really changed instead of checking its modification time periodically.
+ * 
+ * Only "file" urls can be watched. The directory of each watched file is registered with a
+ * WatchService, whose events are processed by a daemon thread. Listeners are not removed after
+ * they are notified, they are called again on each change of the file.
+ */
+public class FileChangeWatcher implements Closeable
+{
+    private static final Logger log = Logger.getLogger(FileChangeWatcher.class.getName());
+
+    private static final String INSTANCE_KEY = FileChangeWatcher.class.getName();
+
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> directories;
+    private final Map<Path, Queue<Runnable>> listeners;
+    private final Thread thread;
+
+    /**
+     * Start the watcher of the application if it is enabled. Called at startup.
+     */
+    public static void initialize(ExternalContext externalContext)
+    {
+        if (!MyfacesConfig.getCurrentInstance(externalContext).isWatchFileChanges())
+        {
+            return;
+        }
+
+        try
+        {
+            externalContext.getApplicationMap().put(INSTANCE_KEY, new FileChangeWatcher());
+        }
+        catch (IOException e)
+        {
+            log.log(Level.WARNING, "Cannot create a WatchService, file changes are not watched", e);
+        }
+    }
+
+    /**
+     * @return the watcher of the application or null if it is not enabled
+     */
+    public static FileChangeWatcher getInstance(ExternalContext externalContext)
+    {
+        return (FileChangeWatcher) externalContext.getApplicationMap().get(INSTANCE_KEY);
+    }
+
+    /**
+     * Stop the watcher of the application, if any.
+     */
+    public static void release(ExternalContext externalContext)
+    {
+        FileChangeWatcher watcher = (FileChangeWatcher) externalContext.getApplicationMap().remove(INSTANCE_KEY);
+        if (watcher != null)
+        {
+            watcher.close();
+        }
+    }
+
+    public FileChangeWatcher() throws IOException
+    {
+        watchService = FileSystems.getDefault().newWatchService();
+        directories = new ConcurrentHashMap<>();
+        listeners = new ConcurrentHashMap<>();
+
+        thread = new Thread(this::processEvents, "MyFaces-FileChangeWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Call the listener each time the file of the url changes.
+     * 
+     * @return false if the url cannot be watched, so the caller must check it by itself
+     */
+    public boolean watch(URL url, Runnable listener)
+    {
+        Path file = toPath(url);
+        if (file == null || file.getParent() == null)
+        {
+            return false;
+        }
+
+        try
+        {
+            directories.computeIfAbsent(file.getParent(), this::register);
+        }
+        catch (UncheckedIOException | ClosedWatchServiceException e)
+        {
+            if (log.isLoggable(Level.FINE))
+            {
+                log.log(Level.FINE, "Cannot watch " + url, e);
+            }
+            return false;
+        }
+
+        listeners.computeIfAbsent(file, k -> new ConcurrentLinkedQueue<>()).add(listener);
+        return true;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            watchService.close();
+        }
+        catch (IOException e)
+        {
+            log.log(Level.FINE, "Error closing WatchService", e);
+        }
+        thread.interrupt();
+        directories.clear();
+        listeners.clear();
+    }
+
+    private WatchKey register(Path directory)
+    {
+        try
+        {
+            return directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void processEvents()
+    {
+        while (true)
+        {
+            WatchKey key;
+            try
+            {
+                key = watchService.take();
+            }
+            catch (InterruptedException | ClosedWatchServiceException e)
+            {
+                return;
+            }
+
+            Path directory = (Path) key.watchable();
+            for (WatchEvent<?> event : key.pollEvents())
+            {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW)
+                {
+                    // events were lost, assume every file of the directory changed
+                    for (Map.Entry<Path, Queue<Runnable>> entry : listeners.entrySet())
+                    {
+                        if (directory.equals(entry.getKey().getParent()))
+                        {
+                            notifyListeners(entry.getKey(), entry.getValue());
+                        }
+                    }
+                }
+                else
+                {
+                    Path file = directory.resolve((Path) event.context());
+                    Queue<Runnable> fileListeners = listeners.get(file);
+                    if (fileListeners != null)
+                    {
+                        notifyListeners(file, fileListeners);
+                    }
+                }
+            }
+
+            if (!key.reset())
+            {
+                directories.remove(directory, key);
+            }
+        }
+    }
+
+    private void notifyListeners(Path file, Queue<Runnable> fileListeners)
+    {
+        if (log.isLoggable(Level.FINE))
+        {
+            log.fine("File changed: " + file);
+        }
+
+        for (Runnable listener : fileListeners)
+        {
+            try
+            {
+                listener.run();
+            }
+            catch (RuntimeException e)
+            {
+                log.log(Level.WARNING, "Error notifying the change of " + file, e);
+            }
+        }
+    }
+
+    private static Path toPath(URL url)
+    {
+        if (url == null || !"file".equals(url.getProtocol()))
+        {
+            return null;
+        }
+
+        try
+        {
+            return Paths.get(url.toURI()).toAbsolutePath().normalize();
+        }
+        catch (URISyntaxException | IllegalArgumentException e)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.myfaces.util.lang.FastByteArrayOutputStream;
+import org.apache.myfaces.util.lang.Hex;
+
+/**
+ * The bytes of a resource kept in memory, with the values derived from them that are needed to
+ * serve the resource: a strong ETag and, for compressible content types, a gzip compressed variant.
+ */
+public class ResourceContent
+{
+    /**
+     * Returned by {@link #read(InputStream, String, int)} for resources that are too large to be kept
+     * in memory.
+     */
+    public static final ResourceContent TOO_LARGE = new ResourceContent();
+
+    private static final int MIN_COMPRESS_SIZE = 256;
+
+    private final byte[] bytes;
+    private final String eTag;
+    private final byte[] gzipBytes;
+    private final String gzipETag;
+
+    private ResourceContent()
+    {
+        this.bytes = null;
+        this.eTag = null;
+        this.gzipBytes = null;
+        this.gzipETag = null;
+    }
+
+    public ResourceContent(byte[] bytes, String contentType)
+    {
+        this.bytes = bytes;
+        this.eTag = createETag(bytes);
+
+        byte[] gzip = isCompressible(contentType) && bytes.length >= MIN_COMPRESS_SIZE ? gzip(bytes) : null;
+        if (gzip != null && gzip.length < bytes.length)
+        {
+            this.gzipBytes = gzip;
+            this.gzipETag = getGzipETag(eTag);
+        }
+        else
+        {
+            this.gzipBytes = null;
+            this.gzipETag = null;
+        }
+    }
+
+    /**
+     * Read the whole stream, unless it is bigger than maxSize.
+     * 
+     * @return the content or {@link #TOO_LARGE} if the stream has more than maxSize bytes
+     */
+    public static ResourceContent read(InputStream in, String contentType, int maxSize) throws IOException
+    {
+        FastByteArrayOutputStream out = new FastByteArrayOutputStream(4096);
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = in.read(buffer)) >= 0)
+        {
+            if (out.getSize() + length > maxSize)
+            {
+                return TOO_LARGE;
+            }
+            out.write(buffer, 0, length);
+        }
+
+        return new ResourceContent(Arrays.copyOf(out.getByteArray(), out.getSize()), contentType);
+    }
+
+    public byte[] getBytes()
+    {
+        return bytes;
+    }
+
+    public String getETag()
+    {
+        return eTag;
+    }
+
+    /**
+     * @return the gzip compressed bytes or null if the content is not worth compressing
+     */
+    public byte[] getGzipBytes()
+    {
+        return gzipBytes;
+    }
+
+    public String getGzipETag()
+    {
+        return gzipETag;
+    }
+
+    /**
+     * @return true if the Accept-Encoding header value allows a gzip response
+     */
+    public static boolean isGzipAccepted(String acceptEncoding)
+    {
+        if (acceptEncoding == null)
+        {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(","))
+        {
+            String[] params = coding.split(";");
+            String name = params[0].trim();
+            if ("gzip".equalsIgnoreCase(name) || "*".equals(name))
+            {
+                for (int i = 1; i < params.length; i++)
+                {
+                    String param = params[i].trim();
+                    if (param.startsWith("q="))
+                    {
+                        try
+                        {
+                            return Double.parseDouble(param.substring(2)) > 0;
+                        }
+                        catch (NumberFormatException e)
+                        {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCompressible(String contentType)
+    {
+        if (contentType == null)
+        {
+            return false;
+        }
+        return contentType.startsWith("text/")
+                || contentType.contains("javascript")
+                || contentType.contains("json")
+                || contentType.contains("xml");
+    }
+
+    private static byte[] gzip(byte[] bytes)
+    {
+        try
+        {
+            FastByteArrayOutputStream out = new FastByteArrayOutputStream(bytes.length / 2 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out, 4096))
+            {
+                gzip.write(bytes);
+            }
+            return Arrays.copyOf(out.getByteArray(), out.getSize());
+        }
+        catch (IOException e)
+        {
+            // cannot happen writing to memory
+            return null;
+        }
+    }
+
+    /**
+     * @return the ETag of the gzip compressed variant of the content with the given ETag
+     */
+    public static String getGzipETag(String eTag)
+    {
+        return eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Compute the ETag of the content of the stream. It is the same value a ResourceContent
+     * holding those bytes returns.
+     */
+    public static String createETag(InputStream in) throws IOException
+    {
+        MessageDigest digest = createDigest();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = in.read(buffer)) >= 0)
+        {
+            digest.update(buffer, 0, length);
+        }
+        return toETag(digest.digest());
+    }
+
+    /**
+     * Check an If-None-Match header value against the ETag of a resource, using the weak comparison.
+     * The gzip variant of the ETag matches too.
+     */
+    public static boolean matchesETag(String header, String eTag)
+    {
+        return getMatchingETag(header, eTag) != null;
+    }
+
+    /**
+     * Find the variant of the ETag matched by an If-None-Match header value, so a 304 response
+     * sends the validator of the representation the client has.
+     * 
+     * @return the ETag or its gzip variant, or null if the header does not match
+     */
+    public static String getMatchingETag(String header, String eTag)
+    {
+        if (header == null || eTag == null)
+        {
+            return null;
+        }
+
+        String gzipETag = getGzipETag(eTag);
+        for (String value : header.split(","))
+        {
+            value = value.trim();
+            if (value.startsWith("W/"))
+            {
+                value = value.substring(2);
+            }
+            if (gzipETag.equals(value))
+            {
+                return gzipETag;
+            }
+            if ("*".equals(value) || eTag.equals(value))
+            {
+                return eTag;
+            }
+        }
+        return null;
+    }
+
+    private static String createETag(byte[] bytes)
+    {
+        return toETag(createDigest().digest(bytes));
+    }
+
+    private static String toETag(byte[] digest)
+    {
+        return '"' + new String(Hex.encodeHex(Arrays.copyOf(digest, 16))) + '"';
+    }
+
+    private static MessageDigest createDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // every JRE provides SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -18,9 +18,13 @@
  */
 package org.apache.myfaces.resource;
 
+import java.net.URL;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.faces.application.ProjectStage;
 import javax.faces.context.FacesContext;
 
 import org.apache.myfaces.config.MyfacesConfig;
@@ -35,6 +39,14 @@ public class ResourceHandlerCache
     private volatile ConcurrentLRUCache<Object, ResourceValue> _resourceCacheMap = null;
     private volatile ConcurrentLRUCache<Object, ResourceValue> _viewResourceCacheMap = null;
     private volatile ConcurrentLRUCache<Object, Boolean> _libraryExistsCacheMap = null;
+    private volatile ConcurrentLRUCache<Object, ResourceContent> _resourceContentCacheMap = null;
+    private int _resourceContentMaxSize;
+    private ResourceIndex _resourceIndex;
+    
+    private FileChangeWatcher _watcher;
+    private Set<Object> _watchedResources;
+    private Set<Object> _watchedViewResources;
+    private Set<Object> _watchedResourceContents;
 
     public ResourceHandlerCache()
     {
@@ -48,6 +60,11 @@ public class ResourceHandlerCache
             log.log(Level.FINE, "Initializing ResourceHandlerCache; Enabled = " + _resourceCacheEnabled);
         }
 
+        if (myfacesConfig.isResourceIndexEnabled())
+        {
+            _resourceIndex = new ResourceIndex(facesContext);
+        }
+
         if (_resourceCacheEnabled)
         {
             int maxSize = myfacesConfig.getResourceHandlerCacheSize();
@@ -55,6 +72,20 @@ public class ResourceHandlerCache
             _resourceCacheMap = new ConcurrentLRUCache<>((maxSize * 4 + 3) / 3, maxSize);
             _viewResourceCacheMap = new ConcurrentLRUCache<>((maxSize * 4 + 3) / 3, maxSize);
             _libraryExistsCacheMap = new ConcurrentLRUCache<>((maxSize * 4 + 3) / 3, maxSize / 5);
+            
+            if (myfacesConfig.isResourceContentCacheEnabled() && facesContext.isProjectStage(ProjectStage.Production))
+            {
+                _resourceContentCacheMap = new ConcurrentLRUCache<>((maxSize * 4 + 3) / 3, maxSize);
+                _resourceContentMaxSize = myfacesConfig.getResourceContentCacheMaxResourceSize();
+            }
+            
+            _watcher = FileChangeWatcher.getInstance(facesContext.getExternalContext());
+            if (_watcher != null)
+            {
+                _watchedResources = ConcurrentHashMap.newKeySet();
+                _watchedViewResources = ConcurrentHashMap.newKeySet();
+                _watchedResourceContents = ConcurrentHashMap.newKeySet();
+            }
         }
     }
     
@@ -118,8 +149,9 @@ public class ResourceHandlerCache
             log.log(Level.FINE, "Attemping to put resource to cache for " + resourceName);
         }
 
-        _resourceCacheMap.put(new ResourceKey(resourceName, libraryName,
-                contentType, localePrefix, contractName), new ResourceValue(resource, loader, info));
+        ResourceKey key = new ResourceKey(resourceName, libraryName, contentType, localePrefix, contractName);
+        watch(_resourceCacheMap, _watchedResources, key, resource, loader);
+        _resourceCacheMap.put(key, new ResourceValue(resource, loader, info));
     }
     
     public ResourceValue getResource(String resourceId)
@@ -186,10 +218,13 @@ public class ResourceHandlerCache
 
         if (resource.getContractName() != null)
         {
-            _resourceCacheMap.put(resource.getContractName() + ':' + resourceId, new ResourceValue(resource, loader));
+            String key = resource.getContractName() + ':' + resourceId;
+            watch(_resourceCacheMap, _watchedResources, key, resource, loader);
+            _resourceCacheMap.put(key, new ResourceValue(resource, loader));
         }
         else
         {
+            watch(_resourceCacheMap, _watchedResources, resourceId, resource, loader);
             _resourceCacheMap.put(resourceId, new ResourceValue(resource, loader, info));
         }
     }
@@ -253,8 +288,75 @@ public class ResourceHandlerCache
             log.log(Level.FINE, "Attemping to put resource to cache for " + resourceName);
         }
 
-        _viewResourceCacheMap.put(new ResourceKey(resourceName, null,
-                contentType, localePrefix, contractName), new ResourceValue(resource, loader, info));
+        ResourceKey key = new ResourceKey(resourceName, null, contentType, localePrefix, contractName);
+        watch(_viewResourceCacheMap, _watchedViewResources, key, resource, loader);
+        _viewResourceCacheMap.put(key, new ResourceValue(resource, loader, info));
+    }
+    
+    /**
+     * @return the index of the resource paths or null if it is not enabled
+     */
+    public ResourceIndex getResourceIndex()
+    {
+        return _resourceIndex;
+    }
+    
+    public boolean isResourceContentCacheEnabled()
+    {
+        return _resourceContentCacheMap != null;
+    }
+    
+    /**
+     * Resources larger than this size are not kept in the resource content cache.
+     */
+    public int getResourceContentMaxSize()
+    {
+        return _resourceContentMaxSize;
+    }
+    
+    public ResourceContent getResourceContent(URL url)
+    {
+        if (_resourceContentCacheMap == null)
+        {
+            return null;
+        }
+
+        return _resourceContentCacheMap.get(url.toExternalForm());
+    }
+    
+    public void putResourceContent(URL url, ResourceContent content)
+    {
+        if (_resourceContentCacheMap == null)
+        {
+            return;
+        }
+
+        String key = url.toExternalForm();
+        watch(_resourceContentCacheMap, _watchedResourceContents, key, url);
+        _resourceContentCacheMap.put(key, content);
+    }
+    
+    /**
+     * Evict the entry when the file of the resource changes. Each key is registered only once.
+     */
+    private void watch(ConcurrentLRUCache<Object, ResourceValue> cache, Set<Object> watchedKeys,
+            Object key, ResourceMeta resource, ResourceLoader loader)
+    {
+        if (_watcher != null && !watchedKeys.contains(key))
+        {
+            watch(cache, watchedKeys, key, loader.getResourceURL(resource));
+        }
+    }
+
+    private void watch(final ConcurrentLRUCache<Object, ?> cache, Set<Object> watchedKeys, final Object key, URL url)
+    {
+        if (_watcher != null && url != null && watchedKeys.add(key))
+        {
+            if (!_watcher.watch(url, () -> cache.remove(key)))
+            {
+                watchedKeys.remove(key);
+            }
+        }
     }
     
     public Boolean libraryExists(String libraryName)
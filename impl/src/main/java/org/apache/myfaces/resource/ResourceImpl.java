@@ -39,6 +39,13 @@ public class ResourceImpl extends Resource implements ContractResource
 {
     protected final static String JAVAX_FACES_LIBRARY_NAME = "javax.faces";
     protected final static String JSF_JS_RESOURCE_NAME = "jsf.js";
+    
+    /**
+     * Request parameter holding the content hash when fingerprinting is enabled.
+     */
+    public final static String FINGERPRINT_PARAM = "h";
+    
+    final static long IMMUTABLE_MAX_AGE = 31536000L;
 
 
     private ResourceMeta _resourceMeta;
@@ -84,6 +91,11 @@ public class ResourceImpl extends Resource implements ContractResource
     {
         if (couldResourceContainValueExpressions())
         {
+            FacesContext facesContext = FacesContext.getCurrentInstance();
+            if (ValueExpressionTemplate.isCacheEnabled(facesContext))
+            {
+                return ValueExpressionTemplate.getInputStream(facesContext, this);
+            }
             return new ValueExpressionFilterInputStream(
                     getResourceLoader().getResourceInputStream(_resourceMeta), getLibraryName(), getResourceName()); 
         }
@@ -93,6 +105,15 @@ public class ResourceImpl extends Resource implements ContractResource
         }
     }
     
+    /**
+     * @return true if the bytes of the resource do not depend on the request, so they can be kept
+     *         in memory once read
+     */
+    public boolean isContentStatic()
+    {
+        return !couldResourceContainValueExpressions();
+    }
+    
     private boolean couldResourceContainValueExpressions()
     {
         if (_resourceMeta.couldResourceContainValueExpressions())
@@ -159,6 +180,11 @@ public class ResourceImpl extends Resource implements ContractResource
                 path = path + (useAmp ? '&' : '?') + "con=" + _resourceMeta.getContractName();
                 useAmp = true;
             }
+            String fingerprint = getFingerprint(context);
+            if (fingerprint != null)
+            {
+                path = path + (useAmp ? '&' : '?') + FINGERPRINT_PARAM + '=' + fingerprint;
+            }
             _requestPath = context.getApplication().getViewHandler().getResourceURL(context, path);
         }
         return _requestPath;
@@ -208,6 +234,22 @@ public class ResourceImpl extends Resource implements ContractResource
                 headers.put("Expires", ResourceLoaderUtils.formatDateHeader(expires));
             }
             
+            String eTag = getETag(facesContext);
+            if (eTag != null)
+            {
+                headers.put("ETag", eTag);
+            }
+            
+            // the url contains the hash of the current content, so it never changes
+            String fingerprint = getFingerprint(facesContext);
+            if (fingerprint != null && fingerprint.equals(
+                    facesContext.getExternalContext().getRequestParameterMap().get(FINGERPRINT_PARAM)))
+            {
+                headers.put("Cache-Control", "public, max-age=" + IMMUTABLE_MAX_AGE + ", immutable");
+                headers.put("Expires", ResourceLoaderUtils.formatDateHeader(
+                        System.currentTimeMillis() + IMMUTABLE_MAX_AGE * 1000L));
+            }
+            
             return headers;
         }
         else
@@ -243,6 +285,17 @@ public class ResourceImpl extends Resource implements ContractResource
         // This method is called from ResourceHandlerImpl.handleResourceRequest and if
         // returns false send a 304 Not Modified response.
         
+        // If-None-Match takes precedence over If-Modified-Since (RFC 7232, section 6)
+        String ifNoneMatch = context.getExternalContext().getRequestHeaderMap().get("If-None-Match");
+        if (ifNoneMatch != null)
+        {
+            String eTag = getETag(context);
+            if (eTag != null)
+            {
+                return !ResourceContent.matchesETag(ifNoneMatch, eTag);
+            }
+        }
+        
         String ifModifiedSinceString = context.getExternalContext().getRequestHeaderMap().get("If-Modified-Since");
         
         if (ifModifiedSinceString == null)
@@ -281,6 +334,56 @@ public class ResourceImpl extends Resource implements ContractResource
         return true;
     }
     
+    /**
+     * The ETag is a digest of the content, computed once and kept in the ResourceMeta. It is only
+     * available in Production for resources whose content does not depend on the request, and when
+     * org.apache.myfaces.RESOURCE_CACHE_LAST_MODIFIED is enabled.
+     * 
+     * @return the ETag or null
+     */
+    public String getETag(FacesContext facesContext)
+    {
+        if (!isContentStatic() || !facesContext.isProjectStage(ProjectStage.Production)
+                || !MyfacesConfig.getCurrentInstance(facesContext).isResourceCacheLastModified())
+        {
+            return null;
+        }
+
+        String eTag = _resourceMeta.getETag();
+        if (eTag == null)
+        {
+            try (InputStream in = getInputStream())
+            {
+                if (in == null)
+                {
+                    return null;
+                }
+                eTag = ResourceContent.createETag(in);
+            }
+            catch (IOException e)
+            {
+                return null;
+            }
+            _resourceMeta.setETag(eTag);
+        }
+        return eTag;
+    }
+    
+    /**
+     * @return the hash added to the request path when org.apache.myfaces.RESOURCE_FINGERPRINTING is
+     *         enabled, or null
+     */
+    public String getFingerprint(FacesContext facesContext)
+    {
+        if (!MyfacesConfig.getCurrentInstance(facesContext).isResourceFingerprinting())
+        {
+            return null;
+        }
+
+        String eTag = getETag(facesContext);
+        return eTag == null ? null : eTag.substring(1, 17);
+    }
+    
     protected ResourceHandlerSupport getResourceHandlerSupport()
     {
         return _resourceHandlerSupport;
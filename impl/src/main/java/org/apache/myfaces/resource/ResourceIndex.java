@@ -0,0 +1,357 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import javax.faces.application.ProjectStage;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import org.apache.myfaces.application.ResourceHandlerImpl;
+
+/**
+ * Index of the paths of all the resources the default resource loaders can find, so a lookup
+ * can skip the loaders that do not contain the resource without asking the ServletContext or
+ * every jar of the ClassLoader.
+ * 
+ * The index of a loader is built the first time it is used and never changes afterwards, except
+ * in Development, where it is rebuilt when a lookup does not find the resource, at most once every
+ * {@link #REBUILD_INTERVAL} milliseconds, so the misses of a request do not rescan the jars. Version
+ * directories are removed from the indexed paths, so versioned resources and libraries are found
+ * by their name. Loaders that resolve resources in other ways (aliases, custom implementations)
+ * or whose ClassLoader exposes urls other than "file" and "jar" are not indexed, and every lookup
+ * on them is answered with true.
+ */
+public class ResourceIndex
+{
+    private static final Logger log = Logger.getLogger(ResourceIndex.class.getName());
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    private static final Set<String> NOT_INDEXED = Collections.unmodifiableSet(new HashSet<>());
+
+    /**
+     * The min time between two builds of the index of a loader in Development.
+     */
+    public static final long REBUILD_INTERVAL = 2000L;
+
+    private final Map<ResourceLoader, Index> _paths = new ConcurrentHashMap<>();
+    private final boolean _rebuild;
+
+    public ResourceIndex(FacesContext facesContext)
+    {
+        _rebuild = facesContext.isProjectStage(ProjectStage.Development);
+    }
+
+    /**
+     * @return false if the loader certainly does not contain the resource, in the localized
+     *         path or without it
+     */
+    public boolean mayExist(FacesContext facesContext, ResourceLoader loader, String contractName, String localePrefix,
+            String libraryName, String resourceName)
+    {
+        StringBuilder path = new StringBuilder();
+        if (contractName != null)
+        {
+            path.append(contractName).append('/');
+        }
+        int start = path.length();
+        if (libraryName != null)
+        {
+            path.append(libraryName).append('/');
+        }
+        path.append(resourceName);
+        String key = path.toString();
+        if (localePrefix == null)
+        {
+            return mayExist(facesContext, loader, key);
+        }
+
+        path.insert(start, localePrefix + '/');
+        String localizedKey = path.toString();
+        if (contains(facesContext, loader, localizedKey, false) || contains(facesContext, loader, key, false))
+        {
+            return true;
+        }
+        return _rebuild && (contains(facesContext, loader, localizedKey, true)
+                || contains(facesContext, loader, key, false));
+    }
+
+    /**
+     * @param path the path of the resource relative to the prefix of the loader, including the
+     *        contract name for contract loaders
+     * @return false if the loader certainly does not contain the resource
+     */
+    public boolean mayExist(FacesContext facesContext, ResourceLoader loader, String path)
+    {
+        return contains(facesContext, loader, path, false)
+                || (_rebuild && contains(facesContext, loader, path, true));
+    }
+
+    private boolean contains(FacesContext facesContext, ResourceLoader loader, String path, boolean rebuild)
+    {
+        Index index = _paths.get(loader);
+        if (index == null || (rebuild && System.currentTimeMillis() - index.builtAt >= REBUILD_INTERVAL))
+        {
+            // compute so concurrent misses build the index only once
+            Index outdated = index;
+            index = _paths.compute(loader, (k, current) -> current != null && current != outdated
+                    ? current : new Index(build(facesContext, loader), System.currentTimeMillis()));
+        }
+        return index.paths == NOT_INDEXED || index.paths.contains(normalize(path));
+    }
+
+    private static Set<String> build(FacesContext facesContext, ResourceLoader loader)
+    {
+        ResourceLoader unwrapped = loader;
+        if (unwrapped instanceof TempDirFileCacheResourceLoader)
+        {
+            unwrapped = ((TempDirFileCacheResourceLoader) unwrapped).getWrapped();
+        }
+        else if (unwrapped instanceof TempDirFileCacheContractResourceLoader)
+        {
+            unwrapped = ((TempDirFileCacheContractResourceLoader) unwrapped).getWrapped();
+        }
+
+        Class<?> loaderClass = unwrapped.getClass();
+        Set<String> paths = new HashSet<>();
+        try
+        {
+            if (loaderClass == ExternalContextResourceLoader.class
+                    || loaderClass == ExternalContextContractResourceLoader.class)
+            {
+                String prefix = unwrapped.getPrefix() + '/';
+                addResourcePaths(facesContext.getExternalContext(), prefix, prefix.length(), paths);
+            }
+            else if (loaderClass == ClassLoaderResourceLoader.class
+                    || loaderClass == FacesFlowClassLoaderResourceLoader.class)
+            {
+                ClassLoaderResourceLoader classLoaderLoader = (ClassLoaderResourceLoader) unwrapped;
+                if (!addClassLoaderPaths(classLoaderLoader.getClassLoader(), classLoaderLoader.getPrefix(), paths))
+                {
+                    return NOT_INDEXED;
+                }
+            }
+            else if (loaderClass == ClassLoaderContractResourceLoader.class)
+            {
+                ClassLoaderContractResourceLoader classLoaderLoader = (ClassLoaderContractResourceLoader) unwrapped;
+                if (!addClassLoaderPaths(classLoaderLoader.getClassLoader(), classLoaderLoader.getPrefix(), paths))
+                {
+                    return NOT_INDEXED;
+                }
+            }
+            else
+            {
+                return NOT_INDEXED;
+            }
+        }
+        catch (IOException | URISyntaxException e)
+        {
+            log.log(Level.WARNING, "Could not index the resources of " + loaderClass.getName(), e);
+            return NOT_INDEXED;
+        }
+
+        if (log.isLoggable(Level.FINE))
+        {
+            log.fine("Indexed " + paths.size() + " resource paths of " + loaderClass.getName());
+        }
+        return paths;
+    }
+
+    private static void addResourcePaths(ExternalContext externalContext, String directory, int prefixLength,
+            Set<String> paths)
+    {
+        Set<String> resourcePaths = externalContext.getResourcePaths(directory);
+        if (resourcePaths == null)
+        {
+            return;
+        }
+        for (String resourcePath : resourcePaths)
+        {
+            if (resourcePath.endsWith("/"))
+            {
+                addResourcePaths(externalContext, resourcePath, prefixLength, paths);
+            }
+            else
+            {
+                addPath(resourcePath.substring(prefixLength), paths);
+            }
+        }
+    }
+
+    /**
+     * ClassLoader.getResources only returns the jars that contain an entry for the directory, so the
+     * jars are also found through their manifest.
+     * 
+     * @return false if a location can not be indexed
+     */
+    private static boolean addClassLoaderPaths(ClassLoader loaderClassLoader, String prefix, Set<String> paths)
+            throws IOException, URISyntaxException
+    {
+        String directory = prefix == null || prefix.isEmpty() ? "" : prefix + '/';
+        Set<String> visited = new HashSet<>();
+        ClassLoader[] classLoaders = { loaderClassLoader, ResourceIndex.class.getClassLoader() };
+        for (ClassLoader classLoader : classLoaders)
+        {
+            if (classLoader == null)
+            {
+                continue;
+            }
+            for (Enumeration<URL> e = classLoader.getResources(prefix == null ? "" : prefix); e.hasMoreElements();)
+            {
+                URL url = e.nextElement();
+                if ("file".equals(url.getProtocol()))
+                {
+                    if (visited.add(url.toExternalForm()))
+                    {
+                        addFilePaths(Paths.get(url.toURI()), paths);
+                    }
+                }
+                else if (!"jar".equals(url.getProtocol()) || !addJarPaths(url, directory, visited, paths))
+                {
+                    return false;
+                }
+            }
+            for (Enumeration<URL> e = classLoader.getResources(MANIFEST); e.hasMoreElements();)
+            {
+                URL url = e.nextElement();
+                if ("jar".equals(url.getProtocol()))
+                {
+                    addJarPaths(url, directory, visited, paths);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void addFilePaths(Path root, Set<String> paths) throws IOException
+    {
+        try (Stream<Path> files = Files.walk(root))
+        {
+            files.filter(Files::isRegularFile).forEach(
+                    file -> addPath(root.relativize(file).toString().replace('\\', '/'), paths));
+        }
+    }
+
+    private static boolean addJarPaths(URL url, String directory, Set<String> visited, Set<String> paths)
+            throws IOException
+    {
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof JarURLConnection))
+        {
+            return false;
+        }
+
+        JarURLConnection jarConnection = (JarURLConnection) connection;
+        if (!visited.add(jarConnection.getJarFileURL().toExternalForm()))
+        {
+            return true;
+        }
+
+        jarConnection.setUseCaches(false);
+        try (JarFile jarFile = jarConnection.getJarFile())
+        {
+            for (Enumeration<JarEntry> entries = jarFile.entries(); entries.hasMoreElements();)
+            {
+                JarEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (!entry.isDirectory() && name.startsWith(directory))
+                {
+                    addPath(name.substring(directory.length()), paths);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A versioned resource is indexed with and without its version file, so it is found both
+     * by its resource name and by its full path.
+     */
+    private static void addPath(String path, Set<String> paths)
+    {
+        paths.add(normalize(path));
+
+        int lastSlash = path.lastIndexOf('/');
+        if (lastSlash > 0
+                && ResourceHandlerImpl.RESOURCE_VERSION_CHECKER.matcher(path.substring(lastSlash + 1)).matches())
+        {
+            paths.add(normalize(path.substring(0, lastSlash)));
+        }
+    }
+
+    /**
+     * Remove the library version directories and empty segments of the path.
+     */
+    private static String normalize(String path)
+    {
+        StringBuilder sb = new StringBuilder(path.length());
+        int start = 0;
+        while (start <= path.length())
+        {
+            int end = path.indexOf('/', start);
+            if (end < 0)
+            {
+                end = path.length();
+            }
+            if (end > start && !ResourceHandlerImpl.LIBRARY_VERSION_CHECKER.matcher(
+                    path.subSequence(start, end)).matches())
+            {
+                if (sb.length() > 0)
+                {
+                    sb.append('/');
+                }
+                sb.append(path, start, end);
+            }
+            start = end + 1;
+        }
+        return sb.toString();
+    }
+
+    private static class Index
+    {
+        private final Set<String> paths;
+        private final long builtAt;
+
+        Index(Set<String> paths, long builtAt)
+        {
+            this.paths = paths;
+            this.builtAt = builtAt;
+        }
+    }
+}
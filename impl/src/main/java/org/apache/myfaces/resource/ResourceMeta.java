@@ -23,6 +23,7 @@ package org.apache.myfaces.resource;
  */
 public abstract class ResourceMeta
 {
+    private volatile String _eTag;
     
     public abstract String getLibraryName();
     
@@ -50,4 +51,17 @@ public abstract class ResourceMeta
     public abstract Long getLastModified();
     
     public abstract void setLastModified(Long lastModified);
+    
+    /**
+     * @return the ETag computed from the content of the resource, or null if not known yet
+     */
+    public String getETag()
+    {
+        return _eTag;
+    }
+    
+    public void setETag(String eTag)
+    {
+        _eTag = eTag;
+    }
 }
@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import javax.el.ELContext;
+import javax.el.ELException;
+import javax.el.ValueExpression;
+import javax.faces.application.ProjectStage;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+import javax.faces.event.ExceptionQueuedEvent;
+import javax.faces.event.ExceptionQueuedEventContext;
+
+import org.apache.myfaces.application.FacesServletMapping;
+import org.apache.myfaces.application.FacesServletMappingUtils;
+import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.util.lang.ConcurrentLRUCache;
+
+/**
+ * The content of a resource that can contain EL expressions, parsed once into literal bytes and
+ * expressions. It is evaluated the same way {@link ValueExpressionFilterInputStream} filters the
+ * resource: "#{" up to the next "}" is an expression, and an expression that can not be evaluated
+ * is written unchanged.
+ * 
+ * @see MyfacesConfig#RESOURCE_TEMPLATE_CACHE_ENABLED
+ */
+public class ValueExpressionTemplate
+{
+    private static final Logger log = Logger.getLogger(ValueExpressionTemplate.class.getName());
+
+    private static final String CACHE_KEY = ValueExpressionTemplate.class.getName() + ".CACHE";
+
+    /**
+     * The max number of evaluated contents kept per resource, one per locale, contract and mapping.
+     */
+    private static final int MAX_VALUES = 16;
+
+    /**
+     * #{resource['library:name']} only depends on the locale, the contracts and the mapping of the
+     * request, so its value can be cached.
+     */
+    private static final Pattern RESOURCE_EXPRESSION = Pattern.compile(
+            "\\s*resource\\s*\\[\\s*('[^']*'|\"[^\"]*\")\\s*\\]\\s*");
+
+    /**
+     * byte[] for literal segments, String for expressions
+     */
+    private final Object[] _segments;
+    private final boolean _cacheable;
+    private final ConcurrentLRUCache<String, byte[]> _values =
+            new ConcurrentLRUCache<>((MAX_VALUES * 4 + 3) / 3, MAX_VALUES);
+
+    private ValueExpressionTemplate(Object[] segments, boolean cacheable)
+    {
+        _segments = segments;
+        _cacheable = cacheable;
+    }
+
+    public static ValueExpressionTemplate parse(InputStream in) throws IOException
+    {
+        byte[] bytes = readAll(in);
+        List<Object> segments = new ArrayList<>();
+        boolean cacheable = true;
+        int start = 0;
+        int index = 0;
+        while (index < bytes.length - 1)
+        {
+            if (bytes[index] == '#' && bytes[index + 1] == '{')
+            {
+                int end = index + 2;
+                while (end < bytes.length && bytes[end] != '}')
+                {
+                    end++;
+                }
+                if (end == bytes.length)
+                {
+                    // not closed, the rest is literal
+                    break;
+                }
+
+                if (index > start)
+                {
+                    segments.add(copy(bytes, start, index));
+                }
+                String expression = new String(bytes, index + 2, end - index - 2, StandardCharsets.ISO_8859_1);
+                segments.add(expression);
+                cacheable = cacheable && RESOURCE_EXPRESSION.matcher(expression).matches();
+                start = end + 1;
+                index = start;
+            }
+            else
+            {
+                index++;
+            }
+        }
+        if (start < bytes.length)
+        {
+            segments.add(copy(bytes, start, bytes.length));
+        }
+        return new ValueExpressionTemplate(segments.toArray(), cacheable);
+    }
+
+    /**
+     * @return true if the evaluated content is the same for every request with the same locale,
+     *         contracts and mapping
+     */
+    public boolean isCacheable()
+    {
+        return _cacheable;
+    }
+
+    public byte[] evaluate(FacesContext context, String libraryName, String resourceName, String contractName)
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Object segment : _segments)
+        {
+            byte[] bytes = segment instanceof String
+                    ? evaluate(context, (String) segment, libraryName, resourceName, contractName)
+                    : (byte[]) segment;
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] evaluate(FacesContext context, String expression, String libraryName,
+            String resourceName, String contractName)
+    {
+        ELContext elContext = context.getELContext();
+        try
+        {
+            if (libraryName != null)
+            {
+                ResourceELUtils.saveResourceLibraryForResolver(context, libraryName);
+            }
+            if (contractName != null)
+            {
+                ResourceELUtils.saveResourceContractForResolver(context, contractName);
+            }
+
+            ValueExpression ve = context.getApplication().getExpressionFactory().createValueExpression(
+                    elContext, "#{" + expression + '}', String.class);
+            String value = (String) ve.getValue(elContext);
+            return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        }
+        catch (ELException e)
+        {
+            ExceptionQueuedEventContext equecontext = new ExceptionQueuedEventContext(context, e, null);
+            context.getApplication().publishEvent(context, ExceptionQueuedEvent.class, equecontext);
+
+            if (log.isLoggable(Level.SEVERE))
+            {
+                log.severe("Cannot evaluate EL expression " + expression + " in resource "
+                        + (libraryName == null ? "" : libraryName) + ':' + (resourceName == null ? "" : resourceName));
+            }
+            return ("#{" + expression + '}').getBytes(StandardCharsets.ISO_8859_1);
+        }
+        finally
+        {
+            if (libraryName != null)
+            {
+                ResourceELUtils.removeResourceLibraryForResolver(context);
+            }
+            if (contractName != null)
+            {
+                ResourceELUtils.removeResourceContractForResolver(context);
+            }
+        }
+    }
+
+    public static boolean isCacheEnabled(FacesContext facesContext)
+    {
+        return MyfacesConfig.getCurrentInstance(facesContext).isResourceTemplateCacheEnabled()
+                && facesContext.isProjectStage(ProjectStage.Production);
+    }
+
+    /**
+     * Get the evaluated content of the resource, parsing it the first time and reusing the evaluated
+     * content when it can not differ from a previous request.
+     */
+    public static InputStream getInputStream(FacesContext facesContext, ResourceImpl resource) throws IOException
+    {
+        URL url = resource.getURL();
+        if (url == null)
+        {
+            return new ValueExpressionFilterInputStream(resource.getResourceLoader().getResourceInputStream(
+                    resource.getResourceMeta()), resource.getLibraryName(), resource.getResourceName());
+        }
+
+        Cache cache = getCache(facesContext);
+        String key = url.toExternalForm();
+        ValueExpressionTemplate template = cache.templates.get(key);
+        if (template == null)
+        {
+            try (InputStream in = resource.getResourceLoader().getResourceInputStream(resource.getResourceMeta()))
+            {
+                if (in == null)
+                {
+                    return null;
+                }
+                template = parse(in);
+            }
+            cache.templates.put(key, template);
+            cache.watch(facesContext.getExternalContext(), key, url);
+        }
+
+        if (!template.isCacheable())
+        {
+            return new ByteArrayInputStream(template.evaluate(
+                    facesContext, resource.getLibraryName(), resource.getResourceName(), null));
+        }
+
+        String valueKey = getValueKey(facesContext, resource);
+        if (valueKey == null)
+        {
+            return new ByteArrayInputStream(template.evaluate(
+                    facesContext, resource.getLibraryName(), resource.getResourceName(), null));
+        }
+        byte[] value = template._values.get(valueKey);
+        if (value == null)
+        {
+            value = template.evaluate(facesContext, resource.getLibraryName(), resource.getResourceName(), null);
+            template._values.put(valueKey, value);
+        }
+        return new ByteArrayInputStream(value);
+    }
+
+    /**
+     * The inputs of a #{resource[...]} lookup: the locale prefix and contract the resource was found
+     * with, the locale and contracts of the view and the mapping used to build the urls. The locale
+     * and contract parameters of a resource request are used by the lookups too, so the content is
+     * only cached when they are the ones of the resource, as in the urls rendered for it.
+     * 
+     * @return the key or null if the content must not be cached
+     */
+    private static String getValueKey(FacesContext facesContext, ResourceImpl resource)
+    {
+        ExternalContext externalContext = facesContext.getExternalContext();
+        String localePrefix = resource.getResourceMeta().getLocalePrefix();
+        String contractName = resource.getContractName();
+        if (facesContext.getApplication().getResourceHandler().isResourceRequest(facesContext))
+        {
+            Map<String, String> params = externalContext.getRequestParameterMap();
+            if (!Objects.equals(params.get("loc"), localePrefix) || !Objects.equals(params.get("con"), contractName))
+            {
+                return null;
+            }
+        }
+
+        StringBuilder key = new StringBuilder(64);
+        key.append(localePrefix).append('|').append(contractName).append('|');
+        if (facesContext.getApplication().getMessageBundle() != null)
+        {
+            Locale locale = facesContext.getViewRoot() != null ? facesContext.getViewRoot().getLocale()
+                    : facesContext.getApplication().getViewHandler().calculateLocale(facesContext);
+            key.append(locale);
+        }
+        key.append('|').append(facesContext.getResourceLibraryContracts()).append('|');
+
+        FacesServletMapping mapping = FacesServletMappingUtils.getCurrentRequestFacesServletMapping(facesContext);
+        if (mapping.isExactMapping())
+        {
+            mapping = FacesServletMappingUtils.getGenericPrefixOrSuffixMapping(facesContext);
+        }
+        key.append(externalContext.getRequestContextPath()).append('|')
+                .append(mapping.getPrefix()).append('|').append(mapping.getExtension());
+        return key.toString();
+    }
+
+    private static Cache getCache(FacesContext facesContext)
+    {
+        Map<String, Object> applicationMap = facesContext.getExternalContext().getApplicationMap();
+        Cache cache = (Cache) applicationMap.get(CACHE_KEY);
+        if (cache == null)
+        {
+            cache = new Cache(MyfacesConfig.getCurrentInstance(facesContext).getResourceHandlerCacheSize());
+            applicationMap.put(CACHE_KEY, cache);
+        }
+        return cache;
+    }
+
+    private static byte[] copy(byte[] bytes, int start, int end)
+    {
+        byte[] segment = new byte[end - start];
+        System.arraycopy(bytes, start, segment, 0, segment.length);
+        return segment;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = in.read(buffer)) >= 0)
+        {
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The templates parsed so far, evicted when the file of the resource changes.
+     */
+    private static class Cache
+    {
+        private final ConcurrentLRUCache<String, ValueExpressionTemplate> templates;
+        private final Set<String> watchedKeys = ConcurrentHashMap.newKeySet();
+
+        Cache(int maxSize)
+        {
+            templates = new ConcurrentLRUCache<>((maxSize * 4 + 3) / 3, maxSize);
+        }
+
+        void watch(ExternalContext externalContext, String key, URL url)
+        {
+            FileChangeWatcher watcher = FileChangeWatcher.getInstance(externalContext);
+            if (watcher != null && watchedKeys.add(key) && !watcher.watch(url, () -> templates.remove(key)))
+            {
+                watchedKeys.remove(key);
+            }
+        }
+    }
+}
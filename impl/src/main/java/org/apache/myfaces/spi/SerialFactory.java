@@ -61,6 +61,32 @@ public abstract class SerialFactory
         }
     }
 
+    /**
+     * Serialize the object directly into the given stream, so it can be chained with other
+     * streams (compression, ...) without an intermediate byte array. The stream is not closed.
+     */
+    public void writeObject(Object object, OutputStream outputStream) throws IOException
+    {
+        ObjectOutputStream oos = getObjectOutputStream(outputStream);
+        oos.writeObject(object);
+        oos.flush();
+    }
+
+    /**
+     * Deserialize an object directly from the given stream. The stream is not closed.
+     */
+    public Object readObject(InputStream inputStream)
+            throws IOException, PrivilegedActionException, ClassNotFoundException
+    {
+        ObjectInputStream ois = getObjectInputStream(inputStream);
+        if (System.getSecurityManager() != null)
+        {
+            return AccessController.doPrivileged((PrivilegedExceptionAction) () -> ois.readObject());
+        }
+
+        return ois.readObject();
+    }
+
     protected abstract ObjectOutputStream getObjectOutputStream(OutputStream outputStream) throws IOException;
 
     protected abstract ObjectInputStream getObjectInputStream(InputStream inputStream) throws IOException;
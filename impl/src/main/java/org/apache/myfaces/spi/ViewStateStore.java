@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.spi;
+
+import javax.faces.context.FacesContext;
+
+/**
+ * Stores the serialized view state outside the session when server side state saving is used.
+ * 
+ * <p>By default the serialized views are kept into the session, so its size grows with
+ * org.apache.myfaces.NUMBER_OF_VIEWS_IN_SESSION and every view is replicated with the session.
+ * When a store is configured using org.apache.myfaces.VIEW_STATE_STORE, the session only keeps
+ * a small reference to the state and the bytes are kept by the store.</p>
+ * 
+ * <p>Implementations must be thread safe and are responsible to discard the entries that
+ * were not accessed in the configured time to live, because a session can be destroyed without
+ * removing its views from the store.</p>
+ * 
+ * @since 2.3-next
+ */
+public abstract class ViewStateStore
+{
+    /**
+     * Store the serialized state under the given key, replacing the previous one if any.
+     */
+    public abstract void put(FacesContext facesContext, String key, byte[] state);
+
+    /**
+     * Return the serialized state stored under the given key, or null if it was discarded.
+     */
+    public abstract byte[] get(FacesContext facesContext, String key);
+
+    public abstract void remove(FacesContext facesContext, String key);
+}
@@ -0,0 +1,608 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.spi.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.security.AccessController;
+import java.security.PrivilegedActionException;
+import java.security.PrivilegedExceptionAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.myfaces.util.lang.ClassUtils;
+import org.apache.myfaces.util.lang.FastByteArrayInputStream;
+
+/**
+ * SerialFactory that writes the types usually found in the view state (Object[] arrays, Strings,
+ * boxed primitives, enums, classes and the attached state wrappers of javax.faces.component) using
+ * a compact encoding: varints for numbers and lengths, and per-stream dictionaries for repeated
+ * strings and class names. Any other object is written with standard java serialization, through
+ * the same stream, so class descriptors are written only once.
+ * 
+ * <p>Like in java serialization, an array, a boxed value or a wrapper found more than once in the
+ * state is written once and then referenced, so the restored state shares the same instances.
+ * Cyclic references between arrays and wrappers are not supported and fail when the state is
+ * written. Lengths read from the stream are not trusted, arrays and strings grow while their
+ * items are read, so a corrupted or forged state fails when the stream ends instead of
+ * allocating the declared length.</p>
+ * 
+ * <p>It can be enabled using org.apache.myfaces.SERIAL_FACTORY. The state written by this factory
+ * can only be read by this factory.</p>
+ */
+public class CompactSerialFactory extends DefaultSerialFactory
+{
+    private static final Logger log = Logger.getLogger(CompactSerialFactory.class.getName());
+
+    private static final int VERSION = 2;
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int INTEGER = 3;
+    private static final int LONG = 4;
+    private static final int SHORT = 5;
+    private static final int BYTE = 6;
+    private static final int CHARACTER = 7;
+    private static final int FLOAT = 8;
+    private static final int DOUBLE = 9;
+    private static final int STRING = 10;
+    private static final int STRING_REF = 11;
+    private static final int ARRAY = 12;
+    private static final int ENUM = 13;
+    private static final int CLASS = 14;
+    private static final int WRAPPER = 15;
+    private static final int SERIALIZABLE = 16;
+    private static final int REFERENCE = 17;
+
+    /**
+     * Max amount of items allocated before they are read, when an array or a string is read.
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final Object PENDING = new Object();
+
+    private static final Wrapper[] WRAPPERS;
+    private static final Map<Class<?>, Integer> WRAPPER_INDEX = new IdentityHashMap<>();
+
+    static
+    {
+        List<Wrapper> wrappers = new ArrayList<>(4);
+        addWrapper(wrappers, "javax.faces.component._AttachedStateWrapper", true);
+        addWrapper(wrappers, "javax.faces.component._AttachedDeltaWrapper", false);
+        addWrapper(wrappers, "javax.faces.component.behavior._AttachedStateWrapper", true);
+        addWrapper(wrappers, "javax.faces.component.behavior._AttachedDeltaWrapper", false);
+        WRAPPERS = wrappers.toArray(new Wrapper[wrappers.size()]);
+        for (int i = 0; i < WRAPPERS.length; i++)
+        {
+            WRAPPER_INDEX.put(WRAPPERS[i].type, i);
+        }
+    }
+
+    /**
+     * Resolved classes, so the class loader is not queried on every restore.
+     */
+    private final Map<String, Class<?>> classCache = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] toByteArray(Object object) throws IOException
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        writeObject(object, baos);
+        return baos.toByteArray();
+    }
+
+    @Override
+    public Object toObject(byte[] bytes) throws IOException, PrivilegedActionException, ClassNotFoundException
+    {
+        return readObject(new FastByteArrayInputStream(bytes));
+    }
+
+    @Override
+    public void writeObject(Object object, OutputStream outputStream) throws IOException
+    {
+        ObjectOutputStream oos = getObjectOutputStream(outputStream);
+        oos.writeByte(VERSION);
+        new Encoder(oos).write(object);
+        oos.flush();
+    }
+
+    @Override
+    public Object readObject(InputStream inputStream)
+            throws IOException, PrivilegedActionException, ClassNotFoundException
+    {
+        ObjectInputStream ois = getObjectInputStream(inputStream);
+        if (ois.readByte() != VERSION)
+        {
+            throw new StreamCorruptedException("Not written by " + CompactSerialFactory.class.getName());
+        }
+
+        Decoder decoder = new Decoder(ois);
+        if (System.getSecurityManager() != null)
+        {
+            return AccessController.doPrivileged((PrivilegedExceptionAction) () -> decoder.read());
+        }
+        return decoder.read();
+    }
+
+    protected Class<?> resolveClass(String name) throws ClassNotFoundException
+    {
+        Class<?> clazz = classCache.get(name);
+        if (clazz == null)
+        {
+            clazz = ClassUtils.classForName(name);
+            classCache.put(name, clazz);
+        }
+        return clazz;
+    }
+
+    /**
+     * Instances of these types are written once and then referenced.
+     */
+    private static boolean isShareable(Class<?> type)
+    {
+        return type == Object[].class || type == Integer.class || type == Long.class || type == Short.class
+                || type == Byte.class || type == Character.class || type == Float.class || type == Double.class
+                || WRAPPER_INDEX.containsKey(type);
+    }
+
+    private static void addWrapper(List<Wrapper> wrappers, String className, boolean hasClass)
+    {
+        try
+        {
+            Class<?> type = Class.forName(className, false, CompactSerialFactory.class.getClassLoader());
+            Constructor<?> constructor = type.getDeclaredConstructor(Class.class, Object.class);
+            constructor.setAccessible(true);
+            Field classField = null;
+            if (hasClass)
+            {
+                classField = type.getDeclaredField("_class");
+                classField.setAccessible(true);
+            }
+            Field valueField = type.getDeclaredField("_wrappedStateObject");
+            valueField.setAccessible(true);
+            wrappers.add(new Wrapper(type, constructor, classField, valueField));
+        }
+        catch (Exception e)
+        {
+            // Written with java serialization instead
+            if (log.isLoggable(Level.FINE))
+            {
+                log.log(Level.FINE, "Cannot use compact encoding for " + className, e);
+            }
+        }
+    }
+
+    private static final class Wrapper
+    {
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final Field classField;
+        private final Field valueField;
+
+        Wrapper(Class<?> type, Constructor<?> constructor, Field classField, Field valueField)
+        {
+            this.type = type;
+            this.constructor = constructor;
+            this.classField = classField;
+            this.valueField = valueField;
+        }
+    }
+
+    private static final class Encoder
+    {
+        private final ObjectOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<Class<?>, Integer> classes = new IdentityHashMap<>();
+        // arrays, boxed values and wrappers already written, the value is the handle
+        private final Map<Object, Integer> handles = new IdentityHashMap<>();
+        // arrays and wrappers being written, to detect cycles
+        private final Map<Object, Boolean> writing = new IdentityHashMap<>();
+
+        Encoder(ObjectOutputStream out)
+        {
+            this.out = out;
+        }
+
+        void write(Object value) throws IOException
+        {
+            if (value == null)
+            {
+                out.writeByte(NULL);
+                return;
+            }
+
+            Class<?> type = value.getClass();
+            if (type == String.class)
+            {
+                writeString((String) value);
+                return;
+            }
+            if (isShareable(type))
+            {
+                Integer handle = handles.get(value);
+                if (handle != null)
+                {
+                    if (writing.containsKey(value))
+                    {
+                        throw new NotSerializableException("Cyclic reference to " + type.getName());
+                    }
+                    out.writeByte(REFERENCE);
+                    writeVarLong(handle);
+                    return;
+                }
+                handles.put(value, handles.size());
+            }
+
+            if (type == Integer.class)
+            {
+                out.writeByte(INTEGER);
+                writeVarLong(zigZag((Integer) value));
+            }
+            else if (type == Boolean.class)
+            {
+                out.writeByte(((Boolean) value) ? TRUE : FALSE);
+            }
+            else if (type == Object[].class)
+            {
+                Object[] array = (Object[]) value;
+                out.writeByte(ARRAY);
+                writeVarLong(array.length);
+                writing.put(array, Boolean.TRUE);
+                for (Object item : array)
+                {
+                    write(item);
+                }
+                writing.remove(array);
+            }
+            else if (value instanceof Enum)
+            {
+                out.writeByte(ENUM);
+                writeClass(((Enum<?>) value).getDeclaringClass());
+                writeString(((Enum<?>) value).name());
+            }
+            else if (WRAPPER_INDEX.containsKey(type))
+            {
+                writeWrapper(WRAPPER_INDEX.get(type), value);
+            }
+            else if (type == Long.class)
+            {
+                out.writeByte(LONG);
+                writeVarLong(zigZag((Long) value));
+            }
+            else if (type == Class.class && !((Class<?>) value).isPrimitive() && !((Class<?>) value).isArray())
+            {
+                out.writeByte(CLASS);
+                writeClass((Class<?>) value);
+            }
+            else if (type == Short.class)
+            {
+                out.writeByte(SHORT);
+                writeVarLong(zigZag((Short) value));
+            }
+            else if (type == Byte.class)
+            {
+                out.writeByte(BYTE);
+                out.writeByte((Byte) value);
+            }
+            else if (type == Character.class)
+            {
+                out.writeByte(CHARACTER);
+                writeVarLong((Character) value);
+            }
+            else if (type == Float.class)
+            {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            }
+            else if (type == Double.class)
+            {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            }
+            else
+            {
+                out.writeByte(SERIALIZABLE);
+                out.writeObject(value);
+            }
+        }
+
+        private void writeWrapper(int index, Object value) throws IOException
+        {
+            Wrapper wrapper = WRAPPERS[index];
+            out.writeByte(WRAPPER);
+            writeVarLong(index);
+            writing.put(value, Boolean.TRUE);
+            try
+            {
+                if (wrapper.classField != null)
+                {
+                    write(wrapper.classField.get(value));
+                }
+                write(wrapper.valueField.get(value));
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new IOException(e);
+            }
+            writing.remove(value);
+        }
+
+        private void writeString(String value) throws IOException
+        {
+            Integer id = strings.get(value);
+            if (id != null)
+            {
+                out.writeByte(STRING_REF);
+                writeVarLong(id);
+                return;
+            }
+            strings.put(value, strings.size());
+
+            out.writeByte(STRING);
+            int length = value.length();
+            writeVarLong(length);
+            for (int i = 0; i < length; i++)
+            {
+                writeVarLong(value.charAt(i));
+            }
+        }
+
+        private void writeClass(Class<?> clazz) throws IOException
+        {
+            Integer id = classes.get(clazz);
+            if (id != null)
+            {
+                writeVarLong(id + 1);
+                return;
+            }
+            classes.put(clazz, classes.size());
+            writeVarLong(0);
+            writeString(clazz.getName());
+        }
+
+        private void writeVarLong(long value) throws IOException
+        {
+            while ((value & ~0x7FL) != 0)
+            {
+                out.writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.writeByte((int) value);
+        }
+
+        private static long zigZag(long value)
+        {
+            return (value << 1) ^ (value >> 63);
+        }
+    }
+
+    private final class Decoder
+    {
+        private final ObjectInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Class<?>> classes = new ArrayList<>();
+        // by handle, see Encoder.handles. PENDING while an array or a wrapper is read
+        private final List<Object> objects = new ArrayList<>();
+
+        Decoder(ObjectInputStream in)
+        {
+            this.in = in;
+        }
+
+        Object read() throws IOException, ClassNotFoundException
+        {
+            int tag = in.readByte();
+            switch (tag)
+            {
+                case NULL:
+                    return null;
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                case INTEGER:
+                    return shared((int) unZigZag(readVarLong()));
+                case LONG:
+                    return shared(unZigZag(readVarLong()));
+                case SHORT:
+                    return shared((short) unZigZag(readVarLong()));
+                case BYTE:
+                    return shared(in.readByte());
+                case CHARACTER:
+                    return shared((char) readVarLong());
+                case FLOAT:
+                    return shared(in.readFloat());
+                case DOUBLE:
+                    return shared(in.readDouble());
+                case STRING:
+                case STRING_REF:
+                    return readString(tag);
+                case ARRAY:
+                    return readArray();
+                case REFERENCE:
+                    return readReference();
+                case ENUM:
+                    Class enumType = readClass();
+                    return Enum.valueOf(enumType, readString(in.readByte()));
+                case CLASS:
+                    return readClass();
+                case WRAPPER:
+                    return readWrapper();
+                case SERIALIZABLE:
+                    return in.readObject();
+                default:
+                    throw new StreamCorruptedException("Unknown tag " + tag);
+            }
+        }
+
+        private Object shared(Object value)
+        {
+            objects.add(value);
+            return value;
+        }
+
+        private Object readReference() throws IOException
+        {
+            long handle = readVarLong();
+            if (handle < 0 || handle >= objects.size())
+            {
+                throw new StreamCorruptedException("Unknown reference " + handle);
+            }
+            Object value = objects.get((int) handle);
+            if (value == PENDING)
+            {
+                throw new StreamCorruptedException("Cyclic reference " + handle);
+            }
+            return value;
+        }
+
+        private Object[] readArray() throws IOException, ClassNotFoundException
+        {
+            int length = readLength();
+            int handle = objects.size();
+            objects.add(PENDING);
+            Object[] array = new Object[Math.min(length, CHUNK_SIZE)];
+            for (int i = 0; i < length; i++)
+            {
+                if (i == array.length)
+                {
+                    array = Arrays.copyOf(array, (int) Math.min(length, 2L * array.length));
+                }
+                array[i] = read();
+            }
+            objects.set(handle, array);
+            return array;
+        }
+
+        private Object readWrapper() throws IOException, ClassNotFoundException
+        {
+            int index = (int) readVarLong();
+            if (index < 0 || index >= WRAPPERS.length)
+            {
+                throw new StreamCorruptedException("Unknown wrapper " + index);
+            }
+            int handle = objects.size();
+            objects.add(PENDING);
+            Wrapper wrapper = WRAPPERS[index];
+            Class<?> clazz = wrapper.classField != null ? (Class<?>) read() : null;
+            Object value = read();
+            try
+            {
+                Object result = wrapper.constructor.newInstance(clazz, value);
+                objects.set(handle, result);
+                return result;
+            }
+            catch (ReflectiveOperationException e)
+            {
+                throw new IOException(e);
+            }
+        }
+
+        private String readString(int tag) throws IOException
+        {
+            if (tag == STRING_REF)
+            {
+                long id = readVarLong();
+                if (id < 0 || id >= strings.size())
+                {
+                    throw new StreamCorruptedException("Unknown string " + id);
+                }
+                return strings.get((int) id);
+            }
+            if (tag != STRING)
+            {
+                throw new StreamCorruptedException("Expected string, found tag " + tag);
+            }
+            int length = readLength();
+            StringBuilder sb = new StringBuilder(Math.min(length, CHUNK_SIZE));
+            for (int i = 0; i < length; i++)
+            {
+                sb.append((char) readVarLong());
+            }
+            String value = sb.toString();
+            strings.add(value);
+            return value;
+        }
+
+        private Class<?> readClass() throws IOException, ClassNotFoundException
+        {
+            long id = readVarLong();
+            if (id > 0)
+            {
+                if (id > classes.size())
+                {
+                    throw new StreamCorruptedException("Unknown class " + id);
+                }
+                return classes.get((int) id - 1);
+            }
+            Class<?> clazz = resolveClass(readString(in.readByte()));
+            classes.add(clazz);
+            return clazz;
+        }
+
+        private int readLength() throws IOException
+        {
+            long length = readVarLong();
+            if (length < 0 || length > Integer.MAX_VALUE - 8)
+            {
+                throw new StreamCorruptedException("Invalid length " + length);
+            }
+            return (int) length;
+        }
+
+        private long readVarLong() throws IOException
+        {
+            long value = 0;
+            int shift = 0;
+            int b;
+            do
+            {
+                if (shift > 63)
+                {
+                    throw new StreamCorruptedException("Malformed varint");
+                }
+                b = in.readByte();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            }
+            while ((b & 0x80) != 0);
+            return value;
+        }
+
+        private long unZigZag(long value)
+        {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.spi.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.faces.context.FacesContext;
+import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.spi.ViewStateStore;
+
+/**
+ * Reference {@link ViewStateStore} implementation, that keeps the serialized views into direct
+ * (off-heap) ByteBuffers, so the heap and the session replication traffic does not grow with
+ * the number of views in session.
+ * 
+ * <p>Entries not accessed in org.apache.myfaces.VIEW_STATE_STORE_TTL are discarded and, when the
+ * amount of bytes stored exceeds org.apache.myfaces.VIEW_STATE_STORE_MAX_SIZE, the least recently
+ * used entries are discarded first.</p>
+ * 
+ * <p>The direct memory is allocated in slabs, sliced into fixed size blocks. Each view uses as many
+ * blocks as it needs, and the blocks of discarded views are reused by the next ones, so the direct
+ * memory does not depend on the garbage collector to be released and stays bounded by the max size
+ * plus the unused part of the last block of each view.</p>
+ */
+public class OffHeapViewStateStore extends ViewStateStore
+{
+    private static final Logger log = Logger.getLogger(OffHeapViewStateStore.class.getName());
+
+    private static final int BLOCK_SIZE = 4096;
+    private static final int BLOCKS_PER_SLAB = 64;
+
+    // access ordered, so the least recently used entry goes first. Guarded by this.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by this.
+    private final ArrayDeque<ByteBuffer> freeBlocks = new ArrayDeque<>();
+    private long size;
+    private long lastPurge = System.currentTimeMillis();
+
+    @Override
+    public void put(FacesContext facesContext, String key, byte[] state)
+    {
+        MyfacesConfig config = MyfacesConfig.getCurrentInstance(facesContext);
+        long ttl = config.getViewStateStoreTtl();
+        long maxSize = config.getViewStateStoreMaxSize();
+        long now = System.currentTimeMillis();
+
+        synchronized (this)
+        {
+            Entry old = entries.remove(key);
+            if (old != null)
+            {
+                release(old);
+            }
+
+            if (ttl > 0 && now - lastPurge > ttl / 10)
+            {
+                lastPurge = now;
+                purgeExpired(now - ttl);
+            }
+            if (size + state.length > maxSize)
+            {
+                evict(maxSize - state.length);
+            }
+
+            entries.put(key, new Entry(write(state), state.length, now));
+            size += state.length;
+        }
+    }
+
+    @Override
+    public byte[] get(FacesContext facesContext, String key)
+    {
+        long ttl = MyfacesConfig.getCurrentInstance(facesContext).getViewStateStoreTtl();
+        long now = System.currentTimeMillis();
+
+        synchronized (this)
+        {
+            Entry entry = entries.get(key);
+            if (entry == null)
+            {
+                return null;
+            }
+            if (ttl > 0 && entry.lastAccess < now - ttl)
+            {
+                entries.remove(key);
+                release(entry);
+                return null;
+            }
+            entry.lastAccess = now;
+            return read(entry);
+        }
+    }
+
+    @Override
+    public void remove(FacesContext facesContext, String key)
+    {
+        synchronized (this)
+        {
+            Entry entry = entries.remove(key);
+            if (entry != null)
+            {
+                release(entry);
+            }
+        }
+    }
+
+    /**
+     * Return the number of bytes currently stored.
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Discard the entries not accessed since the given time. Must be called holding the lock of the store.
+     */
+    protected void purgeExpired(long expiredBefore)
+    {
+        // the entries are in access order, so stop at the first one that is not expired
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();)
+        {
+            Entry entry = it.next();
+            if (entry.lastAccess >= expiredBefore)
+            {
+                break;
+            }
+            it.remove();
+            release(entry);
+        }
+    }
+
+    /**
+     * Discard the least recently used entries until the given size is not exceeded. Must be called holding
+     * the lock of the store.
+     */
+    protected void evict(long maxSize)
+    {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && size > maxSize;)
+        {
+            Entry entry = it.next();
+            it.remove();
+            release(entry);
+        }
+
+        if (log.isLoggable(Level.FINE))
+        {
+            log.fine("View state store size after eviction: " + size + " bytes");
+        }
+    }
+
+    private ByteBuffer[] write(byte[] state)
+    {
+        ByteBuffer[] blocks = new ByteBuffer[(state.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        for (int i = 0; i < blocks.length; i++)
+        {
+            ByteBuffer block = allocateBlock();
+            block.clear();
+            block.put(state, i * BLOCK_SIZE, Math.min(BLOCK_SIZE, state.length - i * BLOCK_SIZE));
+            blocks[i] = block;
+        }
+        return blocks;
+    }
+
+    private byte[] read(Entry entry)
+    {
+        byte[] state = new byte[entry.length];
+        for (int i = 0; i < entry.blocks.length; i++)
+        {
+            ByteBuffer block = entry.blocks[i];
+            block.clear();
+            block.get(state, i * BLOCK_SIZE, Math.min(BLOCK_SIZE, state.length - i * BLOCK_SIZE));
+        }
+        return state;
+    }
+
+    private ByteBuffer allocateBlock()
+    {
+        ByteBuffer block = freeBlocks.poll();
+        if (block == null)
+        {
+            ByteBuffer slab = ByteBuffer.allocateDirect(BLOCK_SIZE * BLOCKS_PER_SLAB);
+            for (int i = 0; i < BLOCKS_PER_SLAB; i++)
+            {
+                slab.limit((i + 1) * BLOCK_SIZE).position(i * BLOCK_SIZE);
+                freeBlocks.add(slab.slice());
+            }
+            block = freeBlocks.poll();
+        }
+        return block;
+    }
+
+    private void release(Entry entry)
+    {
+        for (ByteBuffer block : entry.blocks)
+        {
+            freeBlocks.push(block);
+        }
+        size -= entry.length;
+    }
+
+    protected static class Entry
+    {
+        private final ByteBuffer[] blocks;
+        private final int length;
+        private long lastAccess;
+
+        Entry(ByteBuffer[] blocks, int length, long lastAccess)
+        {
+            this.blocks = blocks;
+            this.length = length;
+            this.lastAccess = lastAccess;
+        }
+
+        int length()
+        {
+            return length;
+        }
+    }
+}
@@ -94,6 +94,7 @@ import org.apache.myfaces.application.StateManagerImpl;
 import org.apache.myfaces.config.RuntimeConfig;
 import org.apache.myfaces.application.ViewIdSupport;
 import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.renderkit.html.util.DirectUtf8Writer;
 import org.apache.myfaces.util.lang.ClassUtils;
 import org.apache.myfaces.util.lang.StringUtils;
 import org.apache.myfaces.component.visit.MyFacesVisitHints;
@@ -419,6 +420,7 @@ public class FaceletViewDeclarationLanguage extends FaceletViewDeclarationLangua
             }
         }
 
+        long buildStart = viewPoolProcessor != null ? System.nanoTime() : 0;
         try
         {
             if (refreshTransientBuild)
@@ -432,6 +434,15 @@ public class FaceletViewDeclarationLanguage extends FaceletViewDeclarationLangua
             }
             // populate UIViewRoot
             _getFacelet(context, viewId).apply(context, view);
+
+            if (viewPoolProcessor != null && (!refreshTransientBuild || refreshPartialView))
+            {
+                ViewPool viewPool = viewPoolProcessor.getViewPool(context, view);
+                if (viewPool != null)
+                {
+                    viewPool.viewBuilt(context, view, System.nanoTime() - buildStart);
+                }
+            }
         }
         finally
         {
@@ -1750,8 +1761,7 @@ public class FaceletViewDeclarationLanguage extends FaceletViewDeclarationLangua
             // setup writer and assign it to the context
             ResponseWriter origWriter = createResponseWriter(context);
 
-            ExternalContext extContext = context.getExternalContext();
-            Writer outputWriter = extContext.getResponseOutputWriter();
+            Writer outputWriter = DirectUtf8Writer.getResponseOutputWriter(context);
 
             StateWriter stateWriter = new StateWriter(outputWriter, 1024, context);
             try
@@ -1900,6 +1910,15 @@ public class FaceletViewDeclarationLanguage extends FaceletViewDeclarationLangua
             finally
             {
                 stateWriter.release(context);
+                try
+                {
+                    DirectUtf8Writer.release(context);
+                }
+                catch (IOException e)
+                {
+                    // do not hide the exception that aborted the rendering, if any
+                    log.log(Level.WARNING, "Error writing the rendered view to the response", e);
+                }
             }
         }
         catch (FileNotFoundException e)
@@ -2152,7 +2171,7 @@ public class FaceletViewDeclarationLanguage extends FaceletViewDeclarationLangua
         // response.setCharacterEncoding(encoding);
 
         // Now, clone with the real writer
-        writer = writer.cloneWithWriter(extContext.getResponseOutputWriter());
+        writer = writer.cloneWithWriter(DirectUtf8Writer.getResponseOutputWriter(context, encoding));
 
         return writer;
     }
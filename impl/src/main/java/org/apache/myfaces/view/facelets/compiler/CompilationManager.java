@@ -126,6 +126,7 @@ final class CompilationManager
             unit = new TextUnit(this.alias, this.nextTagId(), 
                     faceletsProcessingInstructions.isEscapeInlineText(),
                     faceletsProcessingInstructions.isCompressSpaces(),
+                    this.compiler.isPrerenderingMarkup(),
                     location);
             this.startUnit(unit);
         }
@@ -168,6 +169,7 @@ final class CompilationManager
             unit = new TextUnit(this.alias, this.nextTagId(), 
                     faceletsProcessingInstructions.isEscapeInlineText(),
                     faceletsProcessingInstructions.isCompressSpaces(),
+                    this.compiler.isPrerenderingMarkup(),
                     location);
             this.startUnit(unit);
         }
@@ -202,6 +204,7 @@ final class CompilationManager
             unit = new TextUnit(this.alias, this.nextTagId(), 
                     faceletsProcessingInstructions.isEscapeInlineText(),
                     faceletsProcessingInstructions.isCompressSpaces(),
+                    this.compiler.isPrerenderingMarkup(),
                     location);
             this.startUnit(unit);
         }
@@ -315,6 +318,7 @@ final class CompilationManager
                 unit = new TextUnit(this.alias, this.nextTagId(),
                         faceletsProcessingInstructions.isEscapeInlineText(),
                         faceletsProcessingInstructions.isCompressSpaces(),
+                        this.compiler.isPrerenderingMarkup(),
                         orig.getLocation());
                 this.startUnit(unit);
             }
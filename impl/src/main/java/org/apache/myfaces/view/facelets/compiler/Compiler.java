@@ -67,7 +67,9 @@ public abstract class Compiler
     private final List<TagDecorator> decorators = new ArrayList<>();
     private final Map<String, String> features = new HashMap<>();
     private boolean developmentProjectStage = false;
+    private boolean prerenderingMarkup = false;
     private Collection<FaceletsProcessing> faceletsProcessingConfigurations;
+    private PrecompiledFacelets precompiledFacelets;
 
     public Compiler()
     {
@@ -241,6 +243,16 @@ public abstract class Compiler
         this.developmentProjectStage = developmentProjectStage;
     }
 
+    public final boolean isPrerenderingMarkup()
+    {
+        return this.prerenderingMarkup;
+    }
+
+    public final void setPrerenderingMarkup(boolean prerenderingMarkup)
+    {
+        this.prerenderingMarkup = prerenderingMarkup;
+    }
+
     /**
      * 
      * @since 2.1.0
@@ -261,5 +273,24 @@ public abstract class Compiler
     {
         this.faceletsProcessingConfigurations = faceletsProcessingConfigurations;
     }
+
+    public PrecompiledFacelets getPrecompiledFacelets()
+    {
+        return precompiledFacelets;
+    }
+
+    public void setPrecompiledFacelets(PrecompiledFacelets precompiledFacelets)
+    {
+        this.precompiledFacelets = precompiledFacelets;
+    }
+
+    /**
+     * @param path the path of the source relative to the web application root
+     * @return the precompiled facelet for the source or null if it must be parsed
+     */
+    protected PrecompiledFacelets.Entry getPrecompiledFacelet(URL src, String path)
+    {
+        return precompiledFacelets == null ? null : precompiledFacelets.getEntry(src, path);
+    }
 }
 
@@ -18,6 +18,8 @@
  */
 package org.apache.myfaces.view.facelets.compiler;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -185,6 +187,34 @@ public class FaceletsCompilerSupport
         compiler.setFaceletsProcessingConfigurations(
                 RuntimeConfig.getCurrentInstance(
                         context.getExternalContext()).getFaceletProcessingConfigurations());
+
+        compiler.setPrerenderingMarkup(MyfacesConfig.getCurrentInstance(eContext).isPrerenderStaticMarkup());
+
+        String precompiledFacelets = MyfacesConfig.getCurrentInstance(eContext).getPrecompiledFacelets();
+        if (precompiledFacelets != null)
+        {
+            try (InputStream is = eContext.getResourceAsStream(precompiledFacelets))
+            {
+                if (is == null)
+                {
+                    log.warning("Precompiled facelets " + precompiledFacelets + " not found");
+                }
+                else
+                {
+                    PrecompiledFacelets precompiled = PrecompiledFacelets.read(is);
+                    compiler.setPrecompiledFacelets(precompiled);
+                    if (log.isLoggable(Level.INFO))
+                    {
+                        log.info("Loaded " + precompiled.size() + " precompiled facelets from "
+                                + precompiledFacelets);
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                log.log(Level.WARNING, "Cannot read precompiled facelets " + precompiledFacelets, e);
+            }
+        }
     }
     
     private static class LoadComponentTagDeclarationFacesContextWrapper extends FacesContextWrapper
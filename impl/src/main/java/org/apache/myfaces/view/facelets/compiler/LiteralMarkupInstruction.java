@@ -0,0 +1,207 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.compiler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.faces.context.FacesContext;
+import javax.faces.context.ResponseWriter;
+
+import org.apache.myfaces.renderkit.html.HtmlResponseWriterImpl;
+import org.apache.myfaces.renderkit.html.util.HTML;
+import org.apache.myfaces.util.lang.FastWriter;
+
+/**
+ * A run of static instructions (plain elements, literal attributes, text, xml and comments) that
+ * starts and ends with no open element. The first time it is written with the default html
+ * ResponseWriter, the instructions are rendered into a char array, which is written as is from then
+ * on. The markup depends on the writer configuration, so it is kept per markup profile. With any
+ * other ResponseWriter the instructions are written one by one.
+ */
+final class LiteralMarkupInstruction implements Instruction
+{
+    private final Instruction[] instructions;
+    private final boolean elements;
+    private final AtomicReferenceArray<char[]> markup = new AtomicReferenceArray<>(4);
+
+    private LiteralMarkupInstruction(Instruction[] instructions, boolean elements)
+    {
+        this.instructions = instructions;
+        this.elements = elements;
+    }
+
+    /**
+     * Replace the runs of static instructions that can be prerendered with a LiteralMarkupInstruction.
+     */
+    static Instruction[] merge(Instruction[] instructions)
+    {
+        List<Instruction> merged = null;
+        int i = 0;
+        while (i < instructions.length)
+        {
+            int end = findRunEnd(instructions, i);
+            if (end - i > 1 || (end - i == 1 && instructions[i] instanceof LiteralTextInstruction))
+            {
+                if (merged == null)
+                {
+                    merged = new ArrayList<>(instructions.length);
+                    for (int j = 0; j < i; j++)
+                    {
+                        merged.add(instructions[j]);
+                    }
+                }
+                Instruction[] run = new Instruction[end - i];
+                System.arraycopy(instructions, i, run, 0, run.length);
+                boolean elements = false;
+                for (Instruction ins : run)
+                {
+                    if (ins instanceof StartElementInstruction)
+                    {
+                        elements = true;
+                        break;
+                    }
+                }
+                merged.add(new LiteralMarkupInstruction(run, elements));
+                i = end;
+            }
+            else
+            {
+                if (merged != null)
+                {
+                    merged.add(instructions[i]);
+                }
+                i++;
+            }
+        }
+        return merged == null ? instructions : merged.toArray(new Instruction[merged.size()]);
+    }
+
+    /**
+     * Find the end of the longest run starting at from that closes every element it starts. Script
+     * and style elements are left out, because their content is written in a different way.
+     */
+    private static int findRunEnd(Instruction[] instructions, int from)
+    {
+        int depth = 0;
+        int end = from;
+        for (int i = from; i < instructions.length; i++)
+        {
+            Instruction ins = instructions[i];
+            Class<?> type = ins.getClass();
+            if (type == StartElementInstruction.class)
+            {
+                String element = ((StartElementInstruction) ins).getElement();
+                if (HTML.SCRIPT_ELEM.equalsIgnoreCase(element) || HTML.STYLE_ELEM.equalsIgnoreCase(element))
+                {
+                    break;
+                }
+                depth++;
+            }
+            else if (type == LiteralAttributeInstruction.class)
+            {
+                if (depth == 0)
+                {
+                    break;
+                }
+            }
+            else if (type == EndElementInstruction.class)
+            {
+                if (depth == 0)
+                {
+                    break;
+                }
+                depth--;
+            }
+            else if (type != LiteralTextInstruction.class && type != LiteralNonExcapedTextInstruction.class
+                    && type != LiteralXMLInstruction.class && type != LiteralCommentInstruction.class)
+            {
+                break;
+            }
+            if (depth == 0)
+            {
+                end = i + 1;
+            }
+        }
+        return end;
+    }
+
+    @Override
+    public void write(FacesContext context) throws IOException
+    {
+        ResponseWriter writer = context.getResponseWriter();
+        if (writer != null && writer.getClass() == HtmlResponseWriterImpl.class)
+        {
+            HtmlResponseWriterImpl htmlWriter = (HtmlResponseWriterImpl) writer;
+            if (htmlWriter.isPrerenderedMarkupAllowed())
+            {
+                int profile = htmlWriter.getMarkupProfile();
+                char[] chars = this.markup.get(profile);
+                if (chars == null)
+                {
+                    chars = prerender(context, htmlWriter);
+                    this.markup.set(profile, chars);
+                }
+                htmlWriter.writePrerenderedMarkup(chars, this.elements);
+                return;
+            }
+        }
+
+        for (Instruction ins : this.instructions)
+        {
+            ins.write(context);
+        }
+    }
+
+    private char[] prerender(FacesContext context, HtmlResponseWriterImpl writer) throws IOException
+    {
+        FastWriter out = new FastWriter(256);
+        ResponseWriter prerenderWriter = writer.cloneWithWriter(out);
+        context.setResponseWriter(prerenderWriter);
+        try
+        {
+            for (Instruction ins : this.instructions)
+            {
+                ins.write(context);
+            }
+            prerenderWriter.flush();
+        }
+        finally
+        {
+            context.setResponseWriter(writer);
+        }
+        return out.toString().toCharArray();
+    }
+
+    @Override
+    public Instruction apply(ExpressionFactory factory, ELContext ctx)
+    {
+        return this;
+    }
+
+    @Override
+    public boolean isLiteral()
+    {
+        return true;
+    }
+}
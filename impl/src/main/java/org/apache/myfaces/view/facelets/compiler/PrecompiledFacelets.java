@@ -0,0 +1,696 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import org.apache.myfaces.resource.ResourceLoaderUtils;
+import org.apache.myfaces.util.lang.ClassUtils;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.LocatorImpl;
+
+/**
+ * Facelets parsed at build time. For each file, the events fired by the SAX parser are recorded into
+ * a compact binary form, so they can be replayed later into the handlers used by SAXCompiler, without
+ * parse the xml again. The tag handlers are still created at runtime, because they depend on the tag
+ * libraries and the ExpressionFactory of the application.
+ * 
+ * <p>The file is created running this class from the build (for example with exec-maven-plugin):</p>
+ * <pre>
+ * java org.apache.myfaces.view.facelets.compiler.PrecompiledFacelets src/main/webapp target/app/WEB-INF/facelets.bin
+ * </pre>
+ * <p>and enabled with the org.apache.myfaces.PRECOMPILED_FACELETS web config param set to the path of
+ * the file inside the web application, in this case /WEB-INF/facelets.bin. A precompiled facelet is only
+ * used for the source at the same path of the web application, with the same modification time and size
+ * as when the file was created, otherwise the source is parsed as usual. The packaging of the application
+ * must keep the modification time of the files.</p>
+ */
+public final class PrecompiledFacelets
+{
+    private static final Logger log = Logger.getLogger(PrecompiledFacelets.class.getName());
+
+    private static final int MAGIC = 0x4D464643;
+    private static final int VERSION = 1;
+
+    private static final String[] DEFAULT_EXTENSIONS = { ".xhtml", ".view.xml" };
+
+    private static final int END = 0;
+    private static final int START_ELEMENT = 1;
+    private static final int END_ELEMENT = 2;
+    private static final int CHARACTERS = 3;
+    private static final int IGNORABLE_WHITESPACE = 4;
+    private static final int COMMENT = 5;
+    private static final int START_CDATA = 6;
+    private static final int END_CDATA = 7;
+    private static final int START_DTD = 8;
+    private static final int END_DTD = 9;
+    private static final int START_PREFIX_MAPPING = 10;
+    private static final int END_PREFIX_MAPPING = 11;
+    private static final int PROCESSING_INSTRUCTION = 12;
+    private static final int START_DOCUMENT = 13;
+    private static final int END_DOCUMENT = 14;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public static final class Entry
+    {
+        private final String path;
+        private final long lastModified;
+        private final long length;
+        private final String xmlDeclaration;
+        private final String encoding;
+        private final byte[] events;
+
+        Entry(String path, long lastModified, long length, String xmlDeclaration, String encoding,
+                byte[] events)
+        {
+            this.path = path;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.xmlDeclaration = xmlDeclaration;
+            this.encoding = encoding;
+            this.events = events;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+        /**
+         * @return the xml declaration found at the start of the file or null
+         */
+        public String getXmlDeclaration()
+        {
+            return xmlDeclaration;
+        }
+
+        public String getEncoding()
+        {
+            return encoding;
+        }
+
+        /**
+         * Fire the recorded events on the handler, like a SAX parser would do.
+         */
+        public void replay(DefaultHandler handler) throws SAXException
+        {
+            LexicalHandler lexicalHandler = handler instanceof LexicalHandler ? (LexicalHandler) handler : null;
+            LocatorImpl locator = new LocatorImpl();
+            locator.setSystemId(path);
+            handler.setDocumentLocator(locator);
+            try
+            {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(events));
+                int event;
+                while ((event = in.readByte()) != END)
+                {
+                    locator.setLineNumber(readVarInt(in));
+                    locator.setColumnNumber(readVarInt(in));
+                    replay(event, in, handler, lexicalHandler);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new SAXException("Corrupted precompiled facelet " + path, e);
+            }
+        }
+
+        private void replay(int event, DataInput in, DefaultHandler handler, LexicalHandler lexicalHandler)
+            throws IOException, SAXException
+        {
+            switch (event)
+            {
+                case START_DOCUMENT:
+                    handler.startDocument();
+                    break;
+                case END_DOCUMENT:
+                    handler.endDocument();
+                    break;
+                case START_ELEMENT:
+                    String uri = readString(in);
+                    String localName = readString(in);
+                    String qName = readString(in);
+                    int length = readVarInt(in);
+                    AttributesImpl attributes = new AttributesImpl();
+                    for (int i = 0; i < length; i++)
+                    {
+                        attributes.addAttribute(readString(in), readString(in), readString(in), readString(in),
+                                readString(in));
+                    }
+                    handler.startElement(uri, localName, qName, attributes);
+                    break;
+                case END_ELEMENT:
+                    handler.endElement(readString(in), readString(in), readString(in));
+                    break;
+                case CHARACTERS:
+                    char[] text = readString(in).toCharArray();
+                    handler.characters(text, 0, text.length);
+                    break;
+                case IGNORABLE_WHITESPACE:
+                    char[] whitespace = readString(in).toCharArray();
+                    handler.ignorableWhitespace(whitespace, 0, whitespace.length);
+                    break;
+                case START_PREFIX_MAPPING:
+                    handler.startPrefixMapping(readString(in), readString(in));
+                    break;
+                case END_PREFIX_MAPPING:
+                    handler.endPrefixMapping(readString(in));
+                    break;
+                case PROCESSING_INSTRUCTION:
+                    handler.processingInstruction(readString(in), readString(in));
+                    break;
+                case COMMENT:
+                    char[] comment = readString(in).toCharArray();
+                    if (lexicalHandler != null)
+                    {
+                        lexicalHandler.comment(comment, 0, comment.length);
+                    }
+                    break;
+                case START_CDATA:
+                    if (lexicalHandler != null)
+                    {
+                        lexicalHandler.startCDATA();
+                    }
+                    break;
+                case END_CDATA:
+                    if (lexicalHandler != null)
+                    {
+                        lexicalHandler.endCDATA();
+                    }
+                    break;
+                case START_DTD:
+                    String name = readString(in);
+                    String publicId = readString(in);
+                    String systemId = readString(in);
+                    if (lexicalHandler != null)
+                    {
+                        lexicalHandler.startDTD(name, publicId, systemId);
+                    }
+                    break;
+                case END_DTD:
+                    if (lexicalHandler != null)
+                    {
+                        lexicalHandler.endDTD();
+                    }
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unknown event " + event);
+            }
+        }
+    }
+
+    /**
+     * Find the precompiled facelet for the source, if it is still valid. The source must have the same
+     * modification time and size as the file the entry was created from.
+     * 
+     * @param path the path of the source relative to the web application root, as resolved by the
+     *        facelet factory
+     * @return the entry or null if the source must be parsed
+     */
+    public Entry getEntry(URL source, String path)
+    {
+        Entry entry = entries.get(path);
+        if (entry == null || !source.getPath().endsWith(path))
+        {
+            return null;
+        }
+
+        URLConnection conn = null;
+        try
+        {
+            conn = source.openConnection();
+            long lastModified = ResourceLoaderUtils.getResourceLastModified(conn);
+            if (lastModified == 0 || lastModified != entry.lastModified
+                    || conn.getContentLengthLong() != entry.length)
+            {
+                if (log.isLoggable(Level.FINE))
+                {
+                    log.fine("Precompiled facelet " + entry.path + " is outdated, parsing " + source);
+                }
+                return null;
+            }
+            return entry;
+        }
+        catch (IOException e)
+        {
+            return null;
+        }
+        finally
+        {
+            if (conn != null)
+            {
+                try
+                {
+                    conn.getInputStream().close();
+                }
+                catch (Exception e)
+                {
+                    // Ignored
+                }
+            }
+        }
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Parse the source and record its events.
+     * 
+     * @param path path used to find the entry, usually the path relative to the web application root
+     */
+    public void add(String path, InputStream source, long lastModified, long length)
+        throws IOException, SAXException, ParserConfigurationException
+    {
+        BufferedInputStream is = new BufferedInputStream(source, 1024);
+        String xmlDeclaration = null;
+        String encoding = null;
+        is.mark(128);
+        byte[] b = new byte[128];
+        if (is.read(b) > 0)
+        {
+            Matcher m = SAXCompiler.XML_DECLARATION.matcher(new String(b));
+            if (m.find())
+            {
+                xmlDeclaration = m.group(0);
+                encoding = m.group(3);
+            }
+        }
+        is.reset();
+
+        ByteArrayOutputStream events = new ByteArrayOutputStream(4096);
+        RecordingHandler handler = new RecordingHandler(new DataOutputStream(events));
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature("http://xml.org/sax/features/namespace-prefixes", true);
+        factory.setValidating(false);
+        SAXParser parser = factory.newSAXParser();
+        XMLReader reader = parser.getXMLReader();
+        reader.setProperty("http://xml.org/sax/properties/lexical-handler", handler);
+        reader.setErrorHandler(handler);
+        reader.setEntityResolver(handler);
+        parser.parse(is, handler);
+        handler.out.writeByte(END);
+
+        entries.put(path, new Entry(path, lastModified, length, xmlDeclaration, encoding, events.toByteArray()));
+    }
+
+    public void write(OutputStream outputStream) throws IOException
+    {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        writeVarInt(out, entries.size());
+        for (Entry entry : entries.values())
+        {
+            writeString(out, entry.path);
+            out.writeLong(entry.lastModified);
+            out.writeLong(entry.length);
+            writeString(out, entry.xmlDeclaration);
+            writeString(out, entry.encoding);
+            writeVarInt(out, entry.events.length);
+            out.write(entry.events);
+        }
+        out.flush();
+    }
+
+    public static PrecompiledFacelets read(InputStream inputStream) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION)
+        {
+            throw new StreamCorruptedException("Not a precompiled facelets file");
+        }
+        PrecompiledFacelets precompiled = new PrecompiledFacelets();
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++)
+        {
+            String path = readString(in);
+            long lastModified = in.readLong();
+            long length = in.readLong();
+            String xmlDeclaration = readString(in);
+            String encoding = readString(in);
+            byte[] events = new byte[readVarInt(in)];
+            in.readFully(events);
+            precompiled.entries.put(path,
+                    new Entry(path, lastModified, length, xmlDeclaration, encoding, events));
+        }
+        return precompiled;
+    }
+
+    /**
+     * Precompile all facelets under a directory.
+     * 
+     * <p>Arguments: source directory, output file and optionally a comma separated list of
+     * file extensions, by default .xhtml,.view.xml</p>
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 2)
+        {
+            System.err.println("Usage: PrecompiledFacelets <sourceDirectory> <outputFile> [extensions]");
+            System.exit(1);
+        }
+        File root = new File(args[0]);
+        String[] extensions = args.length > 2 ? args[2].split(",") : DEFAULT_EXTENSIONS;
+
+        PrecompiledFacelets precompiled = new PrecompiledFacelets();
+        precompile(precompiled, root, "", extensions);
+
+        File output = new File(args[1]);
+        if (output.getParentFile() != null)
+        {
+            output.getParentFile().mkdirs();
+        }
+        try (OutputStream os = new FileOutputStream(output))
+        {
+            precompiled.write(os);
+        }
+        log.info("Precompiled " + precompiled.size() + " facelets into " + output);
+    }
+
+    private static void precompile(PrecompiledFacelets precompiled, File dir, String path, String[] extensions)
+        throws IOException
+    {
+        File[] files = dir.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        for (File file : files)
+        {
+            String filePath = path + '/' + file.getName();
+            if (file.isDirectory())
+            {
+                precompile(precompiled, file, filePath, extensions);
+                continue;
+            }
+            for (String extension : extensions)
+            {
+                if (file.getName().endsWith(extension.trim()))
+                {
+                    try (InputStream is = new FileInputStream(file))
+                    {
+                        precompiled.add(filePath, is, file.lastModified(), file.length());
+                    }
+                    catch (SAXException | ParserConfigurationException e)
+                    {
+                        // It will be parsed at runtime, so the error is reported as usual
+                        log.log(Level.WARNING, "Cannot precompile " + filePath + ": " + e.getMessage());
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private static final class RecordingHandler extends DefaultHandler implements LexicalHandler
+    {
+        private final DataOutputStream out;
+        private Locator locator;
+
+        RecordingHandler(DataOutputStream out)
+        {
+            this.out = out;
+        }
+
+        private void event(int event) throws SAXException
+        {
+            try
+            {
+                out.writeByte(event);
+                writeVarInt(out, locator == null ? -1 : locator.getLineNumber());
+                writeVarInt(out, locator == null ? -1 : locator.getColumnNumber());
+            }
+            catch (IOException e)
+            {
+                throw new SAXException(e);
+            }
+        }
+
+        private void strings(String... values) throws SAXException
+        {
+            try
+            {
+                for (String value : values)
+                {
+                    writeString(out, value);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new SAXException(e);
+            }
+        }
+
+        @Override
+        public void setDocumentLocator(Locator locator)
+        {
+            this.locator = locator;
+        }
+
+        @Override
+        public void startDocument() throws SAXException
+        {
+            event(START_DOCUMENT);
+        }
+
+        @Override
+        public void endDocument() throws SAXException
+        {
+            event(END_DOCUMENT);
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException
+        {
+            event(START_ELEMENT);
+            strings(uri, localName, qName);
+            try
+            {
+                writeVarInt(out, attributes.getLength());
+            }
+            catch (IOException e)
+            {
+                throw new SAXException(e);
+            }
+            for (int i = 0; i < attributes.getLength(); i++)
+            {
+                strings(attributes.getURI(i), attributes.getLocalName(i), attributes.getQName(i),
+                        attributes.getType(i), attributes.getValue(i));
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException
+        {
+            event(END_ELEMENT);
+            strings(uri, localName, qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException
+        {
+            event(CHARACTERS);
+            strings(new String(ch, start, length));
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException
+        {
+            event(IGNORABLE_WHITESPACE);
+            strings(new String(ch, start, length));
+        }
+
+        @Override
+        public void startPrefixMapping(String prefix, String uri) throws SAXException
+        {
+            event(START_PREFIX_MAPPING);
+            strings(prefix, uri);
+        }
+
+        @Override
+        public void endPrefixMapping(String prefix) throws SAXException
+        {
+            event(END_PREFIX_MAPPING);
+            strings(prefix);
+        }
+
+        @Override
+        public void processingInstruction(String target, String data) throws SAXException
+        {
+            event(PROCESSING_INSTRUCTION);
+            strings(target, data);
+        }
+
+        @Override
+        public void comment(char[] ch, int start, int length) throws SAXException
+        {
+            event(COMMENT);
+            strings(new String(ch, start, length));
+        }
+
+        @Override
+        public void startCDATA() throws SAXException
+        {
+            event(START_CDATA);
+        }
+
+        @Override
+        public void endCDATA() throws SAXException
+        {
+            event(END_CDATA);
+        }
+
+        @Override
+        public void startDTD(String name, String publicId, String systemId) throws SAXException
+        {
+            event(START_DTD);
+            strings(name, publicId, systemId);
+        }
+
+        @Override
+        public void endDTD() throws SAXException
+        {
+            event(END_DTD);
+        }
+
+        @Override
+        public void startEntity(String name) throws SAXException
+        {
+        }
+
+        @Override
+        public void endEntity(String name) throws SAXException
+        {
+        }
+
+        @Override
+        public void fatalError(SAXParseException e) throws SAXException
+        {
+            throw e;
+        }
+
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) throws SAXException
+        {
+            // Same as SAXCompiler, so entities are expanded in the same way
+            URL url = ClassUtils.getResource("org/apache/myfaces/resource/default.dtd");
+            return new InputSource(url.toString());
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException
+    {
+        if (value == null)
+        {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, value.length() + 1);
+        for (int i = 0; i < value.length(); i++)
+        {
+            writeVarInt(out, value.charAt(i));
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException
+    {
+        int length = readVarInt(in);
+        if (length == 0)
+        {
+            return null;
+        }
+        char[] chars = new char[length - 1];
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = (char) readVarInt(in);
+        }
+        return new String(chars);
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException
+    {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do
+        {
+            if (shift > 28)
+            {
+                throw new StreamCorruptedException("Malformed varint");
+            }
+            b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        return value;
+    }
+}
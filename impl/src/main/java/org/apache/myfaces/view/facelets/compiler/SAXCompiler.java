@@ -74,9 +74,13 @@ import org.xml.sax.helpers.DefaultHandler;
 public final class SAXCompiler extends Compiler
 {
 
-    private final static Pattern XML_DECLARATION = Pattern
+    final static Pattern XML_DECLARATION = Pattern
             .compile("^<\\?xml.+?version=['\"](.+?)['\"](.+?encoding=['\"]((.+?))['\"])?.*?\\?>");
 
+    // Prefixes added by DefaultFaceletFactory to the path of the facelet in the metadata aliases
+    private static final String VIEW_METADATA_ALIAS_PREFIX = "/viewMetadata";
+    private static final String COMPOSITE_COMPONENT_METADATA_ALIAS_PREFIX = "/compositeComponentMetadata";
+
     /**
      * see https://issues.apache.org/jira/browse/MYFACES-4281
      */
@@ -819,6 +823,17 @@ public final class SAXCompiler extends Compiler
         CompilationManager mngr = null;
         InputStream is = null;
         String encoding = null;
+        PrecompiledFacelets.Entry precompiled = getPrecompiledFacelet(src, alias);
+        if (precompiled != null)
+        {
+            mngr = new CompilationManager(alias, this, getFaceletsProcessingInstructions(src, alias));
+            if (precompiled.getXmlDeclaration() != null
+                    && !mngr.getFaceletsProcessingInstructions().isConsumeXmlDeclaration())
+            {
+                mngr.writeInstruction(precompiled.getXmlDeclaration() + '\n', null);
+            }
+            return replay(precompiled, mngr, new CompilationHandler(mngr, alias), alias);
+        }
         try
         {
             is = new BufferedInputStream(src.openStream(), 1024);
@@ -856,6 +871,13 @@ public final class SAXCompiler extends Compiler
         CompilationManager mngr = null;
         InputStream is = null;
         String encoding = null;
+        PrecompiledFacelets.Entry precompiled = getPrecompiledFacelet(src,
+                removePrefix(alias, VIEW_METADATA_ALIAS_PREFIX));
+        if (precompiled != null)
+        {
+            mngr = new CompilationManager(alias, this, getFaceletsProcessingInstructions(src, alias));
+            return replay(precompiled, mngr, new ViewMetadataHandler(mngr, alias), alias);
+        }
         try
         {
             is = new BufferedInputStream(src.openStream(), 1024);
@@ -920,6 +942,13 @@ public final class SAXCompiler extends Compiler
         CompilationManager mngr = null;
         InputStream is = null;
         String encoding = null;
+        PrecompiledFacelets.Entry precompiled = getPrecompiledFacelet(src,
+                removePrefix(alias, COMPOSITE_COMPONENT_METADATA_ALIAS_PREFIX));
+        if (precompiled != null)
+        {
+            mngr = new CompilationManager(alias, this, getFaceletsProcessingInstructions(src, alias));
+            return replay(precompiled, mngr, new CompositeComponentMetadataHandler(mngr, alias), alias);
+        }
         try
         {
             is = new BufferedInputStream(src.openStream(), 1024);
@@ -1029,6 +1058,25 @@ public final class SAXCompiler extends Compiler
         return handler;
     }
     
+    private static String removePrefix(String alias, String prefix)
+    {
+        return alias.startsWith(prefix) ? alias.substring(prefix.length()) : alias;
+    }
+
+    private FaceletHandler replay(PrecompiledFacelets.Entry precompiled, CompilationManager mngr,
+            DefaultHandler handler, String alias)
+    {
+        try
+        {
+            precompiled.replay(handler);
+        }
+        catch (SAXException e)
+        {
+            throw new FaceletException("Error Parsing " + alias + ": " + e.getMessage(), e.getCause());
+        }
+        return new EncodingHandler(mngr.createFaceletHandler(), precompiled.getEncoding());
+    }
+
     protected FaceletsProcessingInstructions getDefaultFaceletsProcessingInstructions()
     {
         return FaceletsProcessingInstructions.getProcessingInstructions(FaceletsProcessing.PROCESS_AS_XHTML, false);
@@ -50,4 +50,9 @@ final class StartElementInstruction implements Instruction
     {
         return true;
     }
+
+    String getElement()
+    {
+        return this.element;
+    }
 }
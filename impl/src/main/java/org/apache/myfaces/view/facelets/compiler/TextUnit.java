@@ -54,6 +54,7 @@ final class TextUnit extends CompilationUnit
     private final List<Object> messages;
     private final boolean escapeInlineText;
     private final boolean compressSpaces;
+    private final boolean prerenderMarkup;
     private final Location location;
 
     public TextUnit(String alias, String id, Location location)
@@ -67,6 +68,12 @@ final class TextUnit extends CompilationUnit
     }
     
     public TextUnit(String alias, String id, boolean escapeInlineText, boolean compressSpaces, Location location)
+    {
+        this(alias, id, escapeInlineText, compressSpaces, false, location);
+    }
+
+    public TextUnit(String alias, String id, boolean escapeInlineText, boolean compressSpaces,
+            boolean prerenderMarkup, Location location)
     {
         this.alias = alias;
         this.id = id;
@@ -79,6 +86,7 @@ final class TextUnit extends CompilationUnit
         this.messages = new ArrayList<Object>(4);
         this.escapeInlineText = escapeInlineText;
         this.compressSpaces = compressSpaces;
+        this.prerenderMarkup = prerenderMarkup;
         this.location = location;
     }
 
@@ -402,6 +410,10 @@ final class TextUnit extends CompilationUnit
                     }
                     Instruction[] instructions = (Instruction[]) this.instructionBuffer
                             .toArray(new Instruction[size]);
+                    if (prerenderMarkup)
+                    {
+                        instructions = LiteralMarkupInstruction.merge(instructions);
+                    }
                     this.children.add(new UIInstructionHandler(this.alias, this.id, instructions, txt));
                     this.instructionBuffer.clear();
                 }
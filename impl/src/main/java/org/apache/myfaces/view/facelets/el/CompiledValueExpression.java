@@ -0,0 +1,576 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.el;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import javax.el.ELClass;
+import javax.el.ELContext;
+import javax.el.ELException;
+import javax.el.ELResolver;
+import javax.el.PropertyNotFoundException;
+import javax.el.ValueExpression;
+import javax.el.ValueReference;
+import javax.el.VariableMapper;
+import javax.faces.FacesWrapper;
+import javax.faces.application.ResourceHandler;
+import javax.faces.component.UIComponent;
+import javax.faces.context.ExternalContext;
+import javax.faces.context.FacesContext;
+
+import org.apache.myfaces.config.RuntimeConfig;
+import org.apache.myfaces.core.api.shared.lang.PropertyDescriptorUtils;
+import org.apache.myfaces.core.api.shared.lang.PropertyDescriptorWrapper;
+
+/**
+ * ValueExpression that evaluates simple expressions like #{bean.property.nested}, #{empty bean.list},
+ * #{not empty bean.list}, #{bean.value == null} or #{bean.value != null} without the EL implementation,
+ * once they were evaluated a given number of times through the wrapped expression.
+ * 
+ * <p>The root identifier is resolved through the ELResolver as usual. Every property after it is read
+ * calling the getter of the bean through a MethodHandle, that is cached by the class of the bean the last
+ * time the property was read. Properties of beans handled by other ELResolvers than the BeanELResolver
+ * (maps, lists, arrays, resource bundles, components...) are resolved through the ELResolver chain.</p>
+ * 
+ * <p>Instances should only be created through {@link #wrap(ELContext, ValueExpression, int)}, that
+ * checks if the expression can be compiled.</p>
+ */
+public class CompiledValueExpression extends ValueExpression implements Externalizable,
+        FacesWrapper<ValueExpression>
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int MODE_VALUE = 0;
+    private static final int MODE_EMPTY = 1;
+    private static final int MODE_NOT_EMPTY = 2;
+    private static final int MODE_NULL = 3;
+    private static final int MODE_NOT_NULL = 4;
+
+    private static final String[] RESERVED_WORDS = { "and", "or", "not", "eq", "ne", "lt", "gt", "le", "ge",
+        "true", "false", "null", "instanceof", "empty", "div", "mod" };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private ValueExpression orig;
+    private int threshold;
+
+    private transient String[] path;
+    private transient int mode;
+    private transient int evaluations;
+    private transient volatile Accessor[] accessors;
+
+    public CompiledValueExpression()
+    {
+        super();
+    }
+
+    private CompiledValueExpression(ValueExpression orig, int threshold, String[] path, int mode)
+    {
+        this.orig = orig;
+        this.threshold = threshold;
+        this.path = path;
+        this.mode = mode;
+    }
+
+    /**
+     * Wraps the given expression into a CompiledValueExpression, if it is a simple expression, its root
+     * identifier is not a variable of the given context and there are no custom ELResolvers. Otherwise
+     * the expression is returned as is.
+     */
+    public static ValueExpression wrap(ELContext context, ValueExpression orig, int threshold)
+    {
+        if (orig.isLiteralText() || hasCustomELResolvers(context))
+        {
+            return orig;
+        }
+
+        int[] parsedMode = new int[1];
+        String[] parsedPath = parse(orig.getExpressionString(), parsedMode);
+        if (parsedPath == null)
+        {
+            return orig;
+        }
+
+        VariableMapper variableMapper = context.getVariableMapper();
+        if (variableMapper != null && variableMapper.resolveVariable(parsedPath[0]) != null)
+        {
+            return orig;
+        }
+
+        return new CompiledValueExpression(orig, threshold, parsedPath, parsedMode[0]);
+    }
+
+    private static boolean hasCustomELResolvers(ELContext context)
+    {
+        RuntimeConfig runtimeConfig = RuntimeConfig.getCurrentInstance(getFacesContext(context).getExternalContext());
+        List<ELResolver> facesConfigResolvers = runtimeConfig.getFacesConfigElResolvers();
+        List<ELResolver> applicationResolvers = runtimeConfig.getApplicationElResolvers();
+        return (facesConfigResolvers != null && !facesConfigResolvers.isEmpty())
+                || (applicationResolvers != null && !applicationResolvers.isEmpty());
+    }
+
+    /**
+     * Returns the identifiers of the expression, or null if it is not a simple expression that can be
+     * compiled. The first element of mode is set to the operation applied to the value.
+     */
+    static String[] parse(String expression, int[] mode)
+    {
+        if (expression == null)
+        {
+            return null;
+        }
+        String expr = expression.trim();
+        if (expr.length() < 4 || (!expr.startsWith("#{") && !expr.startsWith("${")) || !expr.endsWith("}"))
+        {
+            return null;
+        }
+        expr = expr.substring(2, expr.length() - 1).trim();
+
+        mode[0] = MODE_VALUE;
+        if (expr.startsWith("not empty "))
+        {
+            mode[0] = MODE_NOT_EMPTY;
+            expr = expr.substring(10).trim();
+        }
+        else if (expr.startsWith("!"))
+        {
+            String rest = expr.substring(1).trim();
+            if (!rest.startsWith("empty "))
+            {
+                return null;
+            }
+            mode[0] = MODE_NOT_EMPTY;
+            expr = rest.substring(6).trim();
+        }
+        else if (expr.startsWith("empty "))
+        {
+            mode[0] = MODE_EMPTY;
+            expr = expr.substring(6).trim();
+        }
+
+        if (mode[0] == MODE_VALUE)
+        {
+            int i = expr.indexOf(' ');
+            if (i > 0)
+            {
+                String operation = expr.substring(i).trim();
+                if (operation.equals("== null") || operation.equals("eq null"))
+                {
+                    mode[0] = MODE_NULL;
+                }
+                else if (operation.equals("!= null") || operation.equals("ne null"))
+                {
+                    mode[0] = MODE_NOT_NULL;
+                }
+                else
+                {
+                    return null;
+                }
+                expr = expr.substring(0, i);
+            }
+        }
+
+        String[] identifiers = expr.split("\\.", -1);
+        if (identifiers.length < 2 && mode[0] == MODE_VALUE)
+        {
+            // nothing to compile, only the root identifier is resolved
+            return null;
+        }
+        for (String identifier : identifiers)
+        {
+            if (!isIdentifier(identifier))
+            {
+                return null;
+            }
+        }
+        return identifiers;
+    }
+
+    private static boolean isIdentifier(String identifier)
+    {
+        if (identifier.isEmpty() || !Character.isJavaIdentifierStart(identifier.charAt(0)))
+        {
+            return false;
+        }
+        for (int i = 1; i < identifier.length(); i++)
+        {
+            if (!Character.isJavaIdentifierPart(identifier.charAt(i)))
+            {
+                return false;
+            }
+        }
+        for (String reserved : RESERVED_WORDS)
+        {
+            if (reserved.equals(identifier))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the expression is evaluated without the EL implementation.
+     */
+    public boolean isCompiled()
+    {
+        return accessors != null;
+    }
+
+    @Override
+    public Object getValue(ELContext context)
+    {
+        Accessor[] localAccessors = accessors;
+        if (localAccessors == null)
+        {
+            // The counter is not synchronized, it does not matter if some evaluations are lost
+            if (path == null || ++evaluations < threshold)
+            {
+                return orig.getValue(context);
+            }
+            localAccessors = new Accessor[path.length - 1];
+            accessors = localAccessors;
+        }
+
+        String root = path[0];
+        if (context.isLambdaArgument(root))
+        {
+            return orig.getValue(context);
+        }
+
+        // The root is resolved before the listeners are notified, so an expression handed to the EL
+        // implementation is only notified once. Nothing has been evaluated when the root is not resolved.
+        ELResolver resolver = context.getELResolver();
+        context.setPropertyResolved(false);
+        Object base = resolver.getValue(context, null, root);
+        if (!context.isPropertyResolved())
+        {
+            // imported classes and unknown identifiers are handled by the EL implementation
+            return orig.getValue(context);
+        }
+
+        String expressionString = orig.getExpressionString();
+        context.notifyBeforeEvaluation(expressionString);
+
+        for (int i = 1; i < path.length && base != null; i++)
+        {
+            String property = path[i];
+            Accessor accessor = localAccessors[i - 1];
+            Class<?> type = base.getClass();
+            if (accessor == null || accessor.type != type)
+            {
+                accessor = createAccessor(context, type, property);
+                localAccessors[i - 1] = accessor;
+            }
+
+            if (accessor.getter == null)
+            {
+                context.setPropertyResolved(false);
+                Object value = resolver.getValue(context, base, property);
+                if (!context.isPropertyResolved())
+                {
+                    // the same error the EL implementation reports, the getters before must not run again
+                    throw new PropertyNotFoundException("Property [" + property + "] not found on type ["
+                            + type.getName() + "]");
+                }
+                base = value;
+            }
+            else
+            {
+                try
+                {
+                    base = (Object) accessor.getter.invokeExact(base);
+                }
+                catch (VirtualMachineError | ThreadDeath e)
+                {
+                    throw e;
+                }
+                catch (Throwable e)
+                {
+                    throw new ELException("Error reading [" + property + "] on type [" + type.getName() + "]", e);
+                }
+                context.setPropertyResolved(base, property);
+            }
+        }
+
+        Object value;
+        switch (mode)
+        {
+            case MODE_EMPTY:
+                value = isEmpty(base);
+                break;
+            case MODE_NOT_EMPTY:
+                value = !isEmpty(base);
+                break;
+            case MODE_NULL:
+                value = base == null;
+                break;
+            case MODE_NOT_NULL:
+                value = base != null;
+                break;
+            default:
+                value = base;
+        }
+
+        Class<?> expectedType = orig.getExpectedType();
+        if (expectedType != null && expectedType != Object.class && !expectedType.isInstance(value))
+        {
+            value = coerceToType(context, value, expectedType);
+        }
+
+        context.notifyAfterEvaluation(expressionString);
+        return value;
+    }
+
+    /**
+     * Same as ELContext.convertToType, but uses the ExpressionFactory of the application instead of the
+     * one created by the ELManager.
+     */
+    private static Object coerceToType(ELContext context, Object value, Class<?> type)
+    {
+        boolean originalResolved = context.isPropertyResolved();
+        context.setPropertyResolved(false);
+        try
+        {
+            Object result = context.getELResolver().convertToType(context, value, type);
+            if (context.isPropertyResolved())
+            {
+                return result;
+            }
+        }
+        finally
+        {
+            context.setPropertyResolved(originalResolved);
+        }
+        return getFacesContext(context).getApplication().getExpressionFactory().coerceToType(value, type);
+    }
+
+    private static FacesContext getFacesContext(ELContext context)
+    {
+        FacesContext facesContext = (FacesContext) context.getContext(FacesContext.class);
+        return facesContext == null ? FacesContext.getCurrentInstance() : facesContext;
+    }
+
+    private static boolean isEmpty(Object value)
+    {
+        if (value == null)
+        {
+            return true;
+        }
+        if (value instanceof String)
+        {
+            return ((String) value).isEmpty();
+        }
+        if (value instanceof Object[])
+        {
+            return ((Object[]) value).length == 0;
+        }
+        if (value instanceof Collection)
+        {
+            return ((Collection<?>) value).isEmpty();
+        }
+        if (value instanceof Map)
+        {
+            return ((Map<?, ?>) value).isEmpty();
+        }
+        return false;
+    }
+
+    private static Accessor createAccessor(ELContext context, Class<?> type, String property)
+    {
+        if (type.isArray()
+                || Map.class.isAssignableFrom(type)
+                || List.class.isAssignableFrom(type)
+                || ResourceBundle.class.isAssignableFrom(type)
+                || UIComponent.class.isAssignableFrom(type)
+                || ResourceHandler.class.isAssignableFrom(type)
+                || ELClass.class.isAssignableFrom(type))
+        {
+            return new Accessor(type, null);
+        }
+
+        ExternalContext externalContext = getFacesContext(context).getExternalContext();
+        PropertyDescriptorWrapper descriptor = PropertyDescriptorUtils
+                .getCachedPropertyDescriptors(externalContext, type).get(property);
+        Method method = descriptor == null ? null : getPublicMethod(type, descriptor.getReadMethod());
+        if (method == null)
+        {
+            return new Accessor(type, null);
+        }
+
+        try
+        {
+            return new Accessor(type, MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE));
+        }
+        catch (IllegalAccessException e)
+        {
+            return new Accessor(type, null);
+        }
+    }
+
+    /**
+     * Returns the given method, or the same method declared by a public superclass or interface if the
+     * class that declares it is not public, like the BeanELResolver does.
+     */
+    private static Method getPublicMethod(Class<?> type, Method method)
+    {
+        if (method == null || !Modifier.isPublic(method.getModifiers()))
+        {
+            return null;
+        }
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers()))
+        {
+            return method;
+        }
+        for (Class<?> c = type; c != null; c = c.getSuperclass())
+        {
+            if (Modifier.isPublic(c.getModifiers()))
+            {
+                try
+                {
+                    return c.getMethod(method.getName(), method.getParameterTypes());
+                }
+                catch (NoSuchMethodException e)
+                {
+                    // try the interfaces
+                }
+            }
+            for (Class<?> i : c.getInterfaces())
+            {
+                Method m = getPublicMethod(i, method);
+                if (m != null)
+                {
+                    return m;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class Accessor
+    {
+        private final Class<?> type;
+        private final MethodHandle getter;
+
+        private Accessor(Class<?> type, MethodHandle getter)
+        {
+            this.type = type;
+            this.getter = getter;
+        }
+    }
+
+    @Override
+    public Class<?> getExpectedType()
+    {
+        return orig.getExpectedType();
+    }
+
+    @Override
+    public Class<?> getType(ELContext context)
+    {
+        return orig.getType(context);
+    }
+
+    @Override
+    public boolean isReadOnly(ELContext context)
+    {
+        return orig.isReadOnly(context);
+    }
+
+    @Override
+    public void setValue(ELContext context, Object value)
+    {
+        orig.setValue(context, value);
+    }
+
+    @Override
+    public ValueReference getValueReference(ELContext context)
+    {
+        return orig.getValueReference(context);
+    }
+
+    @Override
+    public String getExpressionString()
+    {
+        return orig.getExpressionString();
+    }
+
+    @Override
+    public boolean isLiteralText()
+    {
+        return orig.isLiteralText();
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj instanceof CompiledValueExpression)
+        {
+            return orig.equals(((CompiledValueExpression) obj).orig);
+        }
+        return orig.equals(obj);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return orig.hashCode();
+    }
+
+    @Override
+    public ValueExpression getWrapped()
+    {
+        return orig;
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        orig = (ValueExpression) in.readObject();
+        threshold = in.readInt();
+        int[] parsedMode = new int[1];
+        path = parse(orig.getExpressionString(), parsedMode);
+        mode = parsedMode[0];
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeObject(orig);
+        out.writeInt(threshold);
+    }
+
+    @Override
+    public String toString()
+    {
+        return orig.toString();
+    }
+}
@@ -24,6 +24,7 @@ import javax.faces.context.FacesContext;
 import javax.faces.view.facelets.FaceletCache;
 import javax.faces.view.facelets.FaceletCacheFactory;
 import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.resource.FileChangeWatcher;
 
 import org.apache.myfaces.util.WebConfigParamUtils;
 import org.apache.myfaces.view.facelets.ELExpressionCacheMode;
@@ -64,7 +65,7 @@ public class FaceletCacheFactoryImpl extends FaceletCacheFactory
         }
         else
         {
-            return new FaceletCacheImpl(refreshPeriod);
+            return new FaceletCacheImpl(refreshPeriod, FileChangeWatcher.getInstance(context.getExternalContext()));
         }
     }
 
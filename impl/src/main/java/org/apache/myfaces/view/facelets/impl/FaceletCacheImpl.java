@@ -22,12 +22,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.faces.view.facelets.FaceletCache;
 import javax.faces.view.facelets.FaceletException;
 
+import org.apache.myfaces.resource.FileChangeWatcher;
 import org.apache.myfaces.resource.ResourceLoaderUtils;
 import org.apache.myfaces.util.lang.Assert;
 
@@ -44,27 +51,64 @@ import org.apache.myfaces.util.lang.Assert;
  * the other ones used for views or the one used to apply the composite component
  * itself.  
  * 
+ * Facelets are kept in concurrent maps and each one is compiled only once, even if several
+ * threads request it at the same time. When a refresh period is set, the sources of all
+ * cached facelets are checked together once per period instead of on every lookup. Facelets
+ * watched by a FileChangeWatcher are not checked, they are evicted when their file changes.
+ * 
  * @author Leonardo Uribe
  * @since 2.1.0
  *
  */
 class FaceletCacheImpl extends FaceletCache<DefaultFacelet>
 {
+    private static final Logger log = Logger.getLogger(FaceletCacheImpl.class.getName());
 
     private static final long INFINITE_DELAY = -1;
     private static final long NO_CACHE_DELAY = 0;
     
-    private Map<String, DefaultFacelet> _facelets;
+    private final Map<String, DefaultFacelet> _facelets;
     
-    private Map<String, DefaultFacelet> _viewMetadataFacelets;
+    private final Map<String, DefaultFacelet> _viewMetadataFacelets;
+
+    /**
+     * Facelets being compiled right now, so concurrent requests for the same url wait for the
+     * result instead of compiling it again.
+     */
+    private final Map<String, FutureTask<DefaultFacelet>> _loadingFacelets;
 
-    private long _refreshPeriod;
+    private final Map<String, FutureTask<DefaultFacelet>> _loadingViewMetadataFacelets;
+
+    private final long _refreshPeriod;
+    
+    private final AtomicLong _nextRefreshCheck;
+    
+    private final FileChangeWatcher _watcher;
+
+    private final Set<String> _watchedKeys;
+
+    /**
+     * Incremented each time the watcher evicts a facelet, so a facelet compiled while its file
+     * changed is not kept in the cache.
+     */
+    private final AtomicLong _watcherEvictions;
     
     FaceletCacheImpl(long refreshPeriod)
+    {
+        this(refreshPeriod, null);
+    }
+
+    FaceletCacheImpl(long refreshPeriod, FileChangeWatcher watcher)
     {
         _refreshPeriod = refreshPeriod < 0 ? INFINITE_DELAY : refreshPeriod * 1000;
-        _facelets = new HashMap<>();
-        _viewMetadataFacelets = new HashMap<>();
+        _facelets = new ConcurrentHashMap<>();
+        _viewMetadataFacelets = new ConcurrentHashMap<>();
+        _loadingFacelets = new ConcurrentHashMap<>();
+        _loadingViewMetadataFacelets = new ConcurrentHashMap<>();
+        _nextRefreshCheck = new AtomicLong(System.currentTimeMillis() + _refreshPeriod);
+        _watcher = _refreshPeriod > 0 ? watcher : null;
+        _watchedKeys = ConcurrentHashMap.newKeySet();
+        _watcherEvictions = new AtomicLong();
     }
 
     @Override
@@ -72,19 +116,19 @@ class FaceletCacheImpl extends FaceletCache<DefaultFacelet>
     {
         Assert.notNull(url, "url");
         
+        if (_refreshPeriod == NO_CACHE_DELAY)
+        {
+            return getMemberFactory().newInstance(url);
+        }
+        
+        checkForModifications();
+
         String key = url.toString();
 
         DefaultFacelet f = _facelets.get(key);
-        if (f == null || this.needsToBeRefreshed(f))
+        if (f == null)
         {
-            //f = this._createFacelet(url);
-            f = getMemberFactory().newInstance(url);
-            if (_refreshPeriod != NO_CACHE_DELAY)
-            {
-                Map<String, DefaultFacelet> newLoc = new HashMap<>(_facelets);
-                newLoc.put(key, f);
-                _facelets = newLoc;
-            }
+            f = load(_facelets, _loadingFacelets, key, url, getMemberFactory());
         }
         
         return f;
@@ -101,20 +145,19 @@ class FaceletCacheImpl extends FaceletCache<DefaultFacelet>
     {
         Assert.notNull(url, "url");
         
+        if (_refreshPeriod == NO_CACHE_DELAY)
+        {
+            return getMetadataMemberFactory().newInstance(url);
+        }
+        
+        checkForModifications();
+
         String key = url.toString();
         
         DefaultFacelet f = _viewMetadataFacelets.get(key);
-        
-        if (f == null || this.needsToBeRefreshed(f))
+        if (f == null)
         {
-            //f = this._createViewMetadataFacelet(url);
-            f = getMetadataMemberFactory().newInstance(url);
-            if (_refreshPeriod != NO_CACHE_DELAY)
-            {
-                Map<String, DefaultFacelet> newLoc = new HashMap<>(_viewMetadataFacelets);
-                newLoc.put(key, f);
-                _viewMetadataFacelets = newLoc;
-            }
+            f = load(_viewMetadataFacelets, _loadingViewMetadataFacelets, key, url, getMetadataMemberFactory());
         }
         
         return f;
@@ -126,6 +169,152 @@ class FaceletCacheImpl extends FaceletCache<DefaultFacelet>
         return _viewMetadataFacelets.containsKey(url.toString());
     }
 
+    /**
+     * Compile the facelet and publish it in the cache. If another thread is already compiling the
+     * same url, wait for its result.
+     */
+    private DefaultFacelet load(Map<String, DefaultFacelet> facelets,
+            Map<String, FutureTask<DefaultFacelet>> loading, String key, URL url,
+            final FaceletCache.MemberFactory<DefaultFacelet> memberFactory) throws IOException
+    {
+        FutureTask<DefaultFacelet> task = loading.get(key);
+        if (task == null)
+        {
+            watch(key, url);
+
+            FutureTask<DefaultFacelet> newTask = new FutureTask<>(() -> memberFactory.newInstance(url));
+            task = loading.putIfAbsent(key, newTask);
+            if (task == null)
+            {
+                try
+                {
+                    // it could have been published between the lookup and the registration of the task
+                    DefaultFacelet f = facelets.get(key);
+                    if (f != null)
+                    {
+                        return f;
+                    }
+
+                    long evictions = _watcherEvictions.get();
+                    newTask.run();
+                    f = getResult(newTask, url);
+                    facelets.put(key, f);
+                    // published after an eviction, the file may have changed after it was read
+                    if (_watcherEvictions.get() != evictions)
+                    {
+                        facelets.remove(key, f);
+                    }
+                    return f;
+                }
+                finally
+                {
+                    loading.remove(key, newTask);
+                }
+            }
+        }
+        return getResult(task, url);
+    }
+
+    private DefaultFacelet getResult(FutureTask<DefaultFacelet> task, URL url) throws IOException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new FaceletException("Interrupted while waiting for " + url, e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new FaceletException("Error creating facelet for " + url, cause);
+        }
+    }
+
+    /**
+     * Register the source with the watcher the first time it is loaded, before it is read.
+     */
+    private void watch(final String key, URL url)
+    {
+        if (_watcher != null && _watchedKeys.add(key))
+        {
+            boolean watched = _watcher.watch(url, () -> 
+            {
+                _watcherEvictions.incrementAndGet();
+                _facelets.remove(key);
+                _viewMetadataFacelets.remove(key);
+            });
+            if (!watched)
+            {
+                _watchedKeys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Once per refresh period, check all cached facelets and evict the ones whose source has
+     * changed. Only the thread that wins the update of the next check time does the work, the
+     * other ones keep serving the cached facelets.
+     */
+    private void checkForModifications()
+    {
+        if (_refreshPeriod == INFINITE_DELAY)
+        {
+            return;
+        }
+
+        long next = _nextRefreshCheck.get();
+        long now = System.currentTimeMillis();
+        if (now <= next || !_nextRefreshCheck.compareAndSet(next, now + _refreshPeriod))
+        {
+            return;
+        }
+
+        evictModified(_facelets);
+        evictModified(_viewMetadataFacelets);
+    }
+
+    private void evictModified(Map<String, DefaultFacelet> facelets)
+    {
+        for (Map.Entry<String, DefaultFacelet> entry : facelets.entrySet())
+        {
+            if (_watchedKeys.contains(entry.getKey()))
+            {
+                continue;
+            }
+
+            boolean refresh;
+            try
+            {
+                refresh = needsToBeRefreshed(entry.getValue());
+            }
+            catch (FaceletException e)
+            {
+                // only this facelet is compiled again, the other ones are still checked
+                log.log(Level.WARNING, e.getMessage(), e);
+                refresh = true;
+            }
+            if (refresh)
+            {
+                facelets.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
     /**
      * Template method for determining if the Facelet needs to be refreshed.
      * 
@@ -77,13 +77,29 @@ public abstract class ViewPool
      * Defines the type of memory reference that is used to hold the view into memory. By
      * default a "soft" reference is used. 
      */
-    @JSFWebConfigParam(defaultValue="soft", expectedValues="weak,soft", tags="performance")
+    @JSFWebConfigParam(defaultValue="soft", expectedValues="weak,soft,strong", tags="performance")
     public static final String INIT_PARAM_VIEW_POOL_ENTRY_MODE =
             "org.apache.myfaces.VIEW_POOL_ENTRY_MODE";
     public static final String ENTRY_MODE_SOFT = "soft";
     public static final String ENTRY_MODE_WEAK = "weak";
+    /**
+     * Views are not reclaimed by the garbage collector. Use it together with
+     * org.apache.myfaces.VIEW_POOL_MAX_TOTAL_SIZE to limit the memory used by the pool.
+     */
+    public static final String ENTRY_MODE_STRONG = "strong";
     public static final String INIT_PARAM_VIEW_POOL_ENTRY_MODE_DEFAULT = ENTRY_MODE_SOFT;
     
+    /**
+     * Defines the max number of views hold by the pool, considering all view metadata
+     * definitions. When the limit is exceeded, a view from the view metadata definition
+     * that was not requested for the longest time is removed. By default is 0, which means
+     * there is no global limit.
+     */
+    @JSFWebConfigParam(defaultValue="0", tags="performance")
+    public static final String INIT_PARAM_VIEW_POOL_MAX_TOTAL_SIZE =
+            "org.apache.myfaces.VIEW_POOL_MAX_TOTAL_SIZE";
+    public static final int INIT_PARAM_VIEW_POOL_MAX_TOTAL_SIZE_DEFAULT = 0;
+
     /**
      * Defines if the view pool uses deferred navigation to recycle views when navigation
      * is performed. The difference is a normal navigation is not done when the broadcast is
@@ -126,4 +142,23 @@ public abstract class ViewPool
     public abstract ViewEntry popDynamicStructureView(FacesContext context, UIViewRoot root,
             FaceletState faceletDynamicState);
 
+    /**
+     * Notify the time spent building a view that could not be taken from the pool.
+     * 
+     * @param context
+     * @param root
+     * @param buildTime time in nanoseconds
+     */
+    public void viewBuilt(FacesContext context, UIViewRoot root, long buildTime)
+    {
+    }
+
+    /**
+     * @return the counters of this pool or null if the pool does not keep them.
+     */
+    public ViewPoolStatistics getStatistics()
+    {
+        return null;
+    }
+
 }
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a ViewPool, to check if the pool is worth for the views of the application.
+ */
+public class ViewPoolStatistics
+{
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder buildTime = new LongAdder();
+
+    public void hit()
+    {
+        hits.increment();
+    }
+
+    public void miss()
+    {
+        misses.increment();
+    }
+
+    public void evicted()
+    {
+        evictions.increment();
+    }
+
+    public void built(long nanos)
+    {
+        builds.increment();
+        buildTime.add(nanos);
+    }
+
+    /**
+     * @return number of views taken from the pool
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of views requested to the pool when there was no view available
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * @return number of views removed from the pool, because the memory limit was
+     * exceeded or the view was reclaimed by the garbage collector.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * @return number of views built from the facelet, because they could not be taken from the pool
+     */
+    public long getBuildCount()
+    {
+        return builds.sum();
+    }
+
+    /**
+     * @return total time in nanoseconds spent building views from the facelet
+     */
+    public long getTotalBuildTime()
+    {
+        return buildTime.sum();
+    }
+
+    public double getHitRatio()
+    {
+        long h = getHitCount();
+        long total = h + getMissCount();
+        return total == 0 ? 0 : ((double) h) / total;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ViewPoolStatistics{hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount() + ", builds=" + getBuildCount()
+                + ", buildTime=" + getTotalBuildTime() + "ns}";
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.pool.impl;
+
+import javax.faces.component.UIViewRoot;
+import org.apache.myfaces.view.facelets.pool.RestoreViewFromPoolResult;
+import org.apache.myfaces.view.facelets.pool.ViewEntry;
+
+/**
+ * Holds the view with a strong reference. The pool is responsible of limit
+ * the memory used, evicting the views not used recently.
+ */
+public class StrongViewEntry extends ViewEntry
+{
+    private UIViewRoot viewRoot;
+    private RestoreViewFromPoolResult result;
+
+    public StrongViewEntry(UIViewRoot viewRoot)
+    {
+        this.viewRoot = viewRoot;
+    }
+    
+    @Override
+    public boolean activate()
+    {
+        return viewRoot != null;
+    }
+
+    @Override
+    public UIViewRoot getViewRoot()
+    {
+        return viewRoot;
+    }
+
+    @Override
+    public RestoreViewFromPoolResult getResult()
+    {
+        return result;
+    }
+
+    @Override
+    public void setResult(RestoreViewFromPoolResult result)
+    {
+        this.result = result;
+    }
+}
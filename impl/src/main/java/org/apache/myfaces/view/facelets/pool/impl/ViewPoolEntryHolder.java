@@ -35,6 +35,9 @@ import org.apache.myfaces.view.facelets.pool.ViewEntry;
  * <li>View creation is quite fast, so according to previous tests done,
  * include any syncronized method in this code will produce worse performance.</li>
  * </ol>
+ * 
+ * <p>Since a view is only added after a request used it, the number of views hold
+ * follows the number of requests using the view at the same time, up to maxCount.</p>
  *
  * @author Leonardo Uribe
  */
@@ -53,19 +56,37 @@ public class ViewPoolEntryHolder
     
     public boolean add(ViewEntry entry)
     {
-        if (count.get() < maxCount)
+        if (count.incrementAndGet() <= maxCount)
         {
             queue.add(entry);
-            count.incrementAndGet();
             return true;
         }
+        count.decrementAndGet();
         return false;
     }
     
     public ViewEntry poll()
     {
         ViewEntry entry = queue.poll();
-        count.decrementAndGet();
+        if (entry != null)
+        {
+            count.decrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Remove one view, because the pool exceeds its max total size.
+     * 
+     * @return the removed entry or null if there is no view in this holder
+     */
+    public ViewEntry evict()
+    {
+        ViewEntry entry = queue.poll();
+        if (entry != null)
+        {
+            count.decrementAndGet();
+        }
         return entry;
     }
     
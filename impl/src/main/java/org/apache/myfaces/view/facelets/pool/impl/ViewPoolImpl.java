@@ -20,8 +20,10 @@ package org.apache.myfaces.view.facelets.pool.impl;
 
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.faces.component.UIViewRoot;
 import javax.faces.context.FacesContext;
 import org.apache.myfaces.context.RequestViewContext;
@@ -29,6 +31,7 @@ import org.apache.myfaces.util.WebConfigParamUtils;
 import org.apache.myfaces.view.facelets.pool.RestoreViewFromPoolResult;
 import org.apache.myfaces.view.facelets.pool.ViewPool;
 import org.apache.myfaces.view.facelets.pool.ViewEntry;
+import org.apache.myfaces.view.facelets.pool.ViewPoolStatistics;
 import org.apache.myfaces.view.facelets.pool.ViewStructureMetadata;
 import org.apache.myfaces.view.facelets.tag.jsf.FaceletState;
 
@@ -49,9 +52,10 @@ public class ViewPoolImpl extends ViewPool
     private Map<MetadataViewKey, ViewPoolEntryHolder> partialStructureViewPool;
     
     private final int maxCount;
+    private final int maxTotalCount;
     private final int dynamicPartialLimit;
     
-    private final boolean entryWeak;
+    private final String entryMode;
     private final boolean deferredNavigation;
     
     // View metadata
@@ -59,6 +63,11 @@ public class ViewPoolImpl extends ViewPool
     private Map<MetadataViewKey, Map<DynamicViewKey, ViewStructureMetadata>> 
             dynamicStructureViewMetadataMap;
     
+    private final AtomicInteger totalCount = new AtomicInteger();
+    // Holders in access order, the least recently used goes first. Only used if maxTotalCount > 0.
+    private final LinkedHashMap<ViewPoolEntryHolder, Boolean> recentlyUsed = new LinkedHashMap<>(16, 0.75f, true);
+    private final ViewPoolStatistics statistics = new ViewPoolStatistics();
+    
     public ViewPoolImpl(FacesContext facesContext, Map<String, String> parameters)
     {
         staticStructureViewPool = new ConcurrentHashMap<>();
@@ -69,17 +78,21 @@ public class ViewPoolImpl extends ViewPool
                 parameters.containsKey(INIT_PARAM_VIEW_POOL_MAX_POOL_SIZE) ? 
                     Integer.parseInt(parameters.get(INIT_PARAM_VIEW_POOL_MAX_POOL_SIZE)) :
                     INIT_PARAM_VIEW_POOL_MAX_POOL_SIZE_DEFAULT);
+        maxTotalCount = WebConfigParamUtils.getIntegerInitParameter(facesContext.getExternalContext(),
+                INIT_PARAM_VIEW_POOL_MAX_TOTAL_SIZE, 
+                parameters.containsKey(INIT_PARAM_VIEW_POOL_MAX_TOTAL_SIZE) ? 
+                    Integer.parseInt(parameters.get(INIT_PARAM_VIEW_POOL_MAX_TOTAL_SIZE)) :
+                    INIT_PARAM_VIEW_POOL_MAX_TOTAL_SIZE_DEFAULT);
         dynamicPartialLimit = WebConfigParamUtils.getIntegerInitParameter(facesContext.getExternalContext(),
                 INIT_PARAM_VIEW_POOL_MAX_DYNAMIC_PARTIAL_LIMIT, 
                 parameters.containsKey(INIT_PARAM_VIEW_POOL_MAX_DYNAMIC_PARTIAL_LIMIT) ?
                 Integer.parseInt(parameters.get(INIT_PARAM_VIEW_POOL_MAX_DYNAMIC_PARTIAL_LIMIT)) : 
                 INIT_PARAM_VIEW_POOL_MAX_DYNAMIC_PARTIAL_LIMIT_DEFAULT);
-        String entryMode = WebConfigParamUtils.getStringInitParameter(facesContext.getExternalContext(),
+        entryMode = WebConfigParamUtils.getStringInitParameter(facesContext.getExternalContext(),
                 INIT_PARAM_VIEW_POOL_ENTRY_MODE,
                 parameters.containsKey(INIT_PARAM_VIEW_POOL_ENTRY_MODE) ?
                 parameters.get(INIT_PARAM_VIEW_POOL_ENTRY_MODE) :
                 INIT_PARAM_VIEW_POOL_ENTRY_MODE_DEFAULT);
-        entryWeak = ENTRY_MODE_WEAK.equals(entryMode);
         String deferredNavigationVal = WebConfigParamUtils.getStringInitParameter(facesContext.getExternalContext(),
                 INIT_PARAM_VIEW_POOL_DEFERRED_NAVIGATION,
                 parameters.containsKey(INIT_PARAM_VIEW_POOL_DEFERRED_NAVIGATION) ?
@@ -94,7 +107,7 @@ public class ViewPoolImpl extends ViewPool
     protected void pushStaticStructureView(FacesContext context, MetadataViewKey key, ViewEntry entry)
     {
         ViewPoolEntryHolder q = staticStructureViewPool.computeIfAbsent(key, k -> new ViewPoolEntryHolder(maxCount));
-        q.add(entry);
+        add(q, entry);
     }
     
     protected ViewEntry popStaticStructureView(FacesContext context, MetadataViewKey key)
@@ -104,22 +117,7 @@ public class ViewPoolImpl extends ViewPool
         {
             return null;
         }
-
-        ViewEntry entry = q.poll();
-        if (entry == null)
-        {
-            return null;
-        }
-        do
-        {
-            if (entry.activate())
-            {
-                return entry;
-            }
-            entry = q.poll();
-        }
-        while (entry != null);
-        return null;
+        return poll(q);
     }
     
     protected void pushPartialStructureView(FacesContext context, MetadataViewKey key, ViewEntry entry)
@@ -130,7 +128,7 @@ public class ViewPoolImpl extends ViewPool
             q = new ViewPoolEntryHolder(maxCount);
             partialStructureViewPool.put(key, q);
         }
-        q.add(entry);
+        add(q, entry);
     }
     
     protected ViewEntry popPartialStructureView(FacesContext context, MetadataViewKey key)
@@ -140,25 +138,91 @@ public class ViewPoolImpl extends ViewPool
         {
             return null;
         }
+        return poll(q);
+    }
 
-        ViewEntry entry = q.poll();
-        if (entry == null)
+    /**
+     * Add the entry to the holder, and if the max total size of the pool is exceeded,
+     * evict a view from the holder that was not used for the longest time.
+     */
+    protected boolean add(ViewPoolEntryHolder q, ViewEntry entry)
+    {
+        if (!q.add(entry))
         {
-            return null;
+            return false;
+        }
+        if (maxTotalCount > 0)
+        {
+            synchronized (recentlyUsed)
+            {
+                // containsKey does not change the access order, a push is not a use of the view
+                if (!recentlyUsed.containsKey(q))
+                {
+                    recentlyUsed.put(q, Boolean.TRUE);
+                }
+            }
+            if (totalCount.incrementAndGet() > maxTotalCount)
+            {
+                evictLeastRecentlyUsed();
+            }
         }
+        else
+        {
+            totalCount.incrementAndGet();
+        }
+        return true;
+    }
 
-        do
+    /**
+     * Take an active entry from the holder. Entries whose view was reclaimed by the
+     * garbage collector are discarded.
+     */
+    protected ViewEntry poll(ViewPoolEntryHolder q)
+    {
+        if (maxTotalCount > 0)
+        {
+            synchronized (recentlyUsed)
+            {
+                recentlyUsed.put(q, Boolean.TRUE);
+            }
+        }
+        ViewEntry entry = q.poll();
+        while (entry != null)
         {
+            totalCount.decrementAndGet();
             if (entry.activate())
             {
                 return entry;
             }
+            statistics.evicted();
             entry = q.poll();
-        } while (entry != null);
-
+        }
         return null;
     }
 
+    private void evictLeastRecentlyUsed()
+    {
+        synchronized (recentlyUsed)
+        {
+            for (Iterator<ViewPoolEntryHolder> it = recentlyUsed.keySet().iterator(); it.hasNext();)
+            {
+                ViewPoolEntryHolder q = it.next();
+                ViewEntry entry = q.evict();
+                if (q.getCount() == 0)
+                {
+                    // added again on the next push
+                    it.remove();
+                }
+                if (entry != null)
+                {
+                    totalCount.decrementAndGet();
+                    statistics.evicted();
+                    return;
+                }
+            }
+        }
+    }
+
     /**
      * Generates an unique key according to the metadata information stored
      * in the passed UIViewRoot instance that can affect the way how the view is generated. 
@@ -187,7 +251,15 @@ public class ViewPoolImpl extends ViewPool
 
     protected ViewEntry generateViewEntry(FacesContext facesContext, UIViewRoot root)
     {
-        return entryWeak ? new WeakViewEntry(root) : new SoftViewEntry(root);
+        if (ENTRY_MODE_WEAK.equals(entryMode))
+        {
+            return new WeakViewEntry(root);
+        }
+        else if (ENTRY_MODE_STRONG.equals(entryMode))
+        {
+            return new StrongViewEntry(root);
+        }
+        return new SoftViewEntry(root);
     }
 
     protected DynamicViewKey generateDynamicStructureViewKey(FacesContext facesContext, UIViewRoot root,
@@ -203,7 +275,7 @@ public class ViewPoolImpl extends ViewPool
                 k -> new ConcurrentHashMap<>());
 
         ViewPoolEntryHolder q = map.computeIfAbsent(key, k -> new ViewPoolEntryHolder(maxCount));
-        if (!q.add(entry))
+        if (!add(q, entry))
         {
             pushPartialStructureView(context, ordinaryKey, entry);
         }
@@ -223,17 +295,7 @@ public class ViewPoolImpl extends ViewPool
         {
             return null;
         }
-
-        ViewEntry entry = q.poll();
-        while (entry != null)
-        {
-            if (entry.activate())
-            {
-                return entry;
-            }
-            entry = q.poll();
-        }
-        return null;
+        return poll(q);
     }
 
     @Override
@@ -284,22 +346,10 @@ public class ViewPoolImpl extends ViewPool
                         }
                         if (maxEntry != null)
                         {
-                            entry = maxEntry.poll();
+                            entry = poll(maxEntry);
                             if (entry != null)
                             {
-                                do
-                                {
-                                    if (entry.activate())
-                                    {
-                                        break;
-                                    }
-                                    entry = maxEntry.poll();
-                                }
-                                while (entry != null);
-                                if (entry != null)
-                                {
-                                    entry.setResult(RestoreViewFromPoolResult.REFRESH_REQUIRED);
-                                }
+                                entry.setResult(RestoreViewFromPoolResult.REFRESH_REQUIRED);
                             }
                         }
                     }
@@ -310,6 +360,14 @@ public class ViewPoolImpl extends ViewPool
                 }
             }
         }
+        if (entry != null)
+        {
+            statistics.hit();
+        }
+        else
+        {
+            statistics.miss();
+        }
         return entry;
     }
 
@@ -334,6 +392,11 @@ public class ViewPoolImpl extends ViewPool
         if (entry != null)
         {
             entry.setResult(RestoreViewFromPoolResult.COMPLETE);
+            statistics.hit();
+        }
+        else
+        {
+            statistics.miss();
         }
         return entry;
     }
@@ -436,6 +499,26 @@ public class ViewPoolImpl extends ViewPool
         return null;
     }
 
+    @Override
+    public void viewBuilt(FacesContext context, UIViewRoot root, long buildTime)
+    {
+        statistics.built(buildTime);
+    }
+
+    @Override
+    public ViewPoolStatistics getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * @return the number of views hold by this pool
+     */
+    public int getTotalCount()
+    {
+        return totalCount.get();
+    }
+
     /**
      * @return the deferredNavigation
      */
@@ -29,9 +29,11 @@ import javax.faces.view.Location;
 import javax.faces.view.facelets.FaceletContext;
 import javax.faces.view.facelets.TagAttribute;
 import javax.faces.view.facelets.TagAttributeException;
+import org.apache.myfaces.config.MyfacesConfig;
 import org.apache.myfaces.resource.ResourceELUtils;
 
 import org.apache.myfaces.view.facelets.AbstractFaceletContext;
+import org.apache.myfaces.view.facelets.el.CompiledValueExpression;
 import org.apache.myfaces.view.facelets.el.CompositeComponentELUtils;
 import org.apache.myfaces.view.facelets.el.ContextAwareTagMethodExpression;
 import org.apache.myfaces.view.facelets.el.ContextAwareTagValueExpression;
@@ -534,6 +536,16 @@ public final class TagAttributeImpl extends TagAttribute
             ExpressionFactory f = ctx.getExpressionFactory();
             ValueExpression valueExpression = f.createValueExpression(ctx, this.value, type);
 
+            if ((this.capabilities & (EL_CC | EL_RESOURCE)) == 0)
+            {
+                MyfacesConfig config = MyfacesConfig.getCurrentInstance(ctx.getFacesContext());
+                if (config.isElCompilationEnabled())
+                {
+                    valueExpression = CompiledValueExpression.wrap(ctx, valueExpression,
+                            config.getElCompilationThreshold());
+                }
+            }
+
             if (actx.getFaceletCompositionContext().isWrapTagExceptionsAsContextAware())
             {
                 valueExpression = new ContextAwareTagValueExpression(this, valueExpression);
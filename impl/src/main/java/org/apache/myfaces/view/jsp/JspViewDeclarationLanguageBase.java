@@ -44,6 +44,7 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.myfaces.application.ViewIdSupport;
 import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.renderkit.html.util.DirectUtf8Writer;
 import org.apache.myfaces.view.HttpServletResponseSwitch;
 import org.apache.myfaces.view.ResponseSwitch;
 import org.apache.myfaces.view.ServletResponseSwitch;
@@ -168,7 +169,7 @@ public abstract class JspViewDeclarationLanguageBase extends ViewDeclarationLang
         ResponseWriter responseWriter = context.getResponseWriter();
         if (responseWriter == null)
         {
-            responseWriter = renderKit.createResponseWriter(externalContext.getResponseOutputWriter(), 
+            responseWriter = renderKit.createResponseWriter(DirectUtf8Writer.getResponseOutputWriter(context), 
                     null, externalContext.getRequestCharacterEncoding());
             context.setResponseWriter(responseWriter);
         }
@@ -217,7 +218,7 @@ public abstract class JspViewDeclarationLanguageBase extends ViewDeclarationLang
         if (!viewStateAlreadyEncoded)
         {
           // parse the response and replace the token wit the state
-          flushBufferToWriter(stateAwareWriter.getBuffer(), externalContext.getResponseOutputWriter());
+          flushBufferToWriter(stateAwareWriter.getBuffer(), DirectUtf8Writer.getResponseOutputWriter(context));
         }
         else
         {
@@ -239,7 +240,7 @@ public abstract class JspViewDeclarationLanguageBase extends ViewDeclarationLang
         // afterViewTagResponse is null if the current request is a partial request
         if (afterViewTagResponse != null)
         {
-            afterViewTagResponse.flushToWriter(externalContext.getResponseOutputWriter(), 
+            afterViewTagResponse.flushToWriter(DirectUtf8Writer.getResponseOutputWriter(context), 
                     externalContext.getResponseCharacterEncoding());
         }
 
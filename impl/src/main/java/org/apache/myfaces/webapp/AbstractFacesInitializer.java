@@ -67,6 +67,7 @@ import org.apache.myfaces.config.annotation.CdiAnnotationProviderExtension;
 import org.apache.myfaces.push.EndpointImpl;
 import org.apache.myfaces.push.WebsocketConfigurator;
 import org.apache.myfaces.push.WebsocketFacesInit;
+import org.apache.myfaces.resource.FileChangeWatcher;
 import org.apache.myfaces.util.lang.ClassUtils;
 import org.apache.myfaces.spi.FacesFlowProvider;
 import org.apache.myfaces.spi.FacesFlowProviderFactory;
@@ -158,6 +159,8 @@ public abstract class AbstractFacesInitializer implements FacesInitializer
             initCDIIntegration(servletContext, externalContext);
             
             initContainerIntegration(servletContext, externalContext);
+            
+            FileChangeWatcher.initialize(externalContext);
 
             // log environment integrations
             ExternalSpecifications.isBeanValidationAvailable();
@@ -348,6 +351,8 @@ public abstract class AbstractFacesInitializer implements FacesInitializer
         // clear the cache of MetaRulesetImpl in order to prevent a memory leak
         MetaRulesetImpl.clearMetadataTargetCache();
         
+        FileChangeWatcher.release(facesContext.getExternalContext());
+        
         if (facesContext.getExternalContext().getApplicationMap().containsKey("org.apache.myfaces.push"))
         {
             WebsocketFacesInit.clearWebsocketSessionLRUCache(facesContext.getExternalContext());
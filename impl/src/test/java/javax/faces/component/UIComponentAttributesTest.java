@@ -20,7 +20,10 @@ package javax.faces.component;
 
 import javax.faces.component.html.HtmlInputText;
 
+import org.apache.myfaces.core.api.shared.lang.PropertyAccessorTable;
+import org.apache.myfaces.core.api.shared.lang.PropertySlotMap;
 import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
+import org.junit.Assert;
 
 public class UIComponentAttributesTest extends AbstractJsfTestCase
 {
@@ -45,6 +48,24 @@ public class UIComponentAttributesTest extends AbstractJsfTestCase
     {
         input.getAttributes().put("style", null);
     }
+
+    public void testGetBySlot()
+    {
+        PropertySlotMap attributes = (PropertySlotMap) input.getAttributes();
+        input.setStyle("color:red");
+        input.getAttributes().put("someAttribute", "value");
+
+        Assert.assertEquals("color:red", attributes.get(PropertyAccessorTable.getSlot("style"), "style"));
+        Assert.assertEquals("testId", attributes.get(PropertyAccessorTable.getSlot("id"), "id"));
+        Assert.assertEquals("value", attributes.get(PropertyAccessorTable.getSlot("someAttribute"), "someAttribute"));
+        Assert.assertNull(attributes.get(PropertyAccessorTable.getSlot("styleClass"), "styleClass"));
+
+        // slots registered after the table of the class was created
+        String name = "slotTestAttribute" + System.nanoTime();
+        input.getAttributes().put(name, "late");
+        Assert.assertEquals("late", attributes.get(PropertyAccessorTable.getSlot(name), name));
+        Assert.assertEquals(PropertyAccessorTable.getSlot(name), PropertyAccessorTable.getSlot(name));
+    }
 /*
     public void testSetNullAttributeOnInvalidProperty()
     {
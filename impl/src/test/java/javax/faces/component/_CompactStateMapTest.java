@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package javax.faces.component;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import javax.faces.component.html.HtmlInputText;
+import javax.faces.component.html.HtmlOutputText;
+
+import org.apache.myfaces.config.MyfacesConfig;
+import org.junit.Assert;
+
+/**
+ * Tests for _CompactStateMap, and _DeltaStateHelper tests run with compact state maps.
+ */
+public class _CompactStateMapTest extends _DeltaStateHelperTest
+{
+    @Override
+    protected ProbeDeltaStateHelper createDeltaStateHelper()
+    {
+        return new ProbeDeltaStateHelper(true);
+    }
+
+    public void testSameAsHashMap()
+    {
+        Map<Serializable, Object> expected = new HashMap<Serializable, Object>();
+        Map<Serializable, Object> map = new _CompactStateMap<Serializable, Object>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++)
+        {
+            Integer key = random.nextInt(64);
+            switch (random.nextInt(4))
+            {
+                case 0:
+                    Assert.assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                case 1:
+                    Assert.assertEquals(expected.put(key, null), map.put(key, null));
+                    break;
+                default:
+                    Assert.assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+            Assert.assertEquals(expected.containsKey(key), map.containsKey(key));
+            Assert.assertEquals(expected.get(key), map.get(key));
+        }
+        Assert.assertEquals(expected, map);
+        Assert.assertEquals(map, expected);
+        Assert.assertEquals(expected.hashCode(), map.hashCode());
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(1));
+    }
+
+    public void testRemoveWhileIterating()
+    {
+        Map<String, Object> map = new _CompactStateMap<String, Object>(2);
+        for (int i = 0; i < 20; i++)
+        {
+            map.put("key" + i, i);
+        }
+
+        for (Iterator<Map.Entry<String, Object>> it = map.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry<String, Object> entry = it.next();
+            if (((Integer) entry.getValue()) % 2 == 0)
+            {
+                it.remove();
+            }
+        }
+
+        Assert.assertEquals(10, map.size());
+        for (int i = 0; i < 20; i++)
+        {
+            Assert.assertEquals(i % 2 != 0, map.containsKey("key" + i));
+        }
+
+        map.entrySet().iterator().next().setValue("changed");
+        Assert.assertTrue(map.containsValue("changed"));
+    }
+
+    public void testSaveStateCompatible()
+    {
+        ProbeDeltaStateHelper helper = new ProbeDeltaStateHelper(false);
+        ProbeDeltaStateHelper compactHelper = new ProbeDeltaStateHelper(true);
+        for (ProbeDeltaStateHelper h : new ProbeDeltaStateHelper[] { helper, compactHelper })
+        {
+            h.setInitialStateMarked(false);
+            h.put("value", "text");
+            h.put("disabled", Boolean.TRUE);
+            h.put("attributesMap", "style", "color:red");
+            h.add("listeners", "listener");
+        }
+
+        Object[] state = (Object[]) compactHelper.saveState(facesContext);
+        Assert.assertEquals(((Object[]) helper.saveState(facesContext)).length, state.length);
+
+        ProbeDeltaStateHelper restored = new ProbeDeltaStateHelper(false);
+        restored.setInitialStateMarked(false);
+        restored.restoreState(facesContext, state);
+        for (String key : new String[] { "value", "disabled", "attributesMap", "listeners" })
+        {
+            Assert.assertEquals(helper.get(key), restored.get(key));
+        }
+    }
+
+    public void testCompactFamilies()
+    {
+        facesContext.getAttributes().put(MyfacesConfig.COMPACT_STATE_FAMILIES,
+                Collections.singleton("javax.faces.Input"));
+
+        HtmlInputText input = new HtmlInputText();
+        HtmlOutputText output = new HtmlOutputText();
+        input.setValue("value");
+        output.setValue("value");
+        // the maps are chosen when the initial state is marked
+        input.markInitialState();
+        output.markInitialState();
+
+        Assert.assertTrue(((_DeltaStateHelper) input.getStateHelper()).isCompact());
+        Assert.assertFalse(((_DeltaStateHelper) output.getStateHelper()).isCompact());
+    }
+}
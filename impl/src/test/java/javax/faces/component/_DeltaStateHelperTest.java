@@ -18,6 +18,7 @@
  */
 package javax.faces.component;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import org.junit.Assert;
@@ -69,6 +70,11 @@ public class _DeltaStateHelperTest extends AbstractComponentTest
             super(null);
         }
 
+        public ProbeDeltaStateHelper(boolean compact)
+        {
+            super(null, compact);
+        }
+
         @Override
         protected boolean isInitialStateMarked()
         {
@@ -87,10 +93,15 @@ public class _DeltaStateHelperTest extends AbstractComponentTest
 
         super.setUp();
 
-        _instance = new ProbeDeltaStateHelper();
+        _instance = createDeltaStateHelper();
         _instance.setInitialStateMarked(true);
     }
 
+    protected ProbeDeltaStateHelper createDeltaStateHelper()
+    {
+        return new ProbeDeltaStateHelper();
+    }
+
     @Override
     public void tearDown() throws Exception
     {
@@ -289,6 +300,30 @@ public class _DeltaStateHelperTest extends AbstractComponentTest
         assertStructure();
     }
 
+    /**
+     * A property changed and set back to the value it had when the initial state
+     * was marked (the view pool baseline) must not be saved as delta.
+     */
+    public void testSaveStateSkipsBaselineValues()
+    {
+        UIOutput component = new UIOutput();
+        component.setId("out");
+        component.getStateHelper().put(KEY1, VAL1);
+        component.markInitialState();
+
+        component.getStateHelper().put(KEY1, VAL2);
+        component.getStateHelper().put(KEY5, VAL5);
+        component.getStateHelper().put(KEY1, VAL1);
+        component.getStateHelper().remove(KEY5);
+
+        Assert.assertNull(component.getStateHelper().saveState(facesContext));
+        Assert.assertNull(component.saveState(facesContext));
+
+        component.getStateHelper().put(KEY1, VAL3);
+        Object[] deltaSaveState = (Object[]) component.getStateHelper().saveState(facesContext);
+        Assert.assertArrayEquals(new Object[] { KEY1, VAL3 }, deltaSaveState);
+    }
+
     /**
      * Test of isTransient method, of class _DeltaStateHelper.
      */
@@ -297,4 +332,41 @@ public class _DeltaStateHelperTest extends AbstractComponentTest
         _instance.setTransient(true);
         Assert.assertTrue(_instance.isTransient());
     }
+
+    /**
+     * getFamily() of this component only works once its constructor is done.
+     */
+    static class FamilyComponent extends UIComponentBase
+    {
+        private final String family;
+
+        FamilyComponent()
+        {
+            setRendererType("test.Renderer");
+            family = "test.Family";
+        }
+
+        @Override
+        public String getFamily()
+        {
+            return family;
+        }
+    }
+
+    public void testCompactStateWhenInitialStateMarked()
+    {
+        facesContext.getAttributes().put("org.apache.myfaces.COMPACT_STATE_FAMILIES",
+                Collections.singleton("test.Family"));
+
+        FamilyComponent component = new FamilyComponent();
+        _DeltaStateHelper stateHelper = (_DeltaStateHelper) component.getStateHelper();
+        Assert.assertFalse(stateHelper.isCompact());
+
+        component.markInitialState();
+        Assert.assertTrue(stateHelper.isCompact());
+        Assert.assertEquals("test.Renderer", component.getRendererType());
+
+        component.setRendererType("test.Other");
+        Assert.assertEquals("test.Other", component.getRendererType());
+    }
 }
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package javax.faces.component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class _RowStateTableTest
+{
+    @Test
+    public void testSequentialRows()
+    {
+        _RowStateTable<Object> table = new _RowStateTable<>();
+        Assert.assertTrue(table.isEmpty());
+        for (int i = 0; i < 100; i++)
+        {
+            table.put("table", i, "row" + i);
+        }
+        Assert.assertFalse(table.isEmpty());
+        for (int i = 0; i < 100; i++)
+        {
+            Assert.assertEquals("row" + i, table.get("table", i));
+        }
+        Assert.assertNull(table.get("table", 100));
+        Assert.assertNull(table.get("table", -1));
+
+        table.clear();
+        Assert.assertTrue(table.isEmpty());
+        Assert.assertNull(table.get("table", 0));
+    }
+
+    @Test
+    public void testFromMap()
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("form:table", "noRow");
+        map.put("form:table:0", "row0");
+        map.put("form:table:12", "row12");
+        map.put("form:outer:3:inner", "innerNoRow");
+        map.put("form:outer:3:inner:1", "inner1");
+        _RowStateTable<Object> table = _RowStateTable.fromMap(map, ':');
+        Assert.assertEquals("noRow", table.get("form:table", -1));
+        Assert.assertEquals("row0", table.get("form:table", 0));
+        Assert.assertEquals("row12", table.get("form:table", 12));
+        Assert.assertNull(table.get("form:table", 1));
+        Assert.assertEquals("innerNoRow", table.get("form:outer:3:inner", -1));
+        Assert.assertEquals("inner1", table.get("form:outer:3:inner", 1));
+    }
+
+    @Test
+    public void testRowsBackwards()
+    {
+        _RowStateTable<Object> table = new _RowStateTable<>();
+        for (int i = 99; i >= 0; i--)
+        {
+            table.put("table", i, "row" + i);
+        }
+        for (int i = 0; i < 100; i++)
+        {
+            Assert.assertEquals("row" + i, table.get("table", i));
+        }
+    }
+
+    @Test
+    public void testFarRows()
+    {
+        _RowStateTable<Object> table = new _RowStateTable<>();
+        table.put("table", 0, "row0");
+        table.put("table", 1000000, "row1000000");
+        table.put("table", 20, "row20");
+        Assert.assertEquals("row0", table.get("table", 0));
+        Assert.assertEquals("row1000000", table.get("table", 1000000));
+        Assert.assertEquals("row20", table.get("table", 20));
+        Assert.assertNull(table.get("table", 10));
+
+        // the array grows up to the rows kept apart
+        for (int i = 0; i < 1000; i++)
+        {
+            table.put("table", i, "row" + i);
+        }
+        table.put("table", 1000000, "changed");
+        for (int i = 0; i < 1000; i++)
+        {
+            Assert.assertEquals("row" + i, table.get("table", i));
+        }
+        Assert.assertEquals("changed", table.get("table", 1000000));
+    }
+
+    @Test
+    public void testClientIds()
+    {
+        _RowStateTable<Object> table = new _RowStateTable<>();
+        table.put("parent:0:table", 0, "a0");
+        table.put("parent:1:table", 0, "b0");
+        table.put("parent:0:table", -1, "a");
+        table.put(new String("parent:0:table"), 1, "a1");
+        Assert.assertEquals("a0", table.get("parent:0:table", 0));
+        Assert.assertEquals("a1", table.get("parent:0:table", 1));
+        Assert.assertEquals("a", table.get("parent:0:table", -1));
+        Assert.assertEquals("b0", table.get("parent:1:table", 0));
+        Assert.assertNull(table.get("parent:1:table", 1));
+        Assert.assertNull(table.get("parent:2:table", 0));
+    }
+
+    @Test
+    public void testSerialize() throws Exception
+    {
+        _RowStateTable<Object> table = new _RowStateTable<>();
+        table.put("table", 3, "row3");
+        table.put("table", 5000, "row5000");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(table);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            _RowStateTable<Object> restored = (_RowStateTable<Object>) in.readObject();
+            Assert.assertEquals("row3", restored.get("table", 3));
+            Assert.assertEquals("row5000", restored.get("table", 5000));
+            restored.put("table", 4, "row4");
+            Assert.assertEquals("row4", restored.get("table", 4));
+        }
+    }
+}
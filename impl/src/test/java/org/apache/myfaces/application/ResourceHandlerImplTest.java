@@ -18,6 +18,9 @@
  */
 package org.apache.myfaces.application;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
@@ -26,12 +29,20 @@ import org.junit.Test;
 
 import javax.faces.application.Resource;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.resource.BundleResource;
+import org.apache.myfaces.resource.ResourceContent;
 import org.apache.myfaces.resource.ResourceLoader;
 import org.apache.myfaces.resource.ResourceMeta;
+import org.apache.myfaces.resource.ResourceImpl;
 import org.apache.myfaces.resource.ResourceMetaImpl;
+import org.apache.myfaces.test.mock.MockServletOutputStream;
 
 /**
  * Test cases for org.apache.myfaces.application.ResourceHandlerImpl.
@@ -227,4 +238,347 @@ public class ResourceHandlerImplTest extends AbstractJsfTestCase
         
         Assert.assertTrue(didNPEOccur);
     }
+
+    @Test
+    public void testHandleResourceRequestFromContentCache() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_CONTENT_CACHE_ENABLED, "true");
+        servletContext.addMimeType("js", "application/javascript");
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/jsf.js", "ln=javax.faces");
+        request.addParameter("ln", "javax.faces");
+        request.addHeader("Accept-Encoding", "gzip");
+        application.setResourceHandler(resourceHandler);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (InputStream in = resourceHandler.createResource("jsf.js", "javax.faces").getInputStream())
+        {
+            int b;
+            while ((b = in.read()) >= 0)
+            {
+                expected.write(b);
+            }
+        }
+
+        String eTag = null;
+        for (int i = 0; i < 2; i++)
+        {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            response.setOutputStream(new MockServletOutputStream(body));
+
+            resourceHandler.handleResourceRequest(facesContext);
+
+            Assert.assertEquals("gzip", response.getHeader("Content-Encoding"));
+            Assert.assertEquals("Accept-Encoding", response.getHeader("Vary"));
+            Assert.assertNotNull(response.getHeader("ETag"));
+            if (eTag != null)
+            {
+                Assert.assertEquals(eTag, response.getHeader("ETag"));
+            }
+            eTag = response.getHeader("ETag");
+
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())))
+            {
+                int b;
+                while ((b = in.read()) >= 0)
+                {
+                    actual.write(b);
+                }
+            }
+            Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        }
+    }
+
+    @Test
+    public void testHandleResourceRequestNotModifiedFromContentCache() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_CONTENT_CACHE_ENABLED, "true");
+        servletContext.addMimeType("js", "application/javascript");
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/jsf.js", "ln=javax.faces");
+        request.addParameter("ln", "javax.faces");
+        request.addHeader("Accept-Encoding", "gzip");
+        application.setResourceHandler(resourceHandler);
+
+        String eTag = ((ResourceImpl) resourceHandler.createResource("jsf.js", "javax.faces")).getETag(facesContext);
+        request.addHeader("If-None-Match", ResourceContent.getGzipETag(eTag));
+        response.setOutputStream(new MockServletOutputStream(new ByteArrayOutputStream()));
+
+        resourceHandler.handleResourceRequest(facesContext);
+
+        Assert.assertEquals(304, response.getStatus());
+        Assert.assertEquals(ResourceContent.getGzipETag(eTag), response.getHeader("ETag"));
+        Assert.assertEquals("Accept-Encoding", response.getHeader("Vary"));
+    }
+
+    @Test
+    public void testHandleResourceRequestFromContentCacheWithoutETag() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_CONTENT_CACHE_ENABLED, "true");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_CACHE_LAST_MODIFIED, "false");
+        servletContext.addMimeType("js", "application/javascript");
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/jsf.js", "ln=javax.faces");
+        request.addParameter("ln", "javax.faces");
+        request.addHeader("Accept-Encoding", "gzip");
+        application.setResourceHandler(resourceHandler);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.setOutputStream(new MockServletOutputStream(body));
+
+        resourceHandler.handleResourceRequest(facesContext);
+
+        // If-None-Match is not checked for this resource, so no ETag is sent either
+        Assert.assertEquals("gzip", response.getHeader("Content-Encoding"));
+        Assert.assertNull(response.getHeader("ETag"));
+        Assert.assertTrue(body.size() > 0);
+    }
+
+    @Test
+    public void testParseRange()
+    {
+        Assert.assertArrayEquals(new long[] { 0, 99 }, ResourceHandlerImpl.parseRange("bytes=0-99", 1000));
+        Assert.assertArrayEquals(new long[] { 900, 999 }, ResourceHandlerImpl.parseRange("bytes=900-", 1000));
+        Assert.assertArrayEquals(new long[] { 900, 999 }, ResourceHandlerImpl.parseRange("bytes=-100", 1000));
+        Assert.assertArrayEquals(new long[] { 0, 999 }, ResourceHandlerImpl.parseRange("bytes=-2000", 1000));
+        Assert.assertArrayEquals(new long[] { 500, 999 }, ResourceHandlerImpl.parseRange("bytes=500-5000", 1000));
+        Assert.assertEquals(0, ResourceHandlerImpl.parseRange("bytes=1000-", 1000).length);
+        Assert.assertEquals(0, ResourceHandlerImpl.parseRange("bytes=-0", 1000).length);
+        Assert.assertNull(ResourceHandlerImpl.parseRange("bytes=0-9,20-29", 1000));
+        Assert.assertNull(ResourceHandlerImpl.parseRange("bytes=9-0", 1000));
+        Assert.assertNull(ResourceHandlerImpl.parseRange("items=0-9", 1000));
+        Assert.assertNull(ResourceHandlerImpl.parseRange("bytes=a-b", 1000));
+        Assert.assertNull(ResourceHandlerImpl.parseRange("bytes=0-9", -1));
+    }
+
+    @Test
+    public void testHandleResourceRequestRangeAndETag() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addMimeType("js", "application/javascript");
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/jsf.js", "ln=javax.faces");
+        request.addParameter("ln", "javax.faces");
+        request.addHeader("Range", "bytes=10-109");
+        application.setResourceHandler(resourceHandler);
+
+        byte[] expected = new byte[100];
+        try (InputStream in = resourceHandler.createResource("jsf.js", "javax.faces").getInputStream())
+        {
+            in.skip(10);
+            int offset = 0;
+            while (offset < expected.length)
+            {
+                offset += in.read(expected, offset, expected.length - offset);
+            }
+        }
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.setOutputStream(new MockServletOutputStream(body));
+
+        resourceHandler.handleResourceRequest(facesContext);
+
+        Assert.assertEquals(206, response.getStatus());
+        Assert.assertTrue(response.getHeader("Content-Range").startsWith("bytes 10-109/"));
+        Assert.assertArrayEquals(expected, body.toByteArray());
+
+        String eTag = response.getHeader("ETag");
+        Assert.assertNotNull(eTag);
+
+        Resource resource = resourceHandler.createResource("jsf.js", "javax.faces");
+        request.addHeader("If-None-Match", eTag);
+        Assert.assertFalse(resource.userAgentNeedsUpdate(facesContext));
+    }
+
+    @Test
+    public void testHandleResourceRequestFromFile() throws Exception
+    {
+        servletContext.addMimeType("js", "application/javascript");
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/testResource.js", null);
+        application.setResourceHandler(resourceHandler);
+
+        URL url = resourceHandler.createResource("testResource.js").getURL();
+        Assert.assertEquals("file", url.getProtocol());
+        File file = new File(url.toURI());
+        byte[] expected = Files.readAllBytes(file.toPath());
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.setOutputStream(new MockServletOutputStream(body));
+        resourceHandler.handleResourceRequest(facesContext);
+
+        Assert.assertArrayEquals(expected, body.toByteArray());
+
+        body.reset();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=-10");
+        resourceHandler.handleResourceRequest(facesContext);
+
+        Assert.assertEquals(0, body.size());
+        Assert.assertEquals(206, response.getStatus());
+        Assert.assertEquals(file.getAbsolutePath(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        Assert.assertEquals((long) expected.length - 10, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        Assert.assertEquals((long) expected.length, request.getAttribute("org.apache.tomcat.sendfile.end"));
+    }
+
+    @Test
+    public void testFingerprinting() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_FINGERPRINTING, "true");
+        servletContext.addMimeType("js", "application/javascript");
+        application.setResourceHandler(resourceHandler);
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/testResource.js", null);
+
+        ResourceImpl resource = (ResourceImpl) resourceHandler.createResource("testResource.js");
+        String fingerprint = resource.getFingerprint(facesContext);
+        Assert.assertNotNull(fingerprint);
+        Assert.assertTrue(resource.getRequestPath().endsWith("testResource.js?h=" + fingerprint));
+
+        request.addParameter("h", fingerprint);
+        response.setOutputStream(new MockServletOutputStream(new ByteArrayOutputStream()));
+        resourceHandler.handleResourceRequest(facesContext);
+
+        Assert.assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void testHandleBundleResourceRequest() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_BUNDLING, "true");
+        servletContext.addMimeType("js", "application/javascript");
+        application.setResourceHandler(resourceHandler);
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/bundle.js", null);
+
+        Resource jsfJs = resourceHandler.createResource("jsf.js", "javax.faces");
+        Resource testResource = resourceHandler.createResource("testResource.js");
+        Assert.assertTrue(BundleResource.isBundleable(jsfJs, "application/javascript"));
+        Assert.assertTrue(BundleResource.isBundleable(testResource, "application/javascript"));
+
+        BundleResource bundle = BundleResource.create(facesContext, BundleResource.SCRIPT_BUNDLE_NAME,
+                Arrays.asList(jsfJs, testResource));
+        Assert.assertEquals("/xxx/faces/javax.faces.resource/bundle.js?ln=myfaces.bundle"
+                + "&r=javax.faces%3Ajsf.js&r=testResource.js&h=" + bundle.getFingerprint(),
+                bundle.getRequestPath());
+
+        request.addParameter("ln", BundleResource.LIBRARY_NAME);
+        request.addParameter("r", "javax.faces:jsf.js");
+        request.addParameter("r", "testResource.js");
+        request.addParameter("h", bundle.getFingerprint());
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        response.setOutputStream(new MockServletOutputStream(baos));
+        resourceHandler.handleResourceRequest(facesContext);
+
+        byte[] expected;
+        try (InputStream jsfJsIn = jsfJs.getInputStream(); InputStream testResourceIn = testResource.getInputStream())
+        {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            content.write(toByteArray(jsfJsIn));
+            content.write("\n;\n".getBytes("US-ASCII"));
+            content.write(toByteArray(testResourceIn));
+            expected = content.toByteArray();
+        }
+        Assert.assertArrayEquals(expected, baos.toByteArray());
+        Assert.assertEquals(bundle.getETag(), response.getHeader("ETag"));
+        Assert.assertEquals("public, max-age=31536000, immutable", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void testHandleBundleResourceRequestNotRendered() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_BUNDLING, "true");
+        servletContext.addMimeType("js", "application/javascript");
+        application.setResourceHandler(resourceHandler);
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/bundle.js", null);
+
+        byte[] expected;
+        try (InputStream jsfJsIn = resourceHandler.createResource("jsf.js", "javax.faces").getInputStream();
+                InputStream testResourceIn = resourceHandler.createResource("testResource.js").getInputStream())
+        {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            content.write(toByteArray(jsfJsIn));
+            content.write("\n;\n".getBytes("US-ASCII"));
+            content.write(toByteArray(testResourceIn));
+            expected = content.toByteArray();
+        }
+
+        // a bundle rendered by another node of a cluster
+        request.addParameter("ln", BundleResource.LIBRARY_NAME);
+        request.addParameter("r", "javax.faces:jsf.js");
+        request.addParameter("r", "testResource.js");
+        request.addParameter("h",
+                new ResourceContent(expected, "application/javascript").getETag().substring(1, 17));
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        response.setOutputStream(new MockServletOutputStream(baos));
+
+        resourceHandler.handleResourceRequest(facesContext);
+
+        Assert.assertEquals(200, response.getStatus());
+        Assert.assertArrayEquals(expected, baos.toByteArray());
+    }
+
+    @Test
+    public void testHandleBundleResourceRequestInvalid() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_BUNDLING, "true");
+        servletContext.addMimeType("js", "application/javascript");
+        application.setResourceHandler(resourceHandler);
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/bundle.js", null);
+
+        Resource jsfJs = resourceHandler.createResource("jsf.js", "javax.faces");
+        Resource testResource = resourceHandler.createResource("testResource.js");
+        BundleResource bundle = BundleResource.create(facesContext, BundleResource.SCRIPT_BUNDLE_NAME,
+                Arrays.asList(jsfJs, testResource));
+
+        // the same resources with another hash
+        request.addParameter("ln", BundleResource.LIBRARY_NAME);
+        request.addParameter("r", "testResource.js");
+        request.addParameter("r", "javax.faces:jsf.js");
+        request.addParameter("h", bundle.getFingerprint());
+        response.setOutputStream(new MockServletOutputStream(new ByteArrayOutputStream()));
+
+        resourceHandler.handleResourceRequest(facesContext);
+
+        Assert.assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testHandleBundleResourceRequestDisabled() throws Exception
+    {
+        servletContext.addMimeType("js", "application/javascript");
+        application.setResourceHandler(resourceHandler);
+        request.setPathElements("/xxx", "/faces", "/javax.faces.resource/bundle.js", null);
+        request.addParameter("ln", BundleResource.LIBRARY_NAME);
+        request.addParameter("r", "testResource.js");
+        response.setOutputStream(new MockServletOutputStream(new ByteArrayOutputStream()));
+
+        resourceHandler.handleResourceRequest(facesContext);
+
+        Assert.assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    public void testCreateResourceWithResourceIndex() throws Exception
+    {
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_INDEX_ENABLED, "true");
+
+        Assert.assertNotNull(resourceHandler.createResource("testResource.js"));
+        Assert.assertNotNull(resourceHandler.createResource("jsf.js", "javax.faces"));
+        Assert.assertNotNull(resourceHandler.createResourceFromId("javax.faces/jsf.js"));
+        Assert.assertNull(resourceHandler.createResource("missingResource.js"));
+        Assert.assertNull(resourceHandler.createResourceFromId("javax.faces/missingResource.js"));
+    }
+
+    private static byte[] toByteArray(InputStream in) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int length;
+        while ((length = in.read(buffer)) >= 0)
+        {
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
 }
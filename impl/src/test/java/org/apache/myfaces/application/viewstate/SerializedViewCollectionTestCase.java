@@ -17,6 +17,9 @@
 package org.apache.myfaces.application.viewstate;
 
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.faces.context.FacesContext;
 import org.apache.myfaces.config.MyfacesConfig;
 import org.apache.myfaces.spi.ViewScopeProvider;
@@ -268,6 +271,89 @@ public class SerializedViewCollectionTestCase extends AbstractJsfTestCase
         Assert.assertEquals(provider.getDestroyCount(), 5);
     }
     
+    @Test
+    public void testSerializedViewCollectionZeroState()
+    {
+        SerializedViewCollection collection = new SerializedViewCollection();
+        String viewId = "/test.xhtml";
+        SerializedViewKey key1 = new SerializedViewKeyIntInt(viewId.hashCode(), 1);
+        SerializedViewKey key2 = new SerializedViewKeyIntInt(viewId.hashCode(), 2);
+        
+        collection.put(facesContext, null, key1, null);
+        collection.put(facesContext, new Object[]{null,null}, key2, null);
+        
+        Assert.assertNull(collection.get(key1));
+        Object[] state = (Object[]) collection.get(key2);
+        Assert.assertNotNull(state);
+        Assert.assertEquals(2, state.length);
+        Assert.assertNull(state[0]);
+        Assert.assertNull(state[1]);
+        
+        // Update the zero state with a real one
+        collection.put(facesContext, new Object[]{null,null,2}, key2, null);
+        Assert.assertEquals(3, ((Object[]) collection.get(key2)).length);
+    }
+    
+    @Test
+    public void testSerializedViewCollectionConcurrentGet() throws Exception
+    {
+        servletContext.addInitParameter(MyfacesConfig.NUMBER_OF_VIEWS_IN_SESSION, "5");
+        
+        final SerializedViewCollection collection = new SerializedViewCollection();
+        final String viewId = "/test.xhtml";
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch started = new CountDownLatch(4);
+        
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++)
+        {
+            readers[i] = new Thread(() -> {
+                started.countDown();
+                try
+                {
+                    int j = 0;
+                    while (running.get())
+                    {
+                        Object state = collection.get(new SerializedViewKeyIntInt(viewId.hashCode(), j++ % 1000));
+                        if (state != null && ((Object[]) state).length != 3)
+                        {
+                            throw new IllegalStateException("Unexpected state");
+                        }
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failure.set(e);
+                }
+            });
+            readers[i].start();
+        }
+        started.await();
+        
+        for (int i = 0; i < 1000; i++)
+        {
+            collection.put(facesContext, new Object[]{null,null,i}, 
+                    new SerializedViewKeyIntInt(viewId.hashCode(), i), null);
+        }
+        running.set(false);
+        for (Thread reader : readers)
+        {
+            reader.join();
+        }
+        
+        Assert.assertNull(failure.get());
+        // Only the last 5 views should be kept
+        for (int i = 0; i < 995; i++)
+        {
+            Assert.assertNull(collection.get(new SerializedViewKeyIntInt(viewId.hashCode(), i)));
+        }
+        for (int i = 995; i < 1000; i++)
+        {
+            Assert.assertNotNull(collection.get(new SerializedViewKeyIntInt(viewId.hashCode(), i)));
+        }
+    }
+    
     private static class TestViewScopeProvider extends ViewScopeProvider
     {
         private int destroyCount = 0;
@@ -26,6 +26,8 @@ import java.util.Map;
 import javax.faces.application.ProjectStage;
 import javax.faces.application.StateManager;
 
+import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.spi.impl.OffHeapViewStateStore;
 import org.apache.myfaces.test.base.junit.AbstractJsfConfigurableMultipleRequestsTestCase;
 import org.junit.Assert;
 import org.junit.Test;
@@ -109,6 +111,115 @@ public class ServerSideStateCacheTest extends AbstractJsfConfigurableMultipleReq
         }
     }
     
+    @Test
+    public void testViewStateStore() throws Exception
+    {
+        servletContext.addInitParameter(StateManager.STATE_SAVING_METHOD_PARAM_NAME, StateManager.STATE_SAVING_METHOD_SERVER);
+        servletContext.addInitParameter("org.apache.myfaces.NUMBER_OF_VIEWS_IN_SESSION", "2");
+        
+        OffHeapViewStateStore store = new OffHeapViewStateStore();
+        
+        // Initialization
+        setupRequest();
+        externalContext.getApplicationMap().put(MyfacesConfig.VIEW_STATE_STORE, store);
+        StateCache stateCache = new StateCacheServerSide();
+        tearDownRequest();
+        
+        Object firstSavedToken;
+        try
+        {
+            setupRequest();
+            facesContext.getViewRoot().setViewId("/view1.xhtml");
+            firstSavedToken = stateCache.saveSerializedView(facesContext, 1);
+            Assert.assertTrue(store.getSize() > 0);
+        }
+        finally
+        {
+            tearDownRequest();
+        }
+        
+        try
+        {
+            setupRequest();
+            Object value = stateCache.restoreSerializedView(facesContext, "/view1.xhtml", firstSavedToken);
+            Assert.assertEquals(1, value);
+        }
+        finally
+        {
+            tearDownRequest();
+        }
+        
+        long sizeWithOneView = store.getSize();
+        for (int i = 2; i <= 4; i++)
+        {
+            try
+            {
+                setupRequest();
+                facesContext.getViewRoot().setViewId("/view" + i + ".xhtml");
+                stateCache.saveSerializedView(facesContext, i);
+            }
+            finally
+            {
+                tearDownRequest();
+            }
+        }
+        
+        try
+        {
+            setupRequest();
+            // The view was discarded from the session, so it should be removed from the store too.
+            Assert.assertNull(stateCache.restoreSerializedView(facesContext, "/view1.xhtml", firstSavedToken));
+            Assert.assertTrue(store.getSize() <= sizeWithOneView * 3);
+        }
+        finally
+        {
+            tearDownRequest();
+        }
+    }
+    
+    @Test
+    public void testViewStateStoreEvictsLeastRecentlyUsed() throws Exception
+    {
+        servletContext.addInitParameter(MyfacesConfig.VIEW_STATE_STORE_MAX_SIZE, "30000");
+        
+        OffHeapViewStateStore store = new OffHeapViewStateStore();
+        try
+        {
+            setupRequest();
+            store.put(facesContext, "view1", new byte[10000]);
+            store.put(facesContext, "view2", new byte[10000]);
+            store.put(facesContext, "view3", new byte[10000]);
+            Assert.assertEquals(30000, store.getSize());
+            
+            // view1 was used recently, so view2 goes first
+            byte[] state = new byte[10000];
+            state[9999] = 1;
+            store.put(facesContext, "view1", state);
+            store.put(facesContext, "view4", new byte[10000]);
+            
+            Assert.assertEquals(30000, store.getSize());
+            Assert.assertNull(store.get(facesContext, "view2"));
+            Assert.assertArrayEquals(state, store.get(facesContext, "view1"));
+            Assert.assertNotNull(store.get(facesContext, "view3"));
+            Assert.assertNotNull(store.get(facesContext, "view4"));
+            
+            store.get(facesContext, "view3");
+            store.put(facesContext, "view5", new byte[15000]);
+            Assert.assertNull(store.get(facesContext, "view1"));
+            Assert.assertNull(store.get(facesContext, "view4"));
+            Assert.assertNotNull(store.get(facesContext, "view3"));
+            Assert.assertEquals(15000, store.get(facesContext, "view5").length);
+            
+            store.remove(facesContext, "view3");
+            store.remove(facesContext, "view5");
+            Assert.assertEquals(0, store.getSize());
+        }
+        finally
+        {
+            tearDownRequest();
+        }
+    }
+    
     @Test
     public void testSaveRestoreStateWrongViewId() throws Exception
     {
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.application.viewstate;
+
+import java.util.Arrays;
+import javax.faces.FacesException;
+import javax.faces.application.ViewExpiredException;
+import org.junit.Assert;
+
+/**
+ * <p>This TestCase uses the Advanced Encryption Standard with
+ * Galois/Counter Mode, so no MAC is used.</p>
+ */
+public class StateUtilsAES_GCMTest extends AbstractStateUtilsTest
+{
+    public void setUp() throws Exception
+    {
+        super.setUp();
+
+        servletContext.addInitParameter(StateUtils.INIT_SECRET, BASE64_KEY_SIZE_16);
+        servletContext.addInitParameter(StateUtils.INIT_ALGORITHM, "AES");
+        servletContext.addInitParameter(StateUtils.INIT_ALGORITHM_PARAM, "GCM/NoPadding");
+        StateUtils.initSecret(servletContext);
+    }
+
+    /**
+     * A new initialization vector is used every time, so the same state never
+     * produces the same secure bytes.
+     */
+    public void testRandomInitializationVector()
+    {
+        byte[] sensitiveBytes = sensitiveString.getBytes();
+        byte[] secure1 = StateUtils.encrypt(sensitiveBytes, externalContext);
+        byte[] secure2 = StateUtils.encrypt(sensitiveBytes, externalContext);
+        Assert.assertFalse(Arrays.equals(secure1, secure2));
+        Assert.assertTrue(Arrays.equals(sensitiveBytes, StateUtils.decrypt(secure1, externalContext)));
+        Assert.assertTrue(Arrays.equals(sensitiveBytes, StateUtils.decrypt(secure2, externalContext)));
+    }
+
+    public void testTamperedStateIsRejected()
+    {
+        byte[] secure = StateUtils.encrypt(sensitiveString.getBytes(), externalContext);
+        secure[secure.length - 5] ^= 1;
+        try
+        {
+            StateUtils.decrypt(secure, externalContext);
+            Assert.fail("the authentication tag should not match");
+        }
+        catch (FacesException e)
+        {
+            Assert.assertTrue(e.getCause() instanceof ViewExpiredException);
+        }
+
+        // The pooled cipher must still work after the failure
+        secure = StateUtils.encrypt(sensitiveString.getBytes(), externalContext);
+        Assert.assertTrue(Arrays.equals(sensitiveString.getBytes(), StateUtils.decrypt(secure, externalContext)));
+    }
+}
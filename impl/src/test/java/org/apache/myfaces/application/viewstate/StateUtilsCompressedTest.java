@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.application.viewstate;
+
+import java.util.Arrays;
+import org.junit.Assert;
+
+/**
+ * <p>This TestCase uses the default algorithm with the state compressed.</p>
+ */
+public class StateUtilsCompressedTest extends AbstractStateUtilsTest
+{
+    public void setUp() throws Exception
+    {
+        super.setUp();
+
+        servletContext.addInitParameter(StateUtils.COMPRESS_STATE_IN_CLIENT, "true");
+        servletContext.addInitParameter(StateUtils.INIT_SECRET, BASE64_KEY_SIZE_8);
+        servletContext.addInitParameter(StateUtils.INIT_MAC_SECRET, BASE64_KEY_SIZE_8);
+        StateUtils.initSecret(servletContext);
+    }
+
+    /**
+     * The state written by construct(...) must still be a valid gzip stream.
+     */
+    public void testConstructedStateIsGzip()
+    {
+        servletContext.addInitParameter(StateUtils.USE_ENCRYPTION, "false");
+
+        Object[] state = new Object[] { sensitiveString, 1, new int[] { 1, 2, 3 } };
+        String constructed = StateUtils.construct(state, externalContext);
+
+        byte[] bytes = StateUtils.decompress(StateUtils.decode(constructed.getBytes()));
+        Object[] object = (Object[]) StateUtils.getAsObject(bytes, externalContext);
+        Assert.assertEquals(sensitiveString, object[0]);
+        Assert.assertEquals(1, object[1]);
+        Assert.assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, (int[]) object[2]));
+
+        // and the classic format can be reconstructed too
+        String classic = new String(StateUtils.encode(StateUtils.compress(
+                StateUtils.getAsByteArray(state, externalContext))));
+        object = (Object[]) StateUtils.reconstruct(classic, externalContext);
+        Assert.assertEquals(sensitiveString, object[0]);
+    }
+
+    /**
+     * Pooled buffers and deflaters must not leak data between calls.
+     */
+    public void testConstructionRepeated()
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            String data = sensitiveString + i;
+            Assert.assertEquals(data, StateUtils.reconstruct(StateUtils.construct(data, externalContext),
+                    externalContext));
+        }
+    }
+
+    /**
+     * The crc of the gzip trailer must be verified.
+     */
+    public void testCorruptedCrcIsRejected()
+    {
+        servletContext.addInitParameter(StateUtils.USE_ENCRYPTION, "false");
+
+        byte[] bytes = StateUtils.decode(StateUtils.construct(sensitiveString, externalContext).getBytes());
+        Assert.assertEquals(sensitiveString, StateUtils.reconstruct(new String(StateUtils.encode(bytes)),
+                externalContext));
+
+        bytes[bytes.length - 8] ^= 1;
+        Assert.assertNull(StateUtils.reconstruct(new String(StateUtils.encode(bytes)), externalContext));
+    }
+}
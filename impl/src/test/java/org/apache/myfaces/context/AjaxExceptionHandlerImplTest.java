@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.faces.FactoryFinder;
+import javax.faces.event.ExceptionQueuedEvent;
+import javax.faces.event.ExceptionQueuedEventContext;
+
+import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.renderkit.html.util.DirectUtf8Writer;
+import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
+import org.apache.myfaces.test.mock.MockRenderKitFactory;
+import org.apache.myfaces.test.mock.MockServletOutputStream;
+import org.junit.Assert;
+
+public class AjaxExceptionHandlerImplTest extends AbstractJsfTestCase
+{
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        FactoryFinder.setFactory(FactoryFinder.PARTIAL_VIEW_CONTEXT_FACTORY,
+                "org.apache.myfaces.context.PartialViewContextFactoryImpl");
+        facesContext.getViewRoot().setRenderKitId(MockRenderKitFactory.HTML_BASIC_RENDER_KIT);
+    }
+
+    public void testHandleWithDirectUtf8Writer() throws Exception
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        response.setOutputStream(new MockServletOutputStream(baos));
+        servletContext.addInitParameter(MyfacesConfig.RESPONSE_WRITER_DIRECT_UTF8, "true");
+        externalContext.getApplicationMap().remove(MyfacesConfig.class.getName());
+
+        // the view was rendered and its writer released, the servlet Writer can not be used anymore
+        Writer writer = DirectUtf8Writer.getResponseOutputWriter(facesContext, "UTF-8");
+        Assert.assertTrue(writer instanceof DirectUtf8Writer);
+        DirectUtf8Writer.release(facesContext);
+
+        AjaxExceptionHandlerImpl exceptionHandler = new AjaxExceptionHandlerImpl();
+        exceptionHandler.processEvent(new ExceptionQueuedEvent(
+                new ExceptionQueuedEventContext(facesContext, new IllegalStateException("ajax failure"))));
+        exceptionHandler.handle();
+
+        String output = new String(baos.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(output, output.contains("java.lang.IllegalStateException"));
+        Assert.assertTrue(output, output.contains("ajax failure"));
+        Assert.assertTrue(output, output.contains("</partial-response>"));
+        Assert.assertTrue(facesContext.getResponseComplete());
+    }
+}
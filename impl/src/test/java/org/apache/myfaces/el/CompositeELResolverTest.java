@@ -100,4 +100,117 @@ public class CompositeELResolverTest
         Assert.assertEquals(false, descriptors.hasNext());
 
     }
+
+    @Test
+    public void testResolverCache()
+    {
+        CountingResolver mapResolver = new CountingResolver(java.util.Map.class);
+        CountingResolver stringResolver = new CountingResolver(String.class);
+        CountingResolver anyResolver = new CountingResolver(Object.class);
+        _testImpl.add(mapResolver);
+        _testImpl.add(stringResolver);
+        _testImpl.add(anyResolver);
+        _testImpl.setResolverCacheEnabled(true);
+
+        ELContext context = new ELContext()
+        {
+            @Override
+            public ELResolver getELResolver()
+            {
+                return _testImpl;
+            }
+
+            @Override
+            public javax.el.FunctionMapper getFunctionMapper()
+            {
+                return null;
+            }
+
+            @Override
+            public javax.el.VariableMapper getVariableMapper()
+            {
+                return null;
+            }
+        };
+
+        for (int i = 0; i < 3; i++)
+        {
+            Assert.assertSame(stringResolver, _testImpl.getValue(context, "base", "length"));
+            Assert.assertTrue(context.isPropertyResolved());
+        }
+        // the chain is only used the first time
+        Assert.assertEquals(1, mapResolver.calls);
+        Assert.assertEquals(3, stringResolver.calls);
+        Assert.assertEquals(0, anyResolver.calls);
+
+        Assert.assertSame(anyResolver, _testImpl.getValue(context, 1, "length"));
+        Assert.assertEquals(4, stringResolver.calls);
+
+        // if the remembered resolver does not resolve it anymore, the chain is used
+        stringResolver.enabled = false;
+        Assert.assertSame(anyResolver, _testImpl.getValue(context, "base", "length"));
+        Assert.assertEquals(3, mapResolver.calls);
+        Assert.assertEquals(5, stringResolver.calls);
+        Assert.assertSame(anyResolver, _testImpl.getValue(context, "base", "length"));
+        Assert.assertEquals(3, mapResolver.calls);
+        Assert.assertEquals(5, stringResolver.calls);
+
+        // null base is never cached
+        Assert.assertNull(_testImpl.getValue(context, null, "bean"));
+        Assert.assertNull(_testImpl.getValue(context, null, "bean"));
+        Assert.assertEquals(5, mapResolver.calls);
+    }
+
+    private static class CountingResolver extends ELResolver
+    {
+        private final Class<?> type;
+        private int calls;
+        private boolean enabled = true;
+
+        CountingResolver(Class<?> type)
+        {
+            this.type = type;
+        }
+
+        @Override
+        public Object getValue(ELContext context, Object base, Object property)
+        {
+            calls++;
+            if (enabled && type.isInstance(base))
+            {
+                context.setPropertyResolved(true);
+                return this;
+            }
+            return null;
+        }
+
+        @Override
+        public Class<?> getType(ELContext context, Object base, Object property)
+        {
+            return null;
+        }
+
+        @Override
+        public void setValue(ELContext context, Object base, Object property, Object value)
+        {
+        }
+
+        @Override
+        public boolean isReadOnly(ELContext context, Object base, Object property)
+        {
+            return true;
+        }
+
+        @Override
+        public Iterator<FeatureDescriptor> getFeatureDescriptors(ELContext context, Object base)
+        {
+            return null;
+        }
+
+        @Override
+        public Class<?> getCommonPropertyType(ELContext context, Object base)
+        {
+            return null;
+        }
+    }
 }
@@ -18,8 +18,11 @@
  */
 package org.apache.myfaces.renderkit;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import javax.el.ValueExpression;
 import javax.faces.component.UIViewRoot;
@@ -29,11 +32,14 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.apache.myfaces.renderkit.html.HtmlTextRenderer;
+import org.apache.myfaces.renderkit.html.util.DirectUtf8Writer;
 import org.apache.myfaces.application.viewstate.StateUtils;
+import org.apache.myfaces.config.MyfacesConfig;
 import org.apache.myfaces.spi.impl.DefaultSerialFactory;
 import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
 import org.apache.myfaces.test.mock.MockRenderKitFactory;
 import org.apache.myfaces.test.mock.MockResponseWriter;
+import org.apache.myfaces.test.mock.MockServletOutputStream;
 import org.junit.Assert;
 
 /**
@@ -100,5 +106,24 @@ public class ErrorPageWriterTest extends AbstractJsfTestCase
         boolean hasRenderedAttribute = (-1 != indexOfHasRenderedAttribute);
         Assert.assertTrue("rendered attribute wasn't written correctly: " + surroundingText, hasRenderedAttribute);
     }
+
+    public void testHandleWithDirectUtf8Writer() throws Exception
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        response.setOutputStream(new MockServletOutputStream(baos));
+        servletContext.addInitParameter(MyfacesConfig.RESPONSE_WRITER_DIRECT_UTF8, "true");
+        externalContext.getApplicationMap().remove(MyfacesConfig.class.getName());
+
+        // the view failed to render and its writer was released
+        Writer writer = DirectUtf8Writer.getResponseOutputWriter(facesContext, "UTF-8");
+        Assert.assertTrue(writer instanceof DirectUtf8Writer);
+        DirectUtf8Writer.release(facesContext);
+
+        ErrorPageWriter.handle(facesContext, null, new Throwable("Placeholder throwable"));
+
+        String output = new String(baos.toByteArray(), StandardCharsets.UTF_8);
+        Assert.assertTrue(output, output.contains("Placeholder throwable"));
+        Assert.assertTrue(output, output.trim().endsWith("</html>"));
+    }
     
 }
@@ -20,11 +20,15 @@ package org.apache.myfaces.renderkit.html;
 
 import java.io.StringWriter;
 
+import javax.faces.component.UIOutput;
 import javax.faces.component.html.HtmlHead;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.apache.myfaces.application.ResourceHandlerImpl;
+import org.apache.myfaces.component.ComponentResourceContainer;
+import org.apache.myfaces.config.MyfacesConfig;
 import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
 import org.apache.myfaces.test.mock.MockRenderKitFactory;
 import org.apache.myfaces.test.mock.MockResponseWriter;
@@ -79,4 +83,67 @@ public class HtmlHeadRendererTest extends AbstractJsfTestCase
             Assert.fail(HtmlCheckAttributesUtil.constructErrorMessage(attrs, writer.getWriter().toString()));
         }
     }
+
+    public void testBundledResources() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_BUNDLING, "true");
+        externalContext.getApplicationMap().remove(MyfacesConfig.class.getName());
+        servletContext.addMimeType("js", "application/javascript");
+        application.setResourceHandler(new ResourceHandlerImpl());
+        ComponentResourceContainer container = new ComponentResourceContainer();
+        container.setId("javax_faces_location_HEAD");
+        facesContext.getViewRoot().getFacets().put("head", container);
+        request.setPathElements("/xxx", "/faces", "/test.xhtml", null);
+        facesContext.getRenderKit().addRenderer("javax.faces.Output", "javax.faces.resource.Script",
+                new HtmlScriptRenderer());
+
+        addScript("jsf.js", "javax.faces");
+        addScript("testResource.js", null);
+        addScript("testResource.js", null);
+
+        head.encodeAll(facesContext);
+
+        String output = writer.getWriter().toString();
+        Assert.assertEquals(output, 1, output.split("<script").length - 1);
+        Assert.assertTrue(output, output.contains("/xxx/faces/javax.faces.resource/bundle.js?ln=myfaces.bundle"
+                + "&amp;r=javax.faces%3Ajsf.js&amp;r=testResource.js&amp;h="));
+    }
+
+    public void testBundledResourcesWithAttributes() throws Exception
+    {
+        servletContext.addInitParameter("javax.faces.PROJECT_STAGE", "Production");
+        servletContext.addInitParameter(MyfacesConfig.RESOURCE_BUNDLING, "true");
+        externalContext.getApplicationMap().remove(MyfacesConfig.class.getName());
+        servletContext.addMimeType("js", "application/javascript");
+        application.setResourceHandler(new ResourceHandlerImpl());
+        ComponentResourceContainer container = new ComponentResourceContainer();
+        container.setId("javax_faces_location_HEAD");
+        facesContext.getViewRoot().getFacets().put("head", container);
+        request.setPathElements("/xxx", "/faces", "/test.xhtml", null);
+        facesContext.getRenderKit().addRenderer("javax.faces.Output", "javax.faces.resource.Script",
+                new HtmlScriptRenderer());
+
+        addScript("jsf.js", "javax.faces").getAttributes().put("nonce", "abc");
+        addScript("testResource.js", null).getPassThroughAttributes().put("integrity", "sha384-abc");
+
+        head.encodeAll(facesContext);
+
+        String output = writer.getWriter().toString();
+        Assert.assertEquals(output, 2, output.split("<script").length - 1);
+        Assert.assertFalse(output, output.contains("bundle.js"));
+    }
+
+    private UIOutput addScript(String name, String library)
+    {
+        UIOutput script = new UIOutput();
+        script.setRendererType("javax.faces.resource.Script");
+        script.getAttributes().put("name", name);
+        if (library != null)
+        {
+            script.getAttributes().put("library", library);
+        }
+        facesContext.getViewRoot().addComponentResource(facesContext, script, "head");
+        return script;
+    }
 }
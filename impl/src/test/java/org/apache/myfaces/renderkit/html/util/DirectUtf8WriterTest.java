@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.renderkit.html.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.myfaces.config.MyfacesConfig;
+import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
+import org.apache.myfaces.test.mock.MockServletOutputStream;
+import org.junit.Assert;
+
+public class DirectUtf8WriterTest extends AbstractJsfTestCase
+{
+    public void testEncodeUtf8() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2000; i++)
+        {
+            sb.append("<p class=\"x\">Hell\u00f6 \u20ac \uD83D\uDE00 ").append(i).append("</p>");
+        }
+        String text = sb.toString();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DirectUtf8Writer writer = new DirectUtf8Writer(baos);
+        // split the surrogate pairs between calls too
+        for (int i = 0; i < text.length(); i += 7)
+        {
+            int len = Math.min(7, text.length() - i);
+            if (i % 2 == 0)
+            {
+                writer.write(text, i, len);
+            }
+            else
+            {
+                writer.write(text.toCharArray(), i, len);
+            }
+        }
+        writer.write('!');
+        writer.flush();
+
+        Assert.assertArrayEquals((text + '!').getBytes(StandardCharsets.UTF_8), baos.toByteArray());
+    }
+
+    public void testUnpairedSurrogates() throws Exception
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DirectUtf8Writer writer = new DirectUtf8Writer(baos);
+        writer.write("a\uD83Db\uDE00c\uD83D");
+        writer.close();
+
+        Assert.assertEquals("a?b?c?", new String(baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    public void testResponseOutputWriterDisabled() throws Exception
+    {
+        Writer writer = DirectUtf8Writer.getResponseOutputWriter(facesContext, "UTF-8");
+        Assert.assertFalse(writer instanceof DirectUtf8Writer);
+        Assert.assertSame(writer, DirectUtf8Writer.getResponseOutputWriter(facesContext));
+    }
+
+    public void testResponseOutputWriterNotUtf8() throws Exception
+    {
+        servletContext.addInitParameter(MyfacesConfig.RESPONSE_WRITER_DIRECT_UTF8, "true");
+        externalContext.getApplicationMap().remove(MyfacesConfig.class.getName());
+
+        Writer writer = DirectUtf8Writer.getResponseOutputWriter(facesContext, "ISO-8859-1");
+        Assert.assertFalse(writer instanceof DirectUtf8Writer);
+    }
+
+    public void testResponseOutputWriter() throws Exception
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        response.setOutputStream(new MockServletOutputStream(baos));
+        servletContext.addInitParameter(MyfacesConfig.RESPONSE_WRITER_DIRECT_UTF8, "true");
+        externalContext.getApplicationMap().remove(MyfacesConfig.class.getName());
+
+        Writer writer = DirectUtf8Writer.getResponseOutputWriter(facesContext, "UTF-8");
+        Assert.assertTrue(writer instanceof DirectUtf8Writer);
+        Assert.assertSame(writer, DirectUtf8Writer.getResponseOutputWriter(facesContext));
+
+        writer.write("\u00fcber");
+        Assert.assertEquals(0, baos.size());
+        DirectUtf8Writer.release(facesContext);
+        Assert.assertEquals("\u00fcber", new String(baos.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -351,6 +351,11 @@ public class HTMLEncoderTest extends AbstractJsfTestCase {
       //assertEquals(cad14,cad15);
   }
     
+  public void testEncodeStringNoSpecialCharsSameInstance() {
+    Assert.assertSame(stringNoSpecialChars, HTMLEncoder.encode(stringNoSpecialChars));
+    Assert.assertEquals("a&lt;b &#160;c", HTMLEncoder.encode("a<b  c", false, true, true));
+  }
+
   private void assertCharArrayEquals(char[] expected, char[] actual) {
     if ((expected == null ^ actual == null) || expected.length != actual.length) {
       Assert.fail();
@@ -361,6 +361,36 @@ public class HTMLEncoderWriterTest extends AbstractJsfTestCase {
       //assertEquals(cad14,cad15);
   }
   
+  public void testEncodeSubsequentBlanksAndControlChars() throws Exception {
+    String text = " a  b\u0001c\td\r\n";
+    HTMLEncoder.encode(sw, text, true, true, true);
+    Assert.assertEquals("&#160;a &#160;bc\td\r<br/>", sw.toString());
+
+    CharArrayWriter writer = new CharArrayWriter();
+    char[] source = ("x" + text).toCharArray();
+    HTMLEncoder.encode(source, 1, text.length(), true, true, true, writer);
+    Assert.assertEquals(sw.toString(), writer.toString());
+
+    sw = new StringWriter();
+    HTMLEncoder.encode(sw, text, false, false, true);
+    Assert.assertEquals(" a  bc\td\r\n", sw.toString());
+  }
+
+  public void testEncodeNonLatinCharacterReferences() throws Exception {
+    String text = "\u0080\u0081\u00e9\u00e4\u20ac\u4e2d\uffff";
+    String encoded = "\u0080&#129;&#233;&auml;&euro;&#20013;&#65535;";
+    HTMLEncoder.encode(sw, text, false, false, true);
+    Assert.assertEquals(encoded, sw.toString());
+
+    CharArrayWriter writer = new CharArrayWriter();
+    HTMLEncoder.encode(text.toCharArray(), 0, text.length(), false, false, true, writer);
+    Assert.assertEquals(encoded, writer.toString());
+
+    sw = new StringWriter();
+    HTMLEncoder.encode(sw, text, false, false, false);
+    Assert.assertEquals(text, sw.toString());
+  }
+
   private void assertCharArrayEquals(char[] expected, char[] actual) {
     if ((expected == null ^ actual == null) || expected.length != actual.length) {
       Assert.fail();
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FileChangeWatcherTest
+{
+    @Test
+    public void testWatchFile() throws Exception
+    {
+        File dir = Files.createTempDirectory("watcher").toFile();
+        File file = new File(dir, "page.xhtml");
+        Assert.assertTrue(file.createNewFile());
+
+        FileChangeWatcher watcher = new FileChangeWatcher();
+        try
+        {
+            final CountDownLatch changed = new CountDownLatch(1);
+            Assert.assertTrue(watcher.watch(file.toURI().toURL(), changed::countDown));
+
+            try (OutputStream os = new FileOutputStream(file))
+            {
+                os.write("<html/>".getBytes("UTF-8"));
+            }
+
+            Assert.assertTrue("change not notified", changed.await(30, TimeUnit.SECONDS));
+        }
+        finally
+        {
+            watcher.close();
+            file.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testWatchNonFileUrl() throws Exception
+    {
+        FileChangeWatcher watcher = new FileChangeWatcher();
+        try
+        {
+            Assert.assertFalse(watcher.watch(new URL("jar:file:/lib.jar!/META-INF/resources/a.js"), () -> { }));
+            Assert.assertFalse(watcher.watch(new URL("http://localhost/a.js"), () -> { }));
+        }
+        finally
+        {
+            watcher.close();
+        }
+    }
+}
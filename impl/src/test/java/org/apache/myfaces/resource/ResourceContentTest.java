@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResourceContentTest
+{
+    private static byte[] text(int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+        {
+            bytes[i] = (byte) ('a' + i % 7);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void testGzipVariant() throws Exception
+    {
+        byte[] bytes = text(4096);
+        ResourceContent content = new ResourceContent(bytes, "application/javascript");
+
+        Assert.assertSame(bytes, content.getBytes());
+        Assert.assertNotNull(content.getGzipBytes());
+        Assert.assertTrue(content.getGzipBytes().length < bytes.length);
+        Assert.assertNotEquals(content.getETag(), content.getGzipETag());
+        Assert.assertTrue(content.getGzipETag().startsWith("\"") && content.getGzipETag().endsWith("-gzip\""));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(content.getGzipBytes())))
+        {
+            byte[] buffer = new byte[1024];
+            int length;
+            while ((length = in.read(buffer)) >= 0)
+            {
+                out.write(buffer, 0, length);
+            }
+        }
+        Assert.assertArrayEquals(bytes, out.toByteArray());
+    }
+
+    @Test
+    public void testNoGzipVariant() throws Exception
+    {
+        Assert.assertNull(new ResourceContent(text(4096), "image/png").getGzipBytes());
+        Assert.assertNull(new ResourceContent(text(16), "text/css").getGzipBytes());
+        Assert.assertNull(new ResourceContent(text(4096), null).getGzipBytes());
+    }
+
+    @Test
+    public void testETag() throws Exception
+    {
+        byte[] bytes = text(100);
+        String eTag = new ResourceContent(bytes, "text/css").getETag();
+
+        Assert.assertEquals(eTag, new ResourceContent(bytes.clone(), "text/css").getETag());
+
+        byte[] other = bytes.clone();
+        other[50]++;
+        Assert.assertNotEquals(eTag, new ResourceContent(other, "text/css").getETag());
+    }
+
+    @Test
+    public void testRead() throws Exception
+    {
+        byte[] bytes = text(10000);
+
+        ResourceContent content = ResourceContent.read(new ByteArrayInputStream(bytes), "text/css", 10000);
+        Assert.assertTrue(Arrays.equals(bytes, content.getBytes()));
+
+        Assert.assertSame(ResourceContent.TOO_LARGE,
+                ResourceContent.read(new ByteArrayInputStream(bytes), "text/css", 9999));
+    }
+
+    @Test
+    public void testMatchingETag()
+    {
+        ResourceContent content = new ResourceContent(text(4096), "application/javascript");
+        String eTag = content.getETag();
+        String gzipETag = content.getGzipETag();
+
+        Assert.assertEquals(eTag, ResourceContent.getMatchingETag(eTag, eTag));
+        Assert.assertEquals(gzipETag, ResourceContent.getMatchingETag("\"x\", W/" + gzipETag, eTag));
+        Assert.assertEquals(eTag, ResourceContent.getMatchingETag("*", eTag));
+        Assert.assertNull(ResourceContent.getMatchingETag("\"x\"", eTag));
+        Assert.assertNull(ResourceContent.getMatchingETag(null, eTag));
+    }
+
+    @Test
+    public void testIsGzipAccepted()
+    {
+        Assert.assertTrue(ResourceContent.isGzipAccepted("gzip, deflate, br"));
+        Assert.assertTrue(ResourceContent.isGzipAccepted("deflate, GZIP;q=0.5"));
+        Assert.assertTrue(ResourceContent.isGzipAccepted("*"));
+        Assert.assertFalse(ResourceContent.isGzipAccepted("gzip;q=0"));
+        Assert.assertFalse(ResourceContent.isGzipAccepted("identity"));
+        Assert.assertFalse(ResourceContent.isGzipAccepted(null));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
+import org.junit.Assert;
+
+public class ResourceIndexTest extends AbstractJsfTestCase
+{
+    private File dir;
+    private File jar;
+    private ClassLoader contextClassLoader;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+
+        // a directory with a versioned library and a jar without directory entries
+        dir = Files.createTempDirectory("index").toFile();
+        createFile(new File(dir, "META-INF/resources/plain.js"));
+        createFile(new File(dir, "META-INF/resources/de/localized.js"));
+        createFile(new File(dir, "META-INF/resources/lib/1_0/script.js/1_1.js"));
+
+        jar = File.createTempFile("index", ".jar");
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar), manifest))
+        {
+            out.putNextEntry(new ZipEntry("META-INF/resources/jarlib/a.js"));
+            out.write("a();".getBytes("UTF-8"));
+            out.closeEntry();
+        }
+
+        contextClassLoader = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(new URLClassLoader(
+                new URL[] { dir.toURI().toURL(), jar.toURI().toURL() }, null));
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        Thread.currentThread().setContextClassLoader(contextClassLoader);
+        jar.delete();
+        delete(dir);
+
+        super.tearDown();
+    }
+
+    public void testMayExist() throws Exception
+    {
+        ResourceIndex index = new ResourceIndex(facesContext);
+        ResourceLoader loader = new ClassLoaderResourceLoader("META-INF/resources");
+
+        Assert.assertTrue(index.mayExist(facesContext, loader, null, null, null, "plain.js"));
+        Assert.assertTrue(index.mayExist(facesContext, loader, null, "de", null, "plain.js"));
+        Assert.assertTrue(index.mayExist(facesContext, loader, null, "de", null, "localized.js"));
+        Assert.assertTrue(index.mayExist(facesContext, loader, null, null, "lib", "script.js"));
+        Assert.assertTrue(index.mayExist(facesContext, loader, "lib/1_0/script.js/1_1.js"));
+        Assert.assertTrue(index.mayExist(facesContext, loader, null, null, "jarlib", "a.js"));
+
+        Assert.assertFalse(index.mayExist(facesContext, loader, null, null, null, "missing.js"));
+        Assert.assertFalse(index.mayExist(facesContext, loader, null, null, null, "localized.js"));
+        Assert.assertFalse(index.mayExist(facesContext, loader, null, null, "lib", "missing.js"));
+        Assert.assertFalse(index.mayExist(facesContext, loader, null, null, "jarlib", "b.js"));
+    }
+
+    public void testNotIndexedLoader() throws Exception
+    {
+        ResourceIndex index = new ResourceIndex(facesContext);
+        ResourceLoader loader = new InternalClassLoaderResourceLoader("META-INF/internal-resources");
+
+        Assert.assertTrue(index.mayExist(facesContext, loader, null, null, null, "missing.js"));
+    }
+
+    private static void createFile(File file) throws Exception
+    {
+        Assert.assertTrue(file.getParentFile().mkdirs());
+        Files.write(file.toPath(), "a();".getBytes("UTF-8"));
+    }
+
+    private static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
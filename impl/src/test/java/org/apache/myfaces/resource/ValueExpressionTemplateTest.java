@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
+import org.junit.Assert;
+
+public class ValueExpressionTemplateTest extends AbstractJsfTestCase
+{
+    private static final String CSS = ".a{color:#{color}} #x{} .b{background:#{color}} #{unclosed";
+
+    public void testEvaluate() throws Exception
+    {
+        request.setAttribute("color", "red");
+
+        ValueExpressionTemplate template = ValueExpressionTemplate.parse(toStream(CSS));
+
+        Assert.assertFalse(template.isCacheable());
+        Assert.assertEquals(".a{color:red} #x{} .b{background:red} #{unclosed",
+                new String(template.evaluate(facesContext, null, "theme.css", null), StandardCharsets.UTF_8));
+    }
+
+    public void testSameContentAsFilterInputStream() throws Exception
+    {
+        request.setAttribute("color", "red");
+
+        ByteArrayOutputStream filtered = new ByteArrayOutputStream();
+        String css = ".a{color:#{color}} #x{} .b{background:#{color}}";
+        try (InputStream in = new ValueExpressionFilterInputStream(toStream(css), null, "theme.css"))
+        {
+            int c;
+            while ((c = in.read()) != -1)
+            {
+                filtered.write(c);
+            }
+        }
+
+        Assert.assertArrayEquals(filtered.toByteArray(),
+                ValueExpressionTemplate.parse(toStream(css)).evaluate(facesContext, null, "theme.css", null));
+    }
+
+    public void testCacheable() throws Exception
+    {
+        Assert.assertTrue(ValueExpressionTemplate.parse(toStream(
+                ".a{background:url(#{resource['lib:img.png']})} .b{background:url(#{ resource[\"a.png\"] })}"))
+                .isCacheable());
+        Assert.assertTrue(ValueExpressionTemplate.parse(toStream(".a{}")).isCacheable());
+        Assert.assertFalse(ValueExpressionTemplate.parse(toStream(
+                ".a{background:url(#{resource['lib:img.png']})} .b{color:#{theme.color}}")).isCacheable());
+    }
+
+    private static InputStream toStream(String content)
+    {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.spi.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.faces.component.UIComponent;
+import javax.faces.component.html.HtmlInputText;
+import javax.faces.convert.NumberConverter;
+import javax.faces.validator.LengthValidator;
+import org.apache.myfaces.spi.SerialFactory;
+import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
+import org.apache.myfaces.util.lang.FastByteArrayInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactSerialFactoryTest extends AbstractJsfTestCase
+{
+    private final SerialFactory factory = new CompactSerialFactory();
+
+    @Test
+    public void testMixedValues() throws Exception
+    {
+        List<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        Object[] state = new Object[] {
+            null, Boolean.TRUE, Boolean.FALSE, 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Long.MIN_VALUE, 123456789012L, (short) -5, (byte) 7, 'x', 1.5f, -2.25d,
+            "", "text", "text", "é中", new Object[] { "text", new Object[0] },
+            TimeUnit.SECONDS, Thread.State.NEW, String.class, int.class, int[].class,
+            new int[] { 1, 2 }, list, new BigDecimal("1.10")
+        };
+
+        Object[] restored = (Object[]) factory.toObject(factory.toByteArray(state));
+
+        Assert.assertTrue(Arrays.deepEquals(state, restored));
+        Assert.assertSame(TimeUnit.SECONDS, restored[19]);
+        Assert.assertSame(Thread.State.NEW, restored[20]);
+    }
+
+    @Test
+    public void testStreamRoundTrip() throws Exception
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        factory.writeObject(new Object[] { "a", 1 }, baos);
+
+        Object[] restored = (Object[]) factory.readObject(new FastByteArrayInputStream(baos.toByteArray()));
+        Assert.assertArrayEquals(new Object[] { "a", 1 }, restored);
+    }
+
+    @Test
+    public void testComponentState() throws Exception
+    {
+        HtmlInputText input = new HtmlInputText();
+        input.setId("input");
+        input.setStyleClass("field");
+        input.setMaxlength(10);
+        input.setRequired(true);
+        input.getAttributes().put("custom", "value");
+        NumberConverter converter = new NumberConverter();
+        converter.setPattern("#,##0.00");
+        input.setConverter(converter);
+        LengthValidator validator = new LengthValidator();
+        validator.setMaximum(10);
+        input.addValidator(validator);
+
+        Object state = input.saveState(facesContext);
+        byte[] compact = factory.toByteArray(state);
+        byte[] standard = new DefaultSerialFactory().toByteArray(state);
+        Assert.assertTrue("compact " + compact.length + " >= " + standard.length, compact.length < standard.length);
+
+        HtmlInputText restored = new HtmlInputText();
+        restored.restoreState(facesContext, factory.toObject(compact));
+
+        Assert.assertEquals("input", restored.getId());
+        Assert.assertEquals("field", restored.getStyleClass());
+        Assert.assertEquals(10, restored.getMaxlength());
+        Assert.assertTrue(restored.isRequired());
+        Assert.assertEquals("value", restored.getAttributes().get("custom"));
+        Assert.assertEquals("#,##0.00", ((NumberConverter) restored.getConverter()).getPattern());
+        Assert.assertEquals(10, ((LengthValidator) restored.getValidators()[0]).getMaximum());
+    }
+
+    @Test
+    public void testDeltaComponentState() throws Exception
+    {
+        UIComponent input = new HtmlInputText();
+        LengthValidator validator = new LengthValidator();
+        input.markInitialState();
+        input.getAttributes().put("size", 20);
+        ((HtmlInputText) input).addValidator(validator);
+        validator.setMinimum(2);
+
+        Object state = input.saveState(facesContext);
+        HtmlInputText restored = new HtmlInputText();
+        restored.markInitialState();
+        restored.restoreState(facesContext, factory.toObject(factory.toByteArray(state)));
+
+        Assert.assertEquals(20, restored.getAttributes().get("size"));
+        Assert.assertEquals(2, ((LengthValidator) restored.getValidators()[0]).getMinimum());
+    }
+
+    @Test
+    public void testRejectsStandardSerialization() throws Exception
+    {
+        try
+        {
+            factory.toObject(new DefaultSerialFactory().toByteArray("text"));
+            Assert.fail();
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testSharedReferences() throws Exception
+    {
+        Object[] shared = new Object[] { "a" };
+        Long number = 123456789012L;
+        Object[] state = new Object[] { shared, shared, number, number, new Object[] { shared } };
+
+        Object[] restored = (Object[]) factory.toObject(factory.toByteArray(state));
+
+        Assert.assertTrue(Arrays.deepEquals(state, restored));
+        Assert.assertSame(restored[0], restored[1]);
+        Assert.assertSame(restored[0], ((Object[]) restored[4])[0]);
+        Assert.assertSame(restored[2], restored[3]);
+    }
+
+    @Test
+    public void testRejectsCycles() throws Exception
+    {
+        Object[] state = new Object[1];
+        state[0] = state;
+        try
+        {
+            factory.toByteArray(state);
+            Assert.fail();
+        }
+        catch (IOException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRejectsForgedLength() throws Exception
+    {
+        // version, array tag and a length that is not followed by the items
+        for (long length : new long[] { Integer.MAX_VALUE - 8, 1L << 40 })
+        {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(baos))
+            {
+                oos.writeByte(2);
+                oos.writeByte(12);
+                while ((length & ~0x7FL) != 0)
+                {
+                    oos.writeByte((int) ((length & 0x7F) | 0x80));
+                    length >>>= 7;
+                }
+                oos.writeByte((int) length);
+            }
+            try
+            {
+                factory.toObject(baos.toByteArray());
+                Assert.fail();
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+        }
+    }
+}
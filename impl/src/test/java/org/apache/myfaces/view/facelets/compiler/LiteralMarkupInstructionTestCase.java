@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.compiler;
+
+import javax.faces.context.ResponseWriter;
+
+import org.apache.myfaces.renderkit.html.HtmlResponseWriterImpl;
+import org.apache.myfaces.util.lang.FastWriter;
+import org.apache.myfaces.view.facelets.FaceletTestCase;
+import org.apache.myfaces.view.facelets.el.ELText;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LiteralMarkupInstructionTestCase extends FaceletTestCase
+{
+    private Instruction[] createInstructions(boolean el)
+    {
+        return new Instruction[] {
+            new EndElementInstruction("div"),
+            new StartElementInstruction("p"),
+            new LiteralAttributeInstruction("class", "a<b"),
+            new LiteralTextInstruction("Hellö  & €"),
+            new StartElementInstruction("br"),
+            new EndElementInstruction("br"),
+            new LiteralCommentInstruction(" note "),
+            new EndElementInstruction("p"),
+            new LiteralXMLInstruction("<![CDATA[x]]>"),
+            new StartElementInstruction("span"),
+            el ? new AttributeInstruction("alias", "title", ELText.parse("#{bean.title}"))
+                    : new AddFacesMessageInstruction(null, null, null),
+            new LiteralTextInstruction("text"),
+            new EndElementInstruction("span"),
+            new StartElementInstruction("script"),
+            new LiteralTextInstruction("if (a < b) {}"),
+            new EndElementInstruction("script"),
+            new LiteralTextInstruction("end"),
+            new StartElementInstruction("div")
+        };
+    }
+
+    @Test
+    public void testMerge() throws Exception
+    {
+        Instruction[] instructions = createInstructions(true);
+        Instruction[] merged = LiteralMarkupInstruction.merge(instructions);
+
+        Assert.assertEquals(11, merged.length);
+        Assert.assertSame(instructions[0], merged[0]);
+        Assert.assertTrue(merged[1] instanceof LiteralMarkupInstruction);
+        Assert.assertSame(instructions[9], merged[2]);
+        Assert.assertSame(instructions[10], merged[3]);
+        Assert.assertTrue(merged[4] instanceof LiteralMarkupInstruction);
+        Assert.assertSame(instructions[12], merged[5]);
+        Assert.assertSame(instructions[13], merged[6]);
+        Assert.assertTrue(merged[7] instanceof LiteralMarkupInstruction);
+        Assert.assertSame(instructions[15], merged[8]);
+        Assert.assertTrue(merged[9] instanceof LiteralMarkupInstruction);
+        Assert.assertSame(instructions[17], merged[10]);
+
+        Instruction[] literal = new Instruction[] { new StartElementInstruction("p") };
+        Assert.assertSame(literal, LiteralMarkupInstruction.merge(literal));
+    }
+
+    @Test
+    public void testWriteSameMarkup() throws Exception
+    {
+        String[][] configs = new String[][] {
+            {"text/html", "UTF-8"},
+            {"text/html", "ISO-8859-1"},
+            {"application/xhtml+xml", "UTF-8"},
+            {"application/xml", "UTF-8"}
+        };
+        for (String[] config : configs)
+        {
+            ResponseWriter writer = new HtmlResponseWriterImpl(new FastWriter(), config[0], config[1]);
+            String expected = write(writer, createInstructions(false));
+            Instruction[] merged = LiteralMarkupInstruction.merge(createInstructions(false));
+            Assert.assertEquals(expected, write(writer, merged));
+            // the second time the prerendered markup is used
+            Assert.assertEquals(expected, write(writer, merged));
+        }
+
+        // other writers get the usual calls
+        ResponseWriter writer = facesContext.getResponseWriter();
+        Assert.assertEquals(write(writer, createInstructions(false)),
+                write(writer, LiteralMarkupInstruction.merge(createInstructions(false))));
+    }
+
+    private String write(ResponseWriter writer, Instruction[] instructions) throws Exception
+    {
+        FastWriter out = new FastWriter();
+        ResponseWriter rw = writer.cloneWithWriter(out);
+        facesContext.setResponseWriter(rw);
+        rw.startElement("div", null);
+        for (Instruction ins : instructions)
+        {
+            ins.write(facesContext);
+        }
+        rw.endElement("div");
+        rw.flush();
+        facesContext.setResponseWriter(writer);
+        return out.toString();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.URL;
+
+import javax.faces.component.UIForm;
+import javax.faces.component.UIOutput;
+import javax.faces.component.UIPanel;
+import javax.faces.component.UISelectItem;
+import javax.faces.component.UISelectOne;
+import javax.faces.component.UIViewRoot;
+import javax.faces.component.html.HtmlForm;
+import javax.faces.component.html.HtmlOutputText;
+import javax.faces.component.html.HtmlPanelGrid;
+import javax.faces.component.html.HtmlSelectOneMenu;
+
+import org.apache.myfaces.config.RuntimeConfig;
+import org.apache.myfaces.config.impl.element.FaceletsProcessingImpl;
+import org.apache.myfaces.renderkit.html.HtmlFormRenderer;
+import org.apache.myfaces.renderkit.html.HtmlGridRenderer;
+import org.apache.myfaces.renderkit.html.HtmlMenuRenderer;
+import org.apache.myfaces.renderkit.html.HtmlTextRenderer;
+import org.apache.myfaces.test.mock.MockResponseWriter;
+import org.apache.myfaces.view.facelets.FaceletTestCase;
+import org.apache.myfaces.view.facelets.impl.DefaultFaceletFactory;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrecompiledFaceletsTestCase extends FaceletTestCase
+{
+    private static final String VIEW = "testXHTMLProcessing1.xhtml";
+
+    @Override
+    protected void setupComponents() throws Exception
+    {
+        application.addComponent(UIViewRoot.COMPONENT_TYPE,
+                UIViewRoot.class.getName());
+        application.addComponent(HtmlForm.COMPONENT_TYPE,
+                HtmlForm.class.getName());
+        application.addComponent(HtmlPanelGrid.COMPONENT_TYPE,
+                HtmlPanelGrid.class.getName());
+        application.addComponent(HtmlSelectOneMenu.COMPONENT_TYPE,
+                HtmlSelectOneMenu.class.getName());
+        application.addComponent(UISelectItem.COMPONENT_TYPE,
+                UISelectItem.class.getName());
+        application.addComponent(HtmlOutputText.COMPONENT_TYPE,
+                HtmlOutputText.class.getName());
+    }
+
+    @Override
+    protected void setupRenderers() throws Exception
+    {
+        renderKit.addRenderer(UIOutput.COMPONENT_FAMILY,
+                "javax.faces.Text", new HtmlTextRenderer());
+        renderKit.addRenderer(UIForm.COMPONENT_FAMILY,
+                "javax.faces.Form", new HtmlFormRenderer());
+        renderKit.addRenderer(UISelectOne.COMPONENT_FAMILY,
+                "javax.faces.Menu", new HtmlMenuRenderer());
+        renderKit.addRenderer(UIPanel.COMPONENT_FAMILY,
+                "javax.faces.Grid", new HtmlGridRenderer());
+    }
+
+    @Override
+    protected void setUpExternalContext() throws Exception
+    {
+        super.setUpExternalContext();
+
+        FaceletsProcessingImpl item = new FaceletsProcessingImpl();
+        item.setFileExtension(".xhtml");
+        item.setProcessAs(FaceletsProcessingImpl.PROCESS_AS_XHTML);
+        RuntimeConfig.getCurrentInstance(externalContext).addFaceletProcessingConfiguration(
+            FaceletsProcessingImpl.PROCESS_AS_XHTML, item);
+    }
+
+    private PrecompiledFacelets precompile(URL url, long lastModified, long length) throws Exception
+    {
+        PrecompiledFacelets precompiled = new PrecompiledFacelets();
+        InputStream is = url.openStream();
+        try
+        {
+            precompiled.add("/" + VIEW, is, lastModified, length);
+        }
+        finally
+        {
+            is.close();
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        precompiled.write(baos);
+        return PrecompiledFacelets.read(new ByteArrayInputStream(baos.toByteArray()));
+    }
+
+    @Test
+    public void testReplayPrecompiledFacelet() throws Exception
+    {
+        URL url = getClass().getResource(VIEW);
+        File file = new File(url.toURI());
+        PrecompiledFacelets precompiled = precompile(url, file.lastModified(), file.length());
+        Assert.assertEquals(1, precompiled.size());
+        Assert.assertNotNull(precompiled.getEntry(url, "/" + VIEW));
+
+        ((DefaultFaceletFactory) vdl.getFaceletFactory()).getCompiler().setPrecompiledFacelets(precompiled);
+
+        facesContext.getExternalContext().getRequestMap().put("rquote", "\"");
+
+        UIViewRoot root = facesContext.getViewRoot();
+        vdl.buildView(facesContext, root, VIEW);
+
+        StringWriter sw = new StringWriter();
+        MockResponseWriter mrw = new MockResponseWriter(sw);
+        facesContext.setResponseWriter(mrw);
+
+        root.encodeAll(facesContext);
+
+        sw.flush();
+
+        String resp = sw.toString();
+
+        Assert.assertTrue("Response contains DOCTYPE declaration", resp.contains("<!DOCTYPE"));
+        Assert.assertTrue("Response contains xml declaration", resp.contains("<?xml"));
+        Assert.assertTrue("Response contains xml processing instructions", resp.contains("<?name"));
+        Assert.assertTrue("Response contains cdata section", resp.contains("cdata not consumed"));
+        Assert.assertTrue("Response contains comments", resp.contains("<!--"));
+        Assert.assertTrue("Response should escape EL and markup", resp.contains("Check EL Escaping &quot; : &quot;"));
+    }
+
+    @Test
+    public void testOutdatedPrecompiledFacelet() throws Exception
+    {
+        URL url = getClass().getResource(VIEW);
+        File file = new File(url.toURI());
+
+        Assert.assertNull(precompile(url, file.lastModified() - 1000, file.length()).getEntry(url, "/" + VIEW));
+        Assert.assertNull(precompile(url, file.lastModified() + 1000, file.length()).getEntry(url, "/" + VIEW));
+        Assert.assertNull(precompile(url, file.lastModified(), file.length() + 1).getEntry(url, "/" + VIEW));
+        Assert.assertNull(precompile(url, file.lastModified(), file.length())
+                .getEntry(new URL("file:/other/" + VIEW + "x"), "/" + VIEW + "x"));
+        // a source at another path that ends like the precompiled one
+        Assert.assertNull(precompile(url, file.lastModified(), file.length())
+                .getEntry(url, "/META-INF/resources/" + VIEW));
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.el;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.el.ELContext;
+import javax.el.ELException;
+import javax.el.EvaluationListener;
+import javax.el.ExpressionFactory;
+import javax.el.ValueExpression;
+
+import org.apache.myfaces.view.facelets.FaceletTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledValueExpressionTestCase extends FaceletTestCase
+{
+
+    @Override
+    protected ExpressionFactory createExpressionFactory()
+    {
+        return new org.apache.el.ExpressionFactoryImpl();
+    }
+
+    private ValueExpression create(String expression, Class<?> type, int threshold)
+    {
+        ELContext elContext = facesContext.getELContext();
+        ValueExpression ve = facesContext.getApplication().getExpressionFactory().createValueExpression(
+                elContext, expression, type);
+        return CompiledValueExpression.wrap(elContext, ve, threshold);
+    }
+
+    @Test
+    public void testParse()
+    {
+        int[] mode = new int[1];
+        Assert.assertArrayEquals(new String[] {"bean", "a", "b"},
+                CompiledValueExpression.parse("#{bean.a.b}", mode));
+        Assert.assertArrayEquals(new String[] {"bean", "list"},
+                CompiledValueExpression.parse("#{not empty bean.list}", mode));
+        Assert.assertArrayEquals(new String[] {"bean", "list"},
+                CompiledValueExpression.parse("#{!empty bean.list}", mode));
+        Assert.assertArrayEquals(new String[] {"bean"},
+                CompiledValueExpression.parse("#{empty bean}", mode));
+        Assert.assertArrayEquals(new String[] {"bean", "a"},
+                CompiledValueExpression.parse("#{bean.a == null}", mode));
+        Assert.assertArrayEquals(new String[] {"bean", "a"},
+                CompiledValueExpression.parse("${bean.a ne null}", mode));
+
+        Assert.assertNull(CompiledValueExpression.parse("#{bean}", mode));
+        Assert.assertNull(CompiledValueExpression.parse("#{bean['a']}", mode));
+        Assert.assertNull(CompiledValueExpression.parse("#{bean.a()}", mode));
+        Assert.assertNull(CompiledValueExpression.parse("#{bean.a == 1}", mode));
+        Assert.assertNull(CompiledValueExpression.parse("#{bean.a}#{bean.b}", mode));
+        Assert.assertNull(CompiledValueExpression.parse("#{bean.empty}", mode));
+        Assert.assertNull(CompiledValueExpression.parse("#{bean.}", mode));
+        Assert.assertNull(CompiledValueExpression.parse("text", mode));
+    }
+
+    @Test
+    public void testNotWrapped()
+    {
+        ValueExpression ve = create("#{bean.a + 1}", Object.class, 1);
+        Assert.assertFalse(ve instanceof CompiledValueExpression);
+
+        ve = create("literal", String.class, 1);
+        Assert.assertFalse(ve instanceof CompiledValueExpression);
+    }
+
+    @Test
+    public void testCompileAfterThreshold()
+    {
+        Bean bean = new Bean("root", new Bean("nested", null));
+        externalContext.getRequestMap().put("bean", bean);
+
+        CompiledValueExpression ve = (CompiledValueExpression) create("#{bean.child.name}", Object.class, 3);
+        ELContext elContext = facesContext.getELContext();
+
+        Assert.assertEquals("nested", ve.getValue(elContext));
+        Assert.assertEquals("nested", ve.getValue(elContext));
+        Assert.assertFalse(ve.isCompiled());
+        Assert.assertEquals("nested", ve.getValue(elContext));
+        Assert.assertTrue(ve.isCompiled());
+
+        ((Bean) bean.getChild()).setName("changed");
+        Assert.assertEquals("changed", ve.getValue(elContext));
+
+        // an intermediate null is evaluated to null
+        bean.setChild(null);
+        Assert.assertNull(ve.getValue(elContext));
+
+        // another class on the same position
+        bean.setChild(new OtherBean("other"));
+        Assert.assertEquals("other", ve.getValue(elContext));
+    }
+
+    @Test
+    public void testNonPublicClass()
+    {
+        externalContext.getRequestMap().put("bean", new Bean("root", new HiddenBean()));
+
+        ValueExpression ve = create("#{bean.child.name}", String.class, 1);
+        Assert.assertEquals("hidden", ve.getValue(facesContext.getELContext()));
+        Assert.assertTrue(((CompiledValueExpression) ve).isCompiled());
+    }
+
+    @Test
+    public void testResolverProperties()
+    {
+        Map<String, Object> map = new HashMap<>();
+        map.put("key", new Bean("value", null));
+        Bean bean = new Bean("root", null);
+        bean.setMap(map);
+        externalContext.getRequestMap().put("bean", bean);
+
+        ValueExpression ve = create("#{bean.map.key.name}", Object.class, 1);
+        Assert.assertEquals("value", ve.getValue(facesContext.getELContext()));
+
+        ve = create("#{bean.map.missing}", Object.class, 1);
+        Assert.assertNull(ve.getValue(facesContext.getELContext()));
+    }
+
+    @Test
+    public void testOperations()
+    {
+        Bean bean = new Bean("root", null);
+        externalContext.getRequestMap().put("bean", bean);
+        ELContext elContext = facesContext.getELContext();
+
+        ValueExpression empty = create("#{empty bean.list}", Boolean.class, 1);
+        ValueExpression notEmpty = create("#{not empty bean.list}", Object.class, 1);
+        ValueExpression isNull = create("#{bean.child == null}", String.class, 1);
+        ValueExpression notNull = create("#{bean.child != null}", Boolean.class, 1);
+
+        Assert.assertEquals(Boolean.TRUE, empty.getValue(elContext));
+        Assert.assertEquals(Boolean.FALSE, notEmpty.getValue(elContext));
+        Assert.assertEquals("true", isNull.getValue(elContext));
+        Assert.assertEquals(Boolean.FALSE, notNull.getValue(elContext));
+
+        bean.setList(Collections.singletonList("a"));
+        bean.setChild(bean);
+        Assert.assertEquals(Boolean.FALSE, empty.getValue(elContext));
+        Assert.assertEquals(Boolean.TRUE, notEmpty.getValue(elContext));
+        Assert.assertEquals("false", isNull.getValue(elContext));
+        Assert.assertEquals(Boolean.TRUE, notNull.getValue(elContext));
+
+        bean.setList(new ArrayList<>());
+        Assert.assertEquals(Boolean.TRUE, empty.getValue(elContext));
+    }
+
+    @Test
+    public void testEvaluationListener()
+    {
+        externalContext.getRequestMap().put("bean", new Bean("root", new Bean("nested", null)));
+        ELContext elContext = facesContext.getELContext();
+        List<String> events = new ArrayList<>();
+        elContext.addEvaluationListener(new EvaluationListener()
+        {
+            @Override
+            public void beforeEvaluation(ELContext context, String expression)
+            {
+                events.add("before " + expression);
+            }
+
+            @Override
+            public void afterEvaluation(ELContext context, String expression)
+            {
+                events.add("after " + expression);
+            }
+        });
+
+        ValueExpression ve = create("#{bean.child.name}", Object.class, 1);
+        Assert.assertEquals("nested", ve.getValue(elContext));
+        Assert.assertTrue(((CompiledValueExpression) ve).isCompiled());
+        Assert.assertEquals(Arrays.asList("before #{bean.child.name}", "after #{bean.child.name}"), events);
+
+        events.clear();
+        ve = create("#{bean.child.missing}", Object.class, 1);
+        try
+        {
+            ve.getValue(elContext);
+            Assert.fail();
+        }
+        catch (ELException e)
+        {
+            // thrown by the ELResolver chain, not by evaluating the expression again
+        }
+        Assert.assertEquals(Collections.singletonList("before #{bean.child.missing}"), events);
+    }
+
+    @Test
+    public void testCoercion()
+    {
+        externalContext.getRequestMap().put("bean", new Bean("12", null));
+
+        ValueExpression ve = create("#{bean.name}", Integer.class, 1);
+        Assert.assertEquals(12, ve.getValue(facesContext.getELContext()));
+
+        externalContext.getRequestMap().put("bean", new Bean(null, null));
+        ve = create("#{bean.name}", String.class, 1);
+        Assert.assertEquals("", ve.getValue(facesContext.getELContext()));
+    }
+
+    @Test
+    public void testSetValue()
+    {
+        Bean bean = new Bean("root", null);
+        externalContext.getRequestMap().put("bean", bean);
+
+        ValueExpression ve = create("#{bean.name}", Object.class, 1);
+        ve.setValue(facesContext.getELContext(), "changed");
+        Assert.assertEquals("changed", bean.getName());
+        Assert.assertEquals("changed", ve.getValue(facesContext.getELContext()));
+    }
+
+    @Test
+    public void testSerialize() throws Exception
+    {
+        externalContext.getRequestMap().put("bean", new Bean("root", null));
+        ValueExpression ve = create("#{bean.name}", Object.class, 1);
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(128);
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(ve);
+        oos.flush();
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(baos.toByteArray()));
+        CompiledValueExpression ve2 = (CompiledValueExpression) ois.readObject();
+        Assert.assertEquals(ve.getExpressionString(), ve2.getExpressionString());
+        Assert.assertEquals(ve, ve2);
+        Assert.assertEquals("root", ve2.getValue(facesContext.getELContext()));
+        Assert.assertTrue(ve2.isCompiled());
+        oos.close();
+        ois.close();
+    }
+
+    public interface Named
+    {
+        String getName();
+    }
+
+    public static class Bean implements Named
+    {
+        private String name;
+        private Object child;
+        private List<String> list;
+        private Map<String, Object> map;
+
+        public Bean(String name, Object child)
+        {
+            this.name = name;
+            this.child = child;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+
+        public void setName(String name)
+        {
+            this.name = name;
+        }
+
+        public Object getChild()
+        {
+            return child;
+        }
+
+        public void setChild(Object child)
+        {
+            this.child = child;
+        }
+
+        public List<String> getList()
+        {
+            return list;
+        }
+
+        public void setList(List<String> list)
+        {
+            this.list = list;
+        }
+
+        public Map<String, Object> getMap()
+        {
+            return map;
+        }
+
+        public void setMap(Map<String, Object> map)
+        {
+            this.map = map;
+        }
+    }
+
+    public static class OtherBean implements Named
+    {
+        private final String name;
+
+        public OtherBean(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    private static class HiddenBean implements Named
+    {
+        @Override
+        public String getName()
+        {
+            return "hidden";
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.faces.view.facelets.FaceletCache;
+
+import org.apache.myfaces.resource.FileChangeWatcher;
+import org.apache.myfaces.view.facelets.FaceletTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FaceletCacheImplTest extends FaceletTestCase
+{
+    private static class CountingMemberFactory implements FaceletCache.MemberFactory<DefaultFacelet>
+    {
+        private final DefaultFaceletFactory factory;
+        private final AtomicInteger count = new AtomicInteger();
+
+        CountingMemberFactory(DefaultFaceletFactory factory)
+        {
+            this.factory = factory;
+        }
+
+        @Override
+        public DefaultFacelet newInstance(URL url) throws IOException
+        {
+            count.incrementAndGet();
+            try
+            {
+                Thread.sleep(50);
+            }
+            catch (InterruptedException e)
+            {
+                throw new IOException(e);
+            }
+            return new DefaultFacelet(factory, null, url, url.getPath(), url.getPath(), null, false);
+        }
+    }
+
+    private CountingMemberFactory memberFactory;
+
+    private FaceletCacheImpl createCache(long refreshPeriod)
+    {
+        return createCache(refreshPeriod, null);
+    }
+
+    private FaceletCacheImpl createCache(long refreshPeriod, FileChangeWatcher watcher)
+    {
+        FaceletCacheImpl cache = new FaceletCacheImpl(refreshPeriod, watcher);
+        memberFactory = new CountingMemberFactory((DefaultFaceletFactory) vdl.getFaceletFactory());
+        cache.setCacheFactories(memberFactory, memberFactory);
+        return cache;
+    }
+
+    @Test
+    public void testConcurrentLoadCompilesOnce() throws Exception
+    {
+        final FaceletCacheImpl cache = createCache(-1);
+        final URL url = new URL("file:/concurrent.xhtml");
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<DefaultFacelet>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+            {
+                results.add(executor.submit(new Callable<DefaultFacelet>()
+                {
+                    @Override
+                    public DefaultFacelet call() throws Exception
+                    {
+                        start.await();
+                        return cache.getFacelet(url);
+                    }
+                }));
+            }
+            start.countDown();
+
+            DefaultFacelet first = results.get(0).get();
+            for (Future<DefaultFacelet> result : results)
+            {
+                Assert.assertSame(first, result.get());
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals(1, memberFactory.count.get());
+        Assert.assertTrue(cache.isFaceletCached(url));
+        Assert.assertFalse(cache.isViewMetadataFaceletCached(url));
+    }
+
+    @Test
+    public void testNoCache() throws Exception
+    {
+        FaceletCacheImpl cache = createCache(0);
+        URL url = new URL("file:/nocache.xhtml");
+
+        Assert.assertNotSame(cache.getFacelet(url), cache.getFacelet(url));
+        Assert.assertFalse(cache.isFaceletCached(url));
+        Assert.assertEquals(2, memberFactory.count.get());
+    }
+
+    @Test
+    public void testModifiedFaceletIsEvicted() throws Exception
+    {
+        File file = File.createTempFile("facelet", ".xhtml");
+        try
+        {
+            FaceletCacheImpl cache = createCache(1);
+            URL url = file.toURI().toURL();
+
+            DefaultFacelet facelet = cache.getFacelet(url);
+            Assert.assertSame(facelet, cache.getFacelet(url));
+
+            Assert.assertTrue(file.setLastModified(System.currentTimeMillis() + 10000));
+            Thread.sleep(1100);
+
+            Assert.assertNotSame(facelet, cache.getFacelet(url));
+            Assert.assertEquals(2, memberFactory.count.get());
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testUnreadableFaceletIsEvicted() throws Exception
+    {
+        File file = File.createTempFile("facelet", ".xhtml");
+        try
+        {
+            FaceletCacheImpl cache = createCache(1);
+            URL url = file.toURI().toURL();
+            URL brokenUrl = new URL("broken", null, -1, "/broken.xhtml", new URLStreamHandler()
+            {
+                @Override
+                protected URLConnection openConnection(URL u) throws IOException
+                {
+                    throw new IOException("unreadable " + u);
+                }
+            });
+
+            DefaultFacelet facelet = cache.getFacelet(url);
+            DefaultFacelet brokenFacelet = cache.getFacelet(brokenUrl);
+
+            Assert.assertTrue(file.setLastModified(System.currentTimeMillis() + 10000));
+            Thread.sleep(1100);
+
+            // the error on one source neither fails the request nor stops the check of the other ones
+            Assert.assertNotSame(facelet, cache.getFacelet(url));
+            Assert.assertFalse(cache.isFaceletCached(brokenUrl));
+            Assert.assertNotSame(brokenFacelet, cache.getFacelet(brokenUrl));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testWatchedFaceletIsEvicted() throws Exception
+    {
+        File file = File.createTempFile("facelet", ".xhtml");
+        FileChangeWatcher watcher = new FileChangeWatcher();
+        try
+        {
+            FaceletCacheImpl cache = createCache(3600, watcher);
+            URL url = file.toURI().toURL();
+
+            DefaultFacelet facelet = cache.getFacelet(url);
+            Assert.assertTrue(cache.isFaceletCached(url));
+
+            try (OutputStream os = new FileOutputStream(file))
+            {
+                os.write("<html/>".getBytes("UTF-8"));
+            }
+
+            for (int i = 0; i < 300 && cache.isFaceletCached(url); i++)
+            {
+                Thread.sleep(100);
+            }
+            Assert.assertFalse(cache.isFaceletCached(url));
+            Assert.assertNotSame(facelet, cache.getFacelet(url));
+        }
+        finally
+        {
+            watcher.close();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.myfaces.view.facelets.pool.impl;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.faces.component.UIViewRoot;
+import org.apache.myfaces.test.base.junit.AbstractJsfTestCase;
+import org.apache.myfaces.view.facelets.pool.ViewEntry;
+import org.apache.myfaces.view.facelets.pool.ViewPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ViewPoolImplTest extends AbstractJsfTestCase
+{
+    private ViewPoolImpl createViewPool(int maxPoolSize, int maxTotalSize)
+    {
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put(ViewPool.INIT_PARAM_VIEW_POOL_ENTRY_MODE, ViewPool.ENTRY_MODE_STRONG);
+        parameters.put(ViewPool.INIT_PARAM_VIEW_POOL_MAX_POOL_SIZE, String.valueOf(maxPoolSize));
+        parameters.put(ViewPool.INIT_PARAM_VIEW_POOL_MAX_TOTAL_SIZE, String.valueOf(maxTotalSize));
+        return new ViewPoolImpl(facesContext, parameters);
+    }
+
+    private static MetadataViewKey key(String viewId)
+    {
+        return new MetadataViewKeyImpl(viewId, "HTML_BASIC", Locale.ENGLISH);
+    }
+
+    private static ViewEntry entry()
+    {
+        return new StrongViewEntry(new UIViewRoot());
+    }
+
+    @Test
+    public void testMaxPoolSize() throws Exception
+    {
+        ViewPoolImpl pool = createViewPool(3, 0);
+        MetadataViewKey key = key("/a.xhtml");
+
+        Assert.assertNull(pool.popStaticStructureView(facesContext, key));
+        for (int i = 0; i < 5; i++)
+        {
+            pool.pushStaticStructureView(facesContext, key, entry());
+        }
+        Assert.assertEquals(3, pool.getTotalCount());
+
+        for (int i = 0; i < 3; i++)
+        {
+            Assert.assertNotNull(pool.popStaticStructureView(facesContext, key));
+        }
+        Assert.assertNull(pool.popStaticStructureView(facesContext, key));
+        Assert.assertEquals(0, pool.getTotalCount());
+
+        // Polling an empty holder must not allow to exceed the limit later
+        for (int i = 0; i < 5; i++)
+        {
+            pool.pushStaticStructureView(facesContext, key, entry());
+        }
+        Assert.assertEquals(3, pool.getTotalCount());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception
+    {
+        ViewPoolImpl pool = createViewPool(5, 2);
+        MetadataViewKey a = key("/a.xhtml");
+        MetadataViewKey b = key("/b.xhtml");
+        MetadataViewKey c = key("/c.xhtml");
+
+        pool.pushStaticStructureView(facesContext, a, entry());
+        pool.pushStaticStructureView(facesContext, b, entry());
+        // use a, so b is the least recently used
+        ViewEntry used = pool.popStaticStructureView(facesContext, a);
+        pool.pushStaticStructureView(facesContext, a, used);
+
+        pool.pushStaticStructureView(facesContext, c, entry());
+
+        Assert.assertEquals(2, pool.getTotalCount());
+        Assert.assertEquals(1, pool.getStatistics().getEvictionCount());
+        Assert.assertNull(pool.popStaticStructureView(facesContext, b));
+        Assert.assertNotNull(pool.popStaticStructureView(facesContext, a));
+        Assert.assertNotNull(pool.popStaticStructureView(facesContext, c));
+    }
+
+    @Test
+    public void testStatistics() throws Exception
+    {
+        ViewPoolImpl pool = createViewPool(5, 0);
+        UIViewRoot root = new UIViewRoot();
+        root.setViewId("/a.xhtml");
+        root.setRenderKitId("HTML_BASIC");
+        root.setLocale(Locale.ENGLISH);
+
+        Assert.assertNull(pool.popStaticOrPartialStructureView(facesContext, root));
+        pool.viewBuilt(facesContext, root, 1000L);
+        pool.pushStaticStructureView(facesContext, pool.deriveViewKey(facesContext, root), entry());
+        Assert.assertNotNull(pool.popStaticOrPartialStructureView(facesContext, root));
+
+        Assert.assertEquals(1, pool.getStatistics().getHitCount());
+        Assert.assertEquals(1, pool.getStatistics().getMissCount());
+        Assert.assertEquals(1, pool.getStatistics().getBuildCount());
+        Assert.assertEquals(1000L, pool.getStatistics().getTotalBuildTime());
+        Assert.assertEquals(0.5d, pool.getStatistics().getHitRatio(), 0.001d);
+    }
+}